@@ -0,0 +1,194 @@
+package StevenDimDoors.mod_pocketDim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.packet.Packet250CustomPayload;
+import StevenDimDoors.mod_pocketDim.core.PocketManager;
+import StevenDimDoors.mod_pocketDim.ticking.IRegularTickReceiver;
+import StevenDimDoors.mod_pocketDim.ticking.IRegularTickSender;
+import StevenDimDoors.mod_pocketDim.util.VarInt;
+import cpw.mods.fml.common.network.PacketDispatcher;
+import cpw.mods.fml.common.network.Player;
+
+/**
+ * Sends snapshots of our data to players: a description of all our dimensions when they join the server and
+ * a description of the links in a dimension when they enter it. Large snapshots are split into parts that are
+ * sent over several ticks, so that a player doesn't hold up the connection with one huge payload.
+ */
+public class ClientSnapshotSender implements IRegularTickReceiver
+{
+	private static final int SEND_INTERVAL = 1; // Send parts every tick
+	private static final int MAX_PART_SIZE = 30000; // Stay well below the 32 KB limit on custom payloads
+	private static final int MAX_PARTS_PER_TICK = 4;
+
+	private static class PendingSnapshot
+	{
+		public final EntityPlayerMP player;
+		public final byte packetID;
+		public final int dimensionID;
+		public byte[] data;
+		public int partCount;
+		public int nextPart;
+
+		public PendingSnapshot(EntityPlayerMP player, byte packetID, int dimensionID)
+		{
+			this.player = player;
+			this.packetID = packetID;
+			this.dimensionID = dimensionID;
+			this.data = null;
+			this.partCount = 0;
+			this.nextPart = 0;
+		}
+	}
+
+	private final ArrayList<PendingSnapshot> snapshots;
+
+	// Metrics
+	private long snapshotCount = 0;
+	private long partCount = 0;
+	private long byteCount = 0;
+	private int largestSnapshot = 0;
+
+	public ClientSnapshotSender(IRegularTickSender sender)
+	{
+		this.snapshots = new ArrayList<PendingSnapshot>();
+		sender.registerReceiver(this, SEND_INTERVAL, false);
+	}
+
+	/**
+	 * Queues a description of all our dimensions to be sent to a player.
+	 */
+	public void enqueueDimensions(EntityPlayerMP player)
+	{
+		snapshots.add(new PendingSnapshot(player, PacketConstants.CLIENT_JOIN_PACKET_ID, 0));
+	}
+
+	/**
+	 * Queues a description of the links in a dimension to be sent to a player. Any links in that dimension
+	 * that were queued for the player earlier but haven't started being sent yet are superseded.
+	 */
+	public void enqueueLinks(EntityPlayerMP player, int dimensionID)
+	{
+		for (Iterator<PendingSnapshot> iterator = snapshots.iterator(); iterator.hasNext(); )
+		{
+			PendingSnapshot snapshot = iterator.next();
+			if (snapshot.player == player && snapshot.packetID == PacketConstants.LINK_SNAPSHOT_PACKET_ID && snapshot.data == null)
+			{
+				iterator.remove();
+			}
+		}
+		snapshots.add(new PendingSnapshot(player, PacketConstants.LINK_SNAPSHOT_PACKET_ID, dimensionID));
+	}
+
+	@Override
+	public void notifyTick()
+	{
+		int budget = MAX_PARTS_PER_TICK;
+		Iterator<PendingSnapshot> iterator = snapshots.iterator();
+		while (budget > 0 && iterator.hasNext())
+		{
+			PendingSnapshot snapshot = iterator.next();
+			if (snapshot.player.playerNetServerHandler == null || snapshot.player.playerNetServerHandler.connectionClosed)
+			{
+				// The player left before we were done
+				iterator.remove();
+				continue;
+			}
+			if (snapshot.data == null)
+			{
+				// Take the snapshot right before sending its first part. Any changes after this point
+				// are sent to the client after the first part, so the client knows to apply them afterwards.
+				if (!createSnapshot(snapshot))
+				{
+					iterator.remove();
+					continue;
+				}
+			}
+			while (budget > 0 && snapshot.nextPart < snapshot.partCount)
+			{
+				PacketDispatcher.sendPacketToPlayer(createPart(snapshot), (Player) snapshot.player);
+				snapshot.nextPart++;
+				budget--;
+			}
+			if (snapshot.nextPart == snapshot.partCount)
+			{
+				iterator.remove();
+			}
+		}
+	}
+
+	private boolean createSnapshot(PendingSnapshot snapshot)
+	{
+		try
+		{
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			DataOutputStream writer = new DataOutputStream(buffer);
+			if (snapshot.packetID == PacketConstants.CLIENT_JOIN_PACKET_ID)
+			{
+				PocketManager.writePacket(writer);
+			}
+			else
+			{
+				PocketManager.writeLinkPacket(snapshot.dimensionID, writer);
+			}
+			writer.close();
+			snapshot.data = buffer.toByteArray();
+			snapshot.partCount = Math.max((snapshot.data.length + MAX_PART_SIZE - 1) / MAX_PART_SIZE, 1);
+			snapshotCount++;
+			largestSnapshot = Math.max(largestSnapshot, snapshot.data.length);
+			return true;
+		}
+		catch (IOException e)
+		{
+			System.err.println("An unexpected exception occurred while preparing a snapshot for a client:");
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	private Packet250CustomPayload createPart(PendingSnapshot snapshot)
+	{
+		// Each part consists of the packet ID, the index of the part, the number of parts, and then the data
+		Packet250CustomPayload packet = new Packet250CustomPayload();
+		try
+		{
+			int offset = snapshot.nextPart * MAX_PART_SIZE;
+			int length = Math.min(MAX_PART_SIZE, snapshot.data.length - offset);
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(length + 11);
+			DataOutputStream writer = new DataOutputStream(buffer);
+			writer.writeByte(snapshot.packetID);
+			VarInt.writeUnsigned(writer, snapshot.nextPart);
+			VarInt.writeUnsigned(writer, snapshot.partCount);
+			writer.write(snapshot.data, offset, length);
+			writer.close();
+			packet.channel = PacketConstants.CHANNEL_NAME;
+			packet.data = buffer.toByteArray();
+			packet.length = packet.data.length;
+		}
+		catch (IOException e)
+		{
+			//This shouldn't happen...
+			e.printStackTrace();
+		}
+		partCount++;
+		byteCount += packet.length;
+		return packet;
+	}
+
+	public int getPendingCount()
+	{
+		return snapshots.size();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("Client snapshots: %d pending, %d sent, %d parts, %d bytes, %d bytes in the largest snapshot",
+				snapshots.size(), snapshotCount, partCount, byteCount, largestSnapshot);
+	}
+}
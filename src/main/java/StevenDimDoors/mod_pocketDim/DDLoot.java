@@ -1,6 +1,7 @@
 package StevenDimDoors.mod_pocketDim;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 
 import net.minecraft.enchantment.Enchantment;
@@ -9,11 +10,11 @@ import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.MathHelper;
-import net.minecraft.util.WeightedRandom;
 import net.minecraft.util.WeightedRandomChestContent;
 import net.minecraftforge.common.ChestGenHooks;
 import StevenDimDoors.mod_pocketDim.config.DDProperties;
 import StevenDimDoors.mod_pocketDim.util.WeightedContainer;
+import StevenDimDoors.mod_pocketDim.util.WeightedSampler;
 
 /*
  * Registers a category of loot chests for Dimensional Doors in Forge.
@@ -118,12 +119,18 @@ public class DDLoot {
 		// 2. The randomized filling algorithm will sometimes overwrite item stacks with other stacks
 		
 		int count = chestInfo.getCount(random);
-		WeightedRandomChestContent[] content = chestInfo.getItems(random);
+		// Build a sampler once so that each item is picked in constant time, rather than scanning the
+		// contents for every item. The contents can change between calls, so the sampler isn't kept.
+		WeightedSampler<WeightedRandomChestContent> content = WeightedSampler.fromItems(Arrays.asList(chestInfo.getItems(random)));
 		ArrayList<ItemStack> allStacks = new ArrayList<ItemStack>();
 		
         for (int k = 0; k < count; k++)
         {
-            WeightedRandomChestContent selection = (WeightedRandomChestContent)WeightedRandom.getRandomItem(random, content);
+            WeightedRandomChestContent selection = content.sample(random);
+            if (selection == null)
+            {
+            	break;
+            }
             
             // Call getChestGenBase() to make sure we generate a different enchantment for books.
             // Don't just use a condition to check if the item is an instance of ItemEnchantedBook because
@@ -29,9 +29,13 @@ import StevenDimDoors.mod_pocketDim.core.NewDimData;
 import StevenDimDoors.mod_pocketDim.core.PocketManager;
 import StevenDimDoors.mod_pocketDim.items.BaseItemDoor;
 import StevenDimDoors.mod_pocketDim.items.ItemWarpDoor;
+import StevenDimDoors.mod_pocketDim.ticking.CustomLimboPopulator;
+import StevenDimDoors.mod_pocketDim.ticking.PlayerProximityIndex;
 import StevenDimDoors.mod_pocketDim.ticking.RiftRegenerator;
 import StevenDimDoors.mod_pocketDim.util.Point4D;
+import StevenDimDoors.mod_pocketDim.world.LimboDecay;
 import StevenDimDoors.mod_pocketDim.world.LimboProvider;
+import StevenDimDoors.mod_pocketDim.world.PocketGenerationQueue;
 import StevenDimDoors.mod_pocketDim.world.PocketProvider;
 import cpw.mods.fml.client.FMLClientHandler;
 import cpw.mods.fml.relauncher.Side;
@@ -44,19 +48,26 @@ public class EventHookContainer
 	private final DDProperties properties;
 	private DDWorldProperties worldProperties;
 	private RiftRegenerator regenerator;
+	private PocketGenerationQueue pocketGenerator;
+	private LimboDecay limboDecay;
+	private CustomLimboPopulator spawner;
 
 	public EventHookContainer(DDProperties properties)
 	{
 		this.properties = properties;
 	}
 	
-	public void setSessionFields(DDWorldProperties worldProperties, RiftRegenerator regenerator)
+	public void setSessionFields(DDWorldProperties worldProperties, RiftRegenerator regenerator, PocketGenerationQueue pocketGenerator,
+		LimboDecay limboDecay, CustomLimboPopulator spawner)
 	{
 		// SenseiKiwi:
 		// Why have a setter rather than accessing mod_pocketDim directly?
 		// I want to make this dependency explicit in our code.
 		this.worldProperties = worldProperties;
 		this.regenerator = regenerator;
+		this.pocketGenerator = pocketGenerator;
+		this.limboDecay = limboDecay;
+		this.spawner = spawner;
 	}
 
 	@ForgeSubscribe(priority = EventPriority.LOW)
@@ -245,7 +256,21 @@ public class EventHookContainer
 	{
 		if (event.world.provider.dimensionId == 0)
 		{
+			// Finish building any dungeons that are still under construction
+			// so that we never save a partially built pocket.
+			if (pocketGenerator != null)
+			{
+				pocketGenerator.finishAll();
+			}
 			PocketManager.save(true);
+			if (regenerator != null)
+			{
+				regenerator.writeToFile();
+			}
+			if (spawner != null)
+			{
+				spawner.writeToFile();
+			}
 
 			if (mod_pocketDim.deathTracker != null && mod_pocketDim.deathTracker.isModified())
 			{
@@ -254,6 +279,17 @@ public class EventHookContainer
 		}
 	}
 	
+	@ForgeSubscribe
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		// The proximity index holds on to the world's players, so it has to be dropped on both sides
+		PlayerProximityIndex.removeWorld(event.world);
+		if (!event.world.isRemote && mod_pocketDim.riftClusters != null)
+		{
+			mod_pocketDim.riftClusters.unloadDimension(event.world.provider.dimensionId);
+		}
+	}
+	
 	@ForgeSubscribe
 	public void onChunkLoad(ChunkEvent.Load event)
 	{
@@ -270,6 +306,19 @@ public class EventHookContainer
 			{
 				regenerator.scheduleSlowRegeneration(link);
 			}
+			
+			// Find the blocks in Limbo that are next to Unraveled Fabric so that decay can spread to them
+			limboDecay.scanChunk(chunk);
+		}
+	}
+	
+	@ForgeSubscribe
+	public void onChunkUnload(ChunkEvent.Unload event)
+	{
+		Chunk chunk = event.getChunk();
+		if (!chunk.worldObj.isRemote && limboDecay != null)
+		{
+			limboDecay.unloadChunk(chunk);
 		}
 	}
 
@@ -0,0 +1,87 @@
+package StevenDimDoors.mod_pocketDim;
+
+import java.util.HashMap;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import cpw.mods.fml.common.IPlayerTracker;
+
+/**
+ * Keeps track of which dimension's links each player is subscribed to. Clients only keep the links of the
+ * dimension they're in, so a player subscribes to a dimension when they join the server or enter the dimension,
+ * and the subscription is released when they leave. Each new subscription starts with a snapshot of the links
+ * in the dimension, after which the player receives changes to those links as they happen.
+ */
+public class LinkSubscriptionManager implements IPlayerTracker
+{
+	private final HashMap<String, Integer> subscriptions;
+
+	public LinkSubscriptionManager()
+	{
+		this.subscriptions = new HashMap<String, Integer>();
+	}
+
+	public boolean isSubscribed(EntityPlayer player, int dimensionID)
+	{
+		Integer subscription = subscriptions.get(player.username);
+		return (subscription != null && subscription == dimensionID);
+	}
+
+	public int getSubscriberCount()
+	{
+		return subscriptions.size();
+	}
+
+	/**
+	 * Releases all subscriptions. This should be called when the server stops.
+	 */
+	public void clear()
+	{
+		subscriptions.clear();
+	}
+
+	private void subscribe(EntityPlayer player)
+	{
+		ClientSnapshotSender sender = mod_pocketDim.snapshotSender;
+		if (sender != null && player instanceof EntityPlayerMP)
+		{
+			Integer previous = subscriptions.put(player.username, player.dimension);
+			if (previous == null || previous != player.dimension)
+			{
+				sender.enqueueLinks((EntityPlayerMP) player, player.dimension);
+			}
+		}
+	}
+
+	@Override
+	public void onPlayerLogin(EntityPlayer player)
+	{
+		ClientSnapshotSender sender = mod_pocketDim.snapshotSender;
+		if (sender != null && player instanceof EntityPlayerMP)
+		{
+			// Send the player a description of our dimensions first, then the links in their dimension
+			subscriptions.remove(player.username);
+			sender.enqueueDimensions((EntityPlayerMP) player);
+			subscribe(player);
+		}
+	}
+
+	@Override
+	public void onPlayerLogout(EntityPlayer player)
+	{
+		subscriptions.remove(player.username);
+	}
+
+	@Override
+	public void onPlayerChangedDimension(EntityPlayer player)
+	{
+		subscribe(player);
+	}
+
+	@Override
+	public void onPlayerRespawn(EntityPlayer player)
+	{
+		// Respawning can move a player to another dimension without raising a dimension change event
+		subscribe(player);
+	}
+}
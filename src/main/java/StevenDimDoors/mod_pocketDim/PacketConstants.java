@@ -13,5 +13,7 @@ public class PacketConstants
 	public static final byte DELETE_LINK_PACKET_ID = 5;
 	public static final byte CLIENT_LOGIN_DIM_REGISTER = 6;
 	public static final byte UPDATE_LINK_PACKET_ID = 7;
+	public static final byte BATCH_PACKET_ID = 8;
+	public static final byte LINK_SNAPSHOT_PACKET_ID = 9;
 
 }
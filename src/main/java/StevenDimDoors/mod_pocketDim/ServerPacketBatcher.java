@@ -0,0 +1,383 @@
+package StevenDimDoors.mod_pocketDim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.packet.Packet250CustomPayload;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.MathHelper;
+import StevenDimDoors.mod_pocketDim.ticking.IRegularTickReceiver;
+import StevenDimDoors.mod_pocketDim.ticking.IRegularTickSender;
+import StevenDimDoors.mod_pocketDim.util.Point4D;
+import StevenDimDoors.mod_pocketDim.util.VarInt;
+import StevenDimDoors.mod_pocketDim.watcher.ClientDimData;
+import StevenDimDoors.mod_pocketDim.watcher.ClientLinkData;
+import cpw.mods.fml.common.network.PacketDispatcher;
+import cpw.mods.fml.common.network.Player;
+
+/**
+ * Buffers the dimension and link changes that happen during a tick and sends them to clients together at the
+ * end of the tick. Changes to the same dimension or link are coalesced, so that a link that is created and then
+ * deleted within a tick is never sent at all. Many changes are packed into each packet.
+ *
+ * Dimension changes are sent to every player, since clients need to know about every dimension. Link changes are
+ * only sent to the players subscribed to the link's dimension. Newly created links can optionally be sent only to
+ * the subscribers within a certain number of chunks. Other subscribers learn about those links when the chunks
+ * around them are sent, because rift and door tile entities include their link data in their description packets.
+ * Updates and deletions are always sent to every subscriber, since description packets can only create links and
+ * a client that missed a deletion would otherwise keep the deleted link forever.
+ */
+public class ServerPacketBatcher implements IRegularTickReceiver
+{
+	private static final int BATCH_INTERVAL = 1; // Send changes at the end of every tick
+	private static final int MAX_PAYLOAD_SIZE = 30000; // Stay well below the 32 KB limit on custom payloads
+
+	private static class PendingChange<T>
+	{
+		public byte packetID;
+		public T data;
+
+		public PendingChange(byte packetID, T data)
+		{
+			this.packetID = packetID;
+			this.data = data;
+		}
+	}
+
+	private final LinkSubscriptionManager subscriptions;
+	private final int syncRadius;
+	private final LinkedHashMap<Integer, PendingChange<ClientDimData>> dimChanges;
+	private final LinkedHashMap<Point4D, PendingChange<ClientLinkData>> linkChanges;
+
+	// Metrics
+	private long receivedCount = 0;
+	private long coalescedCount = 0;
+	private long sentRecordCount = 0;
+	private long packetCount = 0;
+	private long byteCount = 0;
+
+	/**
+	 * Creates a batcher for dimension and link changes.
+	 * @param subscriptions - keeps track of the dimension whose links each player receives
+	 * @param syncRadius - the radius in chunks around a new link within which players are told about it,
+	 * or 0 to tell every player in the link's dimension
+	 */
+	public ServerPacketBatcher(IRegularTickSender sender, LinkSubscriptionManager subscriptions, int syncRadius)
+	{
+		this.subscriptions = subscriptions;
+		this.syncRadius = Math.max(syncRadius, 0);
+		this.dimChanges = new LinkedHashMap<Integer, PendingChange<ClientDimData>>();
+		this.linkChanges = new LinkedHashMap<Point4D, PendingChange<ClientLinkData>>();
+		sender.registerReceiver(this, BATCH_INTERVAL, false);
+	}
+
+	public void queueDimChange(byte packetID, ClientDimData data)
+	{
+		receivedCount++;
+		PendingChange<ClientDimData> change = merge(dimChanges.remove(data.ID), packetID, data,
+				PacketConstants.CREATE_DIM_PACKET_ID, PacketConstants.DELETE_DIM_PACKET_ID);
+		if (change != null)
+		{
+			dimChanges.put(data.ID, change);
+		}
+	}
+
+	public void queueLinkChange(byte packetID, ClientLinkData data)
+	{
+		receivedCount++;
+		PendingChange<ClientLinkData> change = merge(linkChanges.remove(data.point), packetID, data,
+				PacketConstants.CREATE_LINK_PACKET_ID, PacketConstants.DELETE_LINK_PACKET_ID);
+		if (change != null)
+		{
+			linkChanges.put(data.point, change);
+		}
+	}
+
+	private <T> PendingChange<T> merge(PendingChange<T> previous, byte packetID, T data, byte createID, byte deleteID)
+	{
+		if (previous == null)
+		{
+			return new PendingChange<T>(packetID, data);
+		}
+
+		// Only the latest data matters, but the kind of change depends on what came before it
+		coalescedCount++;
+		if (previous.packetID == createID)
+		{
+			if (packetID == deleteID)
+			{
+				// Created and deleted within the same tick. Clients never need to hear about it.
+				coalescedCount++;
+				return null;
+			}
+			// An update to something that clients haven't seen yet is still a creation
+			packetID = createID;
+		}
+		previous.packetID = packetID;
+		previous.data = data;
+		return previous;
+	}
+
+	@Override
+	public void notifyTick()
+	{
+		if (dimChanges.isEmpty() && linkChanges.isEmpty())
+		{
+			return;
+		}
+
+		MinecraftServer server = MinecraftServer.getServer();
+		if (server != null && server.getConfigurationManager() != null)
+		{
+			sendDimChanges(server.getConfigurationManager().playerEntityList.size());
+			sendLinkChanges(server.getConfigurationManager().playerEntityList);
+		}
+		dimChanges.clear();
+		linkChanges.clear();
+	}
+
+	private void sendDimChanges(int playerCount)
+	{
+		if (dimChanges.isEmpty())
+		{
+			return;
+		}
+
+		BatchWriter writer = new BatchWriter();
+		for (PendingChange<ClientDimData> change : dimChanges.values())
+		{
+			writer.writeDim(change);
+			if (writer.isFull())
+			{
+				PacketDispatcher.sendPacketToAllPlayers(writer.finish(playerCount));
+			}
+		}
+		if (!writer.isEmpty())
+		{
+			PacketDispatcher.sendPacketToAllPlayers(writer.finish(playerCount));
+		}
+	}
+
+	private void sendLinkChanges(List<?> players)
+	{
+		if (linkChanges.isEmpty())
+		{
+			return;
+		}
+
+		// Group the changes by dimension. Links in dimensions that were deleted during
+		// this tick are dropped, since clients discard those dimensions' links anyway.
+		HashMap<Integer, List<PendingChange<ClientLinkData>>> changesByDimension =
+				new HashMap<Integer, List<PendingChange<ClientLinkData>>>();
+		for (PendingChange<ClientLinkData> change : linkChanges.values())
+		{
+			Integer dimensionID = change.data.point.getDimension();
+			PendingChange<ClientDimData> dimChange = dimChanges.get(dimensionID);
+			if (dimChange != null && dimChange.packetID == PacketConstants.DELETE_DIM_PACKET_ID)
+			{
+				coalescedCount++;
+				continue;
+			}
+			List<PendingChange<ClientLinkData>> changes = changesByDimension.get(dimensionID);
+			if (changes == null)
+			{
+				changes = new ArrayList<PendingChange<ClientLinkData>>();
+				changesByDimension.put(dimensionID, changes);
+			}
+			changes.add(change);
+		}
+
+		for (List<PendingChange<ClientLinkData>> changes : changesByDimension.values())
+		{
+			int dimensionID = changes.get(0).data.point.getDimension();
+			ArrayList<EntityPlayerMP> recipients = new ArrayList<EntityPlayerMP>();
+			for (Object playerObject : players)
+			{
+				EntityPlayerMP player = (EntityPlayerMP) playerObject;
+				if (subscriptions.isSubscribed(player, dimensionID))
+				{
+					recipients.add(player);
+				}
+			}
+			if (recipients.isEmpty())
+			{
+				continue;
+			}
+			
+			if (syncRadius == 0)
+			{
+				// Everyone in the dimension gets the same packets, so only build them once
+				for (Packet250CustomPayload packet : buildLinkPackets(changes, null, recipients.size()))
+				{
+					for (EntityPlayerMP player : recipients)
+					{
+						PacketDispatcher.sendPacketToPlayer(packet, (Player) player);
+					}
+				}
+			}
+			else
+			{
+				for (EntityPlayerMP player : recipients)
+				{
+					for (Packet250CustomPayload packet : buildLinkPackets(changes, player, 1))
+					{
+						PacketDispatcher.sendPacketToPlayer(packet, (Player) player);
+					}
+				}
+			}
+		}
+	}
+
+	private List<Packet250CustomPayload> buildLinkPackets(List<PendingChange<ClientLinkData>> changes,
+		EntityPlayerMP player, int recipients)
+	{
+		// If a player is specified, only include the new links within the sync radius around that player.
+		// Updates and deletions are always included.
+		int playerChunkX = 0;
+		int playerChunkZ = 0;
+		if (player != null)
+		{
+			playerChunkX = MathHelper.floor_double(player.posX) >> 4;
+			playerChunkZ = MathHelper.floor_double(player.posZ) >> 4;
+		}
+
+		ArrayList<Packet250CustomPayload> packets = new ArrayList<Packet250CustomPayload>();
+		BatchWriter writer = new BatchWriter();
+		for (PendingChange<ClientLinkData> change : changes)
+		{
+			Point4D point = change.data.point;
+			if (player == null || change.packetID != PacketConstants.CREATE_LINK_PACKET_ID ||
+				(Math.abs((point.getX() >> 4) - playerChunkX) <= syncRadius &&
+				Math.abs((point.getZ() >> 4) - playerChunkZ) <= syncRadius))
+			{
+				writer.writeLink(change);
+				if (writer.isFull())
+				{
+					packets.add(writer.finish(recipients));
+				}
+			}
+		}
+		if (!writer.isEmpty())
+		{
+			packets.add(writer.finish(recipients));
+		}
+		return packets;
+	}
+
+	/**
+	 * Writes change records into batch packets. Each batch packet consists of its packet ID, the number of
+	 * records, and then the records themselves. Each record is the packet ID that the change would have had as
+	 * a packet of its own, followed by the change's data.
+	 */
+	private class BatchWriter
+	{
+		private ByteArrayOutputStream buffer;
+		private DataOutputStream records;
+		private int recordCount;
+
+		public BatchWriter()
+		{
+			reset();
+		}
+
+		private void reset()
+		{
+			buffer = new ByteArrayOutputStream();
+			records = new DataOutputStream(buffer);
+			recordCount = 0;
+		}
+
+		public void writeDim(PendingChange<ClientDimData> change)
+		{
+			try
+			{
+				records.writeByte(change.packetID);
+				change.data.write(records);
+				recordCount++;
+			}
+			catch (IOException e)
+			{
+				//This shouldn't happen...
+				e.printStackTrace();
+			}
+		}
+
+		public void writeLink(PendingChange<ClientLinkData> change)
+		{
+			try
+			{
+				records.writeByte(change.packetID);
+				change.data.write(records);
+				recordCount++;
+			}
+			catch (IOException e)
+			{
+				//This shouldn't happen...
+				e.printStackTrace();
+			}
+		}
+
+		public boolean isEmpty()
+		{
+			return (recordCount == 0);
+		}
+
+		public boolean isFull()
+		{
+			return (buffer.size() >= MAX_PAYLOAD_SIZE);
+		}
+
+		/**
+		 * Builds a packet out of the records written so far and starts a new batch.
+		 * @param recipients - the number of players the packet will be sent to, for our metrics
+		 */
+		public Packet250CustomPayload finish(int recipients)
+		{
+			Packet250CustomPayload packet = new Packet250CustomPayload();
+			try
+			{
+				ByteArrayOutputStream payload = new ByteArrayOutputStream(buffer.size() + 6);
+				DataOutputStream writer = new DataOutputStream(payload);
+				writer.writeByte(PacketConstants.BATCH_PACKET_ID);
+				VarInt.writeUnsigned(writer, recordCount);
+				buffer.writeTo(writer);
+				writer.close();
+				packet.channel = PacketConstants.CHANNEL_NAME;
+				packet.data = payload.toByteArray();
+				packet.length = packet.data.length;
+			}
+			catch (IOException e)
+			{
+				//This shouldn't happen...
+				e.printStackTrace();
+			}
+
+			sentRecordCount += recordCount;
+			if (recipients > 0)
+			{
+				packetCount += recipients;
+				byteCount += (long) packet.length * recipients;
+			}
+			reset();
+			return packet;
+		}
+	}
+
+	public int getPendingCount()
+	{
+		return dimChanges.size() + linkChanges.size();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("Sync packets: %d changes received, %d coalesced, %d records sent, %d packets sent, %d bytes sent",
+				receivedCount, coalescedCount, sentRecordCount, packetCount, byteCount);
+	}
+}
@@ -31,13 +31,13 @@ public class ServerPacketHandler implements IPacketHandler
 		@Override
 		public void onCreated(ClientDimData message)
 		{
-			sendDimPacket(PacketConstants.CREATE_DIM_PACKET_ID, message);
+			queueDimPacket(PacketConstants.CREATE_DIM_PACKET_ID, message);
 		}
 
 		@Override
 		public void onDeleted(ClientDimData message)
 		{
-			sendDimPacket(PacketConstants.DELETE_DIM_PACKET_ID, message);
+			queueDimPacket(PacketConstants.DELETE_DIM_PACKET_ID, message);
 		}
 
 		@Override
@@ -53,19 +53,46 @@ public class ServerPacketHandler implements IPacketHandler
 		@Override
 		public void onCreated(ClientLinkData message)
 		{
-			sendLinkPacket(PacketConstants.CREATE_LINK_PACKET_ID, message);
+			queueLinkPacket(PacketConstants.CREATE_LINK_PACKET_ID, message);
 		}
 
 		@Override
 		public void onDeleted(ClientLinkData message)
 		{
-			sendLinkPacket(PacketConstants.DELETE_LINK_PACKET_ID, message);
+			queueLinkPacket(PacketConstants.DELETE_LINK_PACKET_ID, message);
 		}
 
 		@Override
 		public void update(ClientLinkData message)
 		{
-			sendLinkPacket(PacketConstants.UPDATE_LINK_PACKET_ID, message);
+			queueLinkPacket(PacketConstants.UPDATE_LINK_PACKET_ID, message);
+		}
+	}
+	
+	private static void queueDimPacket(byte id, ClientDimData data)
+	{
+		// Batch changes while the server is running. Otherwise, send them right away.
+		ServerPacketBatcher batcher = mod_pocketDim.packetBatcher;
+		if (batcher != null)
+		{
+			batcher.queueDimChange(id, data);
+		}
+		else
+		{
+			sendDimPacket(id, data);
+		}
+	}
+	
+	private static void queueLinkPacket(byte id, ClientLinkData data)
+	{
+		ServerPacketBatcher batcher = mod_pocketDim.packetBatcher;
+		if (batcher != null)
+		{
+			batcher.queueLinkChange(id, data);
+		}
+		else
+		{
+			sendLinkPacket(id, data);
 		}
 	}
 	
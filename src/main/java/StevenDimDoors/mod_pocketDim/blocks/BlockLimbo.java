@@ -1,7 +1,5 @@
 package StevenDimDoors.mod_pocketDim.blocks;
 
-import java.util.Random;
-
 import net.minecraft.block.Block;
 import net.minecraft.block.material.Material;
 import net.minecraft.client.renderer.texture.IconRegister;
@@ -23,7 +21,7 @@ public class BlockLimbo extends Block
 		super(i, Material.ground);
 		this.limboDimensionID = limboDimensionID;
 		this.decay = decay;
-		this.setTickRandomly(true);
+		this.setTickRandomly(false);
 		this.setCreativeTab(mod_pocketDim.dimDoorsCreativeTab);
 	}
 
@@ -50,15 +48,27 @@ public class BlockLimbo extends Block
 	}
 	
 	/**
-	 * If the block is in Limbo, attempt to decay surrounding blocks upon receiving a random update tick.
+	 * If the block is in Limbo, add the blocks around it to the decay frontier. Spread decay is applied to
+	 * the frontier by LimboDecay, so this block doesn't need random update ticks.
+	 */
+	@Override
+	public void onBlockAdded(World world, int x, int y, int z)
+	{
+		if (world.provider.dimensionId == limboDimensionID)
+		{
+			decay.addNeighborsToFrontier(world, x, y, z);
+		}
+	}
+	
+	/**
+	 * If the block is in Limbo, check whether a neighboring block that just changed can decay.
 	 */
-    @Override
-    public void updateTick(World world, int x, int y, int z, Random random)
-    {
-    	//Make sure this block is in Limbo
-    	if (world.provider.dimensionId == limboDimensionID)
-    	{
-    		decay.applySpreadDecay(world, x, y, z);
-    	}
-    }
+	@Override
+	public void onNeighborBlockChange(World world, int x, int y, int z, int neighborID)
+	{
+		if (world.provider.dimensionId == limboDimensionID)
+		{
+			decay.addNeighborsToFrontier(world, x, y, z);
+		}
+	}
 }
@@ -1,9 +1,5 @@
 package StevenDimDoors.mod_pocketDim.blocks;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Queue;
 import java.util.Random;
 
 import net.minecraft.block.Block;
@@ -19,7 +15,6 @@ import net.minecraft.util.AxisAlignedBB;
 import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
 import net.minecraftforge.fluids.IFluidBlock;
-import StevenDimDoors.mod_pocketDim.Point3D;
 import StevenDimDoors.mod_pocketDim.mod_pocketDim;
 import StevenDimDoors.mod_pocketDim.config.DDProperties;
 import StevenDimDoors.mod_pocketDim.core.DimLink;
@@ -38,7 +33,7 @@ public class BlockRift extends Block implements ITileEntityProvider
 {
 	private static final float MIN_IMMUNE_RESISTANCE = 5000.0F;
 	private static final int BLOCK_DESTRUCTION_RANGE = 4;
-	private static final int RIFT_SPREAD_RANGE = 5;
+	private static final int RIFT_SPREAD_RANGE = 4;
 	private static final int MAX_BLOCK_SEARCH_CHANCE = 100;
 	private static final int BLOCK_SEARCH_CHANCE = 50;
 	private static final int MAX_BLOCK_DESTRUCTION_CHANCE = 100;
@@ -47,44 +42,53 @@ public class BlockRift extends Block implements ITileEntityProvider
 	public static final int MAX_WORLD_THREAD_DROP_CHANCE = 1000;
 	
 	private final DDProperties properties;
-	private final ArrayList<Integer> blocksImmuneToRift;	// List of Vanilla blocks immune to rifts
-	private final ArrayList<Integer> modBlocksImmuneToRift; // List of DD blocks immune to rifts
+	private final boolean[] blocksImmuneToRift;	// Vanilla and DD blocks immune to rifts, indexed by block ID
+	private final boolean[] modBlocksImmuneToRift; // DD blocks immune to rifts, indexed by block ID
+	private final ReachableBlockSearch blockSearch;
 	
 	public BlockRift(int i, int j, Material par2Material, DDProperties properties) 
 	{
 		super(i, par2Material);
 		this.setTickRandomly(true);
 		this.properties = properties;
-		this.modBlocksImmuneToRift = new ArrayList<Integer>();
-		this.modBlocksImmuneToRift.add(properties.FabricBlockID);
-		this.modBlocksImmuneToRift.add(properties.PermaFabricBlockID);
-		this.modBlocksImmuneToRift.add(properties.DimensionalDoorID);
-		this.modBlocksImmuneToRift.add(properties.WarpDoorID);
-		this.modBlocksImmuneToRift.add(properties.TransTrapdoorID);
-		this.modBlocksImmuneToRift.add(properties.UnstableDoorID);
-		this.modBlocksImmuneToRift.add(properties.RiftBlockID);
-		this.modBlocksImmuneToRift.add(properties.TransientDoorID);
-		this.modBlocksImmuneToRift.add(properties.GoldenDimensionalDoorID);
-		this.modBlocksImmuneToRift.add(properties.GoldenDoorID);
+		this.blockSearch = new ReachableBlockSearch(Math.max(BLOCK_DESTRUCTION_RANGE, RIFT_SPREAD_RANGE));
+		this.modBlocksImmuneToRift = new boolean[Block.blocksList.length];
+		setImmune(modBlocksImmuneToRift, properties.FabricBlockID);
+		setImmune(modBlocksImmuneToRift, properties.PermaFabricBlockID);
+		setImmune(modBlocksImmuneToRift, properties.DimensionalDoorID);
+		setImmune(modBlocksImmuneToRift, properties.WarpDoorID);
+		setImmune(modBlocksImmuneToRift, properties.TransTrapdoorID);
+		setImmune(modBlocksImmuneToRift, properties.UnstableDoorID);
+		setImmune(modBlocksImmuneToRift, properties.RiftBlockID);
+		setImmune(modBlocksImmuneToRift, properties.TransientDoorID);
+		setImmune(modBlocksImmuneToRift, properties.GoldenDimensionalDoorID);
+		setImmune(modBlocksImmuneToRift, properties.GoldenDoorID);
 		
-		this.blocksImmuneToRift = new ArrayList<Integer>();
-		
-		this.blocksImmuneToRift.add(properties.FabricBlockID);
-		this.blocksImmuneToRift.add(properties.PermaFabricBlockID);
-		this.blocksImmuneToRift.add(properties.DimensionalDoorID);
-		this.blocksImmuneToRift.add(properties.WarpDoorID);
-		this.blocksImmuneToRift.add(properties.TransTrapdoorID);
-		this.blocksImmuneToRift.add(properties.UnstableDoorID);
-		this.blocksImmuneToRift.add(properties.RiftBlockID);
-		this.blocksImmuneToRift.add(properties.TransientDoorID);
-		this.blocksImmuneToRift.add(properties.GoldenDimensionalDoorID);
-		this.blocksImmuneToRift.add(properties.GoldenDoorID);
-		this.blocksImmuneToRift.add(properties.PersonalDimDoorID);
-		this.blocksImmuneToRift.add(Block.blockLapis.blockID);
-		this.blocksImmuneToRift.add(Block.blockIron.blockID);
-		this.blocksImmuneToRift.add(Block.blockGold.blockID);
-		this.blocksImmuneToRift.add(Block.blockDiamond.blockID);
-		this.blocksImmuneToRift.add(Block.blockEmerald.blockID);
+		this.blocksImmuneToRift = new boolean[Block.blocksList.length];
+		setImmune(blocksImmuneToRift, properties.FabricBlockID);
+		setImmune(blocksImmuneToRift, properties.PermaFabricBlockID);
+		setImmune(blocksImmuneToRift, properties.DimensionalDoorID);
+		setImmune(blocksImmuneToRift, properties.WarpDoorID);
+		setImmune(blocksImmuneToRift, properties.TransTrapdoorID);
+		setImmune(blocksImmuneToRift, properties.UnstableDoorID);
+		setImmune(blocksImmuneToRift, properties.RiftBlockID);
+		setImmune(blocksImmuneToRift, properties.TransientDoorID);
+		setImmune(blocksImmuneToRift, properties.GoldenDimensionalDoorID);
+		setImmune(blocksImmuneToRift, properties.GoldenDoorID);
+		setImmune(blocksImmuneToRift, properties.PersonalDimDoorID);
+		setImmune(blocksImmuneToRift, Block.blockLapis.blockID);
+		setImmune(blocksImmuneToRift, Block.blockIron.blockID);
+		setImmune(blocksImmuneToRift, Block.blockGold.blockID);
+		setImmune(blocksImmuneToRift, Block.blockDiamond.blockID);
+		setImmune(blocksImmuneToRift, Block.blockEmerald.blockID);
+	}
+	
+	private static void setImmune(boolean[] immuneBlocks, int blockID)
+	{
+		if (blockID >= 0 && blockID < immuneBlocks.length)
+		{
+			immuneBlocks[blockID] = true;
+		}
 	}
 	
 	@Override
@@ -176,59 +180,22 @@ public class BlockRift extends Block implements ITileEntityProvider
 	private void destroyNearbyBlocks(World world, int x, int y, int z, Random random)
 	{
 		// Find reachable blocks that are vulnerable to rift damage (ignoring air, of course)
-		ArrayList<Point3D> targets = findReachableBlocks(world, x, y, z, BLOCK_DESTRUCTION_RANGE, false);
+		blockSearch.search(world, x, y, z, BLOCK_DESTRUCTION_RANGE, false, this);
 		
 		// For each block, randomly decide whether to destroy it.
 		// The randomness makes it so the destroyed area appears "noisy" if the rift is exposed to a large surface.
-		for (Point3D target : targets)
+		int count = blockSearch.getResultCount();
+		for (int index = 0; index < count; index++)
 		{
 			if (random.nextInt(MAX_BLOCK_DESTRUCTION_CHANCE) < BLOCK_DESTRUCTION_CHANCE)
 			{
-				dropWorldThread(world.getBlockId(target.getX(), target.getY(), target.getZ()), world, x, y, z, random);
-				world.destroyBlock(target.getX(), target.getY(), target.getZ(), false);
-			}
-		}
-	}
-	
-	private ArrayList<Point3D> findReachableBlocks(World world, int x, int y, int z, int range, boolean includeAir)
-	{
-		int searchVolume = (int) Math.pow(2 * range + 1, 3);
-		HashMap<Point3D, Integer> pointDistances = new HashMap<Point3D, Integer>(searchVolume);
-		Queue<Point3D> points = new LinkedList<Point3D>();
-		ArrayList<Point3D> targets = new ArrayList<Point3D>();
-		
-		// Perform a breadth-first search outwards from the point at which the rift is located.
-		// Record the distances of the points we visit to stop the search at its maximum range.
-		pointDistances.put(new Point3D(x, y, z), 0);
-		addAdjacentBlocks(x, y, z, 0, pointDistances, points);
-		while (!points.isEmpty())
-		{
-			Point3D current = points.remove();
-			int distance = pointDistances.get(current);
-			
-			// If the current block is air, continue searching. Otherwise, add the block to our list.
-			if (world.isAirBlock(current.getX(), current.getY(), current.getZ()))
-			{
-				if (includeAir)
-				{
-					targets.add(current);
-				}
-				// Make sure we stay within the search range
-				if (distance < BLOCK_DESTRUCTION_RANGE)
-				{
-					addAdjacentBlocks(current.getX(), current.getY(), current.getZ(), distance, pointDistances, points);
-				}
-			}
-			else
-			{
-				// Check if the current block is immune to destruction by rifts. If not, add it to our list.
-				if (!isBlockImmune(world, current.getX(), current.getY(), current.getZ()))
-				{
-					targets.add(current);
-				}
+				int targetX = blockSearch.getResultX(index);
+				int targetY = blockSearch.getResultY(index);
+				int targetZ = blockSearch.getResultZ(index);
+				dropWorldThread(world.getBlockId(targetX, targetY, targetZ), world, x, y, z, random);
+				world.destroyBlock(targetX, targetY, targetZ, false);
 			}
 		}
-		return targets;
 	}
 		
 	public void dropWorldThread(int blockID, World world, int x, int y, int z, Random random)
@@ -243,42 +210,22 @@ public class BlockRift extends Block implements ITileEntityProvider
 		}
 	}
 	
-	private static void addAdjacentBlocks(int x, int y, int z, int distance, HashMap<Point3D, Integer> pointDistances, Queue<Point3D> points)
-	{
-		Point3D[] neighbors = new Point3D[] {
-				new Point3D(x - 1, y, z),
-				new Point3D(x + 1, y, z),
-				new Point3D(x, y - 1, z),
-				new Point3D(x, y + 1, z),
-				new Point3D(x, y, z - 1),
-				new Point3D(x, y, z + 1)
-		};
-		for (int index = 0; index < neighbors.length; index++)
-		{
-			if (!pointDistances.containsKey(neighbors[index]))
-			{
-				pointDistances.put(neighbors[index], distance + 1);
-				points.add(neighbors[index]);
-			}
-		}
-	}
-	
 	public boolean spreadRift(NewDimData dimension, DimLink parent, World world, Random random)
 	{
 		int x, y, z, blockID;
 		Point4D source = parent.source();
 		
 		// Find reachable blocks that are vulnerable to rift damage and include air
-		ArrayList<Point3D> targets = findReachableBlocks(world, source.getX(), source.getY(), source.getZ(),
-				RIFT_SPREAD_RANGE, true);
+		blockSearch.search(world, source.getX(), source.getY(), source.getZ(), RIFT_SPREAD_RANGE, true, this);
 		
-		if (!targets.isEmpty())
+		int count = blockSearch.getResultCount();
+		if (count > 0)
 		{
 			// Choose randomly from among the possible locations where we can spawn a new rift
-			Point3D target = targets.get( random.nextInt(targets.size()) );
-			x = target.getX();
-			y = target.getY();
-			z = target.getZ();
+			int target = random.nextInt(count);
+			x = blockSearch.getResultX(target);
+			y = blockSearch.getResultY(target);
+			z = blockSearch.getResultZ(target);
 
 			// Create a child, replace the block with a rift, and consider dropping World Thread
 			blockID = world.getBlockId(x, y, z);
@@ -309,11 +256,6 @@ public class BlockRift extends Block implements ITileEntityProvider
 	
 	public void randomDisplayTick(World world, int x, int y, int z, Random rand)
 	{
-
-		
-		 ArrayList<Point3D> targets=findReachableBlocks(world, x, y, z, 2, false);
-		
-		
 		TileEntityRift tile = (TileEntityRift)world.getBlockTileEntity(x, y, z);
 		
 		
@@ -351,9 +293,7 @@ public class BlockRift extends Block implements ITileEntityProvider
 			// is designed to receive an entity, the source of the blast. We have no entity so
 			// I've set this to access blockResistance directly. Might need changing later.
 			
-			return (block.blockResistance >= MIN_IMMUNE_RESISTANCE ||
-					modBlocksImmuneToRift.contains(block.blockID) ||
-					blocksImmuneToRift.contains(block.blockID));
+			return (block.blockResistance >= MIN_IMMUNE_RESISTANCE || blocksImmuneToRift[block.blockID]);
 		}
 		return false;
 	}
@@ -365,7 +305,7 @@ public class BlockRift extends Block implements ITileEntityProvider
 		Block block = Block.blocksList[world.getBlockId(x, y, z)];
 		if (block != null)
 		{
-			return modBlocksImmuneToRift.contains(block.blockID);
+			return modBlocksImmuneToRift[block.blockID];
 		}
 		return false;
 	}
@@ -0,0 +1,176 @@
+package StevenDimDoors.mod_pocketDim.blocks;
+
+import java.util.Arrays;
+
+import net.minecraft.world.World;
+
+/**
+ * Performs breadth-first searches for the blocks that a rift can reach. The search spreads out from the rift
+ * through air blocks and stops at solid blocks, which are collected as results.
+ *
+ * All of the search's storage is allocated once and reused between searches, so searching doesn't generate
+ * any garbage. Points are stored as indices into the cube of blocks around the search origin. Because of that,
+ * an instance must not be used by more than one thread, and its results are only valid until the next search.
+ */
+class ReachableBlockSearch
+{
+	private final int maxRange;
+	private final int size;
+	private final long[] visited;
+	private final byte[] distances;
+	private final int[] queue;
+	private final int[] results;
+
+	private int originX;
+	private int originY;
+	private int originZ;
+	private int resultCount;
+
+	public ReachableBlockSearch(int maxRange)
+	{
+		this.maxRange = maxRange;
+		this.size = 2 * maxRange + 1;
+		int volume = size * size * size;
+		this.visited = new long[(volume + 63) >> 6];
+		this.distances = new byte[volume];
+		// Every point enters the queue at most once, so the queue can never hold more than the whole cube
+		this.queue = new int[volume];
+		this.results = new int[volume];
+		this.resultCount = 0;
+	}
+
+	/**
+	 * Finds the blocks that can be reached from the specified origin. Only blocks that are not immune
+	 * to rifts are included in the results.
+	 * @param range - the maximum number of steps to take from the origin. Must not exceed the maximum range of the search.
+	 * @param includeAir - whether to include air blocks in the results
+	 * @param blockRift - the rift block used to check which blocks are immune
+	 */
+	public void search(World world, int x, int y, int z, int range, boolean includeAir, BlockRift blockRift)
+	{
+		if (range < 0 || range > maxRange)
+		{
+			throw new IllegalArgumentException("range must be between 0 and " + maxRange + ".");
+		}
+		Arrays.fill(visited, 0);
+		this.originX = x;
+		this.originY = y;
+		this.originZ = z;
+		this.resultCount = 0;
+
+		int head = 0;
+		int tail = 0;
+		int center = index(maxRange, maxRange, maxRange);
+		markVisited(center, 0);
+		tail = addAdjacentBlocks(center, 0, tail);
+		while (head < tail)
+		{
+			int current = queue[head++];
+			int distance = distances[current];
+			int cx = getX(current);
+			int cy = getY(current);
+			int cz = getZ(current);
+
+			// If the current block is air, continue searching. Otherwise, add the block to our results.
+			if (isAirBlock(world, cx, cy, cz))
+			{
+				if (includeAir)
+				{
+					results[resultCount++] = current;
+				}
+				// Make sure we stay within the search range
+				if (distance < range)
+				{
+					tail = addAdjacentBlocks(current, distance, tail);
+				}
+			}
+			else if (!isBlockImmune(world, cx, cy, cz, blockRift))
+			{
+				results[resultCount++] = current;
+			}
+		}
+	}
+
+	// The block checks are kept in their own methods so that ReachableBlockSearchTest
+	// can run the search against a simple grid of blocks instead of a real world.
+	boolean isAirBlock(World world, int x, int y, int z)
+	{
+		return world.isAirBlock(x, y, z);
+	}
+
+	boolean isBlockImmune(World world, int x, int y, int z, BlockRift blockRift)
+	{
+		return blockRift.isBlockImmune(world, x, y, z);
+	}
+
+	public int getResultCount()
+	{
+		return resultCount;
+	}
+
+	public int getResultX(int result)
+	{
+		return getX(results[result]);
+	}
+
+	public int getResultY(int result)
+	{
+		return getY(results[result]);
+	}
+
+	public int getResultZ(int result)
+	{
+		return getZ(results[result]);
+	}
+
+	private int addAdjacentBlocks(int index, int distance, int tail)
+	{
+		// Points at the edge of the cube can't have neighbors within range, since the search
+		// never goes further than maxRange steps and the cube extends maxRange blocks in each direction.
+		int area = size * size;
+		int next = distance + 1;
+		tail = enqueue(index - area, next, tail);
+		tail = enqueue(index + area, next, tail);
+		tail = enqueue(index - size, next, tail);
+		tail = enqueue(index + size, next, tail);
+		tail = enqueue(index - 1, next, tail);
+		tail = enqueue(index + 1, next, tail);
+		return tail;
+	}
+
+	private int enqueue(int index, int distance, int tail)
+	{
+		if ((visited[index >> 6] & (1L << index)) == 0)
+		{
+			markVisited(index, distance);
+			queue[tail++] = index;
+		}
+		return tail;
+	}
+
+	private void markVisited(int index, int distance)
+	{
+		visited[index >> 6] |= 1L << index;
+		distances[index] = (byte) distance;
+	}
+
+	private int index(int dx, int dy, int dz)
+	{
+		return (dx * size + dy) * size + dz;
+	}
+
+	private int getX(int index)
+	{
+		return originX - maxRange + index / (size * size);
+	}
+
+	private int getY(int index)
+	{
+		return originY - maxRange + (index / size) % size;
+	}
+
+	private int getZ(int index)
+	{
+		return originZ - maxRange + index % size;
+	}
+}
@@ -0,0 +1,68 @@
+package StevenDimDoors.mod_pocketDim.commands;
+
+import net.minecraft.entity.player.EntityPlayer;
+import StevenDimDoors.mod_pocketDim.mod_pocketDim;
+import StevenDimDoors.mod_pocketDim.util.DDStatistics;
+
+public class CommandPrintStatistics extends DDCommandBase
+{
+	private static CommandPrintStatistics instance = null;
+
+	private CommandPrintStatistics()
+	{
+		super("dd-stats", "[on | off | reset]");
+	}
+
+	public static CommandPrintStatistics instance()
+	{
+		if (instance == null)
+			instance = new CommandPrintStatistics();
+
+		return instance;
+	}
+
+	@Override
+	protected DDCommandResult processCommand(EntityPlayer sender, String[] command)
+	{
+		if (command.length > 1)
+		{
+			return DDCommandResult.TOO_MANY_ARGUMENTS;
+		}
+		if (mod_pocketDim.statisticsReporter == null)
+		{
+			return new DDCommandResult("Error: Statistics are not available right now.");
+		}
+
+		if (command.length == 1)
+		{
+			String action = command[0].toLowerCase();
+			if (action.equals("on"))
+			{
+				DDStatistics.setEnabled(true);
+				sendChat(sender, "Statistics collection enabled.");
+			}
+			else if (action.equals("off"))
+			{
+				DDStatistics.setEnabled(false);
+				sendChat(sender, "Statistics collection disabled.");
+			}
+			else if (action.equals("reset"))
+			{
+				mod_pocketDim.statisticsReporter.reset();
+				sendChat(sender, "Statistics reset.");
+			}
+			else
+			{
+				return DDCommandResult.INVALID_ARGUMENTS;
+			}
+			return DDCommandResult.SUCCESS;
+		}
+
+		sendChat(sender, "Dimensional Doors statistics:");
+		for (String line : mod_pocketDim.statisticsReporter.getReport())
+		{
+			sendChat(sender, line);
+		}
+		return DDCommandResult.SUCCESS;
+	}
+}
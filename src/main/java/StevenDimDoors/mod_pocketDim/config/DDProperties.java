@@ -122,6 +122,17 @@ public class DDProperties
 	public final int LimboReturnRange;
 	public final int WorldThreadRequirementLevel;
 	public final String CustomSchematicDirectory;
+	public final int SchematicCacheSize;
+	public final int DungeonPreloadCount;
+	public final int PocketGenerationTimeBudget;
+	public final int DungeonPrefetchLimit;
+	public final int DungeonPrefetchMemory;
+	public final boolean StatisticsEnabled;
+	public final int StatisticsLogInterval;
+	public final int LimboDecayTimeBudget;
+	public final int LinkSyncRadius;
+	public final int LimboPopulationTimeBudget;
+	public final boolean LoadedRandomDestinationsPreferred;
 	
 	
 	//Singleton instance
@@ -255,6 +266,48 @@ public class DDProperties
 				"Sets the chance (out of " + BlockRift.MAX_WORLD_THREAD_DROP_CHANCE + ") that a rift will " +
 				"drop World Thread when it destroys a block. The default chance is 50.").getInt();
 
+		SchematicCacheSize = config.get(Configuration.CATEGORY_GENERAL, "Schematic Cache Size", 32,
+				"Sets the amount of memory, in megabytes, used to keep dungeon schematics loaded so that they " +
+				"don't have to be read from disk every time a dungeon is built. Set this to 0 to disable the cache. " +
+				"The default size is 32.").getInt();
+		DungeonPreloadCount = config.get(Configuration.CATEGORY_GENERAL, "Dungeons Preloaded Per Pack", 0,
+				"Sets how many of the most common dungeons from each dungeon pack are loaded into the schematic cache " +
+				"when the server starts. Must be greater than or equal to 0. The default value is 0.").getInt();
+		PocketGenerationTimeBudget = config.get(Configuration.CATEGORY_GENERAL, "Pocket Generation Time Budget", 0,
+				"Sets the number of milliseconds per tick that the server may spend building new dungeons. Dungeons that " +
+				"take longer are built over several ticks. Set this to 0 to build dungeons all at once. " +
+				"The default value is 0.").getInt();
+		DungeonPrefetchLimit = config.get(Configuration.CATEGORY_GENERAL, "Dungeon Prefetch Limit", 0,
+				"Sets the maximum number of dungeons that may be prepared in advance for unvisited dungeon doors near " +
+				"players, so that going through those doors is faster. Set this to 0 to disable prefetching. " +
+				"The default value is 0.").getInt();
+		DungeonPrefetchMemory = config.get(Configuration.CATEGORY_GENERAL, "Dungeon Prefetch Memory", 8,
+				"Sets the amount of memory, in megabytes, that dungeons prepared in advance may use. " +
+				"The default value is 8.").getInt();
+		StatisticsEnabled = config.get(Configuration.CATEGORY_GENERAL, "Enable Statistics", false,
+				"Sets whether timing statistics are collected for Dimensional Doors' regular tasks, pocket generation, " +
+				"teleports and saves. They can be viewed with /dd-stats. The default value is false.").getBoolean(false);
+		StatisticsLogInterval = config.get(Configuration.CATEGORY_GENERAL, "Statistics Log Interval", 0,
+				"Sets how often, in seconds, statistics are written to the server log while they're enabled. " +
+				"Set this to 0 to never write them to the log. The default value is 0.").getInt();
+		LimboDecayTimeBudget = config.get(Configuration.CATEGORY_GENERAL, "Limbo Decay Time Budget", 1000,
+				"Sets the maximum number of microseconds spent on each round of fast Limbo decay. Chunks that are skipped " +
+				"because of the limit are decayed first in the next round. Set this to 0 to remove the limit. " +
+				"The default value is 1000.").getInt();
+		LinkSyncRadius = config.get(Configuration.CATEGORY_GENERAL, "Link Sync Radius", 0,
+				"Sets the radius, in chunks, around a new link within which players are told about it right away. Players " +
+				"further away learn about it when they load the chunks around it. Changes to existing links and deletions " +
+				"are always sent to every player in the same dimension. Set this to 0 to tell every player in the " +
+				"dimension about new links too. The default value is 0.").getInt();
+		LimboPopulationTimeBudget = config.get(Configuration.CATEGORY_GENERAL, "Limbo Population Time Budget", 2000,
+				"Sets the maximum number of microseconds per tick spent placing Monoliths and gateways in newly generated " +
+				"chunks. Chunks that don't fit are populated in later ticks. Set this to 0 to remove the limit. " +
+				"The default value is 2000.").getInt();
+		LoadedRandomDestinationsPreferred = config.get(Configuration.CATEGORY_GENERAL, "Prefer Loaded Random Destinations", false,
+				"Sets whether random links try to send players to rifts and doors in chunks that are already loaded, so that " +
+				"using them doesn't force distant chunks to load. Any destination is used if no loaded one is found quickly. " +
+				"The default value is false.").getBoolean(false);
+
 		LimboBiomeID = config.get(CATEGORY_BIOME, "Limbo Biome ID", 148).getInt();
 		PocketBiomeID = config.get(CATEGORY_BIOME, "Pocket Biome ID", 149).getInt();
 
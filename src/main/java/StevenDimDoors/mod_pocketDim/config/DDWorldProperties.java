@@ -18,8 +18,14 @@ public class DDWorldProperties
 	public final boolean LimboEscapeEnabled;
 	public final boolean UniversalLimboEnabled;
 	
+	/**
+	 * Save Data Settings
+	 */
+	public final boolean CompactSaveFormatEnabled;
+	
 	//Names of categories
 	private static final String CATEGORY_WORLD_GENERATION = "world generation";
+	private static final String CATEGORY_SAVE_DATA = "save data";
 	
 	public DDWorldProperties(File configFile)
 	{
@@ -49,6 +55,12 @@ public class DDWorldProperties
 				"affect deaths in Limbo, which can be set with the Hardcore Limbo option. " +
 				"The default value is false.").getBoolean(false);
 		
+		CompactSaveFormatEnabled = config.get(CATEGORY_SAVE_DATA, "Enable Compact Save Format", false,
+				"Sets whether dimension data is stored in a few compact binary files instead of one JSON file " +
+				"per dimension. This greatly reduces loading times for worlds with many pocket dimensions. " +
+				"Existing data is converted the next time the world loads and the old files are moved into " +
+				"the \"migrated\" folder. The default value is false.").getBoolean(false);
+		
 		config.save();
 	}
 	
@@ -27,6 +27,7 @@ import StevenDimDoors.mod_pocketDim.config.DDProperties;
 import StevenDimDoors.mod_pocketDim.helpers.yCoordHelper;
 import StevenDimDoors.mod_pocketDim.schematic.BlockRotator;
 import StevenDimDoors.mod_pocketDim.tileentities.TileEntityDimDoor;
+import StevenDimDoors.mod_pocketDim.util.DDStatistics;
 import StevenDimDoors.mod_pocketDim.util.Point4D;
 import StevenDimDoors.mod_pocketDim.watcher.ClientDimData;
 import StevenDimDoors.mod_pocketDim.world.PocketBuilder;
@@ -46,6 +47,17 @@ public class DDTeleporter
 	private static final int START_ROOT_SHIFT_CHANCE = 0;
 	private static final int ROOT_SHIFT_CHANCE_PER_LEVEL = 5;
 	private static final String SPIRIT_WORLD_NAME = "Spirit World";
+	private static final int MAX_LOADED_DESTINATION_ATTEMPTS = 32;
+	private static final RandomDestinationIndex.Filter LOADED_DESTINATION_FILTER = new RandomDestinationIndex.Filter()
+	{
+		@Override
+		public boolean accept(DimLink link)
+		{
+			Point4D source = link.source();
+			World world = DimensionManager.getWorld(source.getDimension());
+			return (world != null && world.getChunkProvider().chunkExists(source.getX() >> 4, source.getZ() >> 4));
+		}
+	};
 	
 	public static int cooldown = 0;
 	
@@ -431,6 +443,7 @@ public class DDTeleporter
 		{
 			return;
 		}
+		long startTime = DDStatistics.startTimer();
 		if (link.linkType() == LinkType.RANDOM)
 		{
 			Point4D randomDestination = getRandomDestination();
@@ -446,6 +459,7 @@ public class DDTeleporter
 			entity = teleportEntity(entity, link.destination(), link.linkType() != LinkType.UNSAFE_EXIT);
 			entity.worldObj.playSoundEffect(entity.posX, entity.posY, entity.posZ, "mob.endermen.portal", 1.0F, 1.0F);
 		}
+		DDStatistics.TELEPORTS.stopTimer(startTime);
 	}
 
 	private static boolean initializeDestination(DimLink link, DDProperties properties, Entity entity, Block door)
@@ -488,14 +502,32 @@ public class DDTeleporter
 		}
 
 		// Check the destination type and respond accordingly
+		long startTime;
+		boolean succeeded;
 		switch (link.linkType())
 		{
 			case DUNGEON:
-				return PocketBuilder.generateNewDungeonPocket(link, properties);
+				if (mod_pocketDim.pocketGenerator != null && mod_pocketDim.pocketGenerator.isEnabled())
+				{
+					// Build the dungeon over the next few ticks. The entity will be
+					// sent through the door once the dungeon is ready.
+					mod_pocketDim.pocketGenerator.enqueueDungeon(link, entity, door);
+					return false;
+				}
+				startTime = DDStatistics.startTimer();
+				succeeded = PocketBuilder.generateNewDungeonPocket(link, properties);
+				DDStatistics.POCKET_GENERATION.stopTimer(startTime);
+				return succeeded;
 			case POCKET:
-				return PocketBuilder.generateNewPocket(link, properties, door, DimensionType.POCKET);
+				startTime = DDStatistics.startTimer();
+				succeeded = PocketBuilder.generateNewPocket(link, properties, door, DimensionType.POCKET);
+				DDStatistics.POCKET_GENERATION.stopTimer(startTime);
+				return succeeded;
 			case PERSONAL:
-				return setupPersonalLink(link, properties, entity, door);
+				startTime = DDStatistics.startTimer();
+				succeeded = setupPersonalLink(link, properties, entity, door);
+				DDStatistics.POCKET_GENERATION.stopTimer(startTime);
+				return succeeded;
 			case SAFE_EXIT:
 				return generateSafeExit(link, properties);
 			case DUNGEON_EXIT:
@@ -543,27 +575,25 @@ public class DDTeleporter
 		// 1. Ignore links with their source inside a pocket dimension.
 		// 2. Ignore links with link type RANDOM.
 		
-		// Iterate over the root dimensions. Pocket dimensions cannot be roots.
-		// Don't just pick a random root and a random link within that root
-		// because we want to have unbiased selection among all links.
-		ArrayList<Point4D> matches = new ArrayList<Point4D>();
-		for (NewDimData dimension : PocketManager.getRootDimensions())
+		// PocketManager keeps an index of the links that meet those restrictions
+		// across all root dimensions, so every link is equally likely to be chosen
+		// without having to visit every link.
+		RandomDestinationIndex destinations = PocketManager.getRandomDestinations();
+		if (destinations == null)
 		{
-			for (DimLink link : dimension.getAllLinks())
-			{
-				if (link.linkType() != LinkType.RANDOM)
-				{
-					matches.add(link.source());
-				}
-			}
+			return null;
 		}
 		
-		// Pick a random point, if any is available
-		if (!matches.isEmpty())
+		DimLink link = null;
+		if (DDProperties.instance().LoadedRandomDestinationsPreferred)
+		{
+			link = destinations.sample(random, LOADED_DESTINATION_FILTER, MAX_LOADED_DESTINATION_ATTEMPTS);
+		}
+		if (link == null)
 		{
-			return matches.get( random.nextInt(matches.size()) );
+			link = destinations.sample(random);
 		}
-		return null;
+		return (link != null) ? link.source() : null;
 	}
 	
 	private static boolean generateUnsafeExit(DimLink link)
@@ -1,7 +1,7 @@
 package StevenDimDoors.mod_pocketDim.core;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import net.minecraft.item.ItemStack;
 import net.minecraft.world.ChunkCoordIntPair;
 import StevenDimDoors.mod_pocketDim.util.Point4D;
@@ -13,7 +13,15 @@ public abstract class DimLink
 	protected DDLock lock;
 	protected DimLink parent;
 	protected LinkTail tail;
-	protected List<DimLink> children;
+	// Almost every link has zero or one children, so instead of giving each link a list of its children,
+	// a link points to its first and last children and each child points to its next sibling.
+	// Children stay in the order in which they were attached, just like they did in the old list.
+	protected DimLink firstChild;
+	protected DimLink lastChild;
+	protected DimLink nextSibling;
+	protected int childCount;
+	// Position of this link in the RandomDestinationIndex, or -1 if it isn't listed there
+	int destinationIndex = -1;
 	
 	protected DimLink(Point4D point, int orientation, DDLock lock, DimLink parent)
 	{
@@ -28,8 +36,7 @@ public abstract class DimLink
 		this.point = point;
 		this.tail = parent.tail;
 		this.orientation = orientation;
-		this.children = new LinkedList<DimLink>();
-		parent.children.add(this);
+		parent.attachChild(this);
 	}
 	
 	protected DimLink(Point4D point, int orientation, DDLock lock, LinkType linkType)
@@ -47,7 +54,6 @@ public abstract class DimLink
 		this.point = point;
 		this.orientation = orientation;
 		this.tail = new LinkTail(linkType, null);
-		this.children = new LinkedList<DimLink>();
 	}
 
 	public Point4D source()
@@ -55,19 +61,72 @@ public abstract class DimLink
 		return point;
 	}
 
-	public void clear()
+	protected void attachChild(DimLink child)
 	{
-		//Release children
-		for (DimLink child : children)
+		child.nextSibling = null;
+		if (firstChild == null)
+		{
+			firstChild = child;
+		}
+		else
+		{
+			lastChild.nextSibling = child;
+		}
+		lastChild = child;
+		childCount++;
+	}
+	
+	protected void detachChild(DimLink child)
+	{
+		DimLink previous = null;
+		for (DimLink current = firstChild; current != null; current = current.nextSibling)
+		{
+			if (current == child)
+			{
+				if (previous == null)
+				{
+					firstChild = current.nextSibling;
+				}
+				else
+				{
+					previous.nextSibling = current.nextSibling;
+				}
+				if (lastChild == current)
+				{
+					lastChild = previous;
+				}
+				current.nextSibling = null;
+				childCount--;
+				return;
+			}
+			previous = current;
+		}
+	}
+	
+	protected void releaseChildren()
+	{
+		DimLink child = firstChild;
+		while (child != null)
 		{
-			 child.parent = null;
+			DimLink next = child.nextSibling;
+			child.parent = null;
+			child.nextSibling = null;
+			child = next;
 		}
-		children.clear();
+		firstChild = null;
+		lastChild = null;
+		childCount = 0;
+	}
+	
+	public void clear()
+	{
+		//Release children
+		releaseChildren();
 		
 		//Release parent
 		if (parent != null)
 		{
-			parent.children.remove(this);
+			parent.detachChild(this);
 		}
 		
 		parent = null;
@@ -102,12 +161,46 @@ public abstract class DimLink
 
 	public Iterable<DimLink> children()
 	{
-		return children;
+		return new Iterable<DimLink>()
+		{
+			@Override
+			public Iterator<DimLink> iterator()
+			{
+				return new Iterator<DimLink>()
+				{
+					private DimLink next = firstChild;
+					
+					@Override
+					public boolean hasNext()
+					{
+						return (next != null);
+					}
+					
+					@Override
+					public DimLink next()
+					{
+						if (next == null)
+						{
+							throw new NoSuchElementException();
+						}
+						DimLink current = next;
+						next = current.nextSibling;
+						return current;
+					}
+					
+					@Override
+					public void remove()
+					{
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
 	}
 
 	public int childCount()
 	{
-		return children.size();
+		return childCount;
 	}
 
 	public DimLink parent()
@@ -1,15 +1,16 @@
 package StevenDimDoors.mod_pocketDim.core;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.Stack;
-import java.util.TreeMap;
 
 import StevenDimDoors.mod_pocketDim.watcher.ClientLinkData;
 import net.minecraft.item.ItemStack;
+import net.minecraft.util.LongHashMap;
 import net.minecraft.world.ChunkCoordIntPair;
 import net.minecraft.world.World;
 import StevenDimDoors.mod_pocketDim.Point3D;
@@ -22,6 +23,7 @@ import StevenDimDoors.mod_pocketDim.saving.PackedDungeonData;
 import StevenDimDoors.mod_pocketDim.saving.PackedLinkData;
 import StevenDimDoors.mod_pocketDim.saving.PackedLinkTail;
 import StevenDimDoors.mod_pocketDim.util.Point4D;
+import StevenDimDoors.mod_pocketDim.util.PositionMap;
 import StevenDimDoors.mod_pocketDim.watcher.ClientLinkData;
 import StevenDimDoors.mod_pocketDim.watcher.IUpdateWatcher;
 
@@ -29,6 +31,12 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 {
 	private static class InnerDimLink extends DimLink
 	{
+		// Position of this link in linkList, so that it can be removed without searching the list
+		private int listIndex = -1;
+		// The next link in the same chunk. Each chunk's links form a circular chain and chunkMapping
+		// holds the last link in the chain, so the first link is the one after it.
+		private InnerDimLink nextInChunk = null;
+		
 		public InnerDimLink(Point4D source, DimLink parent, int orientation, DDLock lock)
 		{
 			super(source, orientation, lock, parent);
@@ -62,22 +70,18 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 			}
 			
 			//Release children
-			for (DimLink child : children)
-			{
-				((InnerDimLink) child).parent = null;
-			}
-			children.clear();
+			releaseChildren();
 			
 			//Release parent
 			if (parent != null)
 			{
-				parent.children.remove(this);
+				parent.detachChild(this);
 			}
 			
 			//Attach to new parent
 			parent = nextParent;
 			tail = nextParent.tail;
-			nextParent.children.add(this);
+			nextParent.attachChild(this);
 			this.orientation=orientation;
 			return true;
 		}
@@ -85,16 +89,12 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		public void overwrite(LinkType linkType, int orientation)
 		{	
 			//Release children
-			for (DimLink child : children)
-			{
-				((InnerDimLink) child).parent = null;
-			}
-			children.clear();
+			releaseChildren();
 			
 			//Release parent
 			if (parent != null)
 			{
-				parent.children.remove(this);
+				parent.detachChild(this);
 			}
 			
 			//Attach to new parent
@@ -139,11 +139,10 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 	}
 
 	
-	private static int EXPECTED_LINKS_PER_CHUNK = 2;
 	protected static Random random = new Random();
 	
 	protected int id;
-	protected Map<Point4D, InnerDimLink> linkMapping;
+	protected PositionMap<InnerDimLink> linkMapping;
 	protected List<InnerDimLink> linkList;
 	protected boolean isFilled;
 	protected int depth;
@@ -159,8 +158,9 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 	public IUpdateWatcher<ClientLinkData> linkWatcher;
 	
 
-	// Don't write this field to a file - it should be recreated on startup
-	private Map<ChunkCoordIntPair, List<InnerDimLink>> chunkMapping;
+	// Don't write these fields to a file - they should be recreated on startup
+	private LongHashMap chunkMapping;
+	private DungeonData[] dungeonChain;
 	
 	protected NewDimData(int id, NewDimData parent, DimensionType type, IUpdateWatcher<ClientLinkData> linkWatcher)
 	{
@@ -170,7 +170,7 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		}
 		
 		this.id = id;
-		this.linkMapping = new TreeMap<Point4D, InnerDimLink>(); //Should be stored in oct tree -- temporary solution
+		this.linkMapping = new PositionMap<InnerDimLink>();
 		this.linkList = new ArrayList<InnerDimLink>(); //Should be stored in oct tree -- temporary solution
 		this.children = new ArrayList<NewDimData>(); 
 		this.parent = parent;
@@ -181,7 +181,7 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		this.origin = null;
 		this.dungeon = null;
 		this.linkWatcher = linkWatcher;
-		this.chunkMapping = new HashMap<ChunkCoordIntPair, List<InnerDimLink>>();
+		this.chunkMapping = new LongHashMap();
 		this.modified = true;
 		
 		//Register with parent
@@ -209,7 +209,7 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		}
 		
 		this.id = id;
-		this.linkMapping = new TreeMap<Point4D, InnerDimLink>(); //Should be stored in oct tree -- temporary solution
+		this.linkMapping = new PositionMap<InnerDimLink>();
 		this.linkList = new ArrayList<InnerDimLink>(); //Should be stored in oct tree -- temporary solution
 		this.children = new ArrayList<NewDimData>(); 
 		this.parent = null;
@@ -222,7 +222,7 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		this.linkWatcher = null;
 		this.depth = 0;
 		this.root = root;
-		this.chunkMapping = null;
+		this.chunkMapping = new LongHashMap();
 	}
 	
 
@@ -233,32 +233,51 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		{
 			throw new IllegalArgumentException("Attempted to search for links in a World instance for a different dimension!");
 		}
-		
+		return searchNearestRift(world, range, x, y, z);
+	}
+
+	DimLink searchNearestRift(World world, int range, int x, int y, int z)
+	{
 		// Note: Only detect rifts at a distance > 0, so we ignore the rift
 		// at the center of the search space.
-		DimLink link;
-		DimLink nearest = null;
+		// Rather than probing every block in the search cube, we only visit the links
+		// stored in the chunks that overlap it. That makes the cost of the search
+		// proportional to the number of nearby links instead of the size of the cube.
+		InnerDimLink nearest = null;
 
 		int i, j, k;
+		int chunkX, chunkZ;
 		int distance;
 		int minDistance = Integer.MAX_VALUE;
-		DDProperties properties = DDProperties.instance();
+		
+		int minChunkX = (x - range) >> 4;
+		int maxChunkX = (x + range) >> 4;
+		int minChunkZ = (z - range) >> 4;
+		int maxChunkZ = (z + range) >> 4;
 
-		for (i = -range; i <= range; i++)
+		for (chunkX = minChunkX; chunkX <= maxChunkX; chunkX++)
 		{
-			for (j = -range; j <= range; j++)
+			for (chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++)
 			{
-				for (k = -range; k <= range; k++)
+				InnerDimLink last = getLastChunkLink(chunkX, chunkZ);
+				for (InnerDimLink link = getFirstChunkLink(last); link != null; link = getNextChunkLink(link, last))
 				{
+					i = link.point.getX() - x;
+					j = link.point.getY() - y;
+					k = link.point.getZ() - z;
+					if (!isWithinRange(i, j, k, range))
+					{
+						continue;
+					}
 					distance = getAbsoluteSum(i, j, k);
-					if (distance > 0 && distance < minDistance && world.getBlockId(x + i, y + j, z + k) == properties.RiftBlockID)
+					// Break ties the same way the old block scan did, which visited
+					// offsets in increasing order of X, then Y, then Z.
+					if (distance > 0 && (distance < minDistance ||
+						(distance == minDistance && precedes(link, nearest))) &&
+						isRiftBlock(world, link.point.getX(), link.point.getY(), link.point.getZ()))
 					{
-						link = getLink(x + i, y + j, z + k);
-						if (link != null)
-						{
-							nearest = link;
-							minDistance = distance;
-						}
+						nearest = link;
+						minDistance = distance;
 					}
 				}
 			}
@@ -274,29 +293,36 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		{
 			throw new IllegalArgumentException("Attempted to search for links in a World instance for a different dimension!");
 		}
+		return searchRiftsInRange(world, range, x, y, z);
+	}
 
+	ArrayList<DimLink> searchRiftsInRange(World world, int range, int x, int y, int z)
+	{
 		// Note: Only detect rifts at a distance > 0, so we ignore the rift
 		// at the center of the search space.
 		int i, j, k;
-		int distance;
-		DimLink link;
-		DDProperties properties = DDProperties.instance();
+		int chunkX, chunkZ;
 		ArrayList<DimLink> links = new ArrayList<DimLink>();
 		
-		for (i = -range; i <= range; i++)
+		int minChunkX = (x - range) >> 4;
+		int maxChunkX = (x + range) >> 4;
+		int minChunkZ = (z - range) >> 4;
+		int maxChunkZ = (z + range) >> 4;
+		
+		for (chunkX = minChunkX; chunkX <= maxChunkX; chunkX++)
 		{
-			for (j = -range; j <= range; j++)
+			for (chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++)
 			{
-				for (k = -range; k <= range; k++)
+				InnerDimLink last = getLastChunkLink(chunkX, chunkZ);
+				for (InnerDimLink link = getFirstChunkLink(last); link != null; link = getNextChunkLink(link, last))
 				{
-					distance = getAbsoluteSum(i, j, k);
-					if (distance > 0 && world.getBlockId(x + i, y + j, z + k) == properties.RiftBlockID)
+					i = link.point.getX() - x;
+					j = link.point.getY() - y;
+					k = link.point.getZ() - z;
+					if (isWithinRange(i, j, k, range) && getAbsoluteSum(i, j, k) > 0 &&
+						isRiftBlock(world, link.point.getX(), link.point.getY(), link.point.getZ()))
 					{
-						link = getLink(x + i, y + j, z + k);
-						if (link != null)
-						{
-							links.add(link);
-						}
+						links.add(link);
 					}
 				}
 			}
@@ -305,6 +331,23 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		return links;
 	}
 	
+	// The searches are kept apart from the dimension check above and check blocks through this method
+	// so that RiftSearchBenchmark can run them against a simple set of rift blocks instead of a real world.
+	boolean isRiftBlock(World world, int x, int y, int z)
+	{
+		return (world.getBlockId(x, y, z) == DDProperties.instance().RiftBlockID);
+	}
+
+	private static boolean isWithinRange(int i, int j, int k, int range)
+	{
+		return (i >= -range && i <= range && j >= -range && j <= range && k >= -range && k <= range);
+	}
+	
+	private static boolean precedes(DimLink link, DimLink other)
+	{
+		return (other == null || link.point.compareTo(other.point) < 0);
+	}
+	
 	private static int getAbsoluteSum(int i, int j, int k)
 	{
 		return Math.abs(i) + Math.abs(j) + Math.abs(k);
@@ -318,30 +361,17 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 	public DimLink createLink(Point4D source, LinkType linkType, int orientation, DDLock locked)
 	{
 		// Return an existing link if there is one to avoid creating multiple links starting at the same point.
-		InnerDimLink link = linkMapping.get(source);
+		InnerDimLink link = linkMapping.get(source.getX(), source.getY(), source.getZ());
 		if (link == null)
 		{
 			link = new InnerDimLink(source, linkType, orientation, locked);
-			linkMapping.put(source, link);
-			linkList.add(link);
-			
-			// If this code is running on the server side, add this link to chunkMapping.
-			if (linkType != LinkType.CLIENT)
-			{
-				ChunkCoordIntPair chunk = link.getChunkCoordinates();
-				List<InnerDimLink> chunkLinks = chunkMapping.get(chunk);
-				if (chunkLinks == null)
-				{
-					chunkLinks = new ArrayList<InnerDimLink>(EXPECTED_LINKS_PER_CHUNK);
-					chunkMapping.put(chunk, chunkLinks);
-				}
-				chunkLinks.add(link);
-			}
+			addToMappings(link);
 		}
 		else
 		{
 			link.overwrite(linkType, orientation);
 		}
+		updateRandomDestination(link);
 		modified = true;
 		
 		//Link created!
@@ -367,27 +397,11 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		{
 			throw new IllegalArgumentException("parent cannot be null.");
 		}
-		InnerDimLink link = linkMapping.get(source);
+		InnerDimLink link = linkMapping.get(source.getX(), source.getY(), source.getZ());
 		if (link == null)
 		{
 			link = new InnerDimLink(source, parent, parent.orientation, locked);
-			linkMapping.put(source, link);
-			linkList.add(link);
-			
-
-			// If this code is running on the server side, add this link to chunkMapping.
-			// Granted, the client side code should never create child links anyway...
-			if (link.linkType() != LinkType.CLIENT)
-			{
-				ChunkCoordIntPair chunk = link.getChunkCoordinates();
-				List<InnerDimLink> chunkLinks = chunkMapping.get(chunk);
-				if (chunkLinks == null)
-				{
-					chunkLinks = new ArrayList<InnerDimLink>(EXPECTED_LINKS_PER_CHUNK);
-					chunkMapping.put(chunk, chunkLinks);
-				}
-				chunkLinks.add(link);
-			}
+			addToMappings(link);
 			
 			// Link created!
 			linkWatcher.onCreated(new ClientLinkData(link));
@@ -400,31 +414,130 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 				linkWatcher.onCreated(new ClientLinkData(link));
 			}
 		}
+		updateRandomDestination(link);
 		modified = true;
 		return link;
 	}
 
+	private void updateRandomDestination(InnerDimLink link)
+	{
+		// Links can serve as destinations for RANDOM links if they're in a root dimension and
+		// aren't RANDOM links themselves. A link's type only changes when it's overwritten,
+		// so checking after every creation or overwrite keeps the index accurate.
+		RandomDestinationIndex destinations = PocketManager.getRandomDestinations();
+		if (destinations != null)
+		{
+			LinkType linkType = link.linkType();
+			if (root == this && linkType != LinkType.RANDOM && linkType != LinkType.CLIENT)
+			{
+				destinations.add(link);
+			}
+			else
+			{
+				destinations.remove(link);
+			}
+		}
+	}
+	
+	private void removeRandomDestination(InnerDimLink link)
+	{
+		RandomDestinationIndex destinations = PocketManager.getRandomDestinations();
+		if (destinations != null)
+		{
+			destinations.remove(link);
+		}
+	}
+
+	private void addToMappings(InnerDimLink link)
+	{
+		Point4D source = link.point;
+		linkMapping.put(source.getX(), source.getY(), source.getZ(), link);
+		link.listIndex = linkList.size();
+		linkList.add(link);
+		
+		// chunkMapping doubles as our spatial index for rift searches, so we keep it
+		// up to date on both sides, including for client-side links.
+		// Links are appended to their chunk's chain so that they keep the order of the old per-chunk lists.
+		// Searches and link updates visit them in that order. Since chunkMapping points at the end of
+		// the chain, appending doesn't need to walk it.
+		long chunkKey = ChunkCoordIntPair.chunkXZ2Int(source.getX() >> 4, source.getZ() >> 4);
+		InnerDimLink last = (InnerDimLink) chunkMapping.getValueByKey(chunkKey);
+		if (last == null)
+		{
+			link.nextInChunk = link;
+		}
+		else
+		{
+			link.nextInChunk = last.nextInChunk;
+			last.nextInChunk = link;
+		}
+		chunkMapping.add(chunkKey, link);
+	}
+	
+	private void removeFromMappings(InnerDimLink link)
+	{
+		Point4D source = link.point;
+		linkMapping.remove(source.getX(), source.getY(), source.getZ());
+		
+		// Move the last link into this link's place so that we don't need to shift the rest of the list
+		int index = link.listIndex;
+		InnerDimLink last = linkList.remove(linkList.size() - 1);
+		if (last != link)
+		{
+			linkList.set(index, last);
+			last.listIndex = index;
+		}
+		link.listIndex = -1;
+		
+		long chunkKey = ChunkCoordIntPair.chunkXZ2Int(source.getX() >> 4, source.getZ() >> 4);
+		InnerDimLink previous = link;
+		while (previous.nextInChunk != link)
+		{
+			previous = previous.nextInChunk;
+		}
+		if (previous == link)
+		{
+			// Drop empty chunks so that searches don't need to visit them
+			chunkMapping.remove(chunkKey);
+		}
+		else
+		{
+			previous.nextInChunk = link.nextInChunk;
+			if (chunkMapping.getValueByKey(chunkKey) == link)
+			{
+				chunkMapping.add(chunkKey, previous);
+			}
+		}
+		link.nextInChunk = null;
+	}
+	
+	private InnerDimLink getLastChunkLink(int chunkX, int chunkZ)
+	{
+		return (InnerDimLink) chunkMapping.getValueByKey(ChunkCoordIntPair.chunkXZ2Int(chunkX, chunkZ));
+	}
+	
+	private static InnerDimLink getFirstChunkLink(InnerDimLink last)
+	{
+		return (last != null) ? last.nextInChunk : null;
+	}
+	
+	private static InnerDimLink getNextChunkLink(InnerDimLink link, InnerDimLink last)
+	{
+		return (link != last) ? link.nextInChunk : null;
+	}
+
 	public boolean deleteLink(DimLink link)
 	{
 		if (link.source().getDimension() != id)
 		{
 			throw new IllegalArgumentException("Attempted to delete a link from another dimension.");
 		}
-		InnerDimLink target = linkMapping.remove(link.source());
+		Point4D source = link.source();
+		InnerDimLink target = linkMapping.get(source.getX(), source.getY(), source.getZ());
 		if (target != null)
 		{
-			linkList.remove(target);
-
-			// If this code is running on the server side, remove this link to chunkMapping.
-			if (link.linkType() != LinkType.CLIENT)
-			{
-				ChunkCoordIntPair chunk = target.getChunkCoordinates();
-				List<InnerDimLink> chunkLinks = chunkMapping.get(chunk);
-				if (chunkLinks != null)
-				{
-					chunkLinks.remove(target);
-				}
-			}
+			removeFromMappings(target);
+			removeRandomDestination(target);
 			
 			// Raise deletion event
 			linkWatcher.onDeleted(new ClientLinkData(link));
@@ -442,16 +555,31 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 	{
 		return this.deleteLink(this.getLink(location));
 	}
+	
+	/**
+	 * Forgets all the links in this dimension without raising any events. This is meant for clients,
+	 * which only keep the links of the dimension they're in.
+	 */
+	public void clearLinks()
+	{
+		for (InnerDimLink link : linkList)
+		{
+			removeRandomDestination(link);
+			link.clear();
+		}
+		linkMapping.clear();
+		linkList.clear();
+		chunkMapping = new LongHashMap();
+	}
 
 	public DimLink getLink(int x, int y, int z)
 	{
-		Point4D location = new Point4D(x, y, z, id);
-		return linkMapping.get(location);
+		return linkMapping.get(x, y, z);
 	}
 	
 	public DimLink getLink(Point3D location)
 	{
-		return linkMapping.get(new Point4D(location.getX(), location.getY(), location.getZ(), this.id));
+		return linkMapping.get(location.getX(), location.getY(), location.getZ());
 	}
 	
 	public DimLink getLink(Point4D location)
@@ -459,13 +587,13 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		if (location.getDimension() != id)
 			return null;
 		
-		return linkMapping.get(location);
+		return linkMapping.get(location.getX(), location.getY(), location.getZ());
 	}
 
 	public ArrayList<DimLink> getAllLinks()
 	{
-		ArrayList<DimLink> results = new ArrayList<DimLink>(linkMapping.size());
-		results.addAll(linkMapping.values());
+		ArrayList<DimLink> results = new ArrayList<DimLink>(linkList.size());
+		results.addAll(linkList);
 		return results;
 	}
 	
@@ -567,6 +695,7 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		this.origin = incoming.destination();
 		this.orientation = orientation;
 		this.dungeon = dungeon;
+		this.dungeonChain = null;
 		this.packDepth = calculatePackDepth(parent, dungeon);
 		this.modified = true;
 	}
@@ -582,6 +711,7 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 			parent.children.remove(this);
 		}
 		this.depth = 1;
+		this.dungeonChain = null;
 		this.parent = this.root;
 		this.root.children.add(this);
 		this.root.modified = true;
@@ -607,6 +737,7 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 	{
 		// We assume that this is only applied to dimensions with parents
 		this.depth = this.parent.depth + 1;
+		this.dungeonChain = null;
 		if (this.type == DimensionType.DUNGEON)
 		{
 			this.packDepth = calculatePackDepth(this.parent, this.dungeon);
@@ -614,6 +745,52 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		this.modified = true;
 	}
 	
+	/**
+	 * Gets the dungeons in the chain leading up to this dimension, starting with this dimension's dungeon and
+	 * followed by the dungeons of its ancestors, for as long as they belong to the same pack. At most
+	 * DungeonPack.MAX_HISTORY_LENGTH dungeons are listed. The chain is cached until this dimension or one of its
+	 * ancestors changes, so the returned array must not be modified.
+	 */
+	public DungeonData[] getDungeonChain()
+	{
+		if (dungeonChain == null)
+		{
+			if (dungeon == null)
+			{
+				dungeonChain = new DungeonData[0];
+			}
+			else
+			{
+				ArrayList<DungeonData> chain = new ArrayList<DungeonData>();
+				DungeonPack owner = dungeon.dungeonType().Owner;
+				NewDimData current = this;
+				while (current != null && chain.size() < DungeonPack.MAX_HISTORY_LENGTH &&
+					current.dungeon != null && current.dungeon.dungeonType().Owner == owner)
+				{
+					chain.add(current.dungeon);
+					current = current.parent;
+				}
+				dungeonChain = chain.toArray(new DungeonData[chain.size()]);
+			}
+		}
+		return dungeonChain;
+	}
+	
+	private void clearDungeonChains()
+	{
+		// Clear the cached chains of this dimension and its descendants. Only the descendants within
+		// MAX_HISTORY_LENGTH levels could include this dimension, but deletions are rare enough
+		// that it isn't worth tracking levels.
+		Stack<NewDimData> ordering = new Stack<NewDimData>();
+		ordering.push(this);
+		while (!ordering.isEmpty())
+		{
+			NewDimData current = ordering.pop();
+			current.dungeonChain = null;
+			ordering.addAll(current.children);
+		}
+	}
+	
 	public static int calculatePackDepth(NewDimData parent, DungeonData current)
 	{
 		DungeonData predecessor = parent.dungeon();
@@ -710,12 +887,46 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 	
 	public Iterable<? extends DimLink> getChunkLinks(int chunkX, int chunkZ)
 	{
-		List<InnerDimLink> chunkLinks = chunkMapping.get(new ChunkCoordIntPair(chunkX, chunkZ));
-		if (chunkLinks != null)
+		final InnerDimLink last = getLastChunkLink(chunkX, chunkZ);
+		if (last == null)
 		{
-			return chunkLinks;
+			return Collections.<DimLink>emptyList();
 		}
-		return new ArrayList<InnerDimLink>(0);
+		return new Iterable<DimLink>()
+		{
+			@Override
+			public Iterator<DimLink> iterator()
+			{
+				return new Iterator<DimLink>()
+				{
+					private InnerDimLink next = last.nextInChunk;
+					
+					@Override
+					public boolean hasNext()
+					{
+						return (next != null);
+					}
+					
+					@Override
+					public DimLink next()
+					{
+						if (next == null)
+						{
+							throw new NoSuchElementException();
+						}
+						InnerDimLink current = next;
+						next = getNextChunkLink(current, last);
+						return current;
+					}
+					
+					@Override
+					public void remove()
+					{
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
 	}
 	
 	public boolean isModified()
@@ -739,6 +950,12 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		for (NewDimData child : children)
 		{
 			child.parent = null;
+			child.clearDungeonChains();
+		}
+		// Forget this dimension's links as random destinations
+		for (InnerDimLink link : linkList)
+		{
+			removeRandomDestination(link);
 		}
 		// Clear all fields
 		id = Integer.MIN_VALUE;
@@ -746,6 +963,7 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		linkMapping = null;
 		linkList.clear();
 		linkList = null;
+		chunkMapping = null;
 		children.clear();
 		children = null;
 		type = null;
@@ -755,6 +973,7 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 		origin = null;
 		orientation = Integer.MIN_VALUE;
 		dungeon = null;
+		dungeonChain = null;
 		linkWatcher = null;
 	}
 	
@@ -785,12 +1004,14 @@ public abstract class NewDimData implements IPackable<PackedDimData>
 				parentPoint=link.parent.point.toPoint3D();
 			}
 			
-			for(DimLink childLink : link.children)
+			for(DimLink childLink : link.children())
 			{
 				children.add(childLink.source().toPoint3D());
 			}
 			PackedLinkTail tail = new PackedLinkTail(link.tail.getDestination(),link.tail.getLinkType());
-			Links.add(new PackedLinkData(link.point,parentPoint,tail,link.orientation,children,link.lock));
+			// Copy the lock so that the snapshot isn't affected by changes made while it's being saved
+			DDLock lock = (link.lock != null) ? new DDLock(link.lock.getLockState(), link.lock.getLockKey()) : null;
+			Links.add(new PackedLinkData(link.point,parentPoint,tail,link.orientation,children,lock));
 			
 			PackedLinkTail tempTail = new PackedLinkTail(link.tail.getDestination(),link.tail.getLinkType());
 			if(Tails.contains(tempTail))
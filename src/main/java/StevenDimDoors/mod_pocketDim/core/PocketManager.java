@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.IntHashMap;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
 import net.minecraftforge.common.DimensionManager;
@@ -18,6 +19,7 @@ import StevenDimDoors.mod_pocketDim.helpers.DeleteFolder;
 import StevenDimDoors.mod_pocketDim.saving.DDSaveHandler;
 import StevenDimDoors.mod_pocketDim.saving.OldSaveImporter;
 import StevenDimDoors.mod_pocketDim.saving.PackedDimData;
+import StevenDimDoors.mod_pocketDim.util.DDStatistics;
 import StevenDimDoors.mod_pocketDim.util.Point4D;
 import StevenDimDoors.mod_pocketDim.watcher.ClientDimData;
 import StevenDimDoors.mod_pocketDim.watcher.ClientLinkData;
@@ -73,9 +75,15 @@ public class PocketManager
 		@Override
 		public void onDeleted(ClientLinkData link)
 		{
+			// The server only sends link changes to nearby players, so we
+			// may not know about a link that is being deleted.
 			Point4D source = link.point;
 			NewDimData dimension = getDimensionData(source.getDimension());
-			dimension.deleteLink(source.getX(), source.getY(), source.getZ());
+			DimLink dLink = dimension.getLink(source);
+			if (dLink != null)
+			{
+				dimension.deleteLink(dLink);
+			}
 		}
 
 		@Override
@@ -84,8 +92,15 @@ public class PocketManager
 			Point4D source = link.point;
 			NewDimData dimension = getDimensionData(source.getDimension());
 			DimLink dLink = dimension.getLink(source);
-			dLink.lock = link.lock;
-
+			if (dLink != null)
+			{
+				dLink.lock = link.lock;
+			}
+			else
+			{
+				// We missed the link's creation, so catch up now
+				dimension.createLink(source, LinkType.CLIENT, 0, link.lock);
+			}
 		}
 	}
 
@@ -139,10 +154,14 @@ public class PocketManager
 	private static final UpdateWatcherProxy<ClientLinkData> linkWatcher = new UpdateWatcherProxy<ClientLinkData>();
 	private static final UpdateWatcherProxy<ClientDimData> dimWatcher = new UpdateWatcherProxy<ClientDimData>();
 	private static ArrayList<NewDimData> rootDimensions = null;
+	private static RandomDestinationIndex randomDestinations = null;
 
 	// HashMap that maps all the dimension IDs registered with DimDoors to their
 	// DD data.
 	private static HashMap<Integer, InnerDimData> dimensionData = null;
+	// Mirrors dimensionData for lookups by dimension ID, which don't need to box the ID.
+	// Any change to dimensionData must also be made here.
+	private static IntHashMap dimensionTable = null;
 	// ArrayList that stores the dimension IDs of any dimension that has been
 	// deleted.
 	private static ArrayList<Integer> dimensionIDBlackList = null;
@@ -174,7 +193,9 @@ public class PocketManager
 		isLoading = true;
 
 		dimensionData = new HashMap<Integer, InnerDimData>();
+		dimensionTable = new IntHashMap();
 		rootDimensions = new ArrayList<NewDimData>();
+		randomDestinations = new RandomDestinationIndex();
 		dimensionIDBlackList = new ArrayList<Integer>();
 		personalPocketsMapping = new HashMap<String, NewDimData>();
 
@@ -222,7 +243,7 @@ public class PocketManager
 		else
 		// register children
 		{
-			InnerDimData test = PocketManager.dimensionData.get(packedData.ParentID);
+			InnerDimData test = lookupDimension(packedData.ParentID);
 			dimData = new InnerDimData(packedData.ID, test, type, linkWatcher);
 			dimData.isFilled = packedData.IsFilled;
 			dimData.origin = new Point4D(packedData.Origin.getX(), packedData.Origin.getY(), packedData.Origin.getZ(), packedData.ID);
@@ -234,7 +255,7 @@ public class PocketManager
 			}
 
 		}
-		PocketManager.dimensionData.put(dimData.id, dimData);
+		addDimension(dimData);
 		getDimwatcher().onCreated(new ClientDimData(dimData));
 
 		return true;
@@ -274,8 +295,7 @@ public class PocketManager
 		String saveRootPath = DimensionManager.getCurrentSaveRootDirectory().getAbsolutePath();
 		File saveDirectory = new File(saveRootPath + "/DimensionalDoors/pocketDimID" + dimension.id());
 		DeleteFolder.deleteFolder(saveDirectory);
-		File dataFile = new File(saveRootPath + "/DimensionalDoors/data/dim_" + dimension.id() + ".txt");
-		dataFile.delete();
+		DDSaveHandler.deleteDimensionData(new File(saveRootPath + "/DimensionalDoors/data"), dimension.id());
 	}
 
 	private static void deleteDimensionData(InnerDimData dimension)
@@ -285,6 +305,7 @@ public class PocketManager
 		// things will happen!
 		if (dimensionData.remove(dimension.id()) != null)
 		{
+			dimensionTable.removeObject(dimension.id());
 			// Raise the dim deleted event
 			getDimwatcher().onDeleted(new ClientDimData(dimension));
 			dimension.clear();
@@ -408,9 +429,11 @@ public class PocketManager
 		}
 		isSaving = true;
 
+		long startTime = DDStatistics.startTimer();
 		try
 		{
 			DDSaveHandler.saveAll(dimensionData.values(), dimensionIDBlackList, checkModified);
+			DDStatistics.SAVES.stopTimer(startTime);
 		}
 		catch (Exception e)
 		{
@@ -514,7 +537,7 @@ public class PocketManager
 	 */
 	private static NewDimData registerDimension(int dimensionID, InnerDimData parent, DimensionType type)
 	{
-		if (dimensionData.containsKey(dimensionID))
+		if (dimensionTable.containsItem(dimensionID))
 		{
 			if (PocketManager.dimensionIDBlackList.contains(dimensionID))
 			{
@@ -523,7 +546,7 @@ public class PocketManager
 			throw new IllegalArgumentException("Cannot register a dimension with ID = " + dimensionID + " because it has already been registered.");
 		}
 		InnerDimData dimension = new InnerDimData(dimensionID, parent, type, linkWatcher);
-		dimensionData.put(dimensionID, dimension);
+		addDimension(dimension);
 		if (!dimension.isPocketDimension())
 		{
 			rootDimensions.add(dimension);
@@ -550,11 +573,11 @@ public class PocketManager
 
 		if (rootID != dimensionID)
 		{
-			dimension = dimensionData.get(dimensionID);
+			dimension = lookupDimension(dimensionID);
 			if (dimension == null)
 			{
 				dimension = new InnerDimData(dimensionID, root, type);
-				dimensionData.put(dimension.id(), dimension);
+				addDimension(dimension);
 			}
 		}
 		else
@@ -576,14 +599,25 @@ public class PocketManager
 		return dimension;
 	}
 
+	private static InnerDimData lookupDimension(int dimensionID)
+	{
+		return (InnerDimData) dimensionTable.lookup(dimensionID);
+	}
+
+	private static void addDimension(InnerDimData dimension)
+	{
+		dimensionData.put(dimension.id(), dimension);
+		dimensionTable.addKey(dimension.id(), dimension);
+	}
+
 	public static NewDimData getDimensionData(int dimensionID)
 	{
-		return PocketManager.dimensionData.get(dimensionID);
+		return lookupDimension(dimensionID);
 	}
 
 	public static NewDimData getDimensionData(World dimension)
 	{
-		return PocketManager.dimensionData.get(dimension.provider.dimensionId);
+		return lookupDimension(dimension.provider.dimensionId);
 	}
 
 	public static NewDimData createDimensionData(World world)
@@ -607,7 +641,7 @@ public class PocketManager
 		// assume it's a non-pocket dimension that hasn't been initialized with
 		// us before
 		// and create a NewDimData instance for it.
-		NewDimData dimension = PocketManager.dimensionData.get(dimensionID);
+		NewDimData dimension = lookupDimension(dimensionID);
 
 		// if we do not have a record of it, then it must be a root
 		if (dimension == null)
@@ -628,6 +662,15 @@ public class PocketManager
 		return (ArrayList<NewDimData>) rootDimensions.clone();
 	}
 
+	/**
+	 * Gets the links that links of type RANDOM can lead to.
+	 * @return the index of random destinations, or null if pocket dimensions aren't loaded
+	 */
+	public static RandomDestinationIndex getRandomDestinations()
+	{
+		return randomDestinations;
+	}
+
 	public static void unload()
 	{
 		System.out.println("Unloading Pocket Dimensions...");
@@ -635,11 +678,16 @@ public class PocketManager
 		{
 			throw new IllegalStateException("Pocket dimensions have already been unloaded!");
 		}
+		
+		// Make sure that all of our save data has reached the disk before letting go of it
+		DDSaveHandler.shutdown();
 
 		unregisterPockets();
 		dimensionData = null;
+		dimensionTable = null;
 		personalPocketsMapping = null;
 		rootDimensions = null;
+		randomDestinations = null;
 		isLoaded = false;
 		isConnected = false;
 	}
@@ -656,7 +704,7 @@ public class PocketManager
 
 	public static DimLink getLink(int x, int y, int z, int dimensionID)
 	{
-		NewDimData dimension = dimensionData.get(dimensionID);
+		NewDimData dimension = lookupDimension(dimensionID);
 		if (dimension != null)
 		{
 			return dimension.getLink(x, y, z);
@@ -696,14 +744,21 @@ public class PocketManager
 
 	public static void writePacket(DataOutputStream output) throws IOException
 	{
-		// Write a very compact description of our dimensions and links to be
-		// sent to a client
+		// Write a very compact description of our dimensions to be sent to a
+		// client. Links are sent separately by writeLinkPacket().
 		Compactor.write(dimensionData.values(), output);
 	}
 
+	public static void writeLinkPacket(int dimensionID, DataOutputStream output) throws IOException
+	{
+		// Write a compact description of the links in a single dimension to
+		// be sent to a client that has just entered it
+		Compactor.writeLinks(createDimensionData(dimensionID), output);
+	}
+
 	public static boolean isRegisteredInternally(int dimensionID)
 	{
-		return dimensionData.containsKey(dimensionID);
+		return dimensionTable.containsItem(dimensionID);
 	}
 
 	public static void createAndRegisterBlacklist(List<Integer> blacklist)
@@ -736,6 +791,21 @@ public class PocketManager
 		isConnected = true;
 	}
 
+	public static void readLinkPacket(DataInputStream input) throws IOException
+	{
+		if (!isLoaded)
+		{
+			return;
+		}
+		// Clients only keep the links of the dimension they're in. Forget the
+		// links in every other dimension before reading in the new ones.
+		for (InnerDimData dimension : dimensionData.values())
+		{
+			dimension.clearLinks();
+		}
+		Compactor.readLinks(input, new DimRegistrationCallback());
+	}
+
 	public static UpdateWatcherProxy<ClientDimData> getDimwatcher()
 	{
 		return dimWatcher;
@@ -0,0 +1,108 @@
+package StevenDimDoors.mod_pocketDim.core;
+
+import java.util.Random;
+
+/**
+ * Keeps track of the links that can serve as destinations for links of type RANDOM: every link in a root
+ * dimension that isn't a RANDOM link itself. The links are stored in a plain array and each link remembers
+ * its own position in it, so links can be added and removed in constant time (removal swaps the last link
+ * into the gap) and a destination can be picked in constant time without allocating anything.
+ *
+ * NewDimData keeps the index up to date as links are created, overwritten and deleted.
+ */
+public class RandomDestinationIndex
+{
+	private static final int INITIAL_CAPACITY = 256;
+
+	/**
+	 * Decides whether a candidate destination is acceptable for a particular draw.
+	 */
+	public interface Filter
+	{
+		public boolean accept(DimLink link);
+	}
+
+	private DimLink[] links;
+	private int size;
+
+	public RandomDestinationIndex()
+	{
+		this.links = new DimLink[INITIAL_CAPACITY];
+		this.size = 0;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	void add(DimLink link)
+	{
+		if (link.destinationIndex >= 0)
+		{
+			// The link is already in the index
+			return;
+		}
+		if (size == links.length)
+		{
+			DimLink[] expanded = new DimLink[2 * links.length];
+			System.arraycopy(links, 0, expanded, 0, size);
+			links = expanded;
+		}
+		link.destinationIndex = size;
+		links[size] = link;
+		size++;
+	}
+
+	void remove(DimLink link)
+	{
+		int index = link.destinationIndex;
+		if (index < 0 || index >= size || links[index] != link)
+		{
+			// The link isn't in this index
+			return;
+		}
+		size--;
+		DimLink last = links[size];
+		links[index] = last;
+		last.destinationIndex = index;
+		links[size] = null;
+		link.destinationIndex = -1;
+	}
+
+	/**
+	 * Picks a random link, with every link in the index being equally likely.
+	 * @return the chosen link, or null if the index is empty
+	 */
+	public DimLink sample(Random random)
+	{
+		if (size == 0)
+		{
+			return null;
+		}
+		return links[random.nextInt(size)];
+	}
+
+	/**
+	 * Picks a random link that the given filter accepts. Links are drawn at random until one is accepted,
+	 * so every acceptable link is equally likely, but we give up after a limited number of tries rather
+	 * than risk scanning the whole index.
+	 * @return the chosen link, or null if no acceptable link was found within the given number of tries
+	 */
+	public DimLink sample(Random random, Filter filter, int maxAttempts)
+	{
+		if (filter == null)
+		{
+			return sample(random);
+		}
+		for (int attempt = 0; attempt < maxAttempts && size > 0; attempt++)
+		{
+			DimLink link = links[random.nextInt(size)];
+			if (filter.accept(link))
+			{
+				return link;
+			}
+		}
+		return null;
+	}
+}
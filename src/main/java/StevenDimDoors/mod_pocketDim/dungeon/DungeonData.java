@@ -1,5 +1,6 @@
 package StevenDimDoors.mod_pocketDim.dungeon;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 
 import StevenDimDoors.mod_pocketDim.dungeon.pack.DungeonType;
@@ -64,6 +65,14 @@ public class DungeonData
 		return schematicName;
 	}
 	
+	/**
+	 * Gets a value that changes whenever the schematic file is modified. Schematics inside our JAR never change.
+	 */
+	public long schematicVersion()
+	{
+		return isInternal ? 0 : new File(schematicPath).lastModified();
+	}
+	
 	public DungeonSchematic loadSchematic() throws InvalidSchematicException, FileNotFoundException
 	{
 		if (isInternal)
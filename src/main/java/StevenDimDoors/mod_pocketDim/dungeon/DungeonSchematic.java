@@ -23,10 +23,11 @@ import StevenDimDoors.mod_pocketDim.core.LinkType;
 import StevenDimDoors.mod_pocketDim.core.NewDimData;
 import StevenDimDoors.mod_pocketDim.core.PocketManager;
 import StevenDimDoors.mod_pocketDim.schematic.BlockRotator;
-import StevenDimDoors.mod_pocketDim.schematic.ChunkBlockSetter;
+import StevenDimDoors.mod_pocketDim.schematic.BulkBlockSetter;
 import StevenDimDoors.mod_pocketDim.schematic.CompoundFilter;
 import StevenDimDoors.mod_pocketDim.schematic.IBlockSetter;
 import StevenDimDoors.mod_pocketDim.schematic.InvalidSchematicException;
+import StevenDimDoors.mod_pocketDim.schematic.PointTransform;
 import StevenDimDoors.mod_pocketDim.schematic.ReplacementFilter;
 import StevenDimDoors.mod_pocketDim.schematic.Schematic;
 import StevenDimDoors.mod_pocketDim.schematic.WorldBlockSetter;
@@ -66,6 +67,39 @@ public class DungeonSchematic extends Schematic {
 		super(source);
 	}
 	
+	private DungeonSchematic(DungeonSchematic source)
+	{
+		super(source, true);
+		this.orientation = source.orientation;
+		this.entranceDoorLocation = (source.entranceDoorLocation != null) ? source.entranceDoorLocation.clone() : null;
+		this.exitDoorLocations = copyPoints(source.exitDoorLocations);
+		this.dimensionalDoorLocations = copyPoints(source.dimensionalDoorLocations);
+		this.monolithSpawnLocations = copyPoints(source.monolithSpawnLocations);
+	}
+	
+	/**
+	 * Creates a copy of this schematic. The copy shares its block data with this schematic
+	 * until either of them is filtered, so copies are cheap to make.
+	 */
+	public DungeonSchematic copy()
+	{
+		return new DungeonSchematic(this);
+	}
+	
+	private static ArrayList<Point3D> copyPoints(ArrayList<Point3D> points)
+	{
+		if (points == null)
+		{
+			return null;
+		}
+		ArrayList<Point3D> copy = new ArrayList<Point3D>(points.size());
+		for (Point3D point : points)
+		{
+			copy.add(point.clone());
+		}
+		return copy;
+	}
+	
 	public int getOrientation()
 	{
 		return orientation;
@@ -187,109 +221,191 @@ public class DungeonSchematic extends Schematic {
 		}
 		else
 		{
-			copyToWorld(world, pocketCenter, targetOrientation, entryLink, random, properties, new ChunkBlockSetter(false));
+			BulkBlockSetter blockSetter = new BulkBlockSetter(false);
+			copyToWorld(world, pocketCenter, targetOrientation, entryLink, random, properties, blockSetter);
+			blockSetter.finish(world);
 		}
 	}
 	
 	public void copyToWorld(World world, Point3D pocketCenter, int targetOrientation, DimLink entryLink,
 			Random random, DDProperties properties, IBlockSetter blockSetter)
 	{
-		//TODO: This function is an improvised solution so we can get the release moving. In the future,
+		Placement placement = beginPlacement(world, pocketCenter, targetOrientation, entryLink, random, properties, blockSetter);
+		placement.placeLayers(height);
+		placement.placeTileEntities();
+		placement.setUpLinks();
+		placement.setUpMonoliths();
+	}
+	
+	/**
+	 * Prepares to copy this schematic into the world in several steps, so that the work can be spread
+	 * across multiple ticks. The steps of the returned Placement must be performed in order: placeLayers()
+	 * until all layers are placed, placeTileEntities(), setUpLinks() and then setUpMonoliths().
+	 * The schematic must not be modified until the placement is done.
+	 */
+	public Placement beginPlacement(World world, Point3D pocketCenter, int targetOrientation, DimLink entryLink,
+			Random random, DDProperties properties, IBlockSetter blockSetter)
+	{
+		return new Placement(world, pocketCenter, targetOrientation, entryLink, random, properties, blockSetter);
+	}
+	
+	public class Placement
+	{
+		//TODO: This class is an improvised solution so we can get the release moving. In the future,
 		//we should generalize block transformations and implement support for them at the level of Schematic,
 		//then just use that support from DungeonSchematic instead of making this local fix.
 		//It might be easiest to support transformations using a WorldOperation
 		
-		final int turnAngle = targetOrientation - this.orientation;
-		
-		int index;
-		int count;
-		int blockID;
-		int blockMeta;
-		int dx, dy, dz;
-		Point3D pocketPoint = new Point3D(0, 0, 0);
+		private final World world;
+		private final Point3D pocketCenter;
+		private final int turnAngle;
+		private final DimLink entryLink;
+		private final Random random;
+		private final DDProperties properties;
+		private final IBlockSetter blockSetter;
+		private final PointTransform transform;
+		private int nextLayer;
 		
-		//Copy blocks and metadata into the world
-		index = 0;
-		for (dy = 0; dy < height; dy++)
+		private Placement(World world, Point3D pocketCenter, int targetOrientation, DimLink entryLink,
+				Random random, DDProperties properties, IBlockSetter blockSetter)
 		{
-			for (dz = 0; dz < length; dz++)
-			{
-				for (dx = 0; dx < width; dx++)
-				{
-					pocketPoint.setX(dx);
-					pocketPoint.setY(dy);
-					pocketPoint.setZ(dz);
-					blockID = blocks[index];
-					BlockRotator.transformPoint(pocketPoint, entranceDoorLocation, turnAngle, pocketCenter);
-					blockMeta = BlockRotator.transformMetadata(metadata[index], turnAngle, blockID);
-
-					//In the future, we might want to make this more efficient by building whole chunks at a time
-					blockSetter.setBlock(world, pocketPoint.getX(), pocketPoint.getY(), pocketPoint.getZ(), blockID, blockMeta);
-					index++;
-				}
-			}
+			this.world = world;
+			this.pocketCenter = pocketCenter;
+			this.turnAngle = targetOrientation - orientation;
+			this.entryLink = entryLink;
+			this.random = random;
+			this.properties = properties;
+			this.blockSetter = blockSetter;
+			this.transform = new PointTransform(entranceDoorLocation, turnAngle, pocketCenter);
+			this.nextLayer = 0;
 		}
-		//Copy tile entities into the world
-		count = tileEntities.tagCount();
-		for (index = 0; index < count; index++)
+		
+		public int getLayerCount()
 		{
-			NBTTagCompound tileTag = (NBTTagCompound) tileEntities.tagAt(index);
-			//Rewrite its location to be in world coordinates
-			pocketPoint.setX(tileTag.getInteger("x"));
-			pocketPoint.setY(tileTag.getInteger("y"));
-			pocketPoint.setZ(tileTag.getInteger("z"));
-			BlockRotator.transformPoint(pocketPoint, entranceDoorLocation, turnAngle, pocketCenter);
-			tileTag.setInteger("x", pocketPoint.getX());
-			tileTag.setInteger("y", pocketPoint.getY());
-			tileTag.setInteger("z", pocketPoint.getZ());
-			//Load the tile entity and put it in the world
-			world.setBlockTileEntity(pocketPoint.getX(), pocketPoint.getY(), pocketPoint.getZ(), TileEntity.createAndLoadEntity(tileTag));
+			return height;
 		}
 		
-		setUpDungeon(PocketManager.createDimensionData(world), world, pocketCenter, turnAngle, entryLink, random, properties, blockSetter);
-	}
-	
-	private void setUpDungeon(NewDimData dimension, World world, Point3D pocketCenter, int turnAngle, DimLink entryLink, Random random, DDProperties properties, IBlockSetter blockSetter)
-	{
-        //Transform dungeon corners
-        Point3D minCorner = new Point3D(0, 0, 0);
-        Point3D maxCorner = new Point3D(width - 1, height - 1, length - 1);
-        transformCorners(entranceDoorLocation, pocketCenter, turnAngle, minCorner, maxCorner);
-        
-		//Fill empty chests and dispensers
-		FillContainersOperation filler = new FillContainersOperation(random, properties);
-		filler.apply(world, minCorner, maxCorner);
-		
-		//Set up entrance door rift
-		createEntranceReverseLink(world, dimension, pocketCenter, entryLink);
+		public boolean hasPlacedAllLayers()
+		{
+			return (nextLayer >= height);
+		}
 		
-		//Set up link data for dimensional doors
-		for (Point3D location : dimensionalDoorLocations)
+		/**
+		 * Copies the blocks and metadata of the next few horizontal layers of the schematic into the world.
+		 * @param count - the maximum number of layers to place
+		 * @return true if all the layers have been placed, false otherwise
+		 */
+		public boolean placeLayers(int count)
 		{
-			createDimensionalDoorLink(world, dimension, location, entranceDoorLocation, turnAngle, pocketCenter);
+			int index;
+			int blockID;
+			int blockMeta;
+			int dx, dy, dz;
+			int x, y, z;
+			int rowX, rowZ;
+			
+			//The transformation is the same for every block, so rather than transforming each point,
+			//walk through the world coordinates incrementally using the transformation's unit steps.
+			final int xStepX = transform.getXStepX();
+			final int xStepZ = transform.getXStepZ();
+			final int zStepX = transform.getZStepX();
+			final int zStepZ = transform.getZStepZ();
+			final int endLayer = Math.min(nextLayer + count, height);
+			
+			index = nextLayer * width * length;
+			for (dy = nextLayer; dy < endLayer; dy++)
+			{
+				y = transform.transformY(dy);
+				rowX = transform.transformX(0, 0);
+				rowZ = transform.transformZ(0, 0);
+				for (dz = 0; dz < length; dz++)
+				{
+					x = rowX;
+					z = rowZ;
+					for (dx = 0; dx < width; dx++)
+					{
+						blockID = blocks[index];
+						blockMeta = BlockRotator.transformMetadata(metadata[index], turnAngle, blockID);
+						blockSetter.setBlock(world, x, y, z, blockID, blockMeta);
+						x += xStepX;
+						z += xStepZ;
+						index++;
+					}
+					rowX += zStepX;
+					rowZ += zStepZ;
+				}
+			}
+			nextLayer = endLayer;
+			return hasPlacedAllLayers();
 		}
 		
-		//Set up link data for exit door
-		for (Point3D location : exitDoorLocations)
+		public void placeTileEntities()
 		{
-			createExitDoorLink(world, dimension, location, entranceDoorLocation, turnAngle, pocketCenter, blockSetter);
+			Point3D pocketPoint = new Point3D(0, 0, 0);
+			int count = tileEntities.tagCount();
+			for (int index = 0; index < count; index++)
+			{
+				NBTTagCompound tileTag = (NBTTagCompound) tileEntities.tagAt(index);
+				//Rewrite its location to be in world coordinates
+				pocketPoint.setX(tileTag.getInteger("x"));
+				pocketPoint.setY(tileTag.getInteger("y"));
+				pocketPoint.setZ(tileTag.getInteger("z"));
+				transform.apply(pocketPoint);
+				tileTag.setInteger("x", pocketPoint.getX());
+				tileTag.setInteger("y", pocketPoint.getY());
+				tileTag.setInteger("z", pocketPoint.getZ());
+				//Load the tile entity and put it in the world
+				world.setBlockTileEntity(pocketPoint.getX(), pocketPoint.getY(), pocketPoint.getZ(), TileEntity.createAndLoadEntity(tileTag));
+			}
 		}
 		
-		//Remove end portal frames and spawn Monoliths, if allowed
-		boolean canSpawn = CustomLimboPopulator.isMobSpawningAllowed();
-		for (Point3D location : monolithSpawnLocations)
+		public void setUpLinks()
 		{
-			spawnMonolith(world, location, entranceDoorLocation, turnAngle, pocketCenter, canSpawn, blockSetter);
+			NewDimData dimension = PocketManager.createDimensionData(world);
+			
+			//Transform dungeon corners
+			Point3D minCorner = new Point3D(0, 0, 0);
+			Point3D maxCorner = new Point3D(width - 1, height - 1, length - 1);
+			transformCorners(entranceDoorLocation, pocketCenter, turnAngle, minCorner, maxCorner);
+			
+			//Fill empty chests and dispensers
+			FillContainersOperation filler = new FillContainersOperation(random, properties);
+			filler.apply(world, minCorner, maxCorner);
+			
+			//Set up entrance door rift
+			createEntranceReverseLink(world, dimension, pocketCenter, entryLink);
+			
+			//Set up link data for dimensional doors
+			for (Point3D location : dimensionalDoorLocations)
+			{
+				createDimensionalDoorLink(world, dimension, location, entranceDoorLocation, turnAngle, pocketCenter);
+			}
+			
+			//Set up link data for exit door
+			for (Point3D location : exitDoorLocations)
+			{
+				createExitDoorLink(world, dimension, location, entranceDoorLocation, turnAngle, pocketCenter, blockSetter);
+			}
+			
+			// If this is a Nether dungeon, search for a sign near the entry door and write the dimension's depth.
+			// Checking if this is specifically a Nether pack dungeon is a bit tricky, so I'm going to use this
+			// approach to check - if the dungeon is rooted in the Nether, then it SHOULD be a Nether dungeon.
+			// This isn't necessarily true if someone uses dd-rift to spawn a dungeon, but it should work under
+			// normal use of the mod.
+			if (dimension.root().id() == NETHER_DIMENSION_ID)
+			{
+				writeDepthSign(world, pocketCenter, dimension.depth());
+			}
 		}
 		
-		// If this is a Nether dungeon, search for a sign near the entry door and write the dimension's depth.
-		// Checking if this is specifically a Nether pack dungeon is a bit tricky, so I'm going to use this
-		// approach to check - if the dungeon is rooted in the Nether, then it SHOULD be a Nether dungeon.
-		// This isn't necessarily true if someone uses dd-rift to spawn a dungeon, but it should work under
-		// normal use of the mod.
-		if (dimension.root().id() == NETHER_DIMENSION_ID)
+		public void setUpMonoliths()
 		{
-			writeDepthSign(world, pocketCenter, dimension.depth());
+			//Remove end portal frames and spawn Monoliths, if allowed
+			boolean canSpawn = CustomLimboPopulator.isMobSpawningAllowed();
+			for (Point3D location : monolithSpawnLocations)
+			{
+				spawnMonolith(world, location, entranceDoorLocation, turnAngle, pocketCenter, canSpawn, blockSetter);
+			}
 		}
 	}
 	
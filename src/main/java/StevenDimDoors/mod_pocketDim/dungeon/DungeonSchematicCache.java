@@ -0,0 +1,172 @@
+package StevenDimDoors.mod_pocketDim.dungeon;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Keeps decoded and filtered schematics in memory so that they don't have to be read from disk and
+ * filtered again every time we build them. The cache holds on to the least recently used schematics
+ * until their combined size exceeds a memory budget.
+ *
+ * Cached schematics are templates. Callers only ever receive copies of them, which share block data
+ * with the template until they are modified.
+ */
+public class DungeonSchematicCache
+{
+	//Rough estimates of the memory used by a schematic, used to enforce the cache's budget
+	private static final int BYTES_PER_BLOCK = 3;
+	private static final int BYTES_PER_TILE_ENTITY = 256;
+	private static final int BYTES_OVERHEAD = 1024;
+
+	private static class Entry
+	{
+		public final DungeonSchematic template;
+		public final long version;
+		public final long size;
+
+		public Entry(DungeonSchematic template, long version)
+		{
+			this.template = template;
+			this.version = version;
+			this.size = estimateSize(template);
+		}
+	}
+
+	private final long capacity;
+	private final LinkedHashMap<String, Entry> entries;
+	private long usedBytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Creates a cache with the specified memory budget.
+	 * @param capacity - the approximate number of bytes the cache may use. Caching is disabled if this is 0.
+	 */
+	public DungeonSchematicCache(long capacity)
+	{
+		if (capacity < 0)
+		{
+			throw new IllegalArgumentException("capacity cannot be negative.");
+		}
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		this.usedBytes = 0;
+	}
+
+	/**
+	 * Gets a copy of a cached schematic.
+	 * @param path - the path of the schematic
+	 * @param version - the version of the schematic file, such as its last modification time.
+	 * A cached schematic with a different version is considered out of date and is discarded.
+	 * @return a copy of the schematic, or null if it's not in the cache
+	 */
+	public synchronized DungeonSchematic get(String path, long version)
+	{
+		Entry entry = entries.get(path);
+		if (entry != null)
+		{
+			if (entry.version == version)
+			{
+				hits++;
+				return entry.template.copy();
+			}
+			entries.remove(path);
+			usedBytes -= entry.size;
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Adds a schematic to the cache. The schematic must not be modified afterwards.
+	 * Use get() or DungeonSchematic.copy() to get a copy that can be modified.
+	 */
+	public synchronized void put(String path, long version, DungeonSchematic template)
+	{
+		Entry entry = new Entry(template, version);
+		if (entry.size > capacity)
+		{
+			//Don't let a single huge schematic flush out everything else
+			return;
+		}
+		Entry previous = entries.put(path, entry);
+		if (previous != null)
+		{
+			usedBytes -= previous.size;
+		}
+		usedBytes += entry.size;
+
+		//Evict the least recently used schematics until we're within budget again
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (usedBytes > capacity && iterator.hasNext())
+		{
+			Entry eldest = iterator.next();
+			iterator.remove();
+			usedBytes -= eldest.size;
+			evictions++;
+		}
+	}
+
+	public synchronized boolean contains(String path)
+	{
+		return entries.containsKey(path);
+	}
+
+	public synchronized void clear()
+	{
+		entries.clear();
+		usedBytes = 0;
+	}
+
+	public boolean isEnabled()
+	{
+		return (capacity > 0);
+	}
+
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	public long getCapacity()
+	{
+		return capacity;
+	}
+
+	public synchronized long getUsedBytes()
+	{
+		return usedBytes;
+	}
+
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	public synchronized long getEvictions()
+	{
+		return evictions;
+	}
+
+	/**
+	 * Estimates the amount of memory used by a schematic, in bytes.
+	 */
+	public static long estimateSize(DungeonSchematic template)
+	{
+		long volume = (long) template.getWidth() * template.getHeight() * template.getLength();
+		return BYTES_OVERHEAD + volume * BYTES_PER_BLOCK + template.getTileEntityCount() * BYTES_PER_TILE_ENTITY;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "Schematic cache: " + entries.size() + " schematics, " + (usedBytes / 1024) + " of " + (capacity / 1024) +
+				" KB used, " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+	}
+}
@@ -112,4 +112,10 @@ public class SpecialBlockFinder extends SchematicFilter {
 	{
 		return false;
 	}
+	
+	@Override
+	protected boolean modifiesBlocks()
+	{
+		return false;
+	}
 }
@@ -4,11 +4,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 import StevenDimDoors.mod_pocketDim.util.WeightedContainer;
+import StevenDimDoors.mod_pocketDim.util.WeightedSampler;
 
 public class DungeonChainRule
 {
 	private final int[] condition;
 	private final ArrayList<WeightedContainer<DungeonType>> products;
+	private final WeightedSampler<DungeonType> productSampler;
 	
 	public DungeonChainRule(DungeonChainRuleDefinition source, HashMap<String, DungeonType> nameToTypeMapping)
 	{	
@@ -49,6 +51,16 @@ public class DungeonChainRule
 		{
 			products.add(new WeightedContainer<DungeonType>(nameToTypeMapping.get(product.getData()), product.itemWeight ));
 		}
+		
+		//Precompute a sampler for the products so that picking one doesn't require copying them
+		ArrayList<DungeonType> productTypes = new ArrayList<DungeonType>(products.size());
+		int[] productWeights = new int[products.size()];
+		for (int index = 0; index < productWeights.length; index++)
+		{
+			productTypes.add(products.get(index).getData());
+			productWeights[index] = products.get(index).itemWeight;
+		}
+		productSampler = new WeightedSampler<DungeonType>(productTypes, productWeights);
 	}
 	
 	public int length()
@@ -87,4 +99,9 @@ public class DungeonChainRule
 		
 		return copy;
 	}
+
+	public WeightedSampler<DungeonType> productSampler()
+	{
+		return productSampler;
+	}
 }
@@ -1,16 +1,15 @@
 package StevenDimDoors.mod_pocketDim.dungeon.pack;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
 
-import net.minecraft.util.WeightedRandom;
 import StevenDimDoors.mod_pocketDim.core.NewDimData;
 import StevenDimDoors.mod_pocketDim.dungeon.DungeonData;
 import StevenDimDoors.mod_pocketDim.helpers.DungeonHelper;
-import StevenDimDoors.mod_pocketDim.util.WeightedContainer;
+import StevenDimDoors.mod_pocketDim.util.WeightedSampler;
 
 public class DungeonPack
 {
@@ -20,12 +19,12 @@ public class DungeonPack
 	//The ID numbers would be a problem since it couldn't have a valid number, since it wasn't initialized by the pack instance.
 	//FIXME: Do not release this code as an update without dealing with disowned types!
 	
-	private static final int MAX_HISTORY_LENGTH = 30;
-	private static final int MAX_SUBTREE_LIST_SIZE = 30;
+	public static final int MAX_HISTORY_LENGTH = 30;
 	
 	private final String name;
 	private final HashMap<String, DungeonType> nameToTypeMapping;
 	private final ArrayList<ArrayList<DungeonData>> groupedDungeons;
+	private final ArrayList<WeightedSampler<DungeonData>> groupSamplers;
 	private final ArrayList<DungeonData> allDungeons;
 	private final DungeonPackConfig config;
 	private final int maxRuleLength;
@@ -43,8 +42,10 @@ public class DungeonPack
 		this.allDungeons = new ArrayList<DungeonData>();
 		this.nameToTypeMapping = new HashMap<String, DungeonType>(typeCount);
 		this.groupedDungeons = new ArrayList<ArrayList<DungeonData>>(typeCount);
+		this.groupSamplers = new ArrayList<WeightedSampler<DungeonData>>(typeCount);
 		
 		this.groupedDungeons.add(allDungeons); //Make sure the list of all dungeons is placed at index 0
+		this.groupSamplers.add(null);
 		this.nameToTypeMapping.put(DungeonType.WILDCARD_TYPE.Name, DungeonType.WILDCARD_TYPE);
 		
 		index = 1;
@@ -53,6 +54,7 @@ public class DungeonPack
 			String standardName = typeName.toUpperCase();
 			this.nameToTypeMapping.put(standardName, new DungeonType(this, standardName, index));
 			this.groupedDungeons.add(new ArrayList<DungeonData>());  
+			this.groupSamplers.add(null);
 			index++;
 		}
 		
@@ -90,6 +92,11 @@ public class DungeonPack
 		return allDungeons.isEmpty();
 	}
 	
+	public List<DungeonData> getAllDungeons()
+	{
+		return Collections.unmodifiableList(allDungeons);
+	}
+	
 	public DungeonType getType(String typeName)
 	{
 		DungeonType result = nameToTypeMapping.get(typeName.toUpperCase());
@@ -116,6 +123,9 @@ public class DungeonPack
 		{
 			allDungeons.add(dungeon);
 			groupedDungeons.get(type.ID).add(dungeon);
+			//Rebuild the affected samplers the next time they're needed
+			groupSamplers.set(0, null);
+			groupSamplers.set(type.ID, null);
 		}
 		else
 		{
@@ -134,105 +144,83 @@ public class DungeonPack
 		//If we're not going to check for duplicates in chains, restrict the length of the history to the length
 		//of the longest rule we have. Getting any more data would be useless. This optimization could be significant
 		//for dungeon packs that can extend arbitrarily deep. We should probably set a reasonable limit anyway.
+		//Each dimension caches the chain leading up to it, so we only need to walk the chain ourselves
+		//if one of our rules is longer than the cached chain.
 		
 		int maxSearchLength = config.allowDuplicatesInChain() ? maxRuleLength : MAX_HISTORY_LENGTH;
-		ArrayList<DungeonData> history = DungeonHelper.getDungeonChainHistory(parent, this, maxSearchLength);
-
-		ArrayList<DungeonData> subtreeHistory = null;
-		if (config.getDuplicateSearchLevels() > 0)
+		DungeonData[] history;
+		if (parent.dungeon() == null || parent.dungeon().dungeonType().Owner != this)
 		{
-			// Search over (DuplicateSearchLevels - 1); zero means don't search at all,
-			// one means search only up to the level of the immediate parent, and so on.
-			// Since we start with the parent, we need to drop the max levels by one.
-			NewDimData ancestor = DungeonHelper.getAncestor(parent, this, config.getDuplicateSearchLevels() - 1);
-			if (ancestor != null)
-			{
-				subtreeHistory = DungeonHelper.listDungeonsInTree(ancestor, this, MAX_SUBTREE_LIST_SIZE);
-			}
+			history = new DungeonData[0];
 		}
-		if (subtreeHistory == null)
+		else if (maxSearchLength <= MAX_HISTORY_LENGTH)
 		{
-			subtreeHistory = new ArrayList<DungeonData>();
+			history = parent.getDungeonChain();
+		}
+		else
+		{
+			ArrayList<DungeonData> chain = DungeonHelper.getDungeonChainHistory(parent, this, maxSearchLength);
+			history = chain.toArray(new DungeonData[chain.size()]);
 		}
-		subtreeHistory = new ArrayList<DungeonData>();
 		
-		return getNextDungeon(history, subtreeHistory, random);
+		//Searching the subtree around the parent for duplicates (DuplicateSearchLevels) is disabled for now,
+		//so only the chain itself is checked for duplicates.
+		return getNextDungeon(history, random);
 	}
 	
-	private DungeonData getNextDungeon(ArrayList<DungeonData> history, ArrayList<DungeonData> subtreeHistory, Random random)
+	private DungeonData getNextDungeon(DungeonData[] history, Random random)
 	{
-		//Extract the dungeon types that have been used from history and convert them into an array of IDs
+		//Extract the dungeon types that have been used from history and convert them into an array of IDs.
+		//The cached chain may be longer than the rules need, but rules only look at as many entries as
+		//they have conditions, so the extra entries don't affect which rules apply.
 		int index;
-		int[] typeHistory = new int[history.size()];
-		HashSet<DungeonData> excludedDungeons = null;
-		boolean doExclude = !config.allowDuplicatesInChain() || !subtreeHistory.isEmpty();
+		int[] typeHistory = new int[history.length];
+		boolean doExclude = !config.allowDuplicatesInChain();
 		for (index = 0; index < typeHistory.length; index++)
 		{
-			typeHistory[index] = history.get(index).dungeonType().ID;
+			typeHistory[index] = history[index].dungeonType().ID;
 		}
 		
 		for (DungeonChainRule rule : rules)
 		{
 			if (rule.evaluate(typeHistory))
 			{
-				//Pick a random dungeon type to be generated next based on the rule's products
-				ArrayList<WeightedContainer<DungeonType>> products = rule.products();
-				DungeonType nextType;
-				do
+				//Pick a random dungeon type to be generated next based on the rule's products.
+				//Types that turn out to have no usable dungeons are masked out and we try again.
+				WeightedSampler<DungeonType> products = rule.productSampler();
+				WeightedSampler<DungeonType>.Mask removedTypes = products.createMask();
+				int productIndex;
+				while ((productIndex = getRandomDungeonType(random, products, removedTypes, groupedDungeons)) >= 0)
 				{
-					nextType = getRandomDungeonType(random, products, groupedDungeons);
-					if (nextType != null)
+					DungeonType nextType = products.get(productIndex);
+					WeightedSampler<DungeonData> group = getGroupSampler(nextType.ID);
+					
+					//Exclude the dungeons that have already been used in this chain, if needed
+					WeightedSampler<DungeonData>.Mask excludedDungeons = null;
+					if (doExclude)
 					{
-						//Initialize the set of excluded dungeons if needed
-						if (excludedDungeons == null && doExclude)
+						for (DungeonData dungeon : history)
 						{
-							if (config.allowDuplicatesInChain())
-							{
-								excludedDungeons = new HashSet<DungeonData>(subtreeHistory);
-								excludedDungeons.addAll(subtreeHistory);
-							}
-							else
+							index = group.indexOf(dungeon);
+							if (index >= 0)
 							{
-								excludedDungeons = new HashSet<DungeonData>(2 * (history.size() + subtreeHistory.size()));
-								excludedDungeons.addAll(history);
-								excludedDungeons.addAll(subtreeHistory);
-							}
-						}
-						
-						//List which dungeons are allowed
-						ArrayList<DungeonData> candidates;
-						ArrayList<DungeonData> group = groupedDungeons.get(nextType.ID);
-						if (excludedDungeons != null && !excludedDungeons.isEmpty())
-						{
-							 candidates = new ArrayList<DungeonData>(group.size());
-							 for (DungeonData dungeon : group)
-							 {
-								 if (!excludedDungeons.contains(dungeon))
-								 {
-									 candidates.add(dungeon);
-								 }
-							 }
-						}
-						else
-						{
-							candidates = group;
-						}
-						if (!candidates.isEmpty())
-						{
-							return getRandomDungeon(random, candidates);
-						}
-						//If we've reached this point, then a dungeon was not selected. Discard the type and try again.
-						for (index = 0; index < products.size(); index++)
-						{
-							if (products.get(index).getData().equals(nextType))
-							{
-								products.remove(index);
-								break;
+								if (excludedDungeons == null)
+								{
+									excludedDungeons = group.createMask();
+								}
+								excludedDungeons.exclude(index);
 							}
 						}
 					}
+					DungeonData selection = (excludedDungeons != null) ?
+							group.sample(random, excludedDungeons) : group.sample(random);
+					if (selection != null)
+					{
+						return selection;
+					}
+					//If we've reached this point, then a dungeon was not selected. Discard the type and try again.
+					removedTypes.exclude(productIndex);
 				}
-				while (nextType != null);
 			}
 		}
 		
@@ -244,7 +232,7 @@ public class DungeonPack
 	{
 		if (!allDungeons.isEmpty())
 		{
-			return getRandomDungeon(random, allDungeons);
+			return getGroupSampler(0).sample(random);
 		}
 		else
 		{
@@ -252,52 +240,46 @@ public class DungeonPack
 		}
 	}
 	
-	private static DungeonType getRandomDungeonType(Random random, Collection<WeightedContainer<DungeonType>> types,
-			ArrayList<ArrayList<DungeonData>> groupedDungeons)
+	private WeightedSampler<DungeonData> getGroupSampler(int typeID)
 	{
-		//TODO: Make this faster? This algorithm runs in quadratic time in the worst case because of the random-selection
-		//process and the removal search. Might be okay for normal use, though. ~SenseiKiwi
-		
-		//Pick a random dungeon type based on weights. Repeat this process until a non-empty group is found or all groups are checked.
-		while (!types.isEmpty())
+		WeightedSampler<DungeonData> sampler = groupSamplers.get(typeID);
+		if (sampler == null)
 		{
-			//Pick a random dungeon type
-			@SuppressWarnings("unchecked")
-			WeightedContainer<DungeonType> resultContainer = (WeightedContainer<DungeonType>) WeightedRandom.getRandomItem(random, types);
-			
-			//Check if there are any dungeons of that type
-			DungeonType selectedType = resultContainer.getData();
-			if (!groupedDungeons.get(selectedType.ID).isEmpty())
+			ArrayList<DungeonData> group = groupedDungeons.get(typeID);
+			int[] weights = new int[group.size()];
+			for (int index = 0; index < weights.length; index++)
 			{
-				//Choose this type
-				return selectedType;
-			}
-			else
-			{
-				//We can't use this type because there are no dungeons of this type
-				//Remove it from the list of types and try again
-				types.remove(resultContainer);
+				weights[index] = group.get(index).weight();
 			}
+			sampler = new WeightedSampler<DungeonData>(group, weights);
+			groupSamplers.set(typeID, sampler);
 		}
-		
-		//We have run out of types to try
-		return null;
+		return sampler;
 	}
 	
-	private static DungeonData getRandomDungeon(Random random, Collection<DungeonData> dungeons)
+	private static int getRandomDungeonType(Random random, WeightedSampler<DungeonType> types,
+			WeightedSampler<DungeonType>.Mask removedTypes, ArrayList<ArrayList<DungeonData>> groupedDungeons)
 	{
-		//Use Minecraft's WeightedRandom to select our dungeon. =D
-		ArrayList<WeightedContainer<DungeonData>> weights =
-				new ArrayList<WeightedContainer<DungeonData>>(dungeons.size());
-		for (DungeonData dungeon : dungeons)
+		//Pick a random dungeon type based on weights. Repeat this process until a non-empty group is found or all groups are checked.
+		//Each draw takes constant time on average, so this is linear in the number of types in the worst case.
+		int index;
+		while ((index = types.sampleIndex(random, removedTypes)) >= 0)
 		{
-			weights.add(new WeightedContainer<DungeonData>(dungeon, dungeon.weight()));
+			//Check if there are any dungeons of that type
+			if (!groupedDungeons.get(types.get(index).ID).isEmpty())
+			{
+				//Choose this type
+				return index;
+			}
+			//We can't use this type because there are no dungeons of this type
+			//Mask it out and try again
+			removedTypes.exclude(index);
 		}
 		
-		@SuppressWarnings("unchecked")
-		WeightedContainer<DungeonData> resultContainer = (WeightedContainer<DungeonData>) WeightedRandom.getRandomItem(random, weights);
-		return 	(resultContainer != null) ? resultContainer.getData() : null;
+		//We have run out of types to try
+		return -1;
 	}
+	
 	@Override
 	public String toString()
 	{
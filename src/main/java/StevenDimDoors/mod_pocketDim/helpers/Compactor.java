@@ -3,86 +3,280 @@ package StevenDimDoors.mod_pocketDim.helpers;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashSet;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import StevenDimDoors.mod_pocketDim.core.DDLock;
 import StevenDimDoors.mod_pocketDim.core.DimLink;
 import StevenDimDoors.mod_pocketDim.core.DimensionType;
 import StevenDimDoors.mod_pocketDim.core.IDimRegistrationCallback;
 import StevenDimDoors.mod_pocketDim.core.LinkType;
 import StevenDimDoors.mod_pocketDim.core.NewDimData;
 import StevenDimDoors.mod_pocketDim.util.Point4D;
-import StevenDimDoors.mod_pocketDim.watcher.ClientLinkData;
+import StevenDimDoors.mod_pocketDim.util.VarInt;
 
+/**
+ * Writes and reads compact descriptions of our dimensions and links to be sent to clients. Clients receive
+ * a description of every dimension when they join, but only receive the links of the dimension they're in.
+ *
+ * Dimensions are grouped by their root dimension, so that each root ID is only sent once. Within each group,
+ * the root comes first and the rest of the dimensions are sorted by ID. IDs are written as the difference from
+ * the previous ID, and link coordinates are written as the difference from the previous link after sorting
+ * the links by location. All numbers are written as variable-length integers and each description is
+ * compressed with Deflate.
+ */
 public class Compactor
 {
+	private static final int FORMAT_VERSION = 2;
+
+	// Bit flags for the lock state of a link
+	private static final int HAS_LOCK_FLAG = 1;
+	private static final int LOCKED_FLAG = 2;
 
-	@SuppressWarnings("unused") // ?
 	private static class DimComparator implements Comparator<NewDimData>
 	{
 		@Override
 		public int compare(NewDimData a, NewDimData b)
 		{
-			return a.id() - b.id();
+			return (a.id() < b.id()) ? -1 : ((a.id() == b.id()) ? 0 : 1);
+		}
+	}
+
+	private static class LinkComparator implements Comparator<DimLink>
+	{
+		@Override
+		public int compare(DimLink a, DimLink b)
+		{
+			Point4D p = a.source();
+			Point4D q = b.source();
+			int result = compareInts(p.getX(), q.getX());
+			if (result == 0)
+			{
+				result = compareInts(p.getZ(), q.getZ());
+				if (result == 0)
+				{
+					result = compareInts(p.getY(), q.getY());
+				}
+			}
+			return result;
+		}
+
+		private static int compareInts(int a, int b)
+		{
+			return (a < b) ? -1 : ((a == b) ? 0 : 1);
 		}
 	}
-	
+
 	public static void write(Collection<? extends NewDimData> values, DataOutputStream output) throws IOException
 	{
-		// SenseiKiwi: Just encode the data straight up for now. I'll implement fancier compression later.
-		output.writeInt(values.size());
+		// Group the dimensions by their root IDs. The TreeMap keeps the groups sorted by root ID.
+		TreeMap<Integer, ArrayList<NewDimData>> groups = new TreeMap<Integer, ArrayList<NewDimData>>();
 		for (NewDimData dimension : values)
 		{
-			output.writeInt(dimension.id());
-			output.writeInt(dimension.root().id());
-			output.writeInt(dimension.linkCount());
-			for (DimLink link : dimension.links())
+			Integer rootID = dimension.root().id();
+			ArrayList<NewDimData> group = groups.get(rootID);
+			if (group == null)
+			{
+				group = new ArrayList<NewDimData>();
+				groups.put(rootID, group);
+			}
+			group.add(dimension);
+		}
+
+		output.writeByte(FORMAT_VERSION);
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		DeflaterOutputStream compressor = new DeflaterOutputStream(output, deflater);
+		DataOutputStream writer = new DataOutputStream(compressor);
+
+		DimComparator dimComparator = new DimComparator();
+		int previousRootID = 0;
+		VarInt.writeUnsigned(writer, groups.size());
+		for (ArrayList<NewDimData> group : groups.values())
+		{
+			int rootID = group.get(0).root().id();
+			VarInt.writeSigned(writer, rootID - previousRootID);
+			VarInt.writeUnsigned(writer, group.size());
+			previousRootID = rootID;
+
+			// Sort the dimensions so that the root comes first and the others follow in order of ID
+			NewDimData[] dimensions = group.toArray(new NewDimData[group.size()]);
+			Arrays.sort(dimensions, dimComparator);
+			for (int k = 1; k < dimensions.length; k++)
+			{
+				if (dimensions[k].id() == rootID)
+				{
+					NewDimData root = dimensions[k];
+					System.arraycopy(dimensions, 0, dimensions, 1, k);
+					dimensions[0] = root;
+					break;
+				}
+			}
+
+			int previousID = rootID;
+			for (NewDimData dimension : dimensions)
+			{
+				VarInt.writeSigned(writer, dimension.id() - previousID);
+				VarInt.writeUnsigned(writer, dimension.type().index);
+				previousID = dimension.id();
+			}
+		}
+
+		// Finish compressing without closing the underlying stream
+		writer.flush();
+		compressor.finish();
+		deflater.end();
+	}
+
+	public static void writeLinks(NewDimData dimension, DataOutputStream output) throws IOException
+	{
+		output.writeByte(FORMAT_VERSION);
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		DeflaterOutputStream compressor = new DeflaterOutputStream(output, deflater);
+		DataOutputStream writer = new DataOutputStream(compressor);
+
+		// Describe the dimension too, in case the client doesn't know about it yet
+		VarInt.writeSigned(writer, dimension.id());
+		VarInt.writeSigned(writer, dimension.root().id());
+		VarInt.writeUnsigned(writer, dimension.type().index);
+
+		ArrayList<DimLink> links = new ArrayList<DimLink>(dimension.linkCount());
+		for (DimLink link : dimension.links())
+		{
+			links.add(link);
+		}
+		DimLink[] sorted = links.toArray(new DimLink[links.size()]);
+		Arrays.sort(sorted, new LinkComparator());
+
+		int previousX = 0;
+		int previousY = 0;
+		int previousZ = 0;
+		VarInt.writeUnsigned(writer, sorted.length);
+		for (DimLink link : sorted)
+		{
+			Point4D source = link.source();
+			VarInt.writeSigned(writer, source.getX() - previousX);
+			VarInt.writeSigned(writer, source.getY() - previousY);
+			VarInt.writeSigned(writer, source.getZ() - previousZ);
+			previousX = source.getX();
+			previousY = source.getY();
+			previousZ = source.getZ();
+
+			VarInt.writeSigned(writer, link.orientation());
+			if (link.hasLock())
+			{
+				DDLock lock = link.getLock();
+				writer.writeByte(HAS_LOCK_FLAG | (lock.getLockState() ? LOCKED_FLAG : 0));
+				VarInt.writeSigned(writer, lock.getLockKey());
+			}
+			else
 			{
-				Point4D.write(link.source(), output);
-				output.writeInt(link.orientation());
+				writer.writeByte(0);
 			}
 		}
-		
-		
-		// Note to self: the root ID can be "compressed" by grouping
-		// dimensions by their root ID and then only sending it once
-		
-		/*
-		// To compress the dimension IDs, we'll sort them by ID
-		// and write the _difference_ between their ID numbers.
-		NewDimData[] dimensions = new NewDimData[values.size()];
-		dimensions = values.toArray(dimensions);
-		Arrays.sort(dimensions, new DimComparator());
-		*/
+
+		writer.flush();
+		compressor.finish();
+		deflater.end();
 	}
 
 	public static void readDimensions(DataInputStream input, IDimRegistrationCallback callback) throws IOException
 	{
-		// Read in the dimensions one by one. Make sure we register root dimensions before
-		// attempting to register the dimensions under them.
-		
-		HashSet<Integer> rootIDs = new HashSet<Integer>();
-		
-		int dimCount = input.readInt();
-		for (int k = 0; k < dimCount; k++)
+		checkVersion(input);
+		Inflater inflater = new Inflater();
+		DataInputStream reader = new DataInputStream(new InflaterInputStream(input, inflater));
+		try
 		{
-			int id = input.readInt();
-			int rootID = input.readInt();
-			DimensionType type = DimensionType.getTypeFromIndex(input.readInt());
-			
-			if (rootIDs.add(rootID))
+			// Read in the dimensions one group at a time. Make sure we register root dimensions before
+			// attempting to register the dimensions under them.
+			int previousRootID = 0;
+			int groupCount = VarInt.readUnsigned(reader);
+			for (int g = 0; g < groupCount; g++)
 			{
-				callback.registerDimension(rootID, rootID, type);
+				int rootID = previousRootID + VarInt.readSigned(reader);
+				int dimCount = VarInt.readUnsigned(reader);
+				previousRootID = rootID;
+
+				int previousID = rootID;
+				for (int k = 0; k < dimCount; k++)
+				{
+					int id = previousID + VarInt.readSigned(reader);
+					DimensionType type = DimensionType.getTypeFromIndex(VarInt.readUnsigned(reader));
+					previousID = id;
+
+					if (k == 0 && id != rootID)
+					{
+						// The root itself wasn't included, so register it on its own
+						callback.registerDimension(rootID, rootID, DimensionType.ROOT);
+					}
+					callback.registerDimension(id, rootID, type);
+				}
 			}
-			// Don't check if (id != rootID) - we want to retrieve the reference anyway
+		}
+		finally
+		{
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Reads the links of a dimension and adds them to that dimension, registering the dimension if necessary.
+	 * @return the dimension whose links were read
+	 */
+	public static NewDimData readLinks(DataInputStream input, IDimRegistrationCallback callback) throws IOException
+	{
+		checkVersion(input);
+		Inflater inflater = new Inflater();
+		DataInputStream reader = new DataInputStream(new InflaterInputStream(input, inflater));
+		try
+		{
+			int id = VarInt.readSigned(reader);
+			int rootID = VarInt.readSigned(reader);
+			DimensionType type = DimensionType.getTypeFromIndex(VarInt.readUnsigned(reader));
 			NewDimData dimension = callback.registerDimension(id, rootID, type);
-			int linkCount = input.readInt();
-			for (int h = 0; h < linkCount; h++)
+			readLinks(dimension, reader);
+			return dimension;
+		}
+		finally
+		{
+			inflater.end();
+		}
+	}
+
+	private static void checkVersion(DataInputStream input) throws IOException
+	{
+		int version = input.readUnsignedByte();
+		if (version != FORMAT_VERSION)
+		{
+			throw new IOException("Unsupported dimension data format: version " + version + ". Expected version " + FORMAT_VERSION + ".");
+		}
+	}
+
+	private static void readLinks(NewDimData dimension, DataInputStream reader) throws IOException
+	{
+		int x = 0;
+		int y = 0;
+		int z = 0;
+		int linkCount = VarInt.readUnsigned(reader);
+		for (int k = 0; k < linkCount; k++)
+		{
+			x += VarInt.readSigned(reader);
+			y += VarInt.readSigned(reader);
+			z += VarInt.readSigned(reader);
+			int orientation = VarInt.readSigned(reader);
+			int lockFlags = reader.readUnsignedByte();
+			DDLock lock = null;
+			if ((lockFlags & HAS_LOCK_FLAG) != 0)
 			{
-				ClientLinkData link = ClientLinkData.read(input);
-				Point4D source = link.point;
-				dimension.createLink(source.getX(), source.getY(), source.getZ(), LinkType.CLIENT,0);
+				lock = new DDLock((lockFlags & LOCKED_FLAG) != 0, VarInt.readSigned(reader));
 			}
+			dimension.createLink(new Point4D(x, y, z, dimension.id()), LinkType.CLIENT, orientation, lock);
 		}
 	}
 }
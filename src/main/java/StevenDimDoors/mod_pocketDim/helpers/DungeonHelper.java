@@ -9,6 +9,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -16,7 +17,6 @@ import java.util.List;
 import java.util.Queue;
 import java.util.Random;
 import java.util.regex.Pattern;
-import net.minecraft.util.WeightedRandom;
 import net.minecraft.world.World;
 import StevenDimDoors.mod_pocketDim.mod_pocketDim;
 import StevenDimDoors.mod_pocketDim.config.DDProperties;
@@ -26,13 +26,15 @@ import StevenDimDoors.mod_pocketDim.core.NewDimData;
 import StevenDimDoors.mod_pocketDim.core.PocketManager;
 import StevenDimDoors.mod_pocketDim.dungeon.DungeonData;
 import StevenDimDoors.mod_pocketDim.dungeon.DungeonSchematic;
+import StevenDimDoors.mod_pocketDim.dungeon.DungeonSchematicCache;
 import StevenDimDoors.mod_pocketDim.dungeon.pack.DungeonPack;
 import StevenDimDoors.mod_pocketDim.dungeon.pack.DungeonPackConfig;
 import StevenDimDoors.mod_pocketDim.dungeon.pack.DungeonPackConfigReader;
 import StevenDimDoors.mod_pocketDim.dungeon.pack.DungeonType;
 import StevenDimDoors.mod_pocketDim.items.ItemDimensionalDoor;
+import StevenDimDoors.mod_pocketDim.world.PocketBuilder;
 import StevenDimDoors.mod_pocketDim.util.FileFilters;
-import StevenDimDoors.mod_pocketDim.util.WeightedContainer;
+import StevenDimDoors.mod_pocketDim.util.WeightedSampler;
 
 public class DungeonHelper
 {
@@ -67,13 +69,17 @@ public class DungeonHelper
 	
 	private ArrayList<DungeonData> untaggedDungeons = new ArrayList<DungeonData>();
 	private ArrayList<DungeonData> registeredDungeons = new ArrayList<DungeonData>();
+	private HashMap<String, DungeonData> registeredDungeonMapping = new HashMap<String, DungeonData>();
  
 	private DungeonPack RuinsPack;
 	private DungeonPack NetherPack;
 	private HashMap<String, DungeonPack> dungeonPackMapping = new HashMap<String, DungeonPack>();
 	private ArrayList<DungeonPack> dungeonPackList = new ArrayList<DungeonPack>();
+	private WeightedSampler<DungeonPack> packSampler = null;
 	
 	private DungeonData defaultError;
+	private DungeonSchematicCache schematicCache;
+	private int packVersion = 0; //Incremented whenever dungeons or packs are registered
 	
 	private DungeonHelper()
 	{
@@ -81,6 +87,7 @@ public class DungeonHelper
 		if (properties == null)
 			properties = DDProperties.instance();
 		
+		schematicCache = new DungeonSchematicCache(Math.max(properties.SchematicCacheSize, 0) * 1024L * 1024L);
 		registerDungeons();
 	}
 	
@@ -189,6 +196,8 @@ public class DungeonHelper
 			pack = new DungeonPack(config);
 			dungeonPackMapping.put(name, pack);
 			dungeonPackList.add(pack);
+			packSampler = null;
+			packVersion++;
 		}
 		else
 		{
@@ -211,11 +220,65 @@ public class DungeonHelper
 		return Collections.unmodifiableList(this.registeredDungeons);
 	}
 	
+	/**
+	 * Gets the registered dungeon with the specified schematic name.
+	 * @return the dungeon, or null if no dungeon with that name has been registered
+	 */
+	public DungeonData getRegisteredDungeon(String schematicName)
+	{
+		return registeredDungeonMapping.get(schematicName);
+	}
+	
 	public List<DungeonData> getUntaggedDungeons()
 	{
 		return Collections.unmodifiableList(this.untaggedDungeons);
 	}
 	
+	/**
+	 * Gets a number that changes whenever dungeons or dungeon packs are registered.
+	 * It can be used to detect whether dungeon selections made earlier might be out of date.
+	 */
+	public int getPackVersion()
+	{
+		return packVersion;
+	}
+	
+	public DungeonSchematicCache getSchematicCache()
+	{
+		return schematicCache;
+	}
+	
+	/**
+	 * Loads the most heavily weighted dungeons of each pack into the schematic cache so that
+	 * the first pockets built after the server starts don't have to wait on the disk.
+	 * @param countPerPack - the number of dungeons to load from each pack
+	 */
+	public void preloadSchematics(int countPerPack)
+	{
+		if (countPerPack <= 0 || !schematicCache.isEnabled())
+		{
+			return;
+		}
+		for (DungeonPack pack : dungeonPackList)
+		{
+			ArrayList<DungeonData> dungeons = new ArrayList<DungeonData>(pack.getAllDungeons());
+			Collections.sort(dungeons, new Comparator<DungeonData>()
+			{
+				@Override
+				public int compare(DungeonData a, DungeonData b)
+				{
+					return b.weight() - a.weight();
+				}
+			});
+			int count = Math.min(countPerPack, dungeons.size());
+			for (int index = 0; index < count; index++)
+			{
+				PocketBuilder.loadAndValidateDungeon(dungeons.get(index), properties);
+			}
+		}
+		System.out.println(schematicCache);
+	}
+	
 	public DungeonData getDefaultErrorDungeon()
 	{
 		return defaultError;
@@ -342,6 +405,12 @@ public class DungeonHelper
 
 				pack.addDungeon(dungeon);
 				registeredDungeons.add(dungeon);
+				packVersion++;
+				if (!registeredDungeonMapping.containsKey(dungeon.schematicName()))
+				{
+					//Keep the first dungeon registered under a given name, like a search through the list would
+					registeredDungeonMapping.put(dungeon.schematicName(), dungeon);
+				}
 				if (verbose)
 				{
 					System.out.println("Registered dungeon: " + name);
@@ -556,27 +625,49 @@ public class DungeonHelper
 		return selection;
 	}
 
-	@SuppressWarnings("unchecked")
 	private DungeonPack getRandomDungeonPack(DungeonPack current, Random random)
 	{
-		DungeonPack selection = current;
-		ArrayList<WeightedContainer<DungeonPack>> packs = new ArrayList<WeightedContainer<DungeonPack>>(dungeonPackList.size());
-
-		//Load up a list of weighted items with any usable dungeon packs that is not the current pack
-		for (DungeonPack pack : dungeonPackList)
+		if (packSampler == null)
 		{
-			DungeonPackConfig config = pack.getConfig();
-			if (pack != current && config.allowPackChangeIn() && !pack.isEmpty())
+			//Build a sampler with the packs that we're allowed to switch into. Pack configs can't change
+			//after loading, so this only needs to be redone when a pack is added.
+			ArrayList<DungeonPack> packs = new ArrayList<DungeonPack>(dungeonPackList.size());
+			ArrayList<Integer> weights = new ArrayList<Integer>(dungeonPackList.size());
+			for (DungeonPack pack : dungeonPackList)
 			{
-				packs.add(new WeightedContainer<DungeonPack>(pack, config.getPackWeight()));
+				DungeonPackConfig config = pack.getConfig();
+				if (config.allowPackChangeIn())
+				{
+					packs.add(pack);
+					weights.add(config.getPackWeight());
+				}
+			}
+			int[] packWeights = new int[weights.size()];
+			for (int index = 0; index < packWeights.length; index++)
+			{
+				packWeights[index] = weights.get(index);
 			}
+			packSampler = new WeightedSampler<DungeonPack>(packs, packWeights);
 		}
-		if (!packs.isEmpty())
+		
+		//Pick a random dungeon pack that is not the current pack and has dungeons.
+		//Packs that don't qualify are masked out when they come up.
+		WeightedSampler<DungeonPack>.Mask excludedPacks = packSampler.createMask();
+		int index = packSampler.indexOf(current);
+		if (index >= 0)
 		{
-			//Pick a random dungeon pack
-			selection = ((WeightedContainer<DungeonPack>) WeightedRandom.getRandomItem(random, packs)).getData();
+			excludedPacks.exclude(index);
 		}
-		return selection;
+		while ((index = packSampler.sampleIndex(random, excludedPacks)) >= 0)
+		{
+			DungeonPack selection = packSampler.get(index);
+			if (!selection.isEmpty())
+			{
+				return selection;
+			}
+			excludedPacks.exclude(index);
+		}
+		return current;
 	}
 
 	public ArrayList<String> getDungeonNames()
@@ -94,8 +94,7 @@ public class itemRiftRemover extends Item
 				 TileEntity tileEntity = world.getBlockTileEntity(x, y, z);
 				 if (tileEntity != null && tileEntity instanceof TileEntityRift)
 				 {
-					 ((TileEntityRift) tileEntity).shouldClose = true;
-					 tileEntity.onInventoryChanged();
+					 ((TileEntityRift) tileEntity).startClosing();
 				 }
 				 else if (!world.isRemote)
 				 {
@@ -34,6 +34,7 @@ import StevenDimDoors.mod_pocketDim.commands.CommandCreateRandomRift;
 import StevenDimDoors.mod_pocketDim.commands.CommandDeleteRifts;
 import StevenDimDoors.mod_pocketDim.commands.CommandExportDungeon;
 import StevenDimDoors.mod_pocketDim.commands.CommandListDungeons;
+import StevenDimDoors.mod_pocketDim.commands.CommandPrintStatistics;
 import StevenDimDoors.mod_pocketDim.commands.CommandResetDungeons;
 import StevenDimDoors.mod_pocketDim.commands.CommandTeleportPlayer;
 import StevenDimDoors.mod_pocketDim.config.DDProperties;
@@ -59,19 +60,24 @@ import StevenDimDoors.mod_pocketDim.items.itemRiftRemover;
 import StevenDimDoors.mod_pocketDim.ticking.CustomLimboPopulator;
 import StevenDimDoors.mod_pocketDim.ticking.LimboDecayScheduler;
 import StevenDimDoors.mod_pocketDim.ticking.MobMonolith;
+import StevenDimDoors.mod_pocketDim.ticking.RiftClusterManager;
 import StevenDimDoors.mod_pocketDim.ticking.RiftRegenerator;
 import StevenDimDoors.mod_pocketDim.ticking.ServerTickHandler;
+import StevenDimDoors.mod_pocketDim.ticking.StatisticsReporter;
 import StevenDimDoors.mod_pocketDim.tileentities.TileEntityDimDoor;
 import StevenDimDoors.mod_pocketDim.tileentities.TileEntityDimDoorGold;
 import StevenDimDoors.mod_pocketDim.tileentities.TileEntityRift;
 import StevenDimDoors.mod_pocketDim.tileentities.TileEntityTransTrapdoor;
+import StevenDimDoors.mod_pocketDim.util.DDStatistics;
 import StevenDimDoors.mod_pocketDim.util.l_systems.LSystem;
 import StevenDimDoors.mod_pocketDim.world.BiomeGenLimbo;
 import StevenDimDoors.mod_pocketDim.world.BiomeGenPocket;
 import StevenDimDoors.mod_pocketDim.world.DDBiomeGenBase;
+import StevenDimDoors.mod_pocketDim.world.DungeonPrefetcher;
 import StevenDimDoors.mod_pocketDim.world.LimboDecay;
 import StevenDimDoors.mod_pocketDim.world.LimboProvider;
 import StevenDimDoors.mod_pocketDim.world.PersonalPocketProvider;
+import StevenDimDoors.mod_pocketDim.world.PocketGenerationQueue;
 import StevenDimDoors.mod_pocketDim.world.PocketProvider;
 import StevenDimDoors.mod_pocketDim.world.gateways.GatewayGenerator;
 import StevenDimDoors.mod_pocketDimClient.ClientPacketHandler;
@@ -154,12 +160,19 @@ public class mod_pocketDim
 	public static DDWorldProperties worldProperties;
 	public static CustomLimboPopulator spawner; //Added this field temporarily. Will be refactored out later.
 	public static RiftRegenerator riftRegenerator;
+	public static RiftClusterManager riftClusters;
+	public static PocketGenerationQueue pocketGenerator;
+	public static DungeonPrefetcher dungeonPrefetcher;
+	public static StatisticsReporter statisticsReporter;
+	public static ServerPacketBatcher packetBatcher;
+	public static ClientSnapshotSender snapshotSender;
 	public static GatewayGenerator gatewayGenerator;
 	public static DeathTracker deathTracker;
 	private static ServerTickHandler serverTickHandler;
 	private static LimboDecayScheduler limboDecayScheduler;
 	private static LimboDecay limboDecay;
 	private static EventHookContainer hooks;
+	private static LinkSubscriptionManager linkSubscriptions;
 	
 	//TODO this is a temporary workaround for saving data
 	private String currrentSaveRootDirectory;
@@ -200,6 +213,10 @@ public class mod_pocketDim
 		serverTickHandler = new ServerTickHandler();
 		TickRegistry.registerTickHandler(serverTickHandler, Side.SERVER);
 		
+		// Initialize LinkSubscriptionManager instance: tracks which links each player receives
+		linkSubscriptions = new LinkSubscriptionManager();
+		GameRegistry.registerPlayerTracker(linkSubscriptions);
+		
 		// Initialize LimboDecay instance: required for BlockLimbo
 		limboDecay = new LimboDecay(properties);
 
@@ -382,8 +399,28 @@ public class mod_pocketDim
 			// scheduled tasks between single-player game sessions
 			serverTickHandler.unregisterReceivers();
 			spawner = null;
+			if (riftRegenerator != null)
+			{
+				riftRegenerator.unregisterWatcher();
+			}
 			riftRegenerator = null;
+			if (riftClusters != null)
+			{
+				riftClusters.unregisterWatcher();
+			}
+			riftClusters = null;
+			pocketGenerator = null;
+			if (dungeonPrefetcher != null)
+			{
+				dungeonPrefetcher.shutdown();
+				dungeonPrefetcher = null;
+			}
+			statisticsReporter = null;
+			packetBatcher = null;
+			snapshotSender = null;
+			linkSubscriptions.clear();
 			limboDecayScheduler = null;
+			limboDecay.clearFrontier();
 		}
 		catch (Exception e)
 		{
@@ -404,11 +441,18 @@ public class mod_pocketDim
 		
 		// Register regular tick receivers
 		// CustomLimboPopulator should be initialized before any provider instances are created
-		spawner = new CustomLimboPopulator(serverTickHandler, properties);
-		riftRegenerator = new RiftRegenerator(serverTickHandler, blockRift);
+		spawner = new CustomLimboPopulator(serverTickHandler, properties, currrentSaveRootDirectory + "/DimensionalDoors/data/population.dat");
+		riftRegenerator = new RiftRegenerator(serverTickHandler, blockRift, currrentSaveRootDirectory + "/DimensionalDoors/data/regeneration.dat");
+		riftClusters = new RiftClusterManager(serverTickHandler, properties, blockRift);
 		limboDecayScheduler = new LimboDecayScheduler(serverTickHandler, limboDecay);
+		pocketGenerator = new PocketGenerationQueue(serverTickHandler, properties);
+		dungeonPrefetcher = new DungeonPrefetcher(serverTickHandler, properties);
+		packetBatcher = new ServerPacketBatcher(serverTickHandler, linkSubscriptions, properties.LinkSyncRadius);
+		snapshotSender = new ClientSnapshotSender(serverTickHandler);
+		statisticsReporter = new StatisticsReporter(serverTickHandler, properties.StatisticsLogInterval);
+		DDStatistics.setEnabled(properties.StatisticsEnabled);
 		
-		hooks.setSessionFields(worldProperties, riftRegenerator);
+		hooks.setSessionFields(worldProperties, riftRegenerator, pocketGenerator, limboDecay, spawner);
 	}
 
 	@EventHandler
@@ -423,6 +467,10 @@ public class mod_pocketDim
 		event.registerServerCommand( CommandExportDungeon.instance() );
 		event.registerServerCommand( CommandCreatePocket.instance() );
 		event.registerServerCommand( CommandTeleportPlayer.instance() );
+		event.registerServerCommand( CommandPrintStatistics.instance() );
+		
+		// Warm up the schematic cache so that the first pockets don't have to wait for their schematics
+		DungeonHelper.instance().preloadSchematics(properties.DungeonPreloadCount);
 		
 		try
 		{
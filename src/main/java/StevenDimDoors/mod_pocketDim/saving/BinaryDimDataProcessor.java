@@ -0,0 +1,289 @@
+package StevenDimDoors.mod_pocketDim.saving;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import StevenDimDoors.mod_pocketDim.Point3D;
+import StevenDimDoors.mod_pocketDim.core.DDLock;
+import StevenDimDoors.mod_pocketDim.core.DimensionType;
+import StevenDimDoors.mod_pocketDim.core.LinkType;
+import StevenDimDoors.mod_pocketDim.util.BaseConfigurationProcessor;
+import StevenDimDoors.mod_pocketDim.util.ConfigurationProcessingException;
+import StevenDimDoors.mod_pocketDim.util.Point4D;
+import StevenDimDoors.mod_pocketDim.util.VarInt;
+
+/**
+ * Encodes PackedDimData in a compact binary form for use by BinaryDimDataStore.
+ * Most numbers are stored as variable-length integers and link coordinates are stored
+ * relative to the link's source, so typical links only take up a handful of bytes.
+ */
+public class BinaryDimDataProcessor extends BaseConfigurationProcessor<PackedDimData>
+{
+	// Increment this if the encoding changes and handle the old version in readFromStream()
+	public static final int FORMAT_VERSION = 1;
+
+	@Override
+	public PackedDimData readFromStream(InputStream inputStream) throws ConfigurationProcessingException
+	{
+		try
+		{
+			DataInputStream input = new DataInputStream(inputStream);
+			int version = VarInt.readUnsigned(input);
+			if (version != FORMAT_VERSION)
+			{
+				throw new ConfigurationProcessingException("Unsupported binary save data version: " + version);
+			}
+			return readDimension(input);
+		}
+		catch (IOException e)
+		{
+			throw new ConfigurationProcessingException("Could not read packedDimData", e);
+		}
+	}
+
+	@Override
+	public void writeToStream(OutputStream outputStream, PackedDimData data) throws ConfigurationProcessingException
+	{
+		try
+		{
+			DataOutputStream output = new DataOutputStream(outputStream);
+			VarInt.writeUnsigned(output, FORMAT_VERSION);
+			writeDimension(output, data);
+			output.flush();
+		}
+		catch (IOException e)
+		{
+			throw new ConfigurationProcessingException("Could not write packedDimData", e);
+		}
+	}
+
+	private static void writeDimension(DataOutputStream output, PackedDimData data) throws IOException
+	{
+		VarInt.writeSigned(output, data.ID);
+		VarInt.writeUnsigned(output, data.DimensionType);
+		output.writeBoolean(data.IsFilled);
+		VarInt.writeSigned(output, data.Depth);
+		VarInt.writeSigned(output, data.PackDepth);
+		VarInt.writeSigned(output, data.ParentID);
+		VarInt.writeSigned(output, data.RootID);
+		VarInt.writeSigned(output, data.Orientation);
+		writePoint(output, data.Origin);
+
+		output.writeBoolean(data.DungeonData != null);
+		if (data.DungeonData != null)
+		{
+			PackedDungeonData dungeon = data.DungeonData;
+			VarInt.writeSigned(output, dungeon.Weight);
+			output.writeBoolean(dungeon.IsOpen);
+			output.writeBoolean(dungeon.IsInternal);
+			writeString(output, dungeon.SchematicPath);
+			writeString(output, dungeon.SchematicName);
+			writeString(output, dungeon.DungeonTypeName);
+			writeString(output, dungeon.DungeonPackName);
+		}
+
+		VarInt.writeUnsigned(output, data.ChildIDs.size());
+		for (Integer childID : data.ChildIDs)
+		{
+			VarInt.writeSigned(output, childID);
+		}
+
+		VarInt.writeUnsigned(output, data.Links.size());
+		for (PackedLinkData link : data.Links)
+		{
+			writeLink(output, link, data.ID);
+		}
+
+		VarInt.writeUnsigned(output, data.Tails.size());
+		for (PackedLinkTail tail : data.Tails)
+		{
+			writeTail(output, tail);
+		}
+	}
+
+	private static PackedDimData readDimension(DataInputStream input) throws IOException
+	{
+		int id = VarInt.readSigned(input);
+		DimensionType type = DimensionType.getTypeFromIndex(VarInt.readUnsigned(input));
+		if (type == null)
+		{
+			throw new IOException("Invalid dimension type");
+		}
+		boolean isFilled = input.readBoolean();
+		int depth = VarInt.readSigned(input);
+		int packDepth = VarInt.readSigned(input);
+		int parentID = VarInt.readSigned(input);
+		int rootID = VarInt.readSigned(input);
+		int orientation = VarInt.readSigned(input);
+		Point3D origin = readPoint(input);
+
+		PackedDungeonData dungeon = null;
+		if (input.readBoolean())
+		{
+			int weight = VarInt.readSigned(input);
+			boolean isOpen = input.readBoolean();
+			boolean isInternal = input.readBoolean();
+			String schematicPath = readString(input);
+			String schematicName = readString(input);
+			String dungeonTypeName = readString(input);
+			String dungeonPackName = readString(input);
+			dungeon = new PackedDungeonData(weight, isOpen, isInternal, schematicPath, schematicName,
+					dungeonTypeName, dungeonPackName);
+		}
+
+		int count = VarInt.readUnsigned(input);
+		List<Integer> childIDs = new ArrayList<Integer>(count);
+		for (int k = 0; k < count; k++)
+		{
+			childIDs.add(VarInt.readSigned(input));
+		}
+
+		count = VarInt.readUnsigned(input);
+		List<PackedLinkData> links = new ArrayList<PackedLinkData>(count);
+		for (int k = 0; k < count; k++)
+		{
+			links.add(readLink(input, id));
+		}
+
+		count = VarInt.readUnsigned(input);
+		List<PackedLinkTail> tails = new ArrayList<PackedLinkTail>(count);
+		for (int k = 0; k < count; k++)
+		{
+			tails.add(readTail(input));
+		}
+
+		return new PackedDimData(id, depth, packDepth, parentID, rootID, orientation, type, isFilled,
+				dungeon, origin, childIDs, links, tails);
+	}
+
+	private static void writeLink(DataOutputStream output, PackedLinkData link, int dimensionID) throws IOException
+	{
+		Point4D source = link.source;
+		VarInt.writeSigned(output, source.getDimension() - dimensionID);
+		VarInt.writeSigned(output, source.getX());
+		VarInt.writeSigned(output, source.getY());
+		VarInt.writeSigned(output, source.getZ());
+		VarInt.writeSigned(output, link.orientation);
+
+		// Parents and children are almost always close to their source,
+		// so store them as offsets to keep them small.
+		writeOffset(output, link.parent, source);
+		VarInt.writeUnsigned(output, link.children.size());
+		for (Point3D child : link.children)
+		{
+			writeOffset(output, child, source);
+		}
+		writeTail(output, link.tail);
+
+		output.writeBoolean(link.lock != null);
+		if (link.lock != null)
+		{
+			output.writeBoolean(link.lock.getLockState());
+			output.writeInt(link.lock.getLockKey());
+		}
+	}
+
+	private static PackedLinkData readLink(DataInputStream input, int dimensionID) throws IOException
+	{
+		int dimension = VarInt.readSigned(input) + dimensionID;
+		int x = VarInt.readSigned(input);
+		int y = VarInt.readSigned(input);
+		int z = VarInt.readSigned(input);
+		Point4D source = new Point4D(x, y, z, dimension);
+		int orientation = VarInt.readSigned(input);
+
+		Point3D parent = readOffset(input, source);
+		int count = VarInt.readUnsigned(input);
+		List<Point3D> children = new ArrayList<Point3D>(count);
+		for (int k = 0; k < count; k++)
+		{
+			children.add(readOffset(input, source));
+		}
+		PackedLinkTail tail = readTail(input);
+
+		DDLock lock = null;
+		if (input.readBoolean())
+		{
+			boolean lockState = input.readBoolean();
+			lock = new DDLock(lockState, input.readInt());
+		}
+		return new PackedLinkData(source, parent, tail, orientation, children, lock);
+	}
+
+	private static void writeTail(DataOutputStream output, PackedLinkTail tail) throws IOException
+	{
+		VarInt.writeSigned(output, tail.linkType);
+		output.writeBoolean(tail.destination != null);
+		if (tail.destination != null)
+		{
+			VarInt.writeSigned(output, tail.destination.getX());
+			VarInt.writeSigned(output, tail.destination.getY());
+			VarInt.writeSigned(output, tail.destination.getZ());
+			VarInt.writeSigned(output, tail.destination.getDimension());
+		}
+	}
+
+	private static PackedLinkTail readTail(DataInputStream input) throws IOException
+	{
+		LinkType linkType = LinkType.getLinkTypeFromIndex(VarInt.readSigned(input));
+		if (linkType == null)
+		{
+			throw new IOException("Invalid link type");
+		}
+		Point4D destination = null;
+		if (input.readBoolean())
+		{
+			int x = VarInt.readSigned(input);
+			int y = VarInt.readSigned(input);
+			int z = VarInt.readSigned(input);
+			destination = new Point4D(x, y, z, VarInt.readSigned(input));
+		}
+		return new PackedLinkTail(destination, linkType);
+	}
+
+	private static void writePoint(DataOutputStream output, Point3D point) throws IOException
+	{
+		VarInt.writeSigned(output, point.getX());
+		VarInt.writeSigned(output, point.getY());
+		VarInt.writeSigned(output, point.getZ());
+	}
+
+	private static Point3D readPoint(DataInputStream input) throws IOException
+	{
+		int x = VarInt.readSigned(input);
+		int y = VarInt.readSigned(input);
+		return new Point3D(x, y, VarInt.readSigned(input));
+	}
+
+	private static void writeOffset(DataOutputStream output, Point3D point, Point4D origin) throws IOException
+	{
+		VarInt.writeSigned(output, point.getX() - origin.getX());
+		VarInt.writeSigned(output, point.getY() - origin.getY());
+		VarInt.writeSigned(output, point.getZ() - origin.getZ());
+	}
+
+	private static Point3D readOffset(DataInputStream input, Point4D origin) throws IOException
+	{
+		int x = VarInt.readSigned(input) + origin.getX();
+		int y = VarInt.readSigned(input) + origin.getY();
+		return new Point3D(x, y, VarInt.readSigned(input) + origin.getZ());
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException
+	{
+		output.writeBoolean(value != null);
+		if (value != null)
+		{
+			output.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInputStream input) throws IOException
+	{
+		return input.readBoolean() ? input.readUTF() : null;
+	}
+}
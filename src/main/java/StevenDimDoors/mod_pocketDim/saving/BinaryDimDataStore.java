@@ -0,0 +1,560 @@
+package StevenDimDoors.mod_pocketDim.saving;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+import StevenDimDoors.mod_pocketDim.util.ConfigurationProcessingException;
+import com.google.common.io.Files;
+
+/**
+ * Stores the save data of all dimensions in a single append-only log file instead of one JSON file
+ * per dimension. Each record is length-prefixed and protected by a CRC32 checksum. An offset index is
+ * kept in a separate file so that any single dimension can be read or rewritten on its own. Rewriting
+ * a dimension appends a new record and leaves the old one behind as wasted space, which is reclaimed
+ * by compacting the log once it grows too large.
+ */
+public class BinaryDimDataStore
+{
+	public static final String LOG_FILE_NAME = "dimensions.dat";
+	public static final String INDEX_FILE_NAME = "dimensions.idx";
+	private static final String TEMP_FILE_NAME = "dimensions.tmp";
+
+	private static final int LOG_MAGIC = 0x44444C47; // "DDLG"
+	private static final int INDEX_MAGIC = 0x44444958; // "DDIX"
+	private static final int STORE_VERSION = 1;
+	private static final int HEADER_SIZE = 16; // Magic, version and generation
+	private static final int RECORD_OVERHEAD = 8; // Length prefix and checksum
+	private static final int MAX_PAYLOAD_SIZE = 64 * 1024 * 1024;
+	private static final long MIN_COMPACTION_WASTE = 1024 * 1024;
+
+	private static final byte RECORD_DATA = 0;
+	private static final byte RECORD_DELETED = 1;
+
+	private static class IndexEntry
+	{
+		public final long offset;
+		public final int length;
+
+		public IndexEntry(long offset, int length)
+		{
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	private static class OffsetComparator implements Comparator<Entry<Integer, IndexEntry>>
+	{
+		@Override
+		public int compare(Entry<Integer, IndexEntry> a, Entry<Integer, IndexEntry> b)
+		{
+			return (a.getValue().offset < b.getValue().offset) ? -1 :
+				((a.getValue().offset == b.getValue().offset) ? 0 : 1);
+		}
+	}
+
+	private final File directory;
+	private final File logFile;
+	private final File indexFile;
+	private final BinaryDimDataProcessor processor;
+	private final HashMap<Integer, IndexEntry> index;
+	private RandomAccessFile log;
+	private long generation;
+	private long liveBytes;
+	private long wastedBytes;
+	private boolean indexModified;
+
+	private BinaryDimDataStore(File directory)
+	{
+		this.directory = directory;
+		this.logFile = new File(directory, LOG_FILE_NAME);
+		this.indexFile = new File(directory, INDEX_FILE_NAME);
+		this.processor = new BinaryDimDataProcessor();
+		this.index = new HashMap<Integer, IndexEntry>();
+	}
+
+	public static boolean exists(File directory)
+	{
+		return new File(directory, LOG_FILE_NAME).exists();
+	}
+
+	/**
+	 * Opens the store in the specified directory, creating it if necessary. If the index is missing or
+	 * out of date, it is rebuilt by scanning the log. An incomplete record at the end of the log, such as
+	 * one left behind by a crash, is discarded. Corrupted records elsewhere are skipped, and if nothing
+	 * valid follows them, an exception is thrown and the log is left as it is.
+	 */
+	public static BinaryDimDataStore open(File directory) throws IOException
+	{
+		BinaryDimDataStore store = new BinaryDimDataStore(directory);
+		store.initialize();
+		return store;
+	}
+
+	private void initialize() throws IOException
+	{
+		// A leftover temporary file means that we crashed while compacting the log. If the log itself
+		// is gone, then the temporary file was completed and is about to replace it. Otherwise, discard it.
+		File tempFile = new File(directory, TEMP_FILE_NAME);
+		if (tempFile.exists())
+		{
+			if (!logFile.exists())
+			{
+				tempFile.renameTo(logFile);
+			}
+			else
+			{
+				tempFile.delete();
+			}
+		}
+		if (!logFile.exists())
+		{
+			generation = System.currentTimeMillis();
+			writeHeader(logFile, generation);
+		}
+		log = new RandomAccessFile(logFile, "rw");
+		if (log.length() < HEADER_SIZE || log.readInt() != LOG_MAGIC || log.readInt() != STORE_VERSION)
+		{
+			log.close();
+			throw new IOException("The file " + logFile.getAbsolutePath() + " is not a valid Dimensional Doors save file.");
+		}
+		generation = log.readLong();
+
+		long scanStart = readIndex();
+		if (scanStart < 0)
+		{
+			System.out.println("Rebuilding the index of " + logFile.getName() + "...");
+			index.clear();
+			liveBytes = 0;
+			wastedBytes = 0;
+			scanStart = HEADER_SIZE;
+		}
+		scanLog(scanStart);
+	}
+
+	public synchronized int size()
+	{
+		return index.size();
+	}
+
+	public synchronized boolean contains(int dimensionID)
+	{
+		return index.containsKey(dimensionID);
+	}
+
+	public synchronized PackedDimData read(int dimensionID) throws IOException, ConfigurationProcessingException
+	{
+		IndexEntry entry = index.get(dimensionID);
+		if (entry == null)
+		{
+			return null;
+		}
+		return decode(readPayload(entry.offset));
+	}
+
+	/**
+	 * Reads every dimension in the store. Records are visited in the order in which they appear
+	 * in the log to keep disk access sequential.
+	 */
+	public synchronized List<PackedDimData> readAll() throws IOException, ConfigurationProcessingException
+	{
+		List<PackedDimData> results = new ArrayList<PackedDimData>(index.size());
+		for (Entry<Integer, IndexEntry> entry : sortByOffset())
+		{
+			results.add(decode(readPayload(entry.getValue().offset)));
+		}
+		return results;
+	}
+
+	public synchronized void write(PackedDimData data) throws IOException, ConfigurationProcessingException
+	{
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(buffer);
+		output.writeByte(RECORD_DATA);
+		output.writeInt(data.ID);
+		processor.writeToStream(output, data);
+		output.flush();
+
+		long offset = appendRecord(buffer.toByteArray());
+		IndexEntry entry = new IndexEntry(offset, (int) (log.length() - offset));
+		release(index.put(data.ID, entry));
+		liveBytes += entry.length;
+		indexModified = true;
+	}
+
+	public synchronized boolean delete(int dimensionID) throws IOException
+	{
+		IndexEntry previous = index.remove(dimensionID);
+		if (previous == null)
+		{
+			return false;
+		}
+		// Record the deletion in the log so that it survives even if the index is lost
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(buffer);
+		output.writeByte(RECORD_DELETED);
+		output.writeInt(dimensionID);
+		output.flush();
+
+		long offset = appendRecord(buffer.toByteArray());
+		release(previous);
+		wastedBytes += log.length() - offset;
+		indexModified = true;
+		return true;
+	}
+
+	/**
+	 * Makes all changes durable. The log is compacted first if most of its contents are wasted.
+	 */
+	public synchronized void commit() throws IOException
+	{
+		if (wastedBytes > MIN_COMPACTION_WASTE && wastedBytes > liveBytes)
+		{
+			compact();
+		}
+		if (indexModified)
+		{
+			log.getFD().sync();
+			writeIndex();
+			indexModified = false;
+		}
+	}
+
+	public synchronized void close() throws IOException
+	{
+		if (log != null)
+		{
+			commit();
+			log.close();
+			log = null;
+		}
+	}
+
+	private void release(IndexEntry entry)
+	{
+		if (entry != null)
+		{
+			liveBytes -= entry.length;
+			wastedBytes += entry.length;
+		}
+	}
+
+	private PackedDimData decode(byte[] payload) throws IOException, ConfigurationProcessingException
+	{
+		// Skip the record type and the dimension ID
+		return processor.readFromStream(new ByteArrayInputStream(payload, 5, payload.length - 5));
+	}
+
+	private long appendRecord(byte[] payload) throws IOException
+	{
+		CRC32 checksum = new CRC32();
+		checksum.update(payload);
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(payload.length + RECORD_OVERHEAD);
+		DataOutputStream output = new DataOutputStream(buffer);
+		output.writeInt(payload.length);
+		output.write(payload);
+		output.writeInt((int) checksum.getValue());
+		output.flush();
+
+		long offset = log.length();
+		log.seek(offset);
+		log.write(buffer.toByteArray());
+		return offset;
+	}
+
+	private byte[] readPayload(long offset) throws IOException
+	{
+		log.seek(offset);
+		int length = log.readInt();
+		if (length < 5 || length > MAX_PAYLOAD_SIZE)
+		{
+			throw new IOException("Found an invalid record at offset " + offset + " in " + logFile.getName());
+		}
+		byte[] payload = new byte[length];
+		log.readFully(payload);
+		CRC32 checksum = new CRC32();
+		checksum.update(payload);
+		if (log.readInt() != (int) checksum.getValue())
+		{
+			throw new IOException("The record at offset " + offset + " in " + logFile.getName() + " is corrupted.");
+		}
+		return payload;
+	}
+
+	private void scanLog(long offset) throws IOException
+	{
+		long length = log.length();
+		while (offset < length)
+		{
+			byte[] payload;
+			try
+			{
+				payload = readPayload(offset);
+			}
+			catch (IOException e)
+			{
+				// Look for a valid record after this one before deciding what happened. A damaged length prefix
+				// can also point past the end of the log, so only the lack of any later record tells us that
+				// this is really a torn tail rather than corruption in the middle of the log.
+				long next = findNextRecord(offset + 1, length);
+				if (next < 0)
+				{
+					if (isIncompleteRecord(offset, length))
+					{
+						// The last record was not written completely, most likely because of a crash. Throw it away.
+						System.err.println("Discarding " + (length - offset) + " bytes of incomplete data at the end of " +
+								logFile.getName() + ": " + e);
+						log.setLength(offset);
+						indexModified = true;
+						return;
+					}
+					throw new IOException("The record at offset " + offset + " in " + logFile.getAbsolutePath() +
+							" is corrupted and no valid records follow it. The file has been left untouched so that " +
+							"it can be recovered.", e);
+				}
+
+				// A record was damaged, but valid records follow it. Don't truncate the log, since that would
+				// also throw away every record after it. Skip ahead to the next valid record instead.
+				System.err.println("Skipping " + (next - offset) + " bytes of corrupted data at offset " + offset +
+						" in " + logFile.getName() + ". Any dimension saved in that range will be loaded from an " +
+						"earlier record, if there is one: " + e);
+				wastedBytes += next - offset;
+				indexModified = true;
+				offset = next;
+				continue;
+			}
+			int recordLength = payload.length + RECORD_OVERHEAD;
+			int dimensionID = ((payload[1] & 0xFF) << 24) | ((payload[2] & 0xFF) << 16) |
+					((payload[3] & 0xFF) << 8) | (payload[4] & 0xFF);
+
+			if (payload[0] == RECORD_DATA)
+			{
+				IndexEntry entry = new IndexEntry(offset, recordLength);
+				release(index.put(dimensionID, entry));
+				liveBytes += recordLength;
+			}
+			else
+			{
+				release(index.remove(dimensionID));
+				wastedBytes += recordLength;
+			}
+			indexModified = true;
+			offset += recordLength;
+		}
+	}
+
+	/**
+	 * Checks whether the record at the specified offset was cut short by the end of the log.
+	 */
+	private boolean isIncompleteRecord(long offset, long length) throws IOException
+	{
+		if (length - offset < 4)
+		{
+			return true;
+		}
+		log.seek(offset);
+		int payloadLength = log.readInt();
+		if (payloadLength < 5 || payloadLength > MAX_PAYLOAD_SIZE)
+		{
+			// The length prefix itself is damaged
+			return false;
+		}
+		return (offset + RECORD_OVERHEAD + payloadLength > length);
+	}
+
+	/**
+	 * Searches for the first valid record that starts at or after the specified offset.
+	 * @return the offset of the record, or -1 if there is none
+	 */
+	private long findNextRecord(long offset, long length) throws IOException
+	{
+		for (; offset + RECORD_OVERHEAD + 5 <= length; offset++)
+		{
+			// Check the length and record type before reading the whole payload to keep the search fast
+			log.seek(offset);
+			int payloadLength = log.readInt();
+			if (payloadLength < 5 || payloadLength > MAX_PAYLOAD_SIZE || offset + RECORD_OVERHEAD + payloadLength > length)
+			{
+				continue;
+			}
+			byte recordType = log.readByte();
+			if (recordType != RECORD_DATA && recordType != RECORD_DELETED)
+			{
+				continue;
+			}
+			try
+			{
+				readPayload(offset);
+				return offset;
+			}
+			catch (IOException e)
+			{
+				// Not a record. Keep looking.
+			}
+		}
+		return -1;
+	}
+
+	private long readIndex()
+	{
+		// Returns the position in the log up to which the index is valid or -1 if the index can't be used
+		if (!indexFile.exists())
+		{
+			return -1;
+		}
+		try
+		{
+			byte[] contents = Files.toByteArray(indexFile);
+			if (contents.length < 4)
+			{
+				return -1;
+			}
+			CRC32 checksum = new CRC32();
+			checksum.update(contents, 0, contents.length - 4);
+			DataInputStream input = new DataInputStream(new ByteArrayInputStream(contents));
+			input.skipBytes(contents.length - 4);
+			if (input.readInt() != (int) checksum.getValue())
+			{
+				return -1;
+			}
+
+			input = new DataInputStream(new ByteArrayInputStream(contents, 0, contents.length - 4));
+			if (input.readInt() != INDEX_MAGIC || input.readInt() != STORE_VERSION || input.readLong() != generation)
+			{
+				return -1;
+			}
+			long indexedLength = input.readLong();
+			if (indexedLength > log.length())
+			{
+				return -1;
+			}
+			liveBytes = input.readLong();
+			wastedBytes = input.readLong();
+			int count = input.readInt();
+			for (int k = 0; k < count; k++)
+			{
+				int dimensionID = input.readInt();
+				long offset = input.readLong();
+				index.put(dimensionID, new IndexEntry(offset, input.readInt()));
+			}
+			return indexedLength;
+		}
+		catch (IOException e)
+		{
+			return -1;
+		}
+	}
+
+	private void writeIndex() throws IOException
+	{
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(48 + index.size() * 16);
+		DataOutputStream output = new DataOutputStream(buffer);
+		output.writeInt(INDEX_MAGIC);
+		output.writeInt(STORE_VERSION);
+		output.writeLong(generation);
+		output.writeLong(log.length());
+		output.writeLong(liveBytes);
+		output.writeLong(wastedBytes);
+		output.writeInt(index.size());
+		for (Entry<Integer, IndexEntry> entry : index.entrySet())
+		{
+			output.writeInt(entry.getKey());
+			output.writeLong(entry.getValue().offset);
+			output.writeInt(entry.getValue().length);
+		}
+		output.flush();
+
+		CRC32 checksum = new CRC32();
+		byte[] contents = buffer.toByteArray();
+		checksum.update(contents);
+		output.writeInt((int) checksum.getValue());
+		output.flush();
+
+		File tempFile = new File(directory, INDEX_FILE_NAME + ".tmp");
+		Files.write(buffer.toByteArray(), tempFile);
+		indexFile.delete();
+		if (!tempFile.renameTo(indexFile))
+		{
+			throw new IOException("Could not move " + tempFile.getAbsolutePath() + " to " + indexFile.getAbsolutePath());
+		}
+	}
+
+	private void compact() throws IOException
+	{
+		// Copy the live records into a new log with a new generation number. The generation
+		// number invalidates the old index if we crash before the new index is written.
+		File tempFile = new File(directory, TEMP_FILE_NAME);
+		long nextGeneration = Math.max(generation + 1, System.currentTimeMillis());
+		writeHeader(tempFile, nextGeneration);
+
+		HashMap<Integer, IndexEntry> nextIndex = new HashMap<Integer, IndexEntry>(index.size());
+		RandomAccessFile output = new RandomAccessFile(tempFile, "rw");
+		try
+		{
+			long offset = HEADER_SIZE;
+			output.seek(offset);
+			for (Entry<Integer, IndexEntry> entry : sortByOffset())
+			{
+				IndexEntry current = entry.getValue();
+				byte[] record = new byte[current.length];
+				log.seek(current.offset);
+				log.readFully(record);
+				output.write(record);
+				nextIndex.put(entry.getKey(), new IndexEntry(offset, current.length));
+				offset += current.length;
+			}
+			output.getFD().sync();
+		}
+		finally
+		{
+			output.close();
+		}
+
+		log.close();
+		logFile.delete();
+		if (!tempFile.renameTo(logFile))
+		{
+			throw new IOException("Could not move " + tempFile.getAbsolutePath() + " to " + logFile.getAbsolutePath());
+		}
+		log = new RandomAccessFile(logFile, "rw");
+		generation = nextGeneration;
+		index.clear();
+		index.putAll(nextIndex);
+		wastedBytes = 0;
+		indexModified = true;
+	}
+
+	private List<Entry<Integer, IndexEntry>> sortByOffset()
+	{
+		List<Entry<Integer, IndexEntry>> entries = new ArrayList<Entry<Integer, IndexEntry>>(index.entrySet());
+		Collections.sort(entries, new OffsetComparator());
+		return entries;
+	}
+
+	private static void writeHeader(File file, long generation) throws IOException
+	{
+		DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+		try
+		{
+			output.writeInt(LOG_MAGIC);
+			output.writeInt(STORE_VERSION);
+			output.writeLong(generation);
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+}
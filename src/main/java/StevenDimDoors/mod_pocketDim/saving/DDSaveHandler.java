@@ -5,9 +5,16 @@ import java.io.FileFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import net.minecraftforge.common.DimensionManager;
 import StevenDimDoors.mod_pocketDim.Point3D;
 import StevenDimDoors.mod_pocketDim.mod_pocketDim;
@@ -25,6 +32,20 @@ import com.google.common.io.Files;
 
 public class DDSaveHandler
 {
+	private static final String COMPACT_KEY_PREFIX = "compact:";
+	private static final String COMPACT_COMMIT_KEY = "compact:commit";
+	
+	// Don't bother spinning up extra reader threads unless each one has at least this many files to read
+	private static final int MIN_FILES_PER_READER = 32;
+	private static final String LOAD_TIMER = "Loading data";
+	private static final String READ_TIMER = "Reading dimension data";
+	private static final String DIMENSION_TIMER = "Rebuilding dimensions";
+	private static final String LINK_TIMER = "Rebuilding links";
+	
+	private static DDSaveWriter saveWriter = null;
+	private static DimDataProcessor dimDataWriter = null;
+	private static BinaryDimDataStore compactStore = null;
+	
 	public static boolean loadAll()
 	{
 		// SenseiKiwi: Loading up our save data is not as simple as just reading files.
@@ -38,7 +59,7 @@ public class DDSaveHandler
 		// Don't surround this code with try-catch. Our mod should crash if an error
 		// occurs at this level, since it could lead to some nasty problems.
 		
-		DDLogger.startTimer("Loading data");
+		DDLogger.startTimer(LOAD_TIMER);
 		
 		String basePath = DimensionManager.getCurrentSaveRootDirectory() + "/DimensionalDoors/data/";
 		File dataDirectory = new File(basePath);
@@ -46,6 +67,7 @@ public class DDSaveHandler
 		// Check if the folder exists. If it doesn't, just return.
 		if (!dataDirectory.exists())
 		{
+			DDLogger.stopTimer(LOAD_TIMER);
 			return true;
 		}
 		
@@ -68,22 +90,18 @@ public class DDSaveHandler
 			ppMap = readPersonalPocketsMapping(personalPocketMap,ppMappingProcessor);
 		}						
 		
-		// List any dimension data files and read each dimension
-		DimDataProcessor reader = new DimDataProcessor();
-		HashMap<Integer, PackedDimData> packedDims = new HashMap<Integer, PackedDimData>();
-		FileFilter dataFileFilter = new FileFilters.RegexFileFilter("dim_-?\\d+\\.txt");
-		
-		File[] dataFiles = dataDirectory.listFiles(dataFileFilter);
-		for (File dataFile : dataFiles)
+		// Read the data for every dimension using the storage format selected for this world
+		DDLogger.startTimer(READ_TIMER);
+		HashMap<Integer, PackedDimData> packedDims;
+		if (isCompactFormatEnabled())
 		{
-			PackedDimData packedDim = readDimension(dataFile, reader);
-			if(packedDim == null)
-			{
-				throw new IllegalStateException("The DD data for "+dataFile.getName().replace(".txt", "")+" at "+dataFile.getPath()+" is corrupted. Please report this on the MCF or on the DD github issues tracker.");
-			}
-			packedDims.put(packedDim.ID,packedDim);
-
+			packedDims = readCompactDimensions(dataDirectory);
+		}
+		else
+		{
+			packedDims = readJsonDimensions(dataDirectory);
 		}
+		double readTime = DDLogger.stopTimer(READ_TIMER);
 		
 		List<PackedLinkData> linksToUnpack = new ArrayList<PackedLinkData>();
 		//get the grand list of all links to unpack
@@ -91,8 +109,12 @@ public class DDSaveHandler
 		{
 			linksToUnpack.addAll(packedDim.Links);
 		}
+		DDLogger.startTimer(DIMENSION_TIMER);
 		unpackDimData(packedDims);
+		double dimensionTime = DDLogger.stopTimer(DIMENSION_TIMER);
+		DDLogger.startTimer(LINK_TIMER);
 		unpackLinkData(linksToUnpack);
+		double linkTime = DDLogger.stopTimer(LINK_TIMER);
 		
 		HashMap<String, NewDimData> personalPocketsMap = new HashMap<String, NewDimData>();
 		for(Entry<String, Integer> pair : ppMap.entrySet())
@@ -101,9 +123,233 @@ public class DDSaveHandler
 		}
 		PocketManager.setPersonalPocketsMapping(personalPocketsMap);
 		
+		double loadTime = DDLogger.stopTimer(LOAD_TIMER);
+		System.out.println(String.format("Loaded %d dimensions and %d links in %.2f seconds " +
+				"(reading: %.2fs, dimensions: %.2fs, links: %.2fs).",
+				packedDims.size(), linksToUnpack.size(), loadTime, readTime, dimensionTime, linkTime));
 		return true;
 	}
 	
+	private static HashMap<Integer, PackedDimData> readJsonDimensions(File dataDirectory)
+	{
+		// List any dimension data files and read each dimension
+		DimDataProcessor reader = new DimDataProcessor();
+		HashMap<Integer, PackedDimData> packedDims = new HashMap<Integer, PackedDimData>();
+		File[] dataFiles = listJsonDimensionFiles(dataDirectory);
+		
+		// If this world was using the compact format before, convert its data back to JSON
+		if (dataFiles.length == 0 && BinaryDimDataStore.exists(dataDirectory))
+		{
+			System.out.println("Converting Dimensional Doors save data from the compact format to JSON...");
+			List<PackedDimData> dimensions = readCompactStore(dataDirectory);
+			try
+			{
+				for (PackedDimData packedDim : dimensions)
+				{
+					reader.writeToFile(new File(dataDirectory, "dim_" + packedDim.ID + ".txt"), packedDim);
+					packedDims.put(packedDim.ID, packedDim);
+				}
+				compactStore.close();
+				compactStore = null;
+				moveToMigrated(dataDirectory, new File(dataDirectory, BinaryDimDataStore.LOG_FILE_NAME));
+				moveToMigrated(dataDirectory, new File(dataDirectory, BinaryDimDataStore.INDEX_FILE_NAME));
+			}
+			catch (Exception e)
+			{
+				throw new IllegalStateException("Could not convert the DD save data at " + dataDirectory.getPath() + " to JSON.", e);
+			}
+			return packedDims;
+		}
+		
+		for (PackedDimData packedDim : readDimensions(dataFiles))
+		{
+			packedDims.put(packedDim.ID, packedDim);
+		}
+		return packedDims;
+	}
+	
+	private static HashMap<Integer, PackedDimData> readCompactDimensions(File dataDirectory)
+	{
+		HashMap<Integer, PackedDimData> packedDims = new HashMap<Integer, PackedDimData>();
+		File[] dataFiles = listJsonDimensionFiles(dataDirectory);
+		
+		// If this world still has JSON data, import it into the compact store. This only happens once
+		// since the JSON files are moved out of the way afterwards.
+		if (dataFiles.length > 0 && !BinaryDimDataStore.exists(dataDirectory))
+		{
+			System.out.println("Converting Dimensional Doors save data from JSON to the compact format...");
+			List<PackedDimData> dimensions = readDimensions(dataFiles);
+			BinaryDimDataStore store = openCompactStore(dataDirectory);
+			try
+			{
+				for (PackedDimData packedDim : dimensions)
+				{
+					store.write(packedDim);
+					packedDims.put(packedDim.ID, packedDim);
+				}
+				store.commit();
+				for (File dataFile : dataFiles)
+				{
+					moveToMigrated(dataDirectory, dataFile);
+				}
+			}
+			catch (Exception e)
+			{
+				throw new IllegalStateException("Could not convert the DD save data at " + dataDirectory.getPath() + " to the compact format.", e);
+			}
+			System.out.println("Converted " + packedDims.size() + " dimensions.");
+			return packedDims;
+		}
+		
+		for (PackedDimData packedDim : readCompactStore(dataDirectory))
+		{
+			packedDims.put(packedDim.ID, packedDim);
+		}
+		return packedDims;
+	}
+	
+	private static List<PackedDimData> readDimensions(File[] dataFiles)
+	{
+		// Parsing and validating the JSON files takes up most of our loading time. The files are
+		// independent of each other, so we split them up across one reader thread per core.
+		int readerCount = Math.min(Runtime.getRuntime().availableProcessors(), dataFiles.length / MIN_FILES_PER_READER);
+		if (readerCount <= 1)
+		{
+			return new DimensionReader(dataFiles, 0, 1).call();
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(readerCount, new ThreadFactory()
+		{
+			private int count = 0;
+			
+			@Override
+			public Thread newThread(Runnable task)
+			{
+				count++;
+				Thread thread = new Thread(task, "Dimensional Doors Loader #" + count);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try
+		{
+			List<Future<List<PackedDimData>>> results = new ArrayList<Future<List<PackedDimData>>>(readerCount);
+			for (int index = 0; index < readerCount; index++)
+			{
+				results.add(executor.submit(new DimensionReader(dataFiles, index, readerCount)));
+			}
+			List<PackedDimData> dimensions = new ArrayList<PackedDimData>(dataFiles.length);
+			for (Future<List<PackedDimData>> result : results)
+			{
+				dimensions.addAll(result.get());
+			}
+			return dimensions;
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof RuntimeException)
+			{
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Could not read the DD save data.", e.getCause());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while reading the DD save data.", e);
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	private static class DimensionReader implements Callable<List<PackedDimData>>
+	{
+		private final File[] dataFiles;
+		private final int start;
+		private final int step;
+		
+		public DimensionReader(File[] dataFiles, int start, int step)
+		{
+			this.dataFiles = dataFiles;
+			this.start = start;
+			this.step = step;
+		}
+		
+		@Override
+		public List<PackedDimData> call()
+		{
+			// Each reader needs its own processor since the processors aren't thread-safe
+			DimDataProcessor reader = new DimDataProcessor();
+			List<PackedDimData> dimensions = new ArrayList<PackedDimData>();
+			for (int index = start; index < dataFiles.length; index += step)
+			{
+				File dataFile = dataFiles[index];
+				PackedDimData packedDim = readDimension(dataFile, reader);
+				if (packedDim == null)
+				{
+					throw new IllegalStateException("The DD data for "+dataFile.getName().replace(".txt", "")+" at "+dataFile.getPath()+" is corrupted. Please report this on the MCF or on the DD github issues tracker.");
+				}
+				dimensions.add(packedDim);
+			}
+			return dimensions;
+		}
+	}
+	
+	private static List<PackedDimData> readCompactStore(File dataDirectory)
+	{
+		try
+		{
+			return openCompactStore(dataDirectory).readAll();
+		}
+		catch (Exception e)
+		{
+			throw new IllegalStateException("The DD data at " + dataDirectory.getPath() + " is corrupted. Please report this on the MCF or on the DD github issues tracker.", e);
+		}
+	}
+	
+	private static BinaryDimDataStore openCompactStore(File dataDirectory)
+	{
+		if (compactStore == null)
+		{
+			try
+			{
+				compactStore = BinaryDimDataStore.open(dataDirectory);
+			}
+			catch (IOException e)
+			{
+				throw new IllegalStateException("Could not open the DD save data at " + dataDirectory.getPath() + ".", e);
+			}
+		}
+		return compactStore;
+	}
+	
+	private static File[] listJsonDimensionFiles(File dataDirectory)
+	{
+		FileFilter dataFileFilter = new FileFilters.RegexFileFilter("dim_-?\\d+\\.txt");
+		return dataDirectory.listFiles(dataFileFilter);
+	}
+	
+	private static void moveToMigrated(File dataDirectory, File file) throws IOException
+	{
+		// Keep the files from the old format around in case something goes wrong
+		File migratedDirectory = new File(dataDirectory, "migrated");
+		if (!migratedDirectory.exists())
+		{
+			migratedDirectory.mkdir();
+		}
+		if (file.exists())
+		{
+			Files.move(file, new File(migratedDirectory, file.getName()));
+		}
+	}
+	
+	private static boolean isCompactFormatEnabled()
+	{
+		return (mod_pocketDim.worldProperties != null && mod_pocketDim.worldProperties.CompactSaveFormatEnabled);
+	}
+	
 	/**
 	 * Takes a list of packedDimData and rebuilds the DimData for it
 	 * @param packedDims
@@ -113,11 +359,11 @@ public class DDSaveHandler
 	{
 		LinkedList<Integer> dimsToRegister = new LinkedList<Integer>();
 		
+		//fix pockets without parents
+		verifyParents(packedDims);
+		
 		for(PackedDimData packedDim : packedDims.values())
-		{						
-			//fix pockets without parents
-			verifyParents(packedDim, packedDims);
-			
+		{
 			//Load roots first by inserting them in the LinkedList first.
 			if(packedDim.RootID==packedDim.ID)
 			{
@@ -125,16 +371,26 @@ public class DDSaveHandler
 			}
 		}
 		
-		//load the children for each root
+		//load the children for each root. Every dimension is registered after its parent
+		//and we keep track of what we've registered in case a dimension is listed twice.
+		HashSet<Integer> registered = new HashSet<Integer>(packedDims.size());
 		while(!dimsToRegister.isEmpty())
 		{
 			Integer childID = dimsToRegister.pop();
-			PackedDimData data = packedDims.get(childID);
-			dimsToRegister.addAll(verifyChildren(data, packedDims));
-			PocketManager.registerPackedDimData(data);
+			if(registered.add(childID))
+			{
+				PackedDimData data = packedDims.get(childID);
+				dimsToRegister.addAll(verifyChildren(data, packedDims));
+				PocketManager.registerPackedDimData(data);
+			}
+		}
+		if(registered.size() < packedDims.size())
+		{
+			System.err.println((packedDims.size() - registered.size()) + " dimensions could not be loaded because they are not connected to any root dimension.");
 		}
 		return true;
 	}
+	
 	/**
 	 * Fixes the case where a child of a parent has been deleted.
 	 * -removes the child from parent
@@ -143,24 +399,27 @@ public class DDSaveHandler
 	 * @param packedDims
 	 * @return
 	 */
-	private static ArrayList<Integer> verifyChildren(PackedDimData packedDim,HashMap<Integer,PackedDimData> packedDims)
-	{			
-		ArrayList<Integer> children = new ArrayList<Integer>();
-		children.addAll(packedDim.ChildIDs);
-		boolean isMissing = false;
+	private static List<Integer> verifyChildren(PackedDimData packedDim,HashMap<Integer,PackedDimData> packedDims)
+	{
+		List<Integer> children = packedDim.ChildIDs;
 		for(Integer childID : packedDim.ChildIDs)
 		{
 			if(!packedDims.containsKey(childID))
 			{
-				children.remove(childID);
-				isMissing=true;
+				//Only copy the list if something is actually missing
+				children = new ArrayList<Integer>(packedDim.ChildIDs.size());
+				for(Integer otherID : packedDim.ChildIDs)
+				{
+					if(packedDims.containsKey(otherID))
+					{
+						children.add(otherID);
+					}
+				}
+				packedDim=(new PackedDimData(packedDim.ID, packedDim.Depth, packedDim.PackDepth, packedDim.ParentID, packedDim.RootID, packedDim.Orientation, DimensionType.getTypeFromIndex(packedDim.DimensionType), packedDim.IsFilled, packedDim.DungeonData, packedDim.Origin, children, packedDim.Links, packedDim.Tails));
+				packedDims.put(packedDim.ID, packedDim);
+				break;
 			}
 		}
-		if(isMissing)
-		{
-			packedDim=(new PackedDimData(packedDim.ID, packedDim.Depth, packedDim.PackDepth, packedDim.ParentID, packedDim.RootID, packedDim.Orientation, DimensionType.getTypeFromIndex(packedDim.DimensionType), packedDim.IsFilled, packedDim.DungeonData, packedDim.Origin, children, packedDim.Links, packedDim.Tails));
-			packedDims.put(packedDim.ID, packedDim);
-		}
 		return children;
 	}
 	
@@ -169,41 +428,78 @@ public class DDSaveHandler
 	 * -Changes the missing parent to the dims root if its original parent is gone.
 	 * -Finds the new parent and adds it to its list of children or reminds the old parent if it forgot its child
 	 * 
-	 * @param packedDim
+	 * This is done for all the dimensions at once so that each parent is only rebuilt one time,
+	 * no matter how many children it has to be reminded of.
+	 * 
 	 * @param packedDims
 	 */
-	public static void verifyParents(PackedDimData packedDim,HashMap<Integer,PackedDimData> packedDims)
+	private static void verifyParents(HashMap<Integer,PackedDimData> packedDims)
 	{
-		ArrayList<Integer> fosterChildren = new ArrayList<Integer>();
-		fosterChildren.add(packedDim.ID);
-		DimensionType type = DimensionType.getTypeFromIndex(packedDim.DimensionType);
-		//fix pockets without parents
-		if(!packedDims.containsKey(packedDim.ParentID))
+		HashMap<Integer, HashSet<Integer>> knownChildren = new HashMap<Integer, HashSet<Integer>>();
+		HashMap<Integer, List<Integer>> fosterChildren = new HashMap<Integer, List<Integer>>();
+		
+		for(PackedDimData packedDim : new ArrayList<PackedDimData>(packedDims.values()))
 		{
-			//Fix the orphan by changing its root to its parent, re-connecting it to the list
-			packedDim=(new PackedDimData(packedDim.ID, 1, packedDim.PackDepth, packedDim.RootID, packedDim.RootID, packedDim.Orientation,type, packedDim.IsFilled, packedDim.DungeonData, packedDim.Origin, packedDim.ChildIDs, packedDim.Links, packedDim.Tails));
-			packedDims.put(packedDim.ID, packedDim);
+			if(!packedDims.containsKey(packedDim.ParentID))
+			{
+				//Fix the orphan by changing its root to its parent, re-connecting it to the list
+				DimensionType type = DimensionType.getTypeFromIndex(packedDim.DimensionType);
+				packedDim=(new PackedDimData(packedDim.ID, 1, packedDim.PackDepth, packedDim.RootID, packedDim.RootID, packedDim.Orientation,type, packedDim.IsFilled, packedDim.DungeonData, packedDim.Origin, packedDim.ChildIDs, packedDim.Links, packedDim.Tails));
+				packedDims.put(packedDim.ID, packedDim);
+			}
+			if(packedDim.ID==packedDim.RootID)
+			{
+				continue;
+			}
+			
+			//fix pockets whose parents have forgotten about them
+			PackedDimData parent = packedDims.get(packedDim.ParentID);
+			if(parent==null)
+			{
+				System.err.println("Dimension #" + packedDim.ID + " has no parent and no root. It will not be loaded.");
+				continue;
+			}
+			HashSet<Integer> children = knownChildren.get(parent.ID);
+			if(children==null)
+			{
+				children = new HashSet<Integer>(parent.ChildIDs);
+				knownChildren.put(parent.ID, children);
+			}
+			if(children.add(packedDim.ID))
+			{
+				List<Integer> orphans = fosterChildren.get(parent.ID);
+				if(orphans==null)
+				{
+					orphans = new ArrayList<Integer>();
+					fosterChildren.put(parent.ID, orphans);
+				}
+				orphans.add(packedDim.ID);
+			}
 		}
-		//fix pockets whose parents have forgotten about them
-		PackedDimData fosterParent = packedDims.get(packedDim.ParentID);
-		if(!fosterParent.ChildIDs.contains(packedDim.ID)&&packedDim.ID!=packedDim.RootID)
+		
+		//find the parents, and fix them by adding the orphans' IDs to their children
+		for(Entry<Integer, List<Integer>> entry : fosterChildren.entrySet())
 		{
-			//find the root, and fix it by adding the orphan's ID to its children
-			fosterChildren.addAll(fosterParent.ChildIDs);
-			fosterParent=(new PackedDimData(fosterParent.ID, fosterParent.Depth, fosterParent.PackDepth, fosterParent.ParentID, fosterParent.RootID, fosterParent.Orientation, type, fosterParent.IsFilled, fosterParent.DungeonData, fosterParent.Origin, fosterChildren, fosterParent.Links, fosterParent.Tails));
-			packedDims.put(fosterParent.ID, fosterParent);	
+			PackedDimData fosterParent = packedDims.get(entry.getKey());
+			List<Integer> children = entry.getValue();
+			children.addAll(fosterParent.ChildIDs);
+			DimensionType type = DimensionType.getTypeFromIndex(fosterParent.DimensionType);
+			fosterParent=(new PackedDimData(fosterParent.ID, fosterParent.Depth, fosterParent.PackDepth, fosterParent.ParentID, fosterParent.RootID, fosterParent.Orientation, type, fosterParent.IsFilled, fosterParent.DungeonData, fosterParent.Origin, children, fosterParent.Links, fosterParent.Tails));
+			packedDims.put(fosterParent.ID, fosterParent);
 		}
-			
 	}
 	
 	public static boolean unpackLinkData(List<PackedLinkData> linksToUnpack)
 	{
 		Point3D fakePoint = new Point3D(-1,-1,-1);
-		List<PackedLinkData> unpackedLinks = new ArrayList<PackedLinkData>();
-		/**
-		 * sort through the list, unpacking links that do not have parents. 
-		 */
-		//TODO- what we have a loop of links?
+		
+		// Child links have to be created after their parents. Rather than searching the list
+		// over and over for links whose parents exist, we group the children by their parent's
+		// location and create them right after their parent.
+		HashMap<Point4D, List<PackedLinkData>> childLinks = new HashMap<Point4D, List<PackedLinkData>>();
+		LinkedList<Point4D> createdLinks = new LinkedList<Point4D>();
+		int childCount = 0;
+		
 		for(PackedLinkData packedLink : linksToUnpack)
 		{
 			if(packedLink.parent.equals(fakePoint))
@@ -211,31 +507,59 @@ public class DDSaveHandler
 				NewDimData data = PocketManager.getDimensionData(packedLink.source.getDimension());
 				LinkType linkType = LinkType.getLinkTypeFromIndex(packedLink.tail.linkType);
 
-				
 				DimLink link = data.createLink(packedLink.source, linkType, packedLink.orientation, packedLink.lock);
 				Point4D destination = packedLink.tail.destination;
 				if(destination!=null)
 				{
 					PocketManager.createDimensionDataDangerously(destination.getDimension()).setLinkDestination(link, destination.getX(),destination.getY(),destination.getZ());
 				}
-				unpackedLinks.add(packedLink);
+				createdLinks.add(packedLink.source);
+			}
+			else
+			{
+				// Children always share their parent's dimension
+				Point4D parent = new Point4D(packedLink.parent.getX(), packedLink.parent.getY(), packedLink.parent.getZ(), packedLink.source.getDimension());
+				List<PackedLinkData> children = childLinks.get(parent);
+				if(children==null)
+				{
+					children = new ArrayList<PackedLinkData>();
+					childLinks.put(parent, children);
+				}
+				children.add(packedLink);
+				childCount++;
+			}
+		}
+		
+		// Some parents may have been loaded before this call rather than in it
+		for(Point4D parent : childLinks.keySet())
+		{
+			NewDimData data = PocketManager.getDimensionData(parent.getDimension());
+			if(data!=null && data.getLink(parent)!=null)
+			{
+				createdLinks.add(parent);
 			}
 		}
-		linksToUnpack.removeAll(unpackedLinks);
 		
-		//unpack remaining children
-		while(!linksToUnpack.isEmpty())
+		//unpack the children of every link we create, including children of children
+		while(!createdLinks.isEmpty())
 		{
-			for(PackedLinkData packedLink : linksToUnpack)
+			Point4D parentLocation = createdLinks.pop();
+			List<PackedLinkData> children = childLinks.remove(parentLocation);
+			if(children!=null)
 			{
-				NewDimData data = PocketManager.createDimensionDataDangerously(packedLink.source.getDimension());
-				if(data.getLink(packedLink.parent)!=null)
+				NewDimData data = PocketManager.createDimensionDataDangerously(parentLocation.getDimension());
+				DimLink parent = data.getLink(parentLocation);
+				for(PackedLinkData packedLink : children)
 				{
-					data.createChildLink(packedLink.source, data.getLink(packedLink.parent), packedLink.lock);
+					data.createChildLink(packedLink.source, parent, packedLink.lock);
+					createdLinks.add(packedLink.source);
 				}
-				unpackedLinks.add(packedLink);
+				childCount -= children.size();
 			}
-			linksToUnpack.removeAll(unpackedLinks);
+		}
+		if(childCount > 0)
+		{
+			System.err.println(childCount + " child links could not be loaded because their parent links are missing.");
 		}
 		return true;
 	}
@@ -282,21 +606,39 @@ public class DDSaveHandler
 			backupDirectory.mkdir();
 		}
 		
+		// We only take snapshots of our data on this thread. Serializing, validating and
+		// writing the snapshots is expensive, so that work is handed off to the save writer.
+		DDSaveWriter writer = getWriter();
+		
 		// Create and write the blackList
-		writeBlacklist(blacklist, savePath);
+		writer.submit(new File(savePath + "/blacklist.txt"), null, new BlacklistProcessor(),
+				new ArrayList<Integer>(blacklist));
 		
 		//create and write personal pocket mapping
-		writePersonalPocketMap(PocketManager.getPersonalPocketMapping(), savePath);
+		writePersonalPocketMap(PocketManager.getPersonalPocketMapping(), savePath, writer);
 		
 		// Write the dimension save data
 		boolean succeeded = true;
-		DimDataProcessor writer = new DimDataProcessor();
+		boolean isCompact = isCompactFormatEnabled();
+		if (isCompact)
+		{
+			openCompactStore(saveDirectory);
+		}
 		for (IPackable<PackedDimData> dimension : dimensions)
 		{
 			// Check if the dimension should be saved
 			if (!checkModified || dimension.isModified())
 			{
-				if (writeDimension(dimension, writer, baseSavePath, baseBackupPath))
+				boolean written;
+				if (isCompact)
+				{
+					written = writeCompactDimension(dimension, writer);
+				}
+				else
+				{
+					written = writeDimension(dimension, writer, baseSavePath, baseBackupPath);
+				}
+				if (written)
 				{
 					dimension.clearModified();
 				}
@@ -306,31 +648,99 @@ public class DDSaveHandler
 				}
 			}
 		}
+		if (isCompact)
+		{
+			// Commit after all the dimensions have been written. Resubmitting the
+			// commit task moves it to the end of the writer's queue.
+			writer.submit(COMPACT_COMMIT_KEY, new DDSaveWriter.SaveTask()
+			{
+				@Override
+				public void execute() throws Exception
+				{
+					compactStore.commit();
+				}
+				
+				@Override
+				public String describe()
+				{
+					return BinaryDimDataStore.LOG_FILE_NAME;
+				}
+			});
+		}
 		
 		return succeeded;
 	}
 	
-	private static boolean writeBlacklist(List<Integer> blacklist, String savePath)
+	/**
+	 * Writes out all pending save data and stops the background save writer.
+	 * This should be called when the server stops.
+	 */
+	public static void shutdown()
 	{
-		try
+		if (saveWriter != null)
 		{
-			BlacklistProcessor writer = new BlacklistProcessor();
-			File tempFile = new File(savePath + "/blacklist.tmp");
-			File saveFile = new File(savePath + "/blacklist.txt");
-			writer.writeToFile(tempFile, blacklist);
-			saveFile.delete();
-			tempFile.renameTo(saveFile);
-			return true;
+			saveWriter.shutdown();
 		}
-		catch (Exception e)
+		if (compactStore != null)
 		{
-			System.err.println("Could not save blacklist. The following error occurred:");
-			printException(e, true);
-			return false;
-		}	
+			try
+			{
+				compactStore.close();
+			}
+			catch (IOException e)
+			{
+				System.err.println("Could not close the DD save data store. The following error occurred:");
+				printException(e, true);
+			}
+			compactStore = null;
+		}
+	}
+	
+	/**
+	 * Removes the save data of the specified dimension and discards any pending writes
+	 * for it so that the data isn't written again afterwards.
+	 */
+	public static void deleteDimensionData(File dataDirectory, final int dimensionID)
+	{
+		File dataFile = new File(dataDirectory, "dim_" + dimensionID + ".txt");
+		if (saveWriter != null)
+		{
+			saveWriter.cancel(dataFile);
+		}
+		dataFile.delete();
+		
+		if (compactStore != null)
+		{
+			// The store is only accessed by the writer thread while the server is running,
+			// so we queue the deletion in place of any pending write for this dimension.
+			getWriter().submit(COMPACT_KEY_PREFIX + dimensionID, new DDSaveWriter.SaveTask()
+			{
+				@Override
+				public void execute() throws Exception
+				{
+					compactStore.delete(dimensionID);
+				}
+				
+				@Override
+				public String describe()
+				{
+					return BinaryDimDataStore.LOG_FILE_NAME + " (dimension #" + dimensionID + ")";
+				}
+			});
+		}
+	}
+	
+	private static DDSaveWriter getWriter()
+	{
+		if (saveWriter == null)
+		{
+			saveWriter = new DDSaveWriter();
+			dimDataWriter = new DimDataProcessor();
+		}
+		return saveWriter;
 	}
 	
-	private static boolean writePersonalPocketMap(HashMap<String, NewDimData> hashMap, String savePath)
+	private static boolean writePersonalPocketMap(HashMap<String, NewDimData> hashMap, String savePath, DDSaveWriter writer)
 	{
 		try
 		{
@@ -340,12 +750,7 @@ public class DDSaveHandler
 			{
 				ppMap.put(pair.getKey(), pair.getValue().id());
 			}
-			PersonalPocketMappingProcessor writer = new PersonalPocketMappingProcessor();
-			File tempFile = new File(savePath + "/personalPockets.tmp");
-			File saveFile = new File(savePath + "/personalPockets.txt");
-			writer.writeToFile(tempFile, ppMap);
-			saveFile.delete();
-			tempFile.renameTo(saveFile);
+			writer.submit(new File(savePath + "/personalPockets.txt"), null, new PersonalPocketMappingProcessor(), ppMap);
 			return true;
 		}
 		catch (Exception e)
@@ -356,19 +761,25 @@ public class DDSaveHandler
 		}	
 	}
 	
-	private static boolean writeDimension(IPackable<PackedDimData> dimension, DimDataProcessor writer, String basePath, String backupPath)
+	private static boolean writeCompactDimension(IPackable<PackedDimData> dimension, DDSaveWriter writer)
 	{
 		try
 		{
-			File saveFile = new File(basePath + dimension.name() + ".txt");
-			
-			// If the save file already exists, back it up.
-			if (saveFile.exists())
+			final PackedDimData packedDim = dimension.pack();
+			writer.submit(COMPACT_KEY_PREFIX + dimension.name(), new DDSaveWriter.SaveTask()
 			{
-				Files.move(saveFile, new File(backupPath + dimension.name() + ".txt"));
-			}
-
-			writer.writeToFile(saveFile, dimension.pack());
+				@Override
+				public void execute() throws Exception
+				{
+					compactStore.write(packedDim);
+				}
+				
+				@Override
+				public String describe()
+				{
+					return BinaryDimDataStore.LOG_FILE_NAME + " (dimension #" + packedDim.ID + ")";
+				}
+			});
 			return true;
 		}
 		catch (Exception e)
@@ -379,7 +790,25 @@ public class DDSaveHandler
 		}
 	}
 	
-	private static void printException(Exception e, boolean verbose)
+	private static boolean writeDimension(IPackable<PackedDimData> dimension, DDSaveWriter writer, String basePath, String backupPath)
+	{
+		try
+		{
+			// The save writer backs up the previous save file when it replaces it.
+			File saveFile = new File(basePath + dimension.name() + ".txt");
+			File backupFile = new File(backupPath + dimension.name() + ".txt");
+			writer.submit(saveFile, backupFile, dimDataWriter, dimension.pack());
+			return true;
+		}
+		catch (Exception e)
+		{
+			System.err.println("Could not save data for dimension #" + dimension.name() + ". The following error occurred:");
+			printException(e, true);
+			return false;
+		}
+	}
+	
+	static void printException(Exception e, boolean verbose)
 	{
 		if (e.getCause() == null)
 		{
@@ -410,14 +839,7 @@ public class DDSaveHandler
 	//TODO - make this more robust
 	public static DungeonData unpackDungeonData(PackedDungeonData packedDungeon)
 	{	
-		for(DungeonData data  : DungeonHelper.instance().getRegisteredDungeons())
-		{
-			if(data.schematicName().equals(packedDungeon.SchematicName))
-			{
-				return data;
-			}
-		}
-		return null;
+		return DungeonHelper.instance().getRegisteredDungeon(packedDungeon.SchematicName);
 	}
 
 	public static List<Integer> readBlacklist(File blacklistFile, BlacklistProcessor reader)
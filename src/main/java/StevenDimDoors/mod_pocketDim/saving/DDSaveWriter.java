@@ -0,0 +1,289 @@
+package StevenDimDoors.mod_pocketDim.saving;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import StevenDimDoors.mod_pocketDim.util.BaseConfigurationProcessor;
+import com.google.common.io.Files;
+
+/**
+ * Writes save data snapshots to disk on a dedicated background thread. The server thread only
+ * needs to take a snapshot of its data and submit it here. Serialization, validation and file I/O
+ * all happen on the writer thread. Repeated saves of the same file are coalesced so that only the
+ * most recent snapshot is ever written.
+ */
+public class DDSaveWriter implements Runnable
+{
+	private static final String THREAD_NAME = "Dimensional Doors Save Writer";
+
+	/**
+	 * A unit of work performed by the writer thread. Tasks must only operate on data that
+	 * won't be modified by other threads, such as snapshots.
+	 */
+	public static abstract class SaveTask
+	{
+		public abstract void execute() throws Exception;
+		public abstract String describe();
+	}
+
+	private static class FileSaveTask<T> extends SaveTask
+	{
+		private final File saveFile;
+		private final File backupFile;
+		private final BaseConfigurationProcessor<T> writer;
+		private final T data;
+
+		public FileSaveTask(File saveFile, File backupFile, BaseConfigurationProcessor<T> writer, T data)
+		{
+			this.saveFile = saveFile;
+			this.backupFile = backupFile;
+			this.writer = writer;
+			this.data = data;
+		}
+
+		@Override
+		public void execute() throws Exception
+		{
+			// Write the data to a temporary file first and only replace the real file once the
+			// write has succeeded. That way a crash or a failed write never leaves us with a
+			// truncated save file.
+			String savePath = saveFile.getAbsolutePath();
+			File tempFile = new File(savePath.substring(0, savePath.lastIndexOf('.')) + ".tmp");
+			writer.writeToFile(tempFile, data);
+
+			if (saveFile.exists())
+			{
+				if (backupFile != null)
+				{
+					Files.move(saveFile, backupFile);
+				}
+				else
+				{
+					saveFile.delete();
+				}
+			}
+			if (!tempFile.renameTo(saveFile))
+			{
+				throw new IOException("Could not move " + tempFile.getAbsolutePath() + " to " + savePath);
+			}
+		}
+
+		@Override
+		public String describe()
+		{
+			return saveFile.getAbsolutePath();
+		}
+	}
+
+	private final Object lock = new Object();
+	private final LinkedHashMap<String, SaveTask> pending = new LinkedHashMap<String, SaveTask>();
+	private final LinkedHashMap<String, SaveTask> failed = new LinkedHashMap<String, SaveTask>();
+	private String activeKey = null;
+	private Thread thread = null;
+	private boolean running = false;
+
+	public DDSaveWriter() { }
+
+	/**
+	 * Queues a snapshot to be written to the specified file. If a snapshot for the same file is
+	 * still waiting to be written, it is replaced by the new one.
+	 *
+	 * @param saveFile - the file that will hold the data
+	 * @param backupFile - the file that the previous version of saveFile is moved to, or null to discard it
+	 * @param writer - the processor used to serialize the data
+	 * @param data - a snapshot of the data to write. It must not be modified after submission.
+	 */
+	public <T> void submit(File saveFile, File backupFile, BaseConfigurationProcessor<T> writer, T data)
+	{
+		submit(saveFile.getAbsolutePath(), new FileSaveTask<T>(saveFile, backupFile, writer, data));
+	}
+
+	/**
+	 * Queues a task under the specified key. If a task with the same key is still waiting to run,
+	 * it is discarded and the new task is placed at the end of the queue.
+	 */
+	public void submit(String key, SaveTask task)
+	{
+		synchronized (lock)
+		{
+			// Give any tasks that failed earlier another chance,
+			// unless they've been superseded by newer ones.
+			if (!failed.isEmpty())
+			{
+				for (Entry<String, SaveTask> entry : failed.entrySet())
+				{
+					if (!pending.containsKey(entry.getKey()))
+					{
+						pending.put(entry.getKey(), entry.getValue());
+					}
+				}
+				failed.clear();
+			}
+			pending.remove(key);
+			pending.put(key, task);
+
+			// If the writer thread is still draining the queue after a shutdown
+			// request, then it will simply keep running.
+			running = true;
+			if (thread == null)
+			{
+				thread = new Thread(this, THREAD_NAME);
+				thread.setDaemon(true);
+				thread.start();
+			}
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Discards any queued snapshot for the specified file. If the file is being written at the moment,
+	 * this method blocks until the write completes. This should be called before deleting a save file
+	 * so that a pending write doesn't bring it back.
+	 */
+	public void cancel(File saveFile)
+	{
+		cancel(saveFile.getAbsolutePath());
+	}
+
+	/**
+	 * Discards any queued task with the specified key, waiting for it to finish if it's running.
+	 */
+	public void cancel(String key)
+	{
+		synchronized (lock)
+		{
+			pending.remove(key);
+			failed.remove(key);
+			while (key.equals(activeKey) && waitOnLock());
+		}
+	}
+
+	/**
+	 * Blocks until every snapshot submitted so far has been written to disk.
+	 */
+	public void flush()
+	{
+		synchronized (lock)
+		{
+			while (thread != null && (!pending.isEmpty() || activeKey != null) && waitOnLock());
+		}
+	}
+
+	/**
+	 * Writes out any remaining snapshots and stops the writer thread.
+	 * The writer will start up again if more snapshots are submitted later.
+	 */
+	public void shutdown()
+	{
+		Thread current;
+		synchronized (lock)
+		{
+			current = thread;
+			running = false;
+			lock.notifyAll();
+		}
+		if (current != null)
+		{
+			try
+			{
+				current.join();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+		synchronized (lock)
+		{
+			if (!failed.isEmpty())
+			{
+				System.err.println("Dimensional Doors could not write " + failed.size() + " save file(s) before shutting down.");
+				failed.clear();
+			}
+		}
+	}
+
+	public int getPendingCount()
+	{
+		synchronized (lock)
+		{
+			return pending.size() + (activeKey != null ? 1 : 0);
+		}
+	}
+
+	@Override
+	public void run()
+	{
+		SaveTask task;
+
+		while (true)
+		{
+			synchronized (lock)
+			{
+				// Keep going after a shutdown request until the queue has been drained
+				while (running && pending.isEmpty())
+				{
+					if (!waitOnLock())
+					{
+						// Nobody should interrupt the writer, but if it happens, treat it as a shutdown request
+						running = false;
+					}
+				}
+				if (pending.isEmpty())
+				{
+					thread = null;
+					lock.notifyAll();
+					return;
+				}
+				Iterator<Entry<String, SaveTask>> iterator = pending.entrySet().iterator();
+				Entry<String, SaveTask> entry = iterator.next();
+				iterator.remove();
+				activeKey = entry.getKey();
+				task = entry.getValue();
+			}
+
+			boolean succeeded = write(task);
+
+			synchronized (lock)
+			{
+				if (!succeeded && !pending.containsKey(activeKey))
+				{
+					failed.put(activeKey, task);
+				}
+				activeKey = null;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	private static boolean write(SaveTask task)
+	{
+		try
+		{
+			task.execute();
+			return true;
+		}
+		catch (Exception e)
+		{
+			System.err.println("Could not save data to " + task.describe() + ". The following error occurred:");
+			DDSaveHandler.printException(e, true);
+			return false;
+		}
+	}
+
+	private boolean waitOnLock()
+	{
+		try
+		{
+			lock.wait();
+			return true;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
@@ -16,9 +16,15 @@ public class BlockRotator
 	public final static int EAST_DOOR_METADATA = 0;
 	private final static int BLOCK_ID_COUNT = 4096;
 	
+	private final static int METADATA_COUNT = 16;
+	
 	//Provides a fast lookup table for whether blocks have orientations
 	private final static boolean[] hasOrientations = new boolean[BLOCK_ID_COUNT];
 	
+	//Lookup tables with the rotated metadata of each block with orientations, indexed by
+	//(turns * METADATA_COUNT + metadata). Blocks without orientations have null tables.
+	private final static int[][] rotationTables = new int[BLOCK_ID_COUNT][];
+	
 	static
 	{
 		hasOrientations[Block.dispenser.blockID] = true;
@@ -73,6 +79,25 @@ public class BlockRotator
 		hasOrientations[mod_pocketDim.goldenDimensionalDoor.blockID] = true;
 		hasOrientations[mod_pocketDim.personalDimDoor.blockID] = true;
 		
+		//Precompute every rotation so that transforming metadata only takes a lookup.
+		//The tables are built using rotateMetadataBy90() so they always agree with it.
+		for (int blockID = 0; blockID < BLOCK_ID_COUNT; blockID++)
+		{
+			if (hasOrientations[blockID])
+			{
+				int[] table = new int[4 * METADATA_COUNT];
+				for (int metadata = 0; metadata < METADATA_COUNT; metadata++)
+				{
+					int rotated = metadata;
+					for (int turns = 0; turns < 4; turns++)
+					{
+						table[turns * METADATA_COUNT + metadata] = rotated;
+						rotated = rotateMetadataBy90(rotated, blockID);
+					}
+				}
+				rotationTables[blockID] = table;
+			}
+		}
 	}
 
 	public static int transformMetadata(int metadata, int turns, int blockID)
@@ -84,6 +109,25 @@ public class BlockRotator
 		turns += 1 << 16;
 		turns %= 4;
 		
+		int[] table = rotationTables[blockID];
+		if (table != null && metadata >= 0 && metadata < METADATA_COUNT)
+		{
+			return table[turns * METADATA_COUNT + metadata];
+		}
+		//Metadata values outside the normal range aren't in the tables
+		return rotateMetadata(metadata, turns, blockID);
+	}
+	
+	/**
+	 * Rotates metadata one quarter turn at a time, the way transformMetadata() did before the rotation
+	 * tables were added. It's still used for metadata values outside the tables.
+	 */
+	static int rotateMetadata(int metadata, int turns, int blockID)
+	{
+		//Correct negative turns and get the minimum number of rotations needed
+		turns += 1 << 16;
+		turns %= 4;
+		
 		if (hasOrientations[blockID])
 		{
 			while (turns > 0)
@@ -0,0 +1,142 @@
+package StevenDimDoors.mod_pocketDim.schematic;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+
+import net.minecraft.block.Block;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.packet.Packet51MapChunk;
+import net.minecraft.server.management.PlayerManager;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import StevenDimDoors.mod_pocketDim.Point3D;
+
+/**
+ * Writes blocks directly into chunk storage, like ChunkBlockSetter, but is meant for placing large numbers
+ * of blocks at once. The chunk and 16-block-high section being written are kept between calls, so consecutive
+ * blocks in the same section skip the chunk lookups entirely. The expensive per-chunk work (marking the chunk
+ * as modified, relighting it, and resending it to clients) is deferred until finish() is called, at which point
+ * it's done once for each chunk that was touched.
+ *
+ * Sky light is recomputed for whole chunks, but block light is only updated around blocks that emit light or
+ * that replaced a block which emitted light. Light from existing sources that a new opaque block should have
+ * blocked is not removed, so this class is best suited to building in areas that are unlit or empty.
+ */
+public class BulkBlockSetter implements IBlockSetter
+{
+	private final boolean ignoreAir;
+	private final LinkedHashSet<Chunk> modifiedChunks;
+	private final ArrayList<Point3D> lightChanges;
+
+	private Chunk currentChunk;
+	private ExtendedBlockStorage currentSection;
+	private int currentChunkX;
+	private int currentChunkZ;
+	private int currentSectionY;
+
+	public BulkBlockSetter(boolean ignoreAir)
+	{
+		this.ignoreAir = ignoreAir;
+		this.modifiedChunks = new LinkedHashSet<Chunk>();
+		this.lightChanges = new ArrayList<Point3D>();
+		this.currentChunk = null;
+		this.currentSection = null;
+	}
+
+	@Override
+	public void setBlock(World world, int x, int y, int z, int blockID, int metadata)
+	{
+		if ((blockID == 0 && ignoreAir) || (blockID != 0 && Block.blocksList[blockID] == null))
+		{
+			return;
+		}
+
+		int chunkX = x >> 4;
+		int chunkZ = z >> 4;
+		int sectionY = y >> 4;
+
+		if (currentChunk == null || chunkX != currentChunkX || chunkZ != currentChunkZ)
+		{
+			currentChunk = world.getChunkFromChunkCoords(chunkX, chunkZ);
+			currentChunkX = chunkX;
+			currentChunkZ = chunkZ;
+			currentSection = null;
+			modifiedChunks.add(currentChunk);
+		}
+		if (currentSection == null || sectionY != currentSectionY)
+		{
+			ExtendedBlockStorage[] sections = currentChunk.getBlockStorageArray();
+			if (sectionY < 0 || sectionY >= sections.length)
+			{
+				return;
+			}
+			currentSection = sections[sectionY];
+			currentSectionY = sectionY;
+			if (currentSection == null)
+			{
+				currentSection = new ExtendedBlockStorage(sectionY << 4, !world.provider.hasNoSky);
+				sections[sectionY] = currentSection;
+			}
+		}
+		int previousID = currentSection.getExtBlockID(x & 15, y & 15, z & 15);
+		if (Block.lightValue[blockID] > 0 || Block.lightValue[previousID] > 0)
+		{
+			lightChanges.add(new Point3D(x, y, z));
+		}
+		currentSection.setExtBlockID(x & 15, y & 15, z & 15, blockID);
+		currentSection.setExtBlockMetadata(x & 15, y & 15, z & 15, metadata);
+	}
+
+	/**
+	 * Completes the placement of all the blocks set so far. Every modified chunk is marked for saving
+	 * and relit, block light is spread from any light sources that were placed or removed, and players
+	 * who can see a chunk are sent its new contents.
+	 */
+	public void finish(World world)
+	{
+		PlayerManager playerManager = (world instanceof WorldServer) ? ((WorldServer) world).getPlayerManager() : null;
+
+		for (Chunk chunk : modifiedChunks)
+		{
+			chunk.generateSkylightMap();
+			chunk.setChunkModified();
+		}
+		// Block light can cross chunk borders, so it's only updated once all the chunks have their blocks
+		for (Point3D point : lightChanges)
+		{
+			world.updateLightByType(EnumSkyBlock.Block, point.getX(), point.getY(), point.getZ());
+		}
+		for (Chunk chunk : modifiedChunks)
+		{
+			if (playerManager != null)
+			{
+				resendChunk(world, playerManager, chunk);
+			}
+		}
+		modifiedChunks.clear();
+		lightChanges.clear();
+		currentChunk = null;
+		currentSection = null;
+	}
+
+	private static void resendChunk(World world, PlayerManager playerManager, Chunk chunk)
+	{
+		// Pockets are usually built before anyone can see them, so avoid creating the packet unless it's needed
+		Packet51MapChunk packet = null;
+		for (Object entity : world.playerEntities)
+		{
+			EntityPlayerMP player = (EntityPlayerMP) entity;
+			if (playerManager.isPlayerWatchingChunk(player, chunk.xPosition, chunk.zPosition))
+			{
+				if (packet == null)
+				{
+					packet = new Packet51MapChunk(chunk, true, 0xFFFF);
+				}
+				player.playerNetServerHandler.sendPacketToPlayer(packet);
+			}
+		}
+	}
+}
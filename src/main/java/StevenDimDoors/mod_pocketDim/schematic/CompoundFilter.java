@@ -43,6 +43,19 @@ public class CompoundFilter extends SchematicFilter {
 		return true;
 	}
 	
+	@Override
+	protected boolean modifiesBlocks()
+	{
+		for (SchematicFilter filter : filters)
+		{
+			if (filter.modifiesBlocks())
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	@Override
 	protected boolean applyToBlock(int index, short[] blocks, byte[] metadata)
 	{
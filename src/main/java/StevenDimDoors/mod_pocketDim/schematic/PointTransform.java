@@ -0,0 +1,98 @@
+package StevenDimDoors.mod_pocketDim.schematic;
+
+import StevenDimDoors.mod_pocketDim.Point3D;
+
+/**
+ * Represents BlockRotator.transformPoint() for a fixed source origin, angle and destination origin
+ * in its affine form, so that many points can be transformed with a few multiplications and additions.
+ * Since rotations only happen around the Y axis, a unit step along X or Z in the source coordinate system
+ * always corresponds to a fixed step along X and Z in the destination system.
+ */
+public class PointTransform
+{
+	private final int offsetX;
+	private final int offsetY;
+	private final int offsetZ;
+	private final int xStepX;
+	private final int xStepZ;
+	private final int zStepX;
+	private final int zStepZ;
+
+	public PointTransform(Point3D srcOrigin, int angle, Point3D destOrigin)
+	{
+		//Derive the transformation from transformPoint() itself so that the two can't disagree
+		Point3D origin = new Point3D(0, 0, 0);
+		Point3D unitX = new Point3D(1, 0, 0);
+		Point3D unitZ = new Point3D(0, 0, 1);
+		BlockRotator.transformPoint(origin, srcOrigin, angle, destOrigin);
+		BlockRotator.transformPoint(unitX, srcOrigin, angle, destOrigin);
+		BlockRotator.transformPoint(unitZ, srcOrigin, angle, destOrigin);
+
+		this.offsetX = origin.getX();
+		this.offsetY = origin.getY();
+		this.offsetZ = origin.getZ();
+		this.xStepX = unitX.getX() - origin.getX();
+		this.xStepZ = unitX.getZ() - origin.getZ();
+		this.zStepX = unitZ.getX() - origin.getX();
+		this.zStepZ = unitZ.getZ() - origin.getZ();
+	}
+
+	public int transformX(int x, int z)
+	{
+		return offsetX + x * xStepX + z * zStepX;
+	}
+
+	public int transformY(int y)
+	{
+		return offsetY + y;
+	}
+
+	public int transformZ(int x, int z)
+	{
+		return offsetZ + x * xStepZ + z * zStepZ;
+	}
+
+	/**
+	 * Transforms a point, overwriting its coordinates with the result, just like BlockRotator.transformPoint().
+	 */
+	public void apply(Point3D point)
+	{
+		int x = point.getX();
+		int z = point.getZ();
+		point.setX(transformX(x, z));
+		point.setY(transformY(point.getY()));
+		point.setZ(transformZ(x, z));
+	}
+
+	/**
+	 * @return the change in the destination X coordinate for each step along the source X axis
+	 */
+	public int getXStepX()
+	{
+		return xStepX;
+	}
+
+	/**
+	 * @return the change in the destination Z coordinate for each step along the source X axis
+	 */
+	public int getXStepZ()
+	{
+		return xStepZ;
+	}
+
+	/**
+	 * @return the change in the destination X coordinate for each step along the source Z axis
+	 */
+	public int getZStepX()
+	{
+		return zStepX;
+	}
+
+	/**
+	 * @return the change in the destination Z coordinate for each step along the source Z axis
+	 */
+	public int getZStepZ()
+	{
+		return zStepZ;
+	}
+}
@@ -30,6 +30,10 @@ public class Schematic {
 	protected short[] blocks;
 	protected byte[] metadata;
 	protected NBTTagList tileEntities;
+	
+	//Indicates whether blocks and metadata are shared with other schematics.
+	//If so, they must be copied before they're modified.
+	private boolean isBlockDataShared = false;
 
 	protected Schematic(short width, short height, short length, short[] blocks, byte[] metadata, NBTTagList tileEntities)
 	{
@@ -52,6 +56,20 @@ public class Schematic {
 		this.metadata = source.metadata;
 		this.tileEntities = source.tileEntities;
 	}
+	
+	protected Schematic(Schematic source, boolean copyOnWrite)
+	{
+		//Copy-on-write constructor - the copy shares block data with the source until either
+		//of them applies a filter. Tile entities are copied right away since copyToWorld()
+		//modifies them.
+		this(source);
+		if (copyOnWrite)
+		{
+			this.tileEntities = (NBTTagList) source.tileEntities.copy();
+			this.isBlockDataShared = true;
+			source.isBlockDataShared = true;
+		}
+	}
 
 	public int calculateIndex(int x, int y, int z)
 	{
@@ -110,6 +128,11 @@ public class Schematic {
 	{
 		return (NBTTagList) tileEntities.copy();
 	}
+	
+	public int getTileEntityCount()
+	{
+		return tileEntities.tagCount();
+	}
 
 	public static Schematic readFromFile(String schematicPath) throws FileNotFoundException, InvalidSchematicException
 	{
@@ -359,6 +382,13 @@ public class Schematic {
 	
 	public boolean applyFilter(SchematicFilter filter)
 	{
+		//Only copy shared block data if the filter might change it
+		if (isBlockDataShared && filter.modifiesBlocks())
+		{
+			blocks = blocks.clone();
+			metadata = metadata.clone();
+			isBlockDataShared = false;
+		}
 		return filter.apply(this, this.blocks, this.metadata);
 	}
 	
@@ -370,7 +400,9 @@ public class Schematic {
 		}
 		else
 		{
-			copyToWorld(world, x, y, z, new ChunkBlockSetter(ignoreAir));
+			BulkBlockSetter blockSetter = new BulkBlockSetter(ignoreAir);
+			copyToWorld(world, x, y, z, blockSetter);
+			blockSetter.finish(world);
 		}
 	}
 	
@@ -48,6 +48,15 @@ public class SchematicFilter {
 		return true;
 	}
 	
+	/**
+	 * Indicates whether this filter may change the blocks or metadata it's applied to. Filters that only
+	 * search a schematic should return false so that Schematic doesn't need to copy shared block data for them.
+	 */
+	protected boolean modifiesBlocks()
+	{
+		return true;
+	}
+	
 	@Override
 	public String toString()
 	{
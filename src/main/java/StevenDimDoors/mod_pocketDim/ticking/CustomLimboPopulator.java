@@ -1,5 +1,16 @@
 package StevenDimDoors.mod_pocketDim.ticking;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Random;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
@@ -14,6 +25,7 @@ import StevenDimDoors.mod_pocketDim.core.NewDimData;
 import StevenDimDoors.mod_pocketDim.core.PocketManager;
 import StevenDimDoors.mod_pocketDim.helpers.yCoordHelper;
 import StevenDimDoors.mod_pocketDim.util.ChunkLocation;
+import StevenDimDoors.mod_pocketDim.util.VarInt;
 
 public class CustomLimboPopulator implements IRegularTickReceiver {
 
@@ -22,67 +34,186 @@ public class CustomLimboPopulator implements IRegularTickReceiver {
 	private static final int MAX_MONOLITH_SPAWN_Y = 245;
 	private static final int CHUNK_SIZE = 16;
 	private static final int MONOLITH_SPAWNING_INTERVAL = 1;
+	private static final int SAVE_FORMAT_VERSION = 1;
 	
 	private DDProperties properties;
-	private ConcurrentLinkedQueue<ChunkLocation> locations;
+	private final long timeBudget;
+	private final String filePath;
 	
-	public CustomLimboPopulator(IRegularTickSender sender, DDProperties properties)
+	// New requests can come in from any thread, so they're collected in a concurrent queue. Each tick, they're
+	// moved into a set of pending locations that only the server thread touches. The set drops duplicate
+	// requests and keeps the remaining locations in order, so that chunks are populated in the order they
+	// were generated even if it takes several ticks to get through them.
+	private ConcurrentLinkedQueue<ChunkLocation> requests;
+	private LinkedHashSet<ChunkLocation> locations;
+	
+	// Metrics
+	private long processedCount = 0;
+	private int lastProcessedCount = 0;
+	private int maxPendingCount = 0;
+	
+	public CustomLimboPopulator(IRegularTickSender sender, DDProperties properties, String filePath)
 	{
 		this.properties = properties;
-		this.locations = new ConcurrentLinkedQueue<ChunkLocation>();
+		this.timeBudget = Math.max(properties.LimboPopulationTimeBudget, 0) * 1000L;
+		this.filePath = filePath;
+		this.requests = new ConcurrentLinkedQueue<ChunkLocation>();
+		this.locations = new LinkedHashSet<ChunkLocation>();
 		sender.registerReceiver(this, MONOLITH_SPAWNING_INTERVAL, false);
+		readFromFile();
 	}
 	
 	@Override
 	public void notifyTick() {
 		
-		World limboWorld = null;
+		// Move any new spawning requests into our set of pending locations
+		ChunkLocation request;
+		while ((request = requests.poll()) != null)
+		{
+			locations.add(request);
+		}
+		maxPendingCount = Math.max(maxPendingCount, locations.size());
+		lastProcessedCount = 0;
+		
+		if (locations.isEmpty())
+		{
+			return;
+		}
+		
+		// Check if mob spawning is allowed. If it isn't, these chunks simply don't get Monoliths or gateways.
+		if (!isMobSpawningAllowed())
+		{
+			locations.clear();
+			return;
+		}
 		
-		// Check if any new spawning requests have come in
-		if (!locations.isEmpty())
+		// Loop over the locations and call the appropriate function depending on whether the request
+		// is for Limbo or for a pocket dimension. Stop once we run out of time and leave the rest for
+		// later ticks, but always process at least one location so that we make progress.
+		World limboWorld = null;
+		long deadline = (timeBudget > 0) ? System.nanoTime() + timeBudget : Long.MAX_VALUE;
+		Iterator<ChunkLocation> iterator = locations.iterator();
+		while (iterator.hasNext() && (lastProcessedCount == 0 || System.nanoTime() < deadline))
 		{
-			// Check if mob spawning is allowed
-			if (isMobSpawningAllowed())
+			ChunkLocation location = iterator.next();
+			iterator.remove();
+			lastProcessedCount++;
+			
+			if (location.DimensionID == properties.LimboDimensionID)
 			{
-				// Loop over the locations and call the appropriate function depending
-				// on whether the request is for Limbo or for a pocket dimension.
-				for (ChunkLocation location : locations)
+				// Limbo chunk
+				
+				// SenseiKiwi: Check if we haven't loaded Limbo for another request in this request
+				// cycle. If so, try to load Limbo up. This solves a strange issue with ChickenChunks
+				// where CC somehow forces chunks to generate in Limbo if LimboProvider.canRespawnHere()
+				// is true, yet when execution reaches this point, Limbo isn't loaded anymore! My theory
+				// is that CC force-loads a chunk for some reason, but since there are no players around,
+				// Limbo immediately unloads after standard world gen runs, and before this code can run.
+				
+				if (limboWorld == null)
 				{
-					if (location.DimensionID == properties.LimboDimensionID)
-					{
-						// Limbo chunk
-						
-						// SenseiKiwi: Check if we haven't loaded Limbo for another request in this request
-						// cycle. If so, try to load Limbo up. This solves a strange issue with ChickenChunks
-						// where CC somehow forces chunks to generate in Limbo if LimboProvider.canRespawnHere()
-						// is true, yet when execution reaches this point, Limbo isn't loaded anymore! My theory
-						// is that CC force-loads a chunk for some reason, but since there are no players around,
-						// Limbo immediately unloads after standard world gen runs, and before this code can run.
-						
-						if (limboWorld == null)
-						{
-							limboWorld = PocketManager.loadDimension(properties.LimboDimensionID);
-						}
-						placeMonolithsInLimbo(limboWorld, location.ChunkX, location.ChunkZ);
-						mod_pocketDim.gatewayGenerator.generate(limboWorld.rand, location.ChunkX, location.ChunkZ,
-								limboWorld, limboWorld.getChunkProvider(), limboWorld.getChunkProvider());
-					}
-					else
-					{
-						//Pocket dimension chunk
-						placeMonolithsInPocket(location.DimensionID, location.ChunkX, location.ChunkZ);
-					}
+					limboWorld = PocketManager.loadDimension(properties.LimboDimensionID);
 				}
+				placeMonolithsInLimbo(limboWorld, location.ChunkX, location.ChunkZ);
+				mod_pocketDim.gatewayGenerator.generate(limboWorld.rand, location.ChunkX, location.ChunkZ,
+						limboWorld, limboWorld.getChunkProvider(), limboWorld.getChunkProvider());
+			}
+			else
+			{
+				//Pocket dimension chunk
+				placeMonolithsInPocket(location.DimensionID, location.ChunkX, location.ChunkZ);
 			}
-			
-			locations.clear();
 		}
+		processedCount += lastProcessedCount;
 	}
 
 	public void registerChunkForPopulation(int dimensionID, int chunkX, int chunkZ)
 	{
 		ChunkLocation location = new ChunkLocation(dimensionID, chunkX, chunkZ);
-		locations.add(location);
+		requests.add(location);
+	}
+	
+	public int getPendingCount()
+	{
+		return locations.size() + requests.size();
+	}
+	
+	private void readFromFile()
+	{
+		// Restore the locations that were still waiting to be populated when the server last stopped
+		try
+		{
+			DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath)));
+			try
+			{
+				if (input.readInt() != SAVE_FORMAT_VERSION)
+				{
+					return;
+				}
+				int count = VarInt.readUnsigned(input);
+				for (int k = 0; k < count; k++)
+				{
+					int dimensionID = VarInt.readSigned(input);
+					int chunkX = VarInt.readSigned(input);
+					int chunkZ = VarInt.readSigned(input);
+					locations.add(new ChunkLocation(dimensionID, chunkX, chunkZ));
+				}
+			}
+			finally
+			{
+				input.close();
+			}
+		}
+		catch (FileNotFoundException e) { }
+		catch (IOException e)
+		{
+			System.err.println("An unexpected exception occurred while trying to read Limbo population data:");
+			System.err.println(e.toString());
+		}
+	}
+	
+	public void writeToFile()
+	{
+		// Take in any requests that haven't been moved into the pending set yet
+		ChunkLocation request;
+		while ((request = requests.poll()) != null)
+		{
+			locations.add(request);
+		}
+		
+		try
+		{
+			File file = new File(filePath);
+			file.getParentFile().mkdirs();
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			try
+			{
+				output.writeInt(SAVE_FORMAT_VERSION);
+				VarInt.writeUnsigned(output, locations.size());
+				for (ChunkLocation location : locations)
+				{
+					VarInt.writeSigned(output, location.DimensionID);
+					VarInt.writeSigned(output, location.ChunkX);
+					VarInt.writeSigned(output, location.ChunkZ);
+				}
+			}
+			finally
+			{
+				output.close();
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println("An unexpected exception occurred while trying to write Limbo population data:");
+			System.err.println(e.toString());
+		}
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.format("Limbo population: %d pending, %d processed, %d last tick, %d max pending",
+				getPendingCount(), processedCount, lastProcessedCount, maxPendingCount);
 	}
 	
 	private void placeMonolithsInPocket(int dimensionID, int chunkX, int chunkZ)
@@ -3,11 +3,11 @@ package StevenDimDoors.mod_pocketDim.ticking;
 import StevenDimDoors.mod_pocketDim.world.LimboDecay;
 
 /**
- * Handles scheduling of periodic fast Limbo decay operations.
+ * Handles scheduling of periodic fast and spread Limbo decay operations.
  */
 public class LimboDecayScheduler implements IRegularTickReceiver {
 	
-	private static final int LIMBO_DECAY_INTERVAL = 10; //Apply fast decay every 10 ticks
+	private static final int LIMBO_DECAY_INTERVAL = 10; //Apply decay every 10 ticks
 	
 	private LimboDecay decay;
 	
@@ -18,11 +18,12 @@ public class LimboDecayScheduler implements IRegularTickReceiver {
 	}
 
 	/**
-	 * Applies fast Limbo decay periodically.
+	 * Applies fast and spread Limbo decay periodically.
 	 */
 	@Override
 	public void notifyTick()
 	{
 		decay.applyRandomFastDecay();
+		decay.applySpreadDecay(LIMBO_DECAY_INTERVAL);
 	}
 }
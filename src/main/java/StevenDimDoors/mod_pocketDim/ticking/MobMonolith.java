@@ -28,6 +28,7 @@ public class MobMonolith extends EntityFlying implements IMob
 	private static final int MAX_SOUND_COOLDOWN = 200;
 	private static final int MAX_AGGRO_RANGE = 35;
 	private static final int AGGRO_WATCHER_INDEX = 16;
+	private static final int LINE_OF_SIGHT_INTERVAL = 4; // Recheck visibility of the same player every 4 ticks
 	
 	private static final float WIDTH = 3f;
 	private static final float HEIGHT = 3f;
@@ -37,6 +38,9 @@ public class MobMonolith extends EntityFlying implements IMob
 	private short aggro = 0;
 	private int soundTime = 0;
 	private final short aggroCap;
+	private PlayerProximityIndex proximityIndex = null;
+	private EntityPlayer visibilityTarget = null;
+	private boolean cachedVisibility = false;
 
 	private static DDProperties properties = null;
 
@@ -137,8 +141,12 @@ public class MobMonolith extends EntityFlying implements IMob
 		super.onEntityUpdate();
 		
 		// Check for players and update aggro levels even if there are no players in range
-		EntityPlayer player = this.worldObj.getClosestPlayerToEntity(this, MAX_AGGRO_RANGE);
-		boolean visibility = (player != null) ? player.canEntityBeSeen(this) : false;
+		if (proximityIndex == null)
+		{
+			proximityIndex = PlayerProximityIndex.forWorld(this.worldObj);
+		}
+		EntityPlayer player = proximityIndex.getClosestPlayer(this, MAX_AGGRO_RANGE);
+		boolean visibility = (player != null) ? this.canSeePlayer(player) : false;
 		this.updateAggroLevel(player, visibility);
 		
 		// Change orientation and face a player if one is in range
@@ -177,6 +185,19 @@ public class MobMonolith extends EntityFlying implements IMob
 		}
 	}
 
+	private boolean canSeePlayer(EntityPlayer player)
+	{
+		// Raytracing is expensive and Limbo can have many Monoliths watching the same player,
+		// so only recheck visibility periodically unless we've switched to another player.
+		// Offset the schedule by entity ID so that Monoliths don't all raytrace on the same tick.
+		if (player != visibilityTarget || (this.ticksExisted + this.entityId) % LINE_OF_SIGHT_INTERVAL == 0)
+		{
+			visibilityTarget = player;
+			cachedVisibility = player.canEntityBeSeen(this);
+		}
+		return cachedVisibility;
+	}
+
 	private void updateAggroLevel(EntityPlayer player, boolean visibility)
 	{
 		// If we're working on the server side, adjust aggro level
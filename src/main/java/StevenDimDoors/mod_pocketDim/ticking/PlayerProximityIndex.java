@@ -0,0 +1,165 @@
+package StevenDimDoors.mod_pocketDim.ticking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.MathHelper;
+import net.minecraft.world.World;
+
+/**
+ * Sorts the players in a world by X coordinate, so that Monoliths can find the closest player without scanning
+ * every player in the world. The list of players is refreshed at most once per tick, the first time the index
+ * is used during that tick. The players are only sorted when there are enough of them for that to pay off, so
+ * small worlds don't allocate anything. Distances are always measured using the players' current positions and
+ * ties are broken in the same order, so queries return the same player that World.getClosestPlayerToEntity()
+ * would.
+ *
+ * Each world has its own index and a world is only ticked by a single thread, so no locking is needed
+ * beyond finding the index for a world. An index holds on to its world's players, which refer back to the
+ * world, so indices must be removed with removeWorld() when their worlds are unloaded.
+ */
+public class PlayerProximityIndex
+{
+	// Below this many players, checking each of them is cheaper than searching the sorted list
+	private static final int SORTING_THRESHOLD = 16;
+	// Players may have moved a little since they were sorted, so searches cover this many extra blocks
+	private static final double MOVEMENT_MARGIN = 16;
+
+	private static final Map<World, PlayerProximityIndex> indices =
+			Collections.synchronizedMap(new HashMap<World, PlayerProximityIndex>());
+
+	private final ArrayList<EntityPlayer> players;
+	// Each entry holds a player's X block coordinate in its upper 32 bits and the player's index in players
+	// in its lower 32 bits. Sorting the entries sorts the players by X, then by their order in the world.
+	private long[] sortedPlayers;
+	private long lastUpdate;
+	private long lastSortUpdate;
+
+	private PlayerProximityIndex()
+	{
+		this.players = new ArrayList<EntityPlayer>();
+		this.sortedPlayers = null;
+		this.lastUpdate = Long.MIN_VALUE;
+		this.lastSortUpdate = Long.MIN_VALUE;
+	}
+
+	public static PlayerProximityIndex forWorld(World world)
+	{
+		synchronized (indices)
+		{
+			PlayerProximityIndex index = indices.get(world);
+			if (index == null)
+			{
+				index = new PlayerProximityIndex();
+				indices.put(world, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Discards the index for a world. This must be called when a world is unloaded, on both sides.
+	 */
+	public static void removeWorld(World world)
+	{
+		indices.remove(world);
+	}
+
+	/**
+	 * Finds the closest player to an entity within a given range. The entity must be in this index's world.
+	 * @return the closest player, or null if there are no players in range
+	 */
+	public EntityPlayer getClosestPlayer(Entity entity, double range)
+	{
+		update(entity.worldObj);
+		int count = players.size();
+		double rangeSquared = range * range;
+		if (count <= SORTING_THRESHOLD)
+		{
+			return scanPlayers(entity, rangeSquared);
+		}
+		sortPlayers();
+
+		// Only check the players whose X coordinates are in range
+		double reach = range + MOVEMENT_MARGIN;
+		int maxX = MathHelper.floor_double(entity.posX + reach);
+		int start = Arrays.binarySearch(sortedPlayers, 0, count, (long) MathHelper.floor_double(entity.posX - reach) << 32);
+		if (start < 0)
+		{
+			start = -start - 1;
+		}
+
+		EntityPlayer closest = null;
+		int closestIndex = 0;
+		double closestDistance = rangeSquared;
+		for (int k = start; k < count && (int) (sortedPlayers[k] >> 32) <= maxX; k++)
+		{
+			int index = (int) sortedPlayers[k];
+			EntityPlayer player = players.get(index);
+			double distance = player.getDistanceSqToEntity(entity);
+			// Break ties in favor of the player that comes first in the world, like World does
+			if (distance < closestDistance || (distance == closestDistance && closest != null && index < closestIndex))
+			{
+				closest = player;
+				closestIndex = index;
+				closestDistance = distance;
+			}
+		}
+		return closest;
+	}
+
+	private EntityPlayer scanPlayers(Entity entity, double rangeSquared)
+	{
+		EntityPlayer closest = null;
+		double closestDistance = rangeSquared;
+		for (EntityPlayer player : players)
+		{
+			double distance = player.getDistanceSqToEntity(entity);
+			if (distance < closestDistance)
+			{
+				closest = player;
+				closestDistance = distance;
+			}
+		}
+		return closest;
+	}
+
+	private void update(World world)
+	{
+		long time = world.getTotalWorldTime();
+		if (time == lastUpdate)
+		{
+			return;
+		}
+		lastUpdate = time;
+		players.clear();
+		for (Object playerObject : world.playerEntities)
+		{
+			players.add((EntityPlayer) playerObject);
+		}
+	}
+
+	private void sortPlayers()
+	{
+		if (lastSortUpdate == lastUpdate)
+		{
+			return;
+		}
+		lastSortUpdate = lastUpdate;
+		int count = players.size();
+		if (sortedPlayers == null || sortedPlayers.length < count)
+		{
+			sortedPlayers = new long[Math.max(count, 2 * SORTING_THRESHOLD)];
+		}
+		for (int index = 0; index < count; index++)
+		{
+			sortedPlayers[index] = ((long) MathHelper.floor_double(players.get(index).posX) << 32) | index;
+		}
+		Arrays.sort(sortedPlayers, 0, count);
+	}
+}
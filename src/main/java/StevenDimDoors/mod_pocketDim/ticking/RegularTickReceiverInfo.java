@@ -1,16 +1,20 @@
 package StevenDimDoors.mod_pocketDim.ticking;
 
+import StevenDimDoors.mod_pocketDim.util.DDStatistics;
+
 public class RegularTickReceiverInfo {
 	
 	public IRegularTickReceiver RegularTickReceiver;
 	public int Interval;
 	public boolean OnTickStart;
+	public DDStatistics.Metric Statistics;
 	
 	public RegularTickReceiverInfo(IRegularTickReceiver regularTickReceiver, int interval, boolean onTickStart)
 	{
 		this.RegularTickReceiver = regularTickReceiver;
 		this.Interval = interval;
 		this.OnTickStart = onTickStart;
+		this.Statistics = new DDStatistics.Metric(regularTickReceiver.getClass().getSimpleName());
 	}
 	
 }
@@ -0,0 +1,690 @@
+package StevenDimDoors.mod_pocketDim.ticking;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.monster.EntityEnderman;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.AxisAlignedBB;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.World;
+import net.minecraftforge.common.DimensionManager;
+import StevenDimDoors.mod_pocketDim.blocks.BlockRift;
+import StevenDimDoors.mod_pocketDim.config.DDProperties;
+import StevenDimDoors.mod_pocketDim.core.DimLink;
+import StevenDimDoors.mod_pocketDim.core.NewDimData;
+import StevenDimDoors.mod_pocketDim.core.PocketManager;
+import StevenDimDoors.mod_pocketDim.tileentities.TileEntityRift;
+import StevenDimDoors.mod_pocketDim.util.Point4D;
+import StevenDimDoors.mod_pocketDim.watcher.ClientLinkData;
+import StevenDimDoors.mod_pocketDim.watcher.IUpdateWatcher;
+
+/**
+ * Updates rifts on behalf of their tile entities on the server. Rifts that are close enough to affect each other
+ * are grouped into clusters, and each cluster is updated as a whole once every UPDATE_PERIOD ticks. The clusters
+ * are spread out across that period so that only a small share of them is updated on any given tick. Isolated
+ * rifts can't spread or spawn Endermen, so they cost almost nothing until another rift appears next to them.
+ *
+ * Rift tile entities register themselves the first time they tick and unregister when they're invalidated or
+ * their chunk unloads, so only loaded rifts are tracked. The cluster graph is updated incrementally: adding a rift
+ * merges the clusters around it, and removing a rift marks its cluster to be split apart the next time it's updated.
+ */
+public class RiftClusterManager implements IRegularTickReceiver
+{
+	private static final int RIFT_UPDATE_INTERVAL = 1; // Update a share of the clusters every tick
+	private static final int UPDATE_PERIOD = 200;
+	private static final int CLOSING_PERIOD = 40;
+	private static final int RIFT_INTERACTION_RANGE = 5;
+	private static final int RIFT_CLOSING_RANGE = 6;
+	private static final int MAX_ANCESTOR_LINKS = 2;
+	private static final int MAX_CHILD_LINKS = 1;
+	private static final int ENDERMAN_SPAWNING_CHANCE = 1;
+	private static final int MAX_ENDERMAN_SPAWNING_CHANCE = 32;
+	private static final int RIFT_SPREAD_CHANCE = 1;
+	private static final int MAX_RIFT_SPREAD_CHANCE = 256;
+	private static final int HOSTILE_ENDERMAN_CHANCE = 1;
+	private static final int MAX_HOSTILE_ENDERMAN_CHANCE = 3;
+
+	private static Random random = new Random();
+
+	private static class RiftNode
+	{
+		public final TileEntityRift tile;
+		public final Point4D location;
+		// The rifts within RIFT_CLOSING_RANGE of this one, which includes every rift within RIFT_INTERACTION_RANGE
+		public final ArrayList<RiftNode> neighbors;
+		public RiftCluster cluster;
+		public int clusterIndex;
+		public int visitMark;
+		public boolean closing;
+		public boolean removed;
+
+		public RiftNode(TileEntityRift tile, Point4D location)
+		{
+			this.tile = tile;
+			this.location = location;
+			this.neighbors = new ArrayList<RiftNode>(4);
+		}
+
+		public boolean isWithinRange(RiftNode other, int range)
+		{
+			return (Math.abs(location.getX() - other.location.getX()) <= range &&
+					Math.abs(location.getY() - other.location.getY()) <= range &&
+					Math.abs(location.getZ() - other.location.getZ()) <= range);
+		}
+
+		public int getDistance(RiftNode other)
+		{
+			return Math.abs(location.getX() - other.location.getX()) +
+					Math.abs(location.getY() - other.location.getY()) +
+					Math.abs(location.getZ() - other.location.getZ());
+		}
+	}
+
+	private static class RiftCluster
+	{
+		public final ArrayList<RiftNode> members;
+		public boolean mightSplit;
+		public boolean dead;
+
+		public RiftCluster()
+		{
+			this.members = new ArrayList<RiftNode>();
+		}
+
+		public void add(RiftNode node)
+		{
+			node.cluster = this;
+			node.clusterIndex = members.size();
+			members.add(node);
+		}
+
+		public void remove(RiftNode node)
+		{
+			// Move the last member into the removed member's place
+			RiftNode last = members.remove(members.size() - 1);
+			if (last != node)
+			{
+				last.clusterIndex = node.clusterIndex;
+				members.set(node.clusterIndex, last);
+			}
+			node.cluster = null;
+		}
+	}
+
+	/**
+	 * The rifts of a single dimension, grouped by chunk so that we can find the neighbors of new rifts.
+	 */
+	private static class DimensionRifts
+	{
+		public final HashMap<ChunkCoordIntPair, ArrayList<RiftNode>> chunks;
+
+		public DimensionRifts()
+		{
+			this.chunks = new HashMap<ChunkCoordIntPair, ArrayList<RiftNode>>();
+		}
+	}
+
+	private class LinkDeletionWatcher implements IUpdateWatcher<ClientLinkData>
+	{
+		@Override
+		public void onCreated(ClientLinkData link) { }
+
+		@Override
+		public void onDeleted(ClientLinkData link)
+		{
+			// Rifts without links must be removed. Don't change the world in the middle of
+			// deleting a link, though. Wait until our next tick.
+			if (nodes.containsKey(link.point))
+			{
+				orphanedRifts.add(link.point);
+			}
+		}
+
+		@Override
+		public void update(ClientLinkData link) { }
+	}
+
+	private final DDProperties properties;
+	private final BlockRift blockRift;
+	private final HashMap<Point4D, RiftNode> nodes;
+	private final HashMap<Integer, DimensionRifts> dimensions;
+	private final ArrayList<ArrayList<RiftCluster>> schedule;
+	private final ArrayList<RiftNode> closingRifts;
+	private final ArrayList<Point4D> orphanedRifts;
+	private final LinkDeletionWatcher linkWatcher;
+	private int tickCount = 0;
+	private int visitCounter = 0;
+
+	// Metrics
+	private int clusterCount = 0;
+	private long updatedClusterCount = 0;
+	private long updatedRiftCount = 0;
+
+	public RiftClusterManager(IRegularTickSender sender, DDProperties properties, BlockRift blockRift)
+	{
+		this.properties = properties;
+		this.blockRift = blockRift;
+		this.nodes = new HashMap<Point4D, RiftNode>();
+		this.dimensions = new HashMap<Integer, DimensionRifts>();
+		this.schedule = new ArrayList<ArrayList<RiftCluster>>(UPDATE_PERIOD);
+		for (int k = 0; k < UPDATE_PERIOD; k++)
+		{
+			schedule.add(new ArrayList<RiftCluster>());
+		}
+		this.closingRifts = new ArrayList<RiftNode>();
+		this.orphanedRifts = new ArrayList<Point4D>();
+		this.linkWatcher = new LinkDeletionWatcher();
+		sender.registerReceiver(this, RIFT_UPDATE_INTERVAL, false);
+		PocketManager.registerLinkWatcher(linkWatcher);
+	}
+
+	/**
+	 * Stops listening for deleted links. This should be called when the server stops.
+	 */
+	public void unregisterWatcher()
+	{
+		PocketManager.unregisterLinkWatcher(linkWatcher);
+	}
+
+	/**
+	 * Starts tracking a rift. Rifts that don't have a link are scheduled for removal instead.
+	 * @return true if the rift is being tracked, or false if it should try registering again later
+	 */
+	public boolean addRift(TileEntityRift tile)
+	{
+		World world = tile.worldObj;
+		Point4D location = new Point4D(tile.xCoord, tile.yCoord, tile.zCoord, world.provider.dimensionId);
+		if (PocketManager.getLink(location) == null)
+		{
+			orphanedRifts.add(location);
+			return false;
+		}
+
+		RiftNode previous = nodes.get(location);
+		if (previous != null)
+		{
+			removeRift(previous);
+		}
+		RiftNode node = new RiftNode(tile, location);
+		nodes.put(location, node);
+
+		// Find the rifts around the new one and link them together in the graph
+		DimensionRifts dimension = getDimension(location.getDimension());
+		int minChunkX = (location.getX() - RIFT_CLOSING_RANGE) >> 4;
+		int maxChunkX = (location.getX() + RIFT_CLOSING_RANGE) >> 4;
+		int minChunkZ = (location.getZ() - RIFT_CLOSING_RANGE) >> 4;
+		int maxChunkZ = (location.getZ() + RIFT_CLOSING_RANGE) >> 4;
+		for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++)
+		{
+			for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++)
+			{
+				ArrayList<RiftNode> chunkNodes = dimension.chunks.get(new ChunkCoordIntPair(chunkX, chunkZ));
+				if (chunkNodes != null)
+				{
+					for (RiftNode other : chunkNodes)
+					{
+						if (node.isWithinRange(other, RIFT_CLOSING_RANGE))
+						{
+							node.neighbors.add(other);
+							other.neighbors.add(node);
+						}
+					}
+				}
+			}
+		}
+		ChunkCoordIntPair coordinates = new ChunkCoordIntPair(location.getX() >> 4, location.getZ() >> 4);
+		ArrayList<RiftNode> chunkNodes = dimension.chunks.get(coordinates);
+		if (chunkNodes == null)
+		{
+			chunkNodes = new ArrayList<RiftNode>();
+			dimension.chunks.put(coordinates, chunkNodes);
+		}
+		chunkNodes.add(node);
+
+		// Join the largest neighboring cluster and merge any others into it
+		RiftCluster cluster = null;
+		for (RiftNode neighbor : node.neighbors)
+		{
+			if (cluster == null || neighbor.cluster.members.size() > cluster.members.size())
+			{
+				cluster = neighbor.cluster;
+			}
+		}
+		if (cluster == null)
+		{
+			cluster = new RiftCluster();
+			scheduleCluster(cluster);
+		}
+		for (RiftNode neighbor : node.neighbors)
+		{
+			if (neighbor.cluster != cluster)
+			{
+				mergeClusters(neighbor.cluster, cluster);
+			}
+		}
+		cluster.add(node);
+
+		if (tile.shouldClose)
+		{
+			startClosing(node);
+		}
+		return true;
+	}
+
+	/**
+	 * Stops tracking a rift. This should be called when its tile entity is invalidated or its chunk unloads.
+	 */
+	public void removeRift(TileEntityRift tile)
+	{
+		Point4D location = new Point4D(tile.xCoord, tile.yCoord, tile.zCoord, tile.worldObj.provider.dimensionId);
+		RiftNode node = nodes.get(location);
+		if (node != null && node.tile == tile)
+		{
+			removeRift(node);
+		}
+	}
+
+	private void removeRift(RiftNode node)
+	{
+		nodes.remove(node.location);
+		DimensionRifts dimension = getDimension(node.location.getDimension());
+		ChunkCoordIntPair coordinates = new ChunkCoordIntPair(node.location.getX() >> 4, node.location.getZ() >> 4);
+		ArrayList<RiftNode> chunkNodes = dimension.chunks.get(coordinates);
+		chunkNodes.remove(node);
+		if (chunkNodes.isEmpty())
+		{
+			dimension.chunks.remove(coordinates);
+			if (dimension.chunks.isEmpty())
+			{
+				dimensions.remove(node.location.getDimension());
+			}
+		}
+
+		for (RiftNode neighbor : node.neighbors)
+		{
+			neighbor.neighbors.remove(node);
+		}
+		RiftCluster cluster = node.cluster;
+		cluster.remove(node);
+		if (cluster.members.isEmpty())
+		{
+			cluster.dead = true;
+			clusterCount--;
+		}
+		else if (node.neighbors.size() > 1)
+		{
+			// Removing a rift that only had one neighbor can't disconnect the cluster
+			cluster.mightSplit = true;
+		}
+		node.neighbors.clear();
+		node.removed = true;
+	}
+
+	/**
+	 * Stops tracking all the rifts in a dimension. This should be called when the dimension unloads,
+	 * since its chunks aren't guaranteed to be unloaded one by one.
+	 */
+	public void unloadDimension(int dimensionID)
+	{
+		DimensionRifts dimension = dimensions.get(dimensionID);
+		if (dimension != null)
+		{
+			ArrayList<RiftNode> remaining = new ArrayList<RiftNode>();
+			for (ArrayList<RiftNode> chunkNodes : dimension.chunks.values())
+			{
+				remaining.addAll(chunkNodes);
+			}
+			for (RiftNode node : remaining)
+			{
+				removeRift(node);
+			}
+			dimensions.remove(dimensionID);
+		}
+	}
+
+	/**
+	 * Starts the closing animation of a rift. Once the rift has shrunk away, its link is deleted.
+	 * Nearby rifts are closed as well.
+	 */
+	public void closeRift(TileEntityRift tile)
+	{
+		Point4D location = new Point4D(tile.xCoord, tile.yCoord, tile.zCoord, tile.worldObj.provider.dimensionId);
+		RiftNode node = nodes.get(location);
+		if (node != null && node.tile == tile)
+		{
+			startClosing(node);
+		}
+	}
+
+	private void startClosing(RiftNode node)
+	{
+		if (!node.closing)
+		{
+			node.closing = true;
+			if (!node.tile.shouldClose)
+			{
+				node.tile.shouldClose = true;
+				node.tile.onInventoryChanged();
+				// Let clients know, so that they animate the rift closing
+				node.tile.worldObj.markBlockForUpdate(node.tile.xCoord, node.tile.yCoord, node.tile.zCoord);
+			}
+			closingRifts.add(node);
+		}
+	}
+
+	/**
+	 * Finds the nearest rift to the given rift within RIFT_INTERACTION_RANGE, using the same measure of distance
+	 * and the same tie-breaking as NewDimData.findNearestRift().
+	 * @return the location of the nearest rift, or null if there are no rifts in range or the rift isn't tracked
+	 */
+	public Point4D findNearestRift(TileEntityRift tile)
+	{
+		Point4D location = new Point4D(tile.xCoord, tile.yCoord, tile.zCoord, tile.worldObj.provider.dimensionId);
+		RiftNode node = nodes.get(location);
+		if (node == null || node.tile != tile)
+		{
+			return null;
+		}
+		RiftNode nearest = findNearestNeighbor(node);
+		return (nearest != null) ? nearest.location : null;
+	}
+
+	private static RiftNode findNearestNeighbor(RiftNode node)
+	{
+		RiftNode nearest = null;
+		int minDistance = Integer.MAX_VALUE;
+		for (RiftNode neighbor : node.neighbors)
+		{
+			if (node.isWithinRange(neighbor, RIFT_INTERACTION_RANGE))
+			{
+				int distance = node.getDistance(neighbor);
+				if (distance < minDistance || (distance == minDistance &&
+					neighbor.location.compareTo(nearest.location) < 0))
+				{
+					nearest = neighbor;
+					minDistance = distance;
+				}
+			}
+		}
+		return nearest;
+	}
+
+	private DimensionRifts getDimension(int dimensionID)
+	{
+		DimensionRifts dimension = dimensions.get(dimensionID);
+		if (dimension == null)
+		{
+			dimension = new DimensionRifts();
+			dimensions.put(dimensionID, dimension);
+		}
+		return dimension;
+	}
+
+	private void scheduleCluster(RiftCluster cluster)
+	{
+		schedule.get(random.nextInt(UPDATE_PERIOD)).add(cluster);
+		clusterCount++;
+	}
+
+	private void mergeClusters(RiftCluster source, RiftCluster destination)
+	{
+		for (RiftNode member : source.members)
+		{
+			destination.add(member);
+		}
+		destination.mightSplit |= source.mightSplit;
+		source.members.clear();
+		source.dead = true;
+		clusterCount--;
+	}
+
+	private void splitCluster(RiftCluster cluster)
+	{
+		// Find the connected components of the cluster with a breadth-first search. The first component
+		// keeps the original cluster and each of the others becomes a new cluster.
+		cluster.mightSplit = false;
+		int mark = ++visitCounter;
+		RiftNode[] members = cluster.members.toArray(new RiftNode[cluster.members.size()]);
+		ArrayList<RiftNode> component = new ArrayList<RiftNode>();
+		RiftCluster target = cluster;
+		for (RiftNode start : members)
+		{
+			if (start.visitMark == mark)
+			{
+				continue;
+			}
+			start.visitMark = mark;
+			component.clear();
+			component.add(start);
+			for (int index = 0; index < component.size(); index++)
+			{
+				for (RiftNode neighbor : component.get(index).neighbors)
+				{
+					if (neighbor.visitMark != mark)
+					{
+						neighbor.visitMark = mark;
+						component.add(neighbor);
+					}
+				}
+			}
+			if (component.size() == members.length)
+			{
+				// The cluster is still connected
+				return;
+			}
+
+			if (target == null)
+			{
+				target = new RiftCluster();
+				scheduleCluster(target);
+			}
+			else
+			{
+				target.members.clear();
+			}
+			for (RiftNode member : component)
+			{
+				target.add(member);
+			}
+			target = null;
+		}
+	}
+
+	@Override
+	public void notifyTick()
+	{
+		removeOrphanedRifts();
+		updateClosingRifts();
+
+		ArrayList<RiftCluster> clusters = schedule.get(tickCount % UPDATE_PERIOD);
+		for (int index = 0; index < clusters.size(); index++)
+		{
+			RiftCluster cluster = clusters.get(index);
+			if (cluster.dead)
+			{
+				// Drop the cluster from the schedule by moving the last one into its place
+				RiftCluster last = clusters.remove(clusters.size() - 1);
+				if (last != cluster)
+				{
+					clusters.set(index, last);
+					index--;
+				}
+				continue;
+			}
+			if (cluster.mightSplit)
+			{
+				splitCluster(cluster);
+			}
+			updateCluster(cluster);
+		}
+		tickCount++;
+	}
+
+	private void removeOrphanedRifts()
+	{
+		for (Point4D location : orphanedRifts)
+		{
+			World world = DimensionManager.getWorld(location.getDimension());
+			if (world != null && world.getChunkProvider().chunkExists(location.getX() >> 4, location.getZ() >> 4) &&
+				world.getBlockId(location.getX(), location.getY(), location.getZ()) == blockRift.blockID &&
+				PocketManager.getLink(location) == null)
+			{
+				world.setBlockToAir(location.getX(), location.getY(), location.getZ());
+			}
+		}
+		orphanedRifts.clear();
+	}
+
+	private void updateClosingRifts()
+	{
+		// Iterate backwards so that rifts which start closing during this pass wait until the next tick
+		for (int index = closingRifts.size() - 1; index >= 0; index--)
+		{
+			RiftNode node = closingRifts.get(index);
+			if (!node.removed)
+			{
+				TileEntityRift tile = node.tile;
+				if (tile.growth < CLOSING_PERIOD / 2)
+				{
+					// Spread the closing effect to other rifts nearby
+					for (RiftNode neighbor : node.neighbors)
+					{
+						startClosing(neighbor);
+					}
+				}
+				if (tile.growth > 0)
+				{
+					continue;
+				}
+
+				World world = tile.worldObj;
+				DimLink link = PocketManager.getLink(node.location);
+				if (link != null)
+				{
+					PocketManager.getDimensionData(node.location.getDimension()).deleteLink(link);
+				}
+				world.setBlockToAir(tile.xCoord, tile.yCoord, tile.zCoord);
+				world.playSound(tile.xCoord + 0.5, tile.yCoord + 0.5, tile.zCoord + 0.5, "mods.DimDoors.sfx.riftClose", 0.7f, 1, false);
+			}
+			RiftNode last = closingRifts.remove(closingRifts.size() - 1);
+			if (last != node)
+			{
+				closingRifts.set(index, last);
+			}
+		}
+	}
+
+	private void updateCluster(RiftCluster cluster)
+	{
+		// Single rifts can't spread or spawn Endermen
+		if (cluster.members.size() < 2)
+		{
+			return;
+		}
+
+		// Rifts may spread while we're updating the cluster, so work from a copy of its members
+		updatedClusterCount++;
+		RiftNode[] members = cluster.members.toArray(new RiftNode[cluster.members.size()]);
+		for (RiftNode node : members)
+		{
+			if (node.removed || node.closing)
+			{
+				continue;
+			}
+			updatedRiftCount++;
+
+			int nearRifts = 0;
+			for (RiftNode neighbor : node.neighbors)
+			{
+				if (node.isWithinRange(neighbor, RIFT_INTERACTION_RANGE))
+				{
+					nearRifts++;
+				}
+			}
+			RiftNode nearest = findNearestNeighbor(node);
+			node.tile.setNearestRiftLocation((nearest != null) ? nearest.location : null);
+			if (nearRifts > 0)
+			{
+				spread(node, nearRifts);
+				spawnEndermen(node);
+			}
+		}
+	}
+
+	private void spawnEndermen(RiftNode node)
+	{
+		if (node.removed || !properties.RiftsSpawnEndermenEnabled ||
+			random.nextInt(MAX_ENDERMAN_SPAWNING_CHANCE) >= ENDERMAN_SPAWNING_CHANCE)
+		{
+			return;
+		}
+
+		// Endermen will only spawn from groups of rifts, and only if there are no other Endermen nearby
+		World world = node.tile.worldObj;
+		int x = node.location.getX();
+		int y = node.location.getY();
+		int z = node.location.getZ();
+		List<Entity> list = world.getEntitiesWithinAABB(EntityEnderman.class,
+				AxisAlignedBB.getBoundingBox(x - 9, y - 3, z - 9, x + 9, y + 3, z + 9));
+
+		if (list.isEmpty())
+		{
+			EntityEnderman enderman = new EntityEnderman(world);
+			enderman.setLocationAndAngles(x + 0.5, y - 1, z + 0.5, 5, 6);
+			world.spawnEntityInWorld(enderman);
+
+			if (random.nextInt(MAX_HOSTILE_ENDERMAN_CHANCE) < HOSTILE_ENDERMAN_CHANCE)
+			{
+				EntityPlayer player = world.getClosestPlayerToEntity(enderman, 50);
+				if (player != null)
+				{
+					enderman.setTarget(player);
+				}
+			}
+		}
+	}
+
+	private void spread(RiftNode node, int nearRifts)
+	{
+		if (!properties.RiftSpreadEnabled || random.nextInt(MAX_RIFT_SPREAD_CHANCE) < RIFT_SPREAD_CHANCE)
+		{
+			return;
+		}
+
+		NewDimData dimension = PocketManager.getDimensionData(node.location.getDimension());
+		DimLink link = dimension.getLink(node.location);
+		if (link == null || link.childCount() >= MAX_CHILD_LINKS || countAncestorLinks(link) >= MAX_ANCESTOR_LINKS)
+		{
+			return;
+		}
+
+		// The probability of rifts trying to spread increases if more rifts are nearby.
+		// Players should see rifts spread faster within clusters than at the edges of clusters.
+		if (random.nextInt(nearRifts) == 0)
+		{
+			return;
+		}
+		blockRift.spreadRift(dimension, link, node.tile.worldObj, random);
+	}
+
+	private static int countAncestorLinks(DimLink link)
+	{
+		int count = 0;
+		for (DimLink parent = link.parent(); parent != null; parent = parent.parent())
+		{
+			count++;
+		}
+		return count;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("Rift clusters: %d rifts, %d clusters, %d closing, %d cluster updates, %d rift updates",
+				nodes.size(), clusterCount, closingRifts.size(), updatedClusterCount, updatedRiftCount);
+	}
+}
@@ -1,6 +1,15 @@
 package StevenDimDoors.mod_pocketDim.ticking;
 
-import java.util.PriorityQueue;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.Random;
 
 import net.minecraft.util.MathHelper;
@@ -10,9 +19,12 @@ import StevenDimDoors.mod_pocketDim.blocks.BlockRift;
 import StevenDimDoors.mod_pocketDim.core.DimLink;
 import StevenDimDoors.mod_pocketDim.core.PocketManager;
 import StevenDimDoors.mod_pocketDim.util.Point4D;
+import StevenDimDoors.mod_pocketDim.util.VarInt;
+import StevenDimDoors.mod_pocketDim.watcher.ClientLinkData;
+import StevenDimDoors.mod_pocketDim.watcher.IUpdateWatcher;
 
 public class RiftRegenerator implements IRegularTickReceiver {
-	
+
 	// Ranges of regeneration delays, in seconds
 	private static final int MIN_FAST_DELAY = 1;
 	private static final int MAX_FAST_DELAY = 3;
@@ -20,60 +32,202 @@ public class RiftRegenerator implements IRegularTickReceiver {
 	private static final int MAX_SLOW_DELAY = 15;
 	private static final int MIN_RESCHEDULE_DELAY = 4 * 60;
 	private static final int MAX_RESCHEDULE_DELAY = 6 * 60;
-	
+
 	private static final int TICKS_PER_SECOND = 20;
 	private static final int RIFT_REGENERATION_INTERVAL = 1; // Check the regeneration queue every tick
+	private static final int SAVE_FORMAT_VERSION = 1;
 	private static Random random = new Random();
-	
+
+	// Tickets are kept in a two-level timing wheel. The inner wheel has a slot for each of the next 256 ticks.
+	// The outer wheel has a slot for each of the next 64 spans of 256 ticks. At the start of each span,
+	// the tickets in its outer slot are moved into the inner wheel. Tickets that are due even later than that
+	// go into an overflow list that is sorted out every time the outer wheel completes a turn.
+	// Scheduling a ticket takes constant time no matter how many tickets are pending.
+	private static final int INNER_BITS = 8;
+	private static final int OUTER_BITS = 6;
+	private static final int INNER_SIZE = 1 << INNER_BITS;
+	private static final int OUTER_SIZE = 1 << OUTER_BITS;
+	private static final int INNER_MASK = INNER_SIZE - 1;
+	private static final int OUTER_MASK = OUTER_SIZE - 1;
+	private static final int WHEEL_SPAN = INNER_SIZE * OUTER_SIZE;
+
 	private long tickCount = 0;
-	private PriorityQueue<RiftTicket> ticketQueue;
+	private final RiftTicket[] innerWheel;
+	private final RiftTicket[] outerWheel;
+	private RiftTicket overflow;
+
+	// Maps each location to its only valid ticket. Tickets in the wheel that don't match
+	// this mapping have been superseded or cancelled and are skipped when they come up.
+	private final HashMap<Point4D, RiftTicket> pendingTickets;
+	private final LinkDeletionWatcher linkWatcher;
+	private final String filePath;
 	private BlockRift blockRift;
-	
-	public RiftRegenerator(IRegularTickSender sender, BlockRift blockRift)
+
+	// Metrics
+	private long processedCount = 0;
+	private int lastProcessedCount = 0;
+	private int maxProcessedCount = 0;
+
+	private class LinkDeletionWatcher implements IUpdateWatcher<ClientLinkData>
+	{
+		@Override
+		public void onCreated(ClientLinkData link) { }
+
+		@Override
+		public void onDeleted(ClientLinkData link)
+		{
+			// There's no point in regenerating a rift for a link that doesn't exist anymore
+			pendingTickets.remove(link.point);
+		}
+
+		@Override
+		public void update(ClientLinkData link) { }
+	}
+
+	public RiftRegenerator(IRegularTickSender sender, BlockRift blockRift, String filePath)
 	{
-		this.ticketQueue = new PriorityQueue<RiftTicket>();
+		this.innerWheel = new RiftTicket[INNER_SIZE];
+		this.outerWheel = new RiftTicket[OUTER_SIZE];
+		this.overflow = null;
+		this.pendingTickets = new HashMap<Point4D, RiftTicket>();
+		this.linkWatcher = new LinkDeletionWatcher();
+		this.filePath = filePath;
 		this.blockRift = blockRift;
 		sender.registerReceiver(this, RIFT_REGENERATION_INTERVAL, false);
+		PocketManager.registerLinkWatcher(linkWatcher);
+		readFromFile();
+	}
+
+	/**
+	 * Stops listening for deleted links. This should be called when the server stops.
+	 */
+	public void unregisterWatcher()
+	{
+		PocketManager.unregisterLinkWatcher(linkWatcher);
 	}
-	
+
 	@Override
 	public void notifyTick()
 	{
 		processTicketQueue();
 		tickCount++;
 	}
-	
+
 	public void scheduleSlowRegeneration(DimLink link)
 	{
 		scheduleRegeneration(link, MIN_SLOW_DELAY, MAX_SLOW_DELAY);
 	}
-	
+
 	public void scheduleSlowRegeneration(int x, int y, int z, World world)
 	{
 		scheduleRegeneration(PocketManager.getLink(x, y, z, world), MIN_SLOW_DELAY, MAX_SLOW_DELAY);
 	}
-	
+
 	public void scheduleFastRegeneration(int x, int y, int z, World world)
 	{
 		scheduleRegeneration(PocketManager.getLink(x, y, z, world), MIN_FAST_DELAY, MAX_FAST_DELAY);
 	}
-	
+
 	private void scheduleRegeneration(DimLink link, int minDelay, int maxDelay)
 	{
 		if (link != null)
 		{
 			int tickDelay = MathHelper.getRandomIntegerInRange(random, minDelay * TICKS_PER_SECOND, maxDelay * TICKS_PER_SECOND);
-			ticketQueue.add(new RiftTicket(link.source(), tickCount + tickDelay));
+			schedule(link.source(), tickCount + tickDelay);
+		}
+	}
+
+	private void schedule(Point4D location, long timestamp)
+	{
+		// Only keep the earliest ticket for each location. Chunks can load and unload
+		// many times before a rift regenerates, and each load tries to schedule it again.
+		RiftTicket current = pendingTickets.get(location);
+		if (current != null && current.timestamp() <= timestamp)
+		{
+			return;
 		}
+		RiftTicket ticket = new RiftTicket(location, timestamp);
+		pendingTickets.put(location, ticket);
+		insert(ticket);
 	}
-	
+
+	private void insert(RiftTicket ticket)
+	{
+		long delay = ticket.timestamp() - tickCount;
+		if (delay < INNER_SIZE)
+		{
+			int slot = (int) (Math.max(ticket.timestamp(), tickCount) & INNER_MASK);
+			ticket.next = innerWheel[slot];
+			innerWheel[slot] = ticket;
+		}
+		else if (delay < WHEEL_SPAN)
+		{
+			int slot = (int) ((ticket.timestamp() >> INNER_BITS) & OUTER_MASK);
+			ticket.next = outerWheel[slot];
+			outerWheel[slot] = ticket;
+		}
+		else
+		{
+			ticket.next = overflow;
+			overflow = ticket;
+		}
+	}
+
 	private void processTicketQueue()
 	{
-		RiftTicket ticket;
-		while (!ticketQueue.isEmpty() && ticketQueue.peek().timestamp() <= tickCount)
+		// At the start of each span of the inner wheel, move the tickets for that span into it
+		if ((tickCount & INNER_MASK) == 0)
 		{
-			ticket = ticketQueue.remove();
-			regenerateRift(ticket.location());
+			if ((tickCount & (WHEEL_SPAN - 1)) == 0)
+			{
+				RiftTicket list = overflow;
+				overflow = null;
+				reinsert(list);
+			}
+			int slot = (int) ((tickCount >> INNER_BITS) & OUTER_MASK);
+			RiftTicket list = outerWheel[slot];
+			outerWheel[slot] = null;
+			reinsert(list);
+		}
+
+		int slot = (int) (tickCount & INNER_MASK);
+		RiftTicket ticket = innerWheel[slot];
+		innerWheel[slot] = null;
+
+		int count = 0;
+		while (ticket != null)
+		{
+			RiftTicket next = ticket.next;
+			ticket.next = null;
+			if (pendingTickets.get(ticket.location()) == ticket)
+			{
+				pendingTickets.remove(ticket.location());
+				regenerateRift(ticket.location());
+				count++;
+			}
+			ticket = next;
+		}
+
+		processedCount += count;
+		lastProcessedCount = count;
+		if (count > maxProcessedCount)
+		{
+			maxProcessedCount = count;
+		}
+	}
+
+	private void reinsert(RiftTicket list)
+	{
+		while (list != null)
+		{
+			RiftTicket next = list.next;
+			list.next = null;
+			// Drop tickets that have been superseded instead of carrying them around
+			if (pendingTickets.get(list.location()) == list)
+			{
+				insert(list);
+			}
+			list = next;
 		}
 	}
 
@@ -82,28 +236,28 @@ public class RiftRegenerator implements IRegularTickReceiver {
 		int x = location.getX();
 		int y = location.getY();
 		int z = location.getZ();
-		
+
 		// Try to regenerate a rift, or possibly reschedule its regeneration.
 		// The world for the given location must be loaded.
 		World world = DimensionManager.getWorld(location.getDimension());
 		if (world == null)
 			return;
-		
+
 		// There must be a link at the given location.
 		DimLink link = PocketManager.getLink(location);
 		if (link == null)
 			return;
-		
+
 		// The chunk at the given location must be loaded.
 		// Note: ChunkProviderServer.chunkExists() returns whether a chunk is
 		// loaded, not whether it has already been created.
 		if (!world.getChunkProvider().chunkExists(x >> 4, z >> 4))
 			return;
-		
+
 		// If the location is occupied by an immune DD block, then don't regenerate.
 		if (blockRift.isModBlockImmune(world, x, y, z))
 			return;
-		
+
 		// If the location is occupied by an immune block, then reschedule.
 		if (blockRift.isBlockImmune(world, x, y, z))
 		{
@@ -117,5 +271,87 @@ public class RiftRegenerator implements IRegularTickReceiver {
 				blockRift.dropWorldThread(blockID, world, x, y, z, random);
 		}
 	}
-	
+
+	public int getQueueDepth()
+	{
+		return pendingTickets.size();
+	}
+
+	private void readFromFile()
+	{
+		// Restore the tickets that were pending when the server last stopped, keeping their remaining delays.
+		// Otherwise every rift would be scheduled again as its chunk loads and they'd all regenerate at once.
+		try
+		{
+			DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath)));
+			try
+			{
+				if (input.readInt() != SAVE_FORMAT_VERSION)
+				{
+					return;
+				}
+				int count = VarInt.readUnsigned(input);
+				for (int k = 0; k < count; k++)
+				{
+					int dimension = VarInt.readSigned(input);
+					int x = VarInt.readSigned(input);
+					int y = VarInt.readSigned(input);
+					int z = VarInt.readSigned(input);
+					int delay = VarInt.readUnsigned(input);
+					schedule(new Point4D(x, y, z, dimension), tickCount + Math.max(delay, 1));
+				}
+			}
+			finally
+			{
+				input.close();
+			}
+		}
+		catch (FileNotFoundException e) { }
+		catch (IOException e)
+		{
+			System.err.println("An unexpected exception occurred while trying to read rift regeneration data:");
+			System.err.println(e.toString());
+		}
+	}
+
+	public void writeToFile()
+	{
+		try
+		{
+			File file = new File(filePath);
+			file.getParentFile().mkdirs();
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			try
+			{
+				output.writeInt(SAVE_FORMAT_VERSION);
+				VarInt.writeUnsigned(output, pendingTickets.size());
+				for (RiftTicket ticket : pendingTickets.values())
+				{
+					Point4D location = ticket.location();
+					VarInt.writeSigned(output, location.getDimension());
+					VarInt.writeSigned(output, location.getX());
+					VarInt.writeSigned(output, location.getY());
+					VarInt.writeSigned(output, location.getZ());
+					VarInt.writeUnsigned(output, (int) Math.max(ticket.timestamp() - tickCount, 1));
+				}
+			}
+			finally
+			{
+				output.close();
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println("An unexpected exception occurred while trying to write rift regeneration data:");
+			System.err.println(e.toString());
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		double average = (tickCount > 0) ? (double) processedCount / tickCount : 0;
+		return String.format("Rift regeneration: %d pending, %d processed, %.2f per tick on average, %d last tick, %d max per tick",
+				pendingTickets.size(), processedCount, average, lastProcessedCount, maxProcessedCount);
+	}
 }
@@ -2,8 +2,10 @@ package StevenDimDoors.mod_pocketDim.ticking;
 
 import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 
 import StevenDimDoors.mod_pocketDim.core.DDTeleporter;
+import StevenDimDoors.mod_pocketDim.util.DDStatistics;
 import cpw.mods.fml.common.ITickHandler;
 import cpw.mods.fml.common.TickType;
 
@@ -37,11 +39,12 @@ public class ServerTickHandler implements ITickHandler, IRegularTickSender
 	{
 		if (type.equals(EnumSet.of(TickType.SERVER)))
 		{
+			boolean profiling = DDStatistics.isEnabled();
 			for (RegularTickReceiverInfo info : receivers)
 			{
 				if (info.OnTickStart && tickCount % info.Interval == 0)
 				{
-					info.RegularTickReceiver.notifyTick();
+					notifyReceiver(info, profiling);
 				}
 			}
 		}
@@ -57,15 +60,51 @@ public class ServerTickHandler implements ITickHandler, IRegularTickSender
 	@Override
 	public void tickEnd(EnumSet<TickType> type, Object... tickData)
 	{
+		boolean profiling = DDStatistics.isEnabled();
 		for (RegularTickReceiverInfo info : receivers)
 		{
 			if (!info.OnTickStart && tickCount % info.Interval == 0)
 			{
-				info.RegularTickReceiver.notifyTick();
+				notifyReceiver(info, profiling);
 			}
 		}
 		tickCount++; //There is no need to reset the counter. Let it overflow.
 	}
+	
+	private static void notifyReceiver(RegularTickReceiverInfo info, boolean profiling)
+	{
+		if (profiling)
+		{
+			long startTime = System.nanoTime();
+			info.RegularTickReceiver.notifyTick();
+			info.Statistics.record(System.nanoTime() - startTime);
+		}
+		else
+		{
+			info.RegularTickReceiver.notifyTick();
+		}
+	}
+	
+	/**
+	 * Gets the timing statistics of each registered receiver.
+	 */
+	public List<DDStatistics.Metric> getReceiverStatistics()
+	{
+		ArrayList<DDStatistics.Metric> statistics = new ArrayList<DDStatistics.Metric>(receivers.size());
+		for (RegularTickReceiverInfo info : receivers)
+		{
+			statistics.add(info.Statistics);
+		}
+		return statistics;
+	}
+	
+	public void resetReceiverStatistics()
+	{
+		for (RegularTickReceiverInfo info : receivers)
+		{
+			info.Statistics.reset();
+		}
+	}
 
 	@Override
 	public EnumSet<TickType> ticks()
@@ -0,0 +1,100 @@
+package StevenDimDoors.mod_pocketDim.ticking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import StevenDimDoors.mod_pocketDim.mod_pocketDim;
+import StevenDimDoors.mod_pocketDim.helpers.DungeonHelper;
+import StevenDimDoors.mod_pocketDim.util.DDStatistics;
+
+/**
+ * Puts together a report of our timing statistics and, optionally, writes it to the server log at regular intervals.
+ */
+public class StatisticsReporter implements IRegularTickReceiver
+{
+	private static final int TICKS_PER_SECOND = 20;
+
+	private final ServerTickHandler tickHandler;
+
+	/**
+	 * Creates a reporter for the statistics of the specified tick handler's receivers.
+	 * @param logInterval - the number of seconds between reports written to the log, or 0 to never log reports
+	 */
+	public StatisticsReporter(ServerTickHandler tickHandler, int logInterval)
+	{
+		this.tickHandler = tickHandler;
+		if (logInterval > 0)
+		{
+			tickHandler.registerReceiver(this, logInterval * TICKS_PER_SECOND, false);
+		}
+	}
+
+	@Override
+	public void notifyTick()
+	{
+		if (DDStatistics.isEnabled())
+		{
+			System.out.println("Dimensional Doors statistics:");
+			for (String line : getReport())
+			{
+				System.out.println("  " + line);
+			}
+		}
+	}
+
+	public List<String> getReport()
+	{
+		ArrayList<String> lines = new ArrayList<String>();
+		if (!DDStatistics.isEnabled())
+		{
+			lines.add("Statistics collection is disabled.");
+		}
+		for (DDStatistics.Metric metric : tickHandler.getReceiverStatistics())
+		{
+			lines.add(metric.toString());
+		}
+		for (DDStatistics.Metric metric : DDStatistics.getOperations())
+		{
+			lines.add(metric.toString());
+		}
+		if (mod_pocketDim.spawner != null)
+		{
+			lines.add(mod_pocketDim.spawner.toString());
+		}
+		if (mod_pocketDim.riftRegenerator != null)
+		{
+			lines.add(mod_pocketDim.riftRegenerator.toString());
+		}
+		if (mod_pocketDim.riftClusters != null)
+		{
+			lines.add(mod_pocketDim.riftClusters.toString());
+		}
+		lines.add(DungeonHelper.instance().getSchematicCache().toString());
+		if (mod_pocketDim.pocketGenerator != null)
+		{
+			for (String line : mod_pocketDim.pocketGenerator.getStatistics().split("\n"))
+			{
+				lines.add(line);
+			}
+		}
+		if (mod_pocketDim.dungeonPrefetcher != null)
+		{
+			lines.add(mod_pocketDim.dungeonPrefetcher.toString());
+		}
+		if (mod_pocketDim.packetBatcher != null)
+		{
+			lines.add(mod_pocketDim.packetBatcher.toString());
+		}
+		if (mod_pocketDim.snapshotSender != null)
+		{
+			lines.add(mod_pocketDim.snapshotSender.toString());
+		}
+		return lines;
+	}
+
+	public void reset()
+	{
+		tickHandler.resetReceiverStatistics();
+		DDStatistics.resetOperations();
+	}
+}
@@ -1,22 +1,13 @@
 package StevenDimDoors.mod_pocketDim.tileentities;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
-import net.minecraft.entity.Entity;
-import net.minecraft.entity.monster.EntityEnderman;
-import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.network.INetworkManager;
 import net.minecraft.network.packet.Packet;
 import net.minecraft.network.packet.Packet132TileEntityData;
-import net.minecraft.util.AxisAlignedBB;
-import net.minecraft.util.MathHelper;
 import StevenDimDoors.mod_pocketDim.ServerPacketHandler;
 import StevenDimDoors.mod_pocketDim.mod_pocketDim;
-import StevenDimDoors.mod_pocketDim.config.DDProperties;
 import StevenDimDoors.mod_pocketDim.core.DimLink;
-import StevenDimDoors.mod_pocketDim.core.NewDimData;
 import StevenDimDoors.mod_pocketDim.core.PocketManager;
 import StevenDimDoors.mod_pocketDim.util.Point4D;
 import StevenDimDoors.mod_pocketDim.util.l_systems.LSystem;
@@ -26,21 +17,10 @@ import StevenDimDoors.mod_pocketDim.watcher.ClientLinkData;
 public class TileEntityRift extends DDTileEntityBase
 {
 	private static final int RIFT_INTERACTION_RANGE = 5;
-	private static final int MAX_ANCESTOR_LINKS = 2;
-	private static final int MAX_CHILD_LINKS = 1;
-	private static final int ENDERMAN_SPAWNING_CHANCE = 1;
-	private static final int MAX_ENDERMAN_SPAWNING_CHANCE = 32;
-	private static final int RIFT_SPREAD_CHANCE = 1;
-	private static final int MAX_RIFT_SPREAD_CHANCE = 256;
-	private static final int HOSTILE_ENDERMAN_CHANCE = 1;
-	private static final int MAX_HOSTILE_ENDERMAN_CHANCE = 3;
-	private static final int UPDATE_PERIOD = 200;
-	private static final int CLOSING_PERIOD = 40;
 
 	private static Random random = new Random();
 
-	private int updateTimer;
-	private int closeTimer = 0;
+	private boolean registered = false;
 	public int xOffset = 0;
 	public int yOffset = 0;
 	public int zOffset = 0;
@@ -52,137 +32,87 @@ public class TileEntityRift extends DDTileEntityBase
 	public int renderKey = random.nextInt(LSystem.curves.size());
 	public float growth = 0;
 	
-	public TileEntityRift()
-	{
-		// Vary the update times of rifts to prevent all the rifts in a cluster
-		// from updating at the same time.
-		updateTimer = random.nextInt(UPDATE_PERIOD);
-
-	}
-	
 	@Override
 	public void updateEntity() 
 	{
-		if (PocketManager.getLink(xCoord, yCoord, zCoord, worldObj.provider.dimensionId) == null)
+		// On the server, rifts are updated in clusters by RiftClusterManager.
+		// The tile entity only needs to register itself and animate its growth.
+		if (!registered && !worldObj.isRemote && mod_pocketDim.riftClusters != null)
 		{
-			if (worldObj.getBlockId(xCoord, yCoord, zCoord) == mod_pocketDim.blockRift.blockID)
-			{
-				worldObj.setBlockToAir(xCoord, yCoord, zCoord);
-			}
-			else
-			{
-				invalidate();
-			}
-			return;
+			registered = mod_pocketDim.riftClusters.addRift(this);
 		}
 		
-		if (worldObj.getBlockId(xCoord, yCoord, zCoord) != mod_pocketDim.blockRift.blockID)
-		{
-			invalidate();
-			return;
-		}
-		
-
-		// Check if this rift should render white closing particles and
-		// spread the closing effect to other rifts nearby.
 		if (shouldClose)
 		{
-			closeRift();
-			return;
+			growth--;
 		}
-		
-		if (updateTimer >= UPDATE_PERIOD)
-		{
-			spawnEndermen(mod_pocketDim.properties);
-			updateTimer = 0;
-		}
-		else if (updateTimer == UPDATE_PERIOD / 2)
+		else
 		{
-			updateNearestRift();
-			spread(mod_pocketDim.properties);
+			growth += 1F/(growth+1);
 		}
-		growth += 1F/(growth+1);
-		updateTimer++;
 	}
-
-	private void spawnEndermen(DDProperties properties)
+	
+	@Override
+	public void invalidate()
 	{
-		if (worldObj.isRemote || !properties.RiftsSpawnEndermenEnabled)
+		super.invalidate();
+		unregister();
+	}
+	
+	@Override
+	public void onChunkUnload()
+	{
+		super.onChunkUnload();
+		unregister();
+	}
+	
+	private void unregister()
+	{
+		if (registered && mod_pocketDim.riftClusters != null)
 		{
-			return;
+			mod_pocketDim.riftClusters.removeRift(this);
 		}
-
-		// Ensure that this rift is only spawning one Enderman at a time, to prevent hordes of Endermen
-		Entity entity = worldObj.getEntityByID(this.spawnedEndermenID);
-		if (entity != null && entity instanceof EntityEnderman)
+		registered = false;
+	}
+	
+	/**
+	 * Starts closing this rift and any rifts near it. Once a rift has shrunk away, its link is deleted.
+	 */
+	public void startClosing()
+	{
+		shouldClose = true;
+		this.onInventoryChanged();
+		if (!worldObj.isRemote)
 		{
-			return;
+			worldObj.markBlockForUpdate(xCoord, yCoord, zCoord);
 		}
-
-		if (random.nextInt(MAX_ENDERMAN_SPAWNING_CHANCE) < ENDERMAN_SPAWNING_CHANCE)
+		if (registered && !worldObj.isRemote && mod_pocketDim.riftClusters != null)
 		{
-			// Endermen will only spawn from groups of rifts
-			if (updateNearestRift())
-			{
-				List<Entity> list =  worldObj.getEntitiesWithinAABB(EntityEnderman.class,
-						AxisAlignedBB.getBoundingBox(xCoord - 9, yCoord - 3, zCoord - 9, xCoord + 9, yCoord + 3, zCoord + 9));
-
-				if (list.isEmpty())
-				{
-					EntityEnderman enderman = new EntityEnderman(worldObj);
-					enderman.setLocationAndAngles(xCoord + 0.5, yCoord - 1, zCoord + 0.5, 5, 6);
-					worldObj.spawnEntityInWorld(enderman);
-					
-					if (random.nextInt(MAX_HOSTILE_ENDERMAN_CHANCE) < HOSTILE_ENDERMAN_CHANCE)
-					{
-						EntityPlayer player = this.worldObj.getClosestPlayerToEntity(enderman, 50);
-						if (player != null)
-						{
-							enderman.setTarget(player);
-						}
-					}
-				}				
-			}
+			mod_pocketDim.riftClusters.closeRift(this);
 		}
 	}
-
-	private void closeRift()
+	
+	public boolean updateNearestRift()
 	{
-		NewDimData dimension = PocketManager.createDimensionData(worldObj);
-		if (growth < CLOSING_PERIOD / 2)
+		Point4D nearest;
+		if (registered && mod_pocketDim.riftClusters != null)
 		{
-			for (DimLink riftLink : dimension.findRiftsInRange(worldObj, 6, xCoord, yCoord, zCoord))
-			{
-				Point4D location = riftLink.source();
-				TileEntityRift rift = (TileEntityRift) worldObj.getBlockTileEntity(location.getX(), location.getY(), location.getZ());
-				if (rift != null && !rift.shouldClose)
-				{
-					rift.shouldClose = true;
-					rift.onInventoryChanged();
-				}
-			}
+			nearest = mod_pocketDim.riftClusters.findNearestRift(this);
 		}
-		if (growth == 0 && !worldObj.isRemote)
+		else
 		{
-			DimLink link = PocketManager.getLink(this.xCoord, this.yCoord, this.zCoord, worldObj);
-			if (link != null)
-			{
-				dimension.deleteLink(link);
-			}
-			worldObj.setBlockToAir(xCoord, yCoord, zCoord);
-			worldObj.playSound(xCoord + 0.5, yCoord + 0.5, zCoord + 0.5, "mods.DimDoors.sfx.riftClose", 0.7f, 1, false);
+			DimLink nearestRiftLink = PocketManager.createDimensionData(worldObj).findNearestRift(
+					worldObj, RIFT_INTERACTION_RANGE, xCoord, yCoord, zCoord);
+			nearest = (nearestRiftLink == null) ? null : nearestRiftLink.source();
 		}
-	
-		growth --;
+		setNearestRiftLocation(nearest);
+		return (nearestRiftLocation != null);
 	}
 	
-	public boolean updateNearestRift()
+	public void setNearestRiftLocation(Point4D nearest)
 	{
 		Point4D previousNearest = nearestRiftLocation;
-		DimLink nearestRiftLink = PocketManager.createDimensionData(worldObj).findNearestRift(
-				worldObj, RIFT_INTERACTION_RANGE, xCoord, yCoord, zCoord);
-		
-		nearestRiftLocation = (nearestRiftLink == null) ? null : nearestRiftLink.source();
+		nearestRiftLocation = nearest;
 
 		// If the nearest rift location changed, then update particle offsets
 		if (previousNearest != nearestRiftLocation &&
@@ -190,7 +120,6 @@ public class TileEntityRift extends DDTileEntityBase
 		{
 			updateParticleOffsets();
 		}
-		return (nearestRiftLocation != null);
 	}
 
 	private void updateParticleOffsets()
@@ -216,47 +145,10 @@ public class TileEntityRift extends DDTileEntityBase
 		return pass == 1;
 	}
 
-	public int countAncestorLinks(DimLink link)
-	{
-		if (link.parent() != null)
-		{
-			return countAncestorLinks(link.parent()) + 1;
-		}
-		return 0;
-	}
-
-	public void spread(DDProperties properties)
-	{
-		if (worldObj.isRemote || !properties.RiftSpreadEnabled
-			|| random.nextInt(MAX_RIFT_SPREAD_CHANCE) < RIFT_SPREAD_CHANCE || this.shouldClose)
-		{
-			return;
-		}
-
-		NewDimData dimension = PocketManager.createDimensionData(worldObj);
-		DimLink link = dimension.getLink(xCoord, yCoord, zCoord);
-		
-		if (link.childCount() >= MAX_CHILD_LINKS || countAncestorLinks(link) >= MAX_ANCESTOR_LINKS)
-		{
-			return;
-		}
-		
-		// The probability of rifts trying to spread increases if more rifts are nearby.
-		// Players should see rifts spread faster within clusters than at the edges of clusters.
-		// Also, single rifts CANNOT spread.
-		int nearRifts = dimension.findRiftsInRange(worldObj, RIFT_INTERACTION_RANGE, xCoord, yCoord, zCoord).size();
-		if (nearRifts == 0 || random.nextInt(nearRifts) == 0)
-		{
-			return;
-		}
-		mod_pocketDim.blockRift.spreadRift(dimension, link, worldObj, random);
-	}
-
 	@Override
 	public void readFromNBT(NBTTagCompound nbt)
 	{
 		super.readFromNBT(nbt);
-		this.updateTimer = nbt.getInteger("updateTimer");
 		this.xOffset = nbt.getInteger("xOffset");
 		this.yOffset = nbt.getInteger("yOffset");
 		this.zOffset = nbt.getInteger("zOffset");
@@ -272,7 +164,6 @@ public class TileEntityRift extends DDTileEntityBase
 	public void writeToNBT(NBTTagCompound nbt)
 	{
 		super.writeToNBT(nbt);
-		nbt.setInteger("updateTimer", this.updateTimer);
 		nbt.setInteger("xOffset", this.xOffset);
 		nbt.setInteger("yOffset", this.yOffset);
 		nbt.setInteger("zOffset", this.zOffset);
@@ -287,6 +178,14 @@ public class TileEntityRift extends DDTileEntityBase
 	@Override
 	public Packet getDescriptionPacket()
 	{
+		// Closing is only decided on the server, so closing rifts send their state to clients.
+		// Clients already know about the rift's link from the link watchers.
+		if (shouldClose)
+		{
+			NBTTagCompound tag = new NBTTagCompound();
+			writeToNBT(tag);
+			return new Packet132TileEntityData(xCoord, yCoord, zCoord, 0, tag);
+		}
 		if (PocketManager.getLink(xCoord, yCoord, zCoord, worldObj) != null)
 		{
 			return ServerPacketHandler.createLinkPacket(new ClientLinkData(PocketManager.getLink(xCoord, yCoord, zCoord, worldObj)));
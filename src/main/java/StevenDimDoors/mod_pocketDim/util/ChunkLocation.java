@@ -12,4 +12,24 @@ public class ChunkLocation {
 		this.ChunkX = chunkX;
 		this.ChunkZ = chunkZ;
 	}
+	
+	@Override
+	public int hashCode()
+	{
+		int result = DimensionID;
+		result = 31 * result + ChunkX;
+		result = 31 * result + ChunkZ;
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ChunkLocation))
+			return false;
+		ChunkLocation other = (ChunkLocation) obj;
+		return (DimensionID == other.DimensionID && ChunkX == other.ChunkX && ChunkZ == other.ChunkZ);
+	}
 }
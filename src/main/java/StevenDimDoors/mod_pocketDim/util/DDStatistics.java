@@ -0,0 +1,157 @@
+package StevenDimDoors.mod_pocketDim.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects timing statistics for our tick receivers and for expensive operations like
+ * building pockets, teleporting and saving. Statistics are only collected while they're enabled.
+ * When they're disabled, timing an operation costs a single check of a static flag.
+ *
+ * Statistics should only be recorded from the server thread.
+ */
+public class DDStatistics
+{
+	private static final long NOT_TIMED = Long.MIN_VALUE;
+	private static final int RECENT_SAMPLE_COUNT = 256;
+
+	private static final ArrayList<Metric> operations = new ArrayList<Metric>();
+	private static boolean enabled = false;
+
+	public static final Metric POCKET_GENERATION = registerOperation("Pocket generation");
+	public static final Metric TELEPORTS = registerOperation("Teleports");
+	public static final Metric SAVES = registerOperation("Saves");
+
+	/**
+	 * Records the number of times an operation happens and how long it takes. The durations of
+	 * the most recent operations are kept to measure the spread of their latencies.
+	 */
+	public static class Metric
+	{
+		private final String name;
+		private final long[] recentSamples;
+		private long count;
+		private long totalTime;
+		private long maxTime;
+
+		public Metric(String name)
+		{
+			this.name = name;
+			this.recentSamples = new long[RECENT_SAMPLE_COUNT];
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public long getCount()
+		{
+			return count;
+		}
+
+		/**
+		 * Records an operation that started at the time returned by DDStatistics.startTimer().
+		 */
+		public void stopTimer(long startTime)
+		{
+			if (startTime != NOT_TIMED)
+			{
+				record(System.nanoTime() - startTime);
+			}
+		}
+
+		/**
+		 * Records an operation that took the specified number of nanoseconds.
+		 */
+		public void record(long duration)
+		{
+			recentSamples[(int) (count % RECENT_SAMPLE_COUNT)] = duration;
+			count++;
+			totalTime += duration;
+			if (duration > maxTime)
+			{
+				maxTime = duration;
+			}
+		}
+
+		public void reset()
+		{
+			count = 0;
+			totalTime = 0;
+			maxTime = 0;
+		}
+
+		@Override
+		public String toString()
+		{
+			if (count == 0)
+			{
+				return name + ": no calls";
+			}
+
+			//Sort a copy of the recent samples to find their percentiles
+			int sampleCount = (int) Math.min(count, RECENT_SAMPLE_COUNT);
+			long[] samples = Arrays.copyOf(recentSamples, sampleCount);
+			Arrays.sort(samples);
+
+			return String.format("%s: %d calls, %.1f ms total, %.3f ms avg, %.3f ms max, recent p50/p90/p99 %.3f/%.3f/%.3f ms",
+					name, count, toMillis(totalTime), toMillis(totalTime) / count, toMillis(maxTime),
+					toMillis(percentile(samples, 50)), toMillis(percentile(samples, 90)), toMillis(percentile(samples, 99)));
+		}
+
+		private static long percentile(long[] sortedSamples, int percent)
+		{
+			int index = (sortedSamples.length * percent + 99) / 100 - 1;
+			return sortedSamples[Math.max(index, 0)];
+		}
+
+		private static double toMillis(long nanoseconds)
+		{
+			return nanoseconds / 1000000.0;
+		}
+	}
+
+	private DDStatistics() { }
+
+	private static Metric registerOperation(String name)
+	{
+		Metric metric = new Metric(name);
+		operations.add(metric);
+		return metric;
+	}
+
+	public static boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	public static void setEnabled(boolean value)
+	{
+		enabled = value;
+	}
+
+	/**
+	 * Gets the starting time for an operation that will be recorded with Metric.stopTimer().
+	 * If statistics are disabled, the operation will not be recorded.
+	 */
+	public static long startTimer()
+	{
+		return enabled ? System.nanoTime() : NOT_TIMED;
+	}
+
+	public static List<Metric> getOperations()
+	{
+		return Collections.unmodifiableList(operations);
+	}
+
+	public static void resetOperations()
+	{
+		for (Metric metric : operations)
+		{
+			metric.reset();
+		}
+	}
+}
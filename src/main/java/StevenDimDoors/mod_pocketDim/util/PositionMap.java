@@ -0,0 +1,215 @@
+package StevenDimDoors.mod_pocketDim.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import StevenDimDoors.mod_pocketDim.Point3D;
+
+/**
+ * Maps block positions within a single dimension to values, without allocating anything for lookups.
+ * Positions are packed into a long and stored in an open-addressing hash table with linear probing.
+ * X and Z take 26 bits each and Y takes 12 bits, which covers every position within Minecraft's world
+ * border with plenty of room to spare. Positions outside that range are still supported, but they're
+ * kept in a regular HashMap instead.
+ *
+ * Null values can't be stored, since a null value marks an empty slot in the table.
+ */
+public class PositionMap<V>
+{
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int HORIZONTAL_BITS = 26;
+	private static final int VERTICAL_BITS = 12;
+	private static final int MIN_HORIZONTAL = -(1 << (HORIZONTAL_BITS - 1));
+	private static final int MAX_HORIZONTAL = (1 << (HORIZONTAL_BITS - 1)) - 1;
+	private static final int MIN_VERTICAL = -(1 << (VERTICAL_BITS - 1));
+	private static final int MAX_VERTICAL = (1 << (VERTICAL_BITS - 1)) - 1;
+	private static final long HORIZONTAL_MASK = (1L << HORIZONTAL_BITS) - 1;
+	private static final long VERTICAL_MASK = (1L << VERTICAL_BITS) - 1;
+
+	private long[] keys;
+	private Object[] values;
+	private int size;
+	private HashMap<Point3D, V> overflow;
+
+	public PositionMap()
+	{
+		this.keys = new long[INITIAL_CAPACITY];
+		this.values = new Object[INITIAL_CAPACITY];
+		this.size = 0;
+		this.overflow = null;
+	}
+
+	public static boolean canPack(int x, int y, int z)
+	{
+		return (x >= MIN_HORIZONTAL && x <= MAX_HORIZONTAL &&
+				z >= MIN_HORIZONTAL && z <= MAX_HORIZONTAL &&
+				y >= MIN_VERTICAL && y <= MAX_VERTICAL);
+	}
+
+	public static long pack(int x, int y, int z)
+	{
+		return ((x & HORIZONTAL_MASK) << (HORIZONTAL_BITS + VERTICAL_BITS)) |
+				((z & HORIZONTAL_MASK) << VERTICAL_BITS) | (y & VERTICAL_MASK);
+	}
+
+	private static int hash(long key)
+	{
+		// The finalization step of MurmurHash3. Nearby positions differ only in their low bits,
+		// so they need to be spread across the whole table.
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	public int size()
+	{
+		return size + ((overflow != null) ? overflow.size() : 0);
+	}
+
+	public boolean isEmpty()
+	{
+		return (size() == 0);
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(int x, int y, int z)
+	{
+		if (!canPack(x, y, z))
+		{
+			return (overflow != null) ? overflow.get(new Point3D(x, y, z)) : null;
+		}
+		long key = pack(x, y, z);
+		int mask = keys.length - 1;
+		for (int slot = hash(key) & mask; values[slot] != null; slot = (slot + 1) & mask)
+		{
+			if (keys[slot] == key)
+			{
+				return (V) values[slot];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Associates a value with a position.
+	 * @return the value previously associated with the position, or null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int x, int y, int z, V value)
+	{
+		if (value == null)
+		{
+			throw new IllegalArgumentException("value cannot be null.");
+		}
+		if (!canPack(x, y, z))
+		{
+			if (overflow == null)
+			{
+				overflow = new HashMap<Point3D, V>();
+			}
+			return overflow.put(new Point3D(x, y, z), value);
+		}
+
+		long key = pack(x, y, z);
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		for (; values[slot] != null; slot = (slot + 1) & mask)
+		{
+			if (keys[slot] == key)
+			{
+				V previous = (V) values[slot];
+				values[slot] = value;
+				return previous;
+			}
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		// Keep the table at most 3/4 full so that probe sequences stay short
+		if (4 * size > 3 * keys.length)
+		{
+			resize(2 * keys.length);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the value associated with a position.
+	 * @return the value that was removed, or null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int x, int y, int z)
+	{
+		if (!canPack(x, y, z))
+		{
+			return (overflow != null) ? overflow.remove(new Point3D(x, y, z)) : null;
+		}
+
+		long key = pack(x, y, z);
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		for (; values[slot] != null; slot = (slot + 1) & mask)
+		{
+			if (keys[slot] == key)
+			{
+				V previous = (V) values[slot];
+				values[slot] = null;
+				size--;
+				closeGap(slot);
+				return previous;
+			}
+		}
+		return null;
+	}
+
+	private void closeGap(int gap)
+	{
+		// Linear probing can't use tombstones without slowing down over time, so instead we shift later
+		// entries back into the gap, as long as that doesn't move them before their home slots.
+		int mask = keys.length - 1;
+		for (int slot = (gap + 1) & mask; values[slot] != null; slot = (slot + 1) & mask)
+		{
+			int home = hash(keys[slot]) & mask;
+			// Move the entry unless its home slot lies cyclically within (gap, slot]
+			if (((slot - home) & mask) >= ((slot - gap) & mask))
+			{
+				keys[gap] = keys[slot];
+				values[gap] = values[slot];
+				values[slot] = null;
+				gap = slot;
+			}
+		}
+	}
+
+	private void resize(int capacity)
+	{
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[capacity];
+		values = new Object[capacity];
+		int mask = capacity - 1;
+		for (int index = 0; index < oldKeys.length; index++)
+		{
+			if (oldValues[index] != null)
+			{
+				int slot = hash(oldKeys[index]) & mask;
+				while (values[slot] != null)
+				{
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[index];
+				values[slot] = oldValues[index];
+			}
+		}
+	}
+
+	public void clear()
+	{
+		Arrays.fill(values, null);
+		size = 0;
+		overflow = null;
+	}
+}
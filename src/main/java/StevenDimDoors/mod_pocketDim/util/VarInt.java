@@ -0,0 +1,63 @@
+package StevenDimDoors.mod_pocketDim.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Reads and writes integers using a variable number of bytes. Small values take up a single byte.
+ * Signed values are zig-zag encoded first so that small negative numbers are also stored compactly.
+ */
+public class VarInt
+{
+	private VarInt() { }
+
+	public static void writeUnsigned(DataOutput output, int value) throws IOException
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			output.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output.writeByte(value);
+	}
+
+	public static int readUnsigned(DataInput input) throws IOException
+	{
+		int value = 0;
+		int shift = 0;
+		byte current;
+		do
+		{
+			if (shift > 28)
+			{
+				throw new IOException("Malformed variable-length integer.");
+			}
+			current = input.readByte();
+			value |= (current & 0x7F) << shift;
+			shift += 7;
+		}
+		while ((current & 0x80) != 0);
+		return value;
+	}
+
+	public static void writeSigned(DataOutput output, int value) throws IOException
+	{
+		writeUnsigned(output, encodeZigZag(value));
+	}
+
+	public static int readSigned(DataInput input) throws IOException
+	{
+		return decodeZigZag(readUnsigned(input));
+	}
+
+	public static int encodeZigZag(int value)
+	{
+		return (value << 1) ^ (value >> 31);
+	}
+
+	public static int decodeZigZag(int value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
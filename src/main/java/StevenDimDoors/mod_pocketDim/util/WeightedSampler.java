@@ -0,0 +1,280 @@
+package StevenDimDoors.mod_pocketDim.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+
+import net.minecraft.util.WeightedRandomItem;
+
+/**
+ * Picks items at random in proportion to their weights, like net.minecraft.util.WeightedRandom, but in constant
+ * time per draw. The sampler precomputes an alias table using Vose's method: each item gets a slot, and each slot
+ * holds a share of its own item's weight plus a share of one other item's weight. A draw picks a slot uniformly
+ * and then decides between the slot's two items. Integer arithmetic is used throughout, so every item is chosen
+ * with exactly the probability weight / total weight.
+ *
+ * Items can be excluded from individual draws using a Mask, without rebuilding the table. Draws with a mask
+ * reject excluded items and try again, or fall back to a linear scan once most of the weight has been excluded.
+ * Samplers are immutable and can be shared, but masks belong to a single caller.
+ */
+public class WeightedSampler<T>
+{
+	private final ArrayList<T> items;
+	private final int[] weights;
+	private final int[] thresholds;
+	private final int[] aliases;
+	private final int totalWeight;
+	private final IdentityHashMap<T, Integer> indices;
+
+	/**
+	 * Tracks which items have been excluded from the draws of a single caller.
+	 */
+	public class Mask
+	{
+		private final boolean[] excluded;
+		private int excludedWeight;
+
+		private Mask()
+		{
+			this.excluded = new boolean[items.size()];
+			this.excludedWeight = 0;
+		}
+
+		public void exclude(int index)
+		{
+			if (!excluded[index])
+			{
+				excluded[index] = true;
+				excludedWeight += weights[index];
+			}
+		}
+
+		public boolean isExcluded(int index)
+		{
+			return excluded[index];
+		}
+
+		/**
+		 * @return the total weight of the items that can still be drawn
+		 */
+		public int getRemainingWeight()
+		{
+			return totalWeight - excludedWeight;
+		}
+	}
+
+	public WeightedSampler(List<? extends T> items, int[] weights)
+	{
+		if (items.size() != weights.length)
+		{
+			throw new IllegalArgumentException("There must be exactly one weight per item.");
+		}
+
+		int count = weights.length;
+		long total = 0;
+		for (int weight : weights)
+		{
+			if (weight < 0)
+			{
+				throw new IllegalArgumentException("Weights cannot be negative.");
+			}
+			total += weight;
+		}
+		if (total > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("The total weight of the items is too large.");
+		}
+
+		this.items = new ArrayList<T>(items);
+		this.weights = weights.clone();
+		this.thresholds = new int[count];
+		this.aliases = new int[count];
+		this.totalWeight = (int) total;
+		this.indices = new IdentityHashMap<T, Integer>(count);
+		for (int index = count - 1; index >= 0; index--)
+		{
+			indices.put(this.items.get(index), index);
+		}
+		if (totalWeight > 0)
+		{
+			buildAliasTable();
+		}
+	}
+
+	/**
+	 * Creates a sampler for Minecraft's weighted items, using the weights stored in the items themselves.
+	 */
+	public static <T extends WeightedRandomItem> WeightedSampler<T> fromItems(Collection<? extends T> items)
+	{
+		ArrayList<T> list = new ArrayList<T>(items);
+		int[] weights = new int[list.size()];
+		for (int index = 0; index < weights.length; index++)
+		{
+			weights[index] = list.get(index).itemWeight;
+		}
+		return new WeightedSampler<T>(list, weights);
+	}
+
+	private void buildAliasTable()
+	{
+		// Scale every weight by the number of items so that a slot holds exactly totalWeight units.
+		// Slots with less than that are topped up with weight from items that have more than that.
+		int count = weights.length;
+		long[] scaled = new long[count];
+		int[] small = new int[count];
+		int[] large = new int[count];
+		int smallCount = 0;
+		int largeCount = 0;
+		for (int index = 0; index < count; index++)
+		{
+			scaled[index] = (long) weights[index] * count;
+			if (scaled[index] < totalWeight)
+			{
+				small[smallCount++] = index;
+			}
+			else
+			{
+				large[largeCount++] = index;
+			}
+		}
+		while (smallCount > 0 && largeCount > 0)
+		{
+			int lesser = small[--smallCount];
+			int greater = large[--largeCount];
+			thresholds[lesser] = (int) scaled[lesser];
+			aliases[lesser] = greater;
+			scaled[greater] -= totalWeight - scaled[lesser];
+			if (scaled[greater] < totalWeight)
+			{
+				small[smallCount++] = greater;
+			}
+			else
+			{
+				large[largeCount++] = greater;
+			}
+		}
+		// Whatever is left fills its slot exactly
+		while (largeCount > 0)
+		{
+			int index = large[--largeCount];
+			thresholds[index] = totalWeight;
+			aliases[index] = index;
+		}
+		while (smallCount > 0)
+		{
+			int index = small[--smallCount];
+			thresholds[index] = totalWeight;
+			aliases[index] = index;
+		}
+	}
+
+	public int size()
+	{
+		return items.size();
+	}
+
+	public T get(int index)
+	{
+		return items.get(index);
+	}
+
+	public int getWeight(int index)
+	{
+		return weights[index];
+	}
+
+	public int getTotalWeight()
+	{
+		return totalWeight;
+	}
+
+	/**
+	 * Finds the index of an item in this sampler. Items are compared by identity.
+	 * @return the index of the item, or -1 if it isn't part of this sampler
+	 */
+	public int indexOf(T item)
+	{
+		Integer index = indices.get(item);
+		return (index != null) ? index : -1;
+	}
+
+	public Mask createMask()
+	{
+		return new Mask();
+	}
+
+	/**
+	 * Picks the index of a random item.
+	 * @return the index of the chosen item, or -1 if every item has a weight of zero
+	 */
+	public int sampleIndex(Random random)
+	{
+		if (totalWeight <= 0)
+		{
+			return -1;
+		}
+		int slot = random.nextInt(thresholds.length);
+		return (random.nextInt(totalWeight) < thresholds[slot]) ? slot : aliases[slot];
+	}
+
+	/**
+	 * Picks the index of a random item that hasn't been excluded by the given mask.
+	 * @return the index of the chosen item, or -1 if no weight remains
+	 */
+	public int sampleIndex(Random random, Mask mask)
+	{
+		int remainingWeight = mask.getRemainingWeight();
+		if (remainingWeight <= 0)
+		{
+			return -1;
+		}
+		if (2 * (long) remainingWeight >= totalWeight)
+		{
+			// At least half of the weight remains, so rejection takes fewer than two draws on average
+			int index;
+			do
+			{
+				index = sampleIndex(random);
+			}
+			while (mask.excluded[index]);
+			return index;
+		}
+
+		// Most of the weight has been excluded. Scan the remaining items instead.
+		int target = random.nextInt(remainingWeight);
+		for (int index = 0; index < weights.length; index++)
+		{
+			if (!mask.excluded[index])
+			{
+				target -= weights[index];
+				if (target < 0)
+				{
+					return index;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Picks a random item.
+	 * @return the chosen item, or null if every item has a weight of zero
+	 */
+	public T sample(Random random)
+	{
+		int index = sampleIndex(random);
+		return (index >= 0) ? items.get(index) : null;
+	}
+
+	/**
+	 * Picks a random item that hasn't been excluded by the given mask.
+	 * @return the chosen item, or null if no weight remains
+	 */
+	public T sample(Random random, Mask mask)
+	{
+		int index = sampleIndex(random, mask);
+		return (index >= 0) ? items.get(index) : null;
+	}
+}
@@ -0,0 +1,302 @@
+package StevenDimDoors.mod_pocketDim.world;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.server.MinecraftServer;
+import StevenDimDoors.mod_pocketDim.config.DDProperties;
+import StevenDimDoors.mod_pocketDim.core.DimLink;
+import StevenDimDoors.mod_pocketDim.core.LinkType;
+import StevenDimDoors.mod_pocketDim.core.NewDimData;
+import StevenDimDoors.mod_pocketDim.core.PocketManager;
+import StevenDimDoors.mod_pocketDim.dungeon.DungeonData;
+import StevenDimDoors.mod_pocketDim.dungeon.DungeonSchematic;
+import StevenDimDoors.mod_pocketDim.dungeon.DungeonSchematicCache;
+import StevenDimDoors.mod_pocketDim.helpers.DungeonHelper;
+import StevenDimDoors.mod_pocketDim.ticking.IRegularTickReceiver;
+import StevenDimDoors.mod_pocketDim.ticking.IRegularTickSender;
+import StevenDimDoors.mod_pocketDim.util.Pair;
+import StevenDimDoors.mod_pocketDim.util.Point4D;
+
+/**
+ * Prepares dungeons for unvisited dungeon doors near players before anyone goes through them.
+ * When the server has time to spare, the prefetcher picks the dungeon that each nearby door will lead to
+ * and decodes its schematic on a background thread. Going through the door then only requires placing
+ * the dungeon in its new pocket.
+ *
+ * Selecting a dungeon depends on the dimension tree, so it's always done on the server thread. Only the
+ * schematic loading happens in the background. Prefetched dungeons are discarded if the dungeon packs
+ * change, the schematic file changes, or the door gets a destination some other way.
+ */
+public class DungeonPrefetcher implements IRegularTickReceiver
+{
+	private static final String THREAD_NAME = "Dimensional Doors Prefetcher";
+	private static final int PREFETCH_INTERVAL = 20; //Look for doors once per second
+	private static final int SEARCH_CHUNK_RADIUS = 2; //Look for doors within 2 chunks of each player
+	private static final long MAX_AVERAGE_TICK_TIME = 40000000L; //Only prefetch if ticks take less than 40 ms on average
+
+	private static class Prefetch
+	{
+		public final DimLink link;
+		public final DungeonData dungeon;
+		public final int packVersion;
+		public final long schematicVersion;
+		public final Future<DungeonSchematic> schematic;
+		public long size;
+
+		public Prefetch(DimLink link, DungeonData dungeon, int packVersion, Future<DungeonSchematic> schematic)
+		{
+			this.link = link;
+			this.dungeon = dungeon;
+			this.packVersion = packVersion;
+			this.schematicVersion = dungeon.schematicVersion();
+			this.schematic = schematic;
+			this.size = 0;
+		}
+	}
+
+	private final DDProperties properties;
+	private final Random random;
+	private final LinkedHashMap<Point4D, Prefetch> prefetches;
+	private final int capacity;
+	private final long memoryBudget;
+	private ExecutorService executor;
+	private long usedBytes;
+	private int hits;
+	private int misses;
+	private int discarded;
+
+	public DungeonPrefetcher(IRegularTickSender tickSender, DDProperties properties)
+	{
+		this.properties = properties;
+		this.random = new Random();
+		this.prefetches = new LinkedHashMap<Point4D, Prefetch>();
+		this.capacity = Math.max(properties.DungeonPrefetchLimit, 0);
+		this.memoryBudget = Math.max(properties.DungeonPrefetchMemory, 0) * 1024L * 1024L;
+		this.executor = null;
+		this.usedBytes = 0;
+		tickSender.registerReceiver(this, PREFETCH_INTERVAL, false);
+	}
+
+	public boolean isEnabled()
+	{
+		return (capacity > 0 && memoryBudget > 0);
+	}
+
+	@Override
+	public void notifyTick()
+	{
+		if (!isEnabled())
+		{
+			return;
+		}
+		discardStalePrefetches();
+		if (hasSpareTime())
+		{
+			findDoorsNearPlayers();
+		}
+	}
+
+	/**
+	 * Takes the dungeon that was prefetched for the specified link, if any. If the dungeon's schematic
+	 * is still being loaded, this method waits for it to finish, since that's no slower than loading it again.
+	 * @return the dungeon and a copy of its schematic ready for placement, or null if nothing usable was prefetched
+	 */
+	public Pair<DungeonData, DungeonSchematic> take(DimLink link)
+	{
+		Prefetch prefetch = prefetches.remove(link.source());
+		if (prefetch == null)
+		{
+			misses++;
+			return null;
+		}
+		usedBytes -= prefetch.size;
+		if (prefetch.link != link || isStale(prefetch))
+		{
+			prefetch.schematic.cancel(true);
+			discarded++;
+			misses++;
+			return null;
+		}
+
+		DungeonSchematic schematic;
+		try
+		{
+			schematic = prefetch.schematic.get();
+		}
+		catch (Exception e)
+		{
+			schematic = null;
+		}
+		if (schematic == null)
+		{
+			discarded++;
+			misses++;
+			return null;
+		}
+		hits++;
+		return new Pair<DungeonData, DungeonSchematic>(prefetch.dungeon, schematic);
+	}
+
+	/**
+	 * Discards all prefetched dungeons and stops the background thread.
+	 */
+	public void shutdown()
+	{
+		if (executor != null)
+		{
+			executor.shutdownNow();
+			executor = null;
+		}
+		prefetches.clear();
+		usedBytes = 0;
+	}
+
+	private boolean isStale(Prefetch prefetch)
+	{
+		return (prefetch.link.hasDestination() ||
+				PocketManager.getLink(prefetch.link.source()) != prefetch.link ||
+				prefetch.packVersion != DungeonHelper.instance().getPackVersion() ||
+				prefetch.schematicVersion != prefetch.dungeon.schematicVersion());
+	}
+
+	private void discardStalePrefetches()
+	{
+		Iterator<Prefetch> iterator = prefetches.values().iterator();
+		while (iterator.hasNext())
+		{
+			Prefetch prefetch = iterator.next();
+			boolean discard = isStale(prefetch);
+			if (!discard && prefetch.size == 0 && prefetch.schematic.isDone())
+			{
+				//The schematic has finished loading. Now we know how much memory it uses.
+				DungeonSchematic schematic = getResult(prefetch);
+				if (schematic != null)
+				{
+					prefetch.size = DungeonSchematicCache.estimateSize(schematic);
+					usedBytes += prefetch.size;
+					discard = (usedBytes > memoryBudget);
+				}
+				else
+				{
+					discard = true;
+				}
+			}
+			if (discard)
+			{
+				prefetch.schematic.cancel(true);
+				usedBytes -= prefetch.size;
+				iterator.remove();
+				discarded++;
+			}
+		}
+	}
+
+	private static DungeonSchematic getResult(Prefetch prefetch)
+	{
+		try
+		{
+			return prefetch.schematic.get();
+		}
+		catch (Exception e)
+		{
+			return null;
+		}
+	}
+
+	private static boolean hasSpareTime()
+	{
+		MinecraftServer server = MinecraftServer.getServer();
+		if (server == null)
+		{
+			return false;
+		}
+		long total = 0;
+		for (long tickTime : server.tickTimeArray)
+		{
+			total += tickTime;
+		}
+		return (total / server.tickTimeArray.length < MAX_AVERAGE_TICK_TIME);
+	}
+
+	private void findDoorsNearPlayers()
+	{
+		MinecraftServer server = MinecraftServer.getServer();
+		for (Object entity : server.getConfigurationManager().playerEntityList)
+		{
+			EntityPlayer player = (EntityPlayer) entity;
+			NewDimData dimension = PocketManager.getDimensionData(player.worldObj);
+			if (dimension == null)
+			{
+				continue;
+			}
+
+			int centerX = (int) Math.floor(player.posX) >> 4;
+			int centerZ = (int) Math.floor(player.posZ) >> 4;
+			for (int chunkX = centerX - SEARCH_CHUNK_RADIUS; chunkX <= centerX + SEARCH_CHUNK_RADIUS; chunkX++)
+			{
+				for (int chunkZ = centerZ - SEARCH_CHUNK_RADIUS; chunkZ <= centerZ + SEARCH_CHUNK_RADIUS; chunkZ++)
+				{
+					for (DimLink link : dimension.getChunkLinks(chunkX, chunkZ))
+					{
+						if (prefetches.size() >= capacity || usedBytes >= memoryBudget)
+						{
+							return;
+						}
+						if (link.linkType() == LinkType.DUNGEON && !link.hasDestination() &&
+							!prefetches.containsKey(link.source()))
+						{
+							prefetch(link, dimension);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private void prefetch(DimLink link, NewDimData parent)
+	{
+		final DungeonData dungeon = DungeonHelper.instance().selectNextDungeon(parent, random);
+		if (dungeon == null)
+		{
+			return;
+		}
+		if (executor == null)
+		{
+			executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable task)
+				{
+					Thread thread = new Thread(task, THREAD_NAME);
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+		}
+		Future<DungeonSchematic> schematic = executor.submit(new Callable<DungeonSchematic>()
+		{
+			@Override
+			public DungeonSchematic call()
+			{
+				return PocketBuilder.loadAndValidateDungeon(dungeon, properties);
+			}
+		});
+		prefetches.put(link.source(), new Prefetch(link, dungeon, DungeonHelper.instance().getPackVersion(), schematic));
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Dungeon prefetcher: " + prefetches.size() + " of " + capacity + " prefetched, " + (usedBytes / 1024) + " of " +
+				(memoryBudget / 1024) + " KB used, " + hits + " hits, " + misses + " misses, " + discarded + " discarded";
+	}
+}
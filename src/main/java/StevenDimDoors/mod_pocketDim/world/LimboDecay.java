@@ -6,6 +6,8 @@ import net.minecraft.block.Block;
 import net.minecraft.block.BlockContainer;
 import net.minecraft.world.ChunkCoordIntPair;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 import net.minecraftforge.common.DimensionManager;
 import StevenDimDoors.mod_pocketDim.config.DDProperties;
 
@@ -19,6 +21,12 @@ public class LimboDecay {
 	private static final int DECAY_SPREAD_CHANCE = 50;
 	private static final int CHUNK_SIZE = 16;
 	private static final int SECTION_HEIGHT = 16;
+	private static final int RANDOM_TICKS_PER_SECTION = 3; //The number of random block ticks per chunk section per tick in vanilla
+	
+	//The probability that a block next to a single Unraveled Fabric block decays in one tick. Spread decay used to
+	//be applied whenever Unraveled Fabric received a random tick, so this preserves the rate at which it happened.
+	private static final double SPREAD_DECAY_PROBABILITY = (double) RANDOM_TICKS_PER_SECTION /
+			(CHUNK_SIZE * CHUNK_SIZE * SECTION_HEIGHT) * DECAY_SPREAD_CHANCE / MAX_DECAY_SPREAD_CHANCE;
 	
 	//Provides a reversed list of the block IDs that blocks cycle through during decay.
 	private final int[] decaySequence;
@@ -26,6 +34,9 @@ public class LimboDecay {
 	private final Random random;
 	private final DDProperties properties;
 	private final int[] blocksImmuneToDecay;
+	private final long fastDecayTimeBudget;
+	private final LimboDecayFrontier frontier;
+	private int nextChunkIndex;
 	
 	public LimboDecay(DDProperties properties)
 	{
@@ -50,75 +61,307 @@ public class LimboDecay {
 		
 		this.properties = properties;
 		this.random = new Random();
+		this.fastDecayTimeBudget = Math.max(properties.LimboDecayTimeBudget, 0) * 1000L;
+		this.frontier = new LimboDecayFrontier();
+		this.nextChunkIndex = 0;
 	}
 
 	/**
-	 * Checks the blocks orthogonally around a given location (presumably the location of an Unraveled Fabric block)
-	 * and applies Limbo decay to them. This gives the impression that decay spreads outward from Unraveled Fabric.
+	 * Adds the blocks orthogonally around a given location (presumably the location of an Unraveled Fabric block)
+	 * to the decay frontier if they can decay. This should be called whenever Unraveled Fabric is placed in Limbo
+	 * or one of its neighbors changes.
+	 */
+	public void addNeighborsToFrontier(World world, int x, int y, int z)
+	{
+		if (world.isRemote || world.provider.dimensionId != properties.LimboDimensionID)
+		{
+			return;
+		}
+		addToFrontier(world, x - 1, y, z);
+		addToFrontier(world, x + 1, y, z);
+		addToFrontier(world, x, y, z - 1);
+		addToFrontier(world, x, y, z + 1);
+		addToFrontier(world, x, y - 1, z);
+		addToFrontier(world, x, y + 1, z);
+	}
+	
+	private void addToFrontier(World world, int x, int y, int z)
+	{
+		//World.blockExists() checks that the location is within the world and that its chunk is loaded.
+		//If the chunk isn't loaded, the block will be found when the chunk is scanned as it loads.
+		if (world.blockExists(x, y, z) && canDecayBlock(world.getBlockId(x, y, z)))
+		{
+			frontier.add(x, y, z);
+		}
+	}
+	
+	/**
+	 * Finds the blocks in a newly loaded chunk in Limbo that are next to Unraveled Fabric and adds them to the
+	 * decay frontier. Blocks are read from the chunk's storage directly and empty sections are skipped.
+	 */
+	public void scanChunk(Chunk chunk)
+	{
+		World world = chunk.worldObj;
+		if (world.isRemote || world.provider.dimensionId != properties.LimboDimensionID)
+		{
+			return;
+		}
+		
+		int limboBlockID = properties.LimboBlockID;
+		int baseX = chunk.xPosition * CHUNK_SIZE;
+		int baseZ = chunk.zPosition * CHUNK_SIZE;
+		ExtendedBlockStorage[] sections = chunk.getBlockStorageArray();
+		for (int sectionY = 0; sectionY < sections.length; sectionY++)
+		{
+			ExtendedBlockStorage section = sections[sectionY];
+			if (section == null || section.isEmpty())
+			{
+				continue;
+			}
+			for (int localY = 0; localY < SECTION_HEIGHT; localY++)
+			{
+				int y = sectionY * SECTION_HEIGHT + localY;
+				for (int localZ = 0; localZ < CHUNK_SIZE; localZ++)
+				{
+					for (int localX = 0; localX < CHUNK_SIZE; localX++)
+					{
+						int blockID = section.getExtBlockID(localX, localY, localZ);
+						if (blockID != 0 && canDecayBlock(blockID) &&
+							(isFabric(world, chunk, localX - 1, y, localZ, limboBlockID) ||
+							isFabric(world, chunk, localX + 1, y, localZ, limboBlockID) ||
+							isFabric(world, chunk, localX, y, localZ - 1, limboBlockID) ||
+							isFabric(world, chunk, localX, y, localZ + 1, limboBlockID) ||
+							isFabric(world, chunk, localX, y - 1, localZ, limboBlockID) ||
+							isFabric(world, chunk, localX, y + 1, localZ, limboBlockID)))
+						{
+							frontier.add(baseX + localX, y, baseZ + localZ);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	private static boolean isFabric(World world, Chunk chunk, int localX, int y, int localZ, int limboBlockID)
+	{
+		if (y < 0 || y >= world.getHeight())
+		{
+			return false;
+		}
+		if (localX >= 0 && localX < CHUNK_SIZE && localZ >= 0 && localZ < CHUNK_SIZE)
+		{
+			return (chunk.getBlockID(localX, y, localZ) == limboBlockID);
+		}
+		//The neighbor is in another chunk. If that chunk isn't loaded, assume that the neighbor is fabric.
+		//The block will be dropped from the frontier later if it turns out not to be next to any fabric.
+		int x = chunk.xPosition * CHUNK_SIZE + localX;
+		int z = chunk.zPosition * CHUNK_SIZE + localZ;
+		return (!world.blockExists(x, y, z) || world.getBlockId(x, y, z) == limboBlockID);
+	}
+	
+	/**
+	 * Forgets about the frontier blocks in a chunk that is being unloaded.
 	 */
-	public void applySpreadDecay(World world, int x, int y, int z)
-	{		
-		//Check if we randomly apply decay spread or not. This can be used to moderate the frequency of
-		//full spread decay checks, which can also shift its performance impact on the game.
-		if (random.nextInt(MAX_DECAY_SPREAD_CHANCE) < DECAY_SPREAD_CHANCE)
-		{
-			//Apply decay to the blocks above, below, and on all four sides.
-			//World.getBlockId() implements bounds checking, so we don't have to worry about reaching out of the world
-			decayBlock(world, x - 1, y, z);
-			decayBlock(world, x + 1, y, z);
-			decayBlock(world, x, y, z - 1);
-			decayBlock(world, x, y, z + 1);
-			decayBlock(world, x, y - 1, z);
-			decayBlock(world, x, y + 1, z);
+	public void unloadChunk(Chunk chunk)
+	{
+		if (!chunk.worldObj.isRemote && chunk.worldObj.provider.dimensionId == properties.LimboDimensionID)
+		{
+			frontier.removeChunk(chunk.xPosition, chunk.zPosition);
 		}
 	}
 	
+	/**
+	 * Forgets the whole decay frontier. This should be called when the server stops.
+	 */
+	public void clearFrontier()
+	{
+		frontier.clear();
+	}
+	
+	public int getFrontierSize()
+	{
+		return frontier.size();
+	}
+	
+	/**
+	 * Applies decay to the blocks in the decay frontier of each active chunk in Limbo. This gives the impression
+	 * that decay spreads outward from Unraveled Fabric. Each block decays with a probability that depends on
+	 * how many Unraveled Fabric blocks are next to it and how much time has passed since the last call.
+	 * @param elapsedTicks - the number of ticks since the last time spread decay was applied
+	 */
+	public void applySpreadDecay(int elapsedTicks)
+	{
+		World limbo = DimensionManager.getWorld(properties.LimboDimensionID);
+		if (limbo == null)
+		{
+			return;
+		}
+		
+		int limboBlockID = properties.LimboBlockID;
+		double probability = SPREAD_DECAY_PROBABILITY * elapsedTicks;
+		for (Object coordObject : limbo.activeChunkSet)
+		{
+			ChunkCoordIntPair chunkCoord = (ChunkCoordIntPair) coordObject;
+			LimboDecayFrontier.ChunkFrontier chunkFrontier = frontier.getChunk(chunkCoord);
+			if (chunkFrontier == null || !limbo.getChunkProvider().chunkExists(chunkCoord.chunkXPos, chunkCoord.chunkZPos))
+			{
+				continue;
+			}
+			
+			int baseX = chunkCoord.chunkXPos * CHUNK_SIZE;
+			int baseZ = chunkCoord.chunkZPos * CHUNK_SIZE;
+			//Iterate backwards so that blocks added or removed during the loop don't get processed twice
+			for (int index = chunkFrontier.size() - 1; index >= 0; index--)
+			{
+				int x = baseX + chunkFrontier.getLocalX(index);
+				int y = chunkFrontier.getY(index);
+				int z = baseZ + chunkFrontier.getLocalZ(index);
+				
+				int fabricCount = 0;
+				if (canDecayBlock(limbo.getBlockId(x, y, z)))
+				{
+					fabricCount = countNeighbors(limbo, x, y, z, limboBlockID);
+				}
+				if (fabricCount == 0)
+				{
+					//This block can't decay anymore or it's not next to fabric
+					chunkFrontier.remove(index);
+				}
+				else if (random.nextDouble() < fabricCount * probability)
+				{
+					decayBlock(limbo, x, y, z);
+				}
+			}
+		}
+	}
+	
+	private static int countNeighbors(World world, int x, int y, int z, int blockID)
+	{
+		int count = 0;
+		if (world.getBlockId(x - 1, y, z) == blockID) count++;
+		if (world.getBlockId(x + 1, y, z) == blockID) count++;
+		if (world.getBlockId(x, y, z - 1) == blockID) count++;
+		if (world.getBlockId(x, y, z + 1) == blockID) count++;
+		if (world.getBlockId(x, y - 1, z) == blockID) count++;
+		if (world.getBlockId(x, y + 1, z) == blockID) count++;
+		return count;
+	}
+	
 	/**
 	 * Picks random blocks from each active chunk in Limbo and, if decay is applicable, converts them directly to Unraveled Fabric.
 	 * This decay method is designed to stop players from avoiding Limbo decay by building floating structures.
 	 */
 	public void applyRandomFastDecay()
 	{
-		int x, y, z;
-		int sectionY;
-		int limboHeight;
 		World limbo = DimensionManager.getWorld(properties.LimboDimensionID);
 		
 		if (limbo != null)
 		{
-			limboHeight = limbo.getHeight();
+			//Obtain the coordinates of active chunks in Limbo and decay blocks in each of them until we
+			//run out of time. If we run out, the next call picks up from the first chunk we didn't get to,
+			//so that every chunk gets its turn even if Limbo is crowded.
+			long deadline = (fastDecayTimeBudget > 0) ? System.nanoTime() + fastDecayTimeBudget : Long.MAX_VALUE;
+			int chunkCount = limbo.activeChunkSet.size();
+			int start = (nextChunkIndex < chunkCount) ? nextChunkIndex : 0;
+			int processed = 0;
 			
-			//Obtain the coordinates of active chunks in Limbo. For each section of each chunk,
-			//pick a random block and try to apply fast decay.
-			for (Object coordObject : limbo.activeChunkSet)
+			//Process the chunks from the starting index to the end, then wrap around to the beginning
+			for (int pass = 0; pass < 2 && processed < chunkCount; pass++)
 			{
-				ChunkCoordIntPair chunkCoord = (ChunkCoordIntPair) coordObject;
-				
-				//Loop through each chunk section and fast-decay a random block
-				//Apply the changes using the world object instead of directly to the chunk so that clients are always notified.
-				for (sectionY = 0; sectionY < limboHeight; sectionY += SECTION_HEIGHT)
+				int index = 0;
+				for (Object coordObject : limbo.activeChunkSet)
 				{
-					x = chunkCoord.chunkXPos * CHUNK_SIZE + random.nextInt(CHUNK_SIZE);
-					z = chunkCoord.chunkZPos * CHUNK_SIZE + random.nextInt(CHUNK_SIZE);
-					y = sectionY + random.nextInt(SECTION_HEIGHT);
-					decayBlockFast(limbo, x, y, z);
+					if ((pass == 0) ? (index >= start) : (index < start))
+					{
+						//Always decay at least one chunk so that we make progress
+						if (processed > 0 && System.nanoTime() >= deadline)
+						{
+							nextChunkIndex = index;
+							return;
+						}
+						ChunkCoordIntPair chunkCoord = (ChunkCoordIntPair) coordObject;
+						decayChunkFast(limbo, chunkCoord.chunkXPos, chunkCoord.chunkZPos);
+						processed++;
+					}
+					index++;
 				}
 			}
+			nextChunkIndex = start;
 		}
 	}
 	
 	/**
-	 * Checks if a block can be decayed and, if so, changes it directly into Unraveled Fabric.
+	 * Picks a random block from each non-empty section of a chunk and, if decay is applicable, converts it
+	 * directly to Unraveled Fabric. Blocks are read from and written to the chunk's storage directly, so empty
+	 * sections are skipped entirely and the chunk is only marked as modified once.
 	 */
-	private boolean decayBlockFast(World world, int x, int y, int z)
+	private void decayChunkFast(World world, int chunkX, int chunkZ)
 	{
-		int blockID = world.getBlockId(x, y, z);
-		if (canDecayBlock(blockID))
+		//Don't force chunks to load just to decay them
+		if (!world.getChunkProvider().chunkExists(chunkX, chunkZ))
 		{
-			world.setBlock(x, y, z, properties.LimboBlockID);
-			return true;
+			return;
 		}
-		return false;
+		
+		Chunk chunk = world.getChunkFromChunkCoords(chunkX, chunkZ);
+		ExtendedBlockStorage[] sections = chunk.getBlockStorageArray();
+		boolean modified = false;
+		
+		for (int sectionY = 0; sectionY < sections.length; sectionY++)
+		{
+			ExtendedBlockStorage section = sections[sectionY];
+			if (section == null || section.isEmpty())
+			{
+				continue;
+			}
+			
+			//Use the bits of a single random number to pick a block within the section
+			int location = random.nextInt(CHUNK_SIZE * CHUNK_SIZE * SECTION_HEIGHT);
+			int localX = location & 15;
+			int localZ = (location >> 4) & 15;
+			int localY = location >> 8;
+			int blockID = section.getExtBlockID(localX, localY, localZ);
+			if (canDecayBlock(blockID))
+			{
+				int x = chunkX * CHUNK_SIZE + localX;
+				int y = sectionY * SECTION_HEIGHT + localY;
+				int z = chunkZ * CHUNK_SIZE + localZ;
+				if (canReplaceDirectly(blockID, section.getExtBlockMetadata(localX, localY, localZ)))
+				{
+					section.setExtBlockID(localX, localY, localZ, properties.LimboBlockID);
+					section.setExtBlockMetadata(localX, localY, localZ, 0);
+					
+					//Queue the change to be sent to clients. Changes to the same chunk are sent together.
+					world.markBlockForUpdate(x, y, z);
+					world.notifyBlockChange(x, y, z, properties.LimboBlockID);
+					//Writing to storage skips BlockLimbo.onBlockAdded(), so update the decay frontier here
+					addNeighborsToFrontier(world, x, y, z);
+					modified = true;
+				}
+				else
+				{
+					//Let the world handle blocks that need lighting updates or have tile entities
+					world.setBlock(x, y, z, properties.LimboBlockID);
+				}
+			}
+		}
+		if (modified)
+		{
+			chunk.setChunkModified();
+		}
+	}
+	
+	/**
+	 * Checks whether a block can be replaced with Unraveled Fabric by writing to chunk storage directly.
+	 * That's only safe if the replacement doesn't change lighting and there's no tile entity to remove.
+	 */
+	private boolean canReplaceDirectly(int blockID, int metadata)
+	{
+		Block block = Block.blocksList[blockID];
+		int limboBlockID = properties.LimboBlockID;
+		return (block != null && !block.hasTileEntity(metadata) &&
+				Block.lightOpacity[blockID] == Block.lightOpacity[limboBlockID] &&
+				Block.lightValue[blockID] == Block.lightValue[limboBlockID]);
 	}
 	
 	/**
@@ -0,0 +1,130 @@
+package StevenDimDoors.mod_pocketDim.world;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import net.minecraft.world.ChunkCoordIntPair;
+
+/**
+ * Keeps track of the blocks in Limbo that could decay because they're next to Unraveled Fabric.
+ * Blocks are grouped by chunk so that only the chunks around players need to be processed, and
+ * so that a chunk's blocks can be forgotten when it unloads.
+ *
+ * The frontier only needs to be a superset of the blocks that can decay. Blocks that stop qualifying
+ * are removed lazily when the frontier is processed.
+ */
+public class LimboDecayFrontier
+{
+	/**
+	 * The frontier blocks within a single chunk. Each block is stored as its local coordinates packed
+	 * into an int (x | z << 4 | y << 8), along with a bitset to avoid adding the same block twice.
+	 */
+	public static class ChunkFrontier
+	{
+		private static final int INITIAL_CAPACITY = 16;
+
+		private final long[] members;
+		private int[] blocks;
+		private int count;
+
+		public ChunkFrontier()
+		{
+			this.members = new long[1 << 10];
+			this.blocks = new int[INITIAL_CAPACITY];
+			this.count = 0;
+		}
+
+		public void add(int localX, int y, int localZ)
+		{
+			int packed = localX | (localZ << 4) | (y << 8);
+			long mask = 1L << packed;
+			if ((members[packed >> 6] & mask) == 0)
+			{
+				members[packed >> 6] |= mask;
+				if (count == blocks.length)
+				{
+					blocks = Arrays.copyOf(blocks, count * 2);
+				}
+				blocks[count++] = packed;
+			}
+		}
+
+		/**
+		 * Removes the block at the specified index. The last block in the frontier takes its place,
+		 * so iterating backwards over the frontier visits every block exactly once even while removing blocks.
+		 */
+		public void remove(int index)
+		{
+			int packed = blocks[index];
+			members[packed >> 6] &= ~(1L << packed);
+			blocks[index] = blocks[--count];
+		}
+
+		public int size()
+		{
+			return count;
+		}
+
+		public int getLocalX(int index)
+		{
+			return blocks[index] & 15;
+		}
+
+		public int getLocalZ(int index)
+		{
+			return (blocks[index] >> 4) & 15;
+		}
+
+		public int getY(int index)
+		{
+			return blocks[index] >> 8;
+		}
+	}
+
+	private final HashMap<ChunkCoordIntPair, ChunkFrontier> chunks;
+
+	public LimboDecayFrontier()
+	{
+		this.chunks = new HashMap<ChunkCoordIntPair, ChunkFrontier>();
+	}
+
+	public void add(int x, int y, int z)
+	{
+		ChunkCoordIntPair coordinates = new ChunkCoordIntPair(x >> 4, z >> 4);
+		ChunkFrontier frontier = chunks.get(coordinates);
+		if (frontier == null)
+		{
+			frontier = new ChunkFrontier();
+			chunks.put(coordinates, frontier);
+		}
+		frontier.add(x & 15, y, z & 15);
+	}
+
+	public ChunkFrontier getChunk(ChunkCoordIntPair coordinates)
+	{
+		return chunks.get(coordinates);
+	}
+
+	public void removeChunk(int chunkX, int chunkZ)
+	{
+		chunks.remove(new ChunkCoordIntPair(chunkX, chunkZ));
+	}
+
+	public void clear()
+	{
+		chunks.clear();
+	}
+
+	/**
+	 * @return the total number of blocks in the frontier
+	 */
+	public int size()
+	{
+		int total = 0;
+		for (ChunkFrontier frontier : chunks.values())
+		{
+			total += frontier.size();
+		}
+		return total;
+	}
+}
@@ -21,6 +21,7 @@ import StevenDimDoors.mod_pocketDim.core.NewDimData;
 import StevenDimDoors.mod_pocketDim.core.PocketManager;
 import StevenDimDoors.mod_pocketDim.dungeon.DungeonData;
 import StevenDimDoors.mod_pocketDim.dungeon.DungeonSchematic;
+import StevenDimDoors.mod_pocketDim.dungeon.DungeonSchematicCache;
 import StevenDimDoors.mod_pocketDim.dungeon.pack.DungeonPackConfig;
 import StevenDimDoors.mod_pocketDim.helpers.DungeonHelper;
 import StevenDimDoors.mod_pocketDim.helpers.yCoordHelper;
@@ -46,6 +47,21 @@ public class PocketBuilder
 	private static boolean buildDungeonPocket(DungeonData dungeon, NewDimData dimension, DimLink link, DungeonSchematic schematic, World world, DDProperties properties)
 	{
 		//Calculate the destination point
+		Point3D destination = calculateDungeonDestination(dungeon, dimension, link, schematic, world);
+		int orientation = link.orientation();
+
+		//Generate the dungeon
+		schematic.copyToWorld(world, destination, orientation, link, random, properties, false);
+
+		//Finish up destination initialization
+		dimension.initializeDungeon(destination.getX(), destination.getY(), destination.getZ(), orientation, link, dungeon);
+		dimension.setFilled(true);
+		
+		return true;    
+	}
+
+	static Point3D calculateDungeonDestination(DungeonData dungeon, NewDimData dimension, DimLink link, DungeonSchematic schematic, World world)
+	{
 		DungeonPackConfig packConfig = dungeon.dungeonType().Owner != null ? dungeon.dungeonType().Owner.getConfig() : null;
 		Point4D source = link.source();
 		int orientation = link.orientation();
@@ -61,15 +77,7 @@ public class PocketBuilder
 		}
 
 		destination.setY( yCoordHelper.adjustDestinationY(destination.getY(), world.getHeight(), schematic.getEntranceDoorLocation().getY(), schematic.getHeight()) );
-
-		//Generate the dungeon
-		schematic.copyToWorld(world, destination, orientation, link, random, properties, false);
-
-		//Finish up destination initialization
-		dimension.initializeDungeon(destination.getX(), destination.getY(), destination.getZ(), orientation, link, dungeon);
-		dimension.setFilled(true);
-		
-		return true;    
+		return destination;
 	}
 
 	public static boolean generateSelectedDungeonPocket(DimLink link, DDProperties properties, DungeonData dungeon)
@@ -134,7 +142,7 @@ public class PocketBuilder
 
 		//Choose a dungeon to generate
 		NewDimData parent = PocketManager.getDimensionData(link.source().getDimension());
-		Pair<DungeonData, DungeonSchematic> pair = selectNextDungeon(parent, random, properties);
+		Pair<DungeonData, DungeonSchematic> pair = selectNextDungeon(link, parent, random, properties);
 		if (pair == null)
 		{
 			System.err.println("Could not select a dungeon for generation!");
@@ -175,6 +183,20 @@ public class PocketBuilder
 		return linkDestination;
 	}
 
+	static Pair<DungeonData, DungeonSchematic> selectNextDungeon(DimLink link, NewDimData parent, Random random, DDProperties properties)
+	{
+		//Use the dungeon that was prepared in advance for this door, if there is one
+		if (mod_pocketDim.dungeonPrefetcher != null)
+		{
+			Pair<DungeonData, DungeonSchematic> pair = mod_pocketDim.dungeonPrefetcher.take(link);
+			if (pair != null)
+			{
+				return pair;
+			}
+		}
+		return selectNextDungeon(parent, random, properties);
+	}
+
 	private static Pair<DungeonData, DungeonSchematic> selectNextDungeon(NewDimData parent, Random random, DDProperties properties)
 	{
 		DungeonData dungeon = null;
@@ -210,7 +232,30 @@ public class PocketBuilder
 		return new Pair<DungeonData, DungeonSchematic>(dungeon, schematic);
 	}
 
-	private static DungeonSchematic loadAndValidateDungeon(DungeonData dungeon, DDProperties properties)
+	/**
+	 * Loads a dungeon's schematic and prepares it for building. Schematics are kept in the schematic cache
+	 * after they've been loaded, so this returns a copy of the cached schematic whenever possible.
+	 * @return the schematic, or null if it could not be loaded or is not valid
+	 */
+	public static DungeonSchematic loadAndValidateDungeon(DungeonData dungeon, DDProperties properties)
+	{
+		DungeonSchematicCache cache = DungeonHelper.instance().getSchematicCache();
+		long version = dungeon.schematicVersion();
+		DungeonSchematic schematic = cache.get(dungeon.schematicPath(), version);
+		if (schematic == null)
+		{
+			schematic = readAndValidateDungeon(dungeon, properties);
+			if (schematic != null && cache.isEnabled())
+			{
+				// Keep the original in the cache and build from a copy so the cached version stays untouched
+				cache.put(dungeon.schematicPath(), version, schematic);
+				schematic = schematic.copy();
+			}
+		}
+		return schematic;
+	}
+	
+	private static DungeonSchematic readAndValidateDungeon(DungeonData dungeon, DDProperties properties)
 	{
 		try
 		{
@@ -0,0 +1,554 @@
+package StevenDimDoors.mod_pocketDim.world;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import net.minecraft.block.Block;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.potion.Potion;
+import net.minecraft.potion.PotionEffect;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.World;
+import net.minecraftforge.common.ForgeChunkManager;
+import net.minecraftforge.common.ForgeChunkManager.Ticket;
+import net.minecraftforge.common.ForgeChunkManager.Type;
+import StevenDimDoors.mod_pocketDim.Point3D;
+import StevenDimDoors.mod_pocketDim.mod_pocketDim;
+import StevenDimDoors.mod_pocketDim.config.DDProperties;
+import StevenDimDoors.mod_pocketDim.core.DDTeleporter;
+import StevenDimDoors.mod_pocketDim.core.DimLink;
+import StevenDimDoors.mod_pocketDim.core.DimensionType;
+import StevenDimDoors.mod_pocketDim.core.NewDimData;
+import StevenDimDoors.mod_pocketDim.core.PocketManager;
+import StevenDimDoors.mod_pocketDim.dungeon.DungeonData;
+import StevenDimDoors.mod_pocketDim.dungeon.DungeonSchematic;
+import StevenDimDoors.mod_pocketDim.schematic.BulkBlockSetter;
+import StevenDimDoors.mod_pocketDim.ticking.IRegularTickReceiver;
+import StevenDimDoors.mod_pocketDim.ticking.IRegularTickSender;
+import StevenDimDoors.mod_pocketDim.util.DDStatistics;
+import StevenDimDoors.mod_pocketDim.util.Pair;
+import StevenDimDoors.mod_pocketDim.util.Point4D;
+
+/**
+ * Builds dungeon pockets over several ticks instead of all at once. Building a dungeon involves loading
+ * a world, decoding a schematic and placing thousands of blocks, which could stall the server for a
+ * noticeable amount of time if it was done in the tick in which a player walks through a door.
+ *
+ * Each pocket is built in a series of resumable phases. Every tick, the queue works on its pending pockets
+ * until it runs out of its time budget. Entities that tried to go through a door while its pocket was being
+ * built are sent through once the pocket is ready, as long as they're still standing in the doorway.
+ *
+ * A pocket's chunks are force-loaded with a chunk ticket while it's being built, so that Forge doesn't unload
+ * the pocket's world in the middle of the job. If a phase fails after the pocket has been registered, the
+ * pocket is rebuilt all at once so that its link never leads to a half-built dungeon.
+ *
+ * The link that a pocket is being built for can be deleted or replaced while the job is running. Before each
+ * step, the queue checks that the link is still the one at its source. If it isn't, the job is abandoned and
+ * its half-built pocket is deleted as soon as the pocket's world has been unloaded.
+ */
+public class PocketGenerationQueue implements IRegularTickReceiver
+{
+	private static final int GENERATION_INTERVAL = 1; //Work on pockets every tick
+	private static final int WAITING_EFFECT_DURATION = 60; //Blind waiting players for 3 seconds
+	private static final double MAX_WAITING_DISTANCE_SQUARED = 2.5 * 2.5;
+
+	private enum Phase
+	{
+		SELECT("Selecting dungeon"),
+		PREPARE("Preparing dimension"),
+		PLACE_BLOCKS("Placing blocks"),
+		PLACE_TILE_ENTITIES("Placing tile entities"),
+		SET_UP_LINKS("Setting up links"),
+		SET_UP_MONOLITHS("Setting up Monoliths"),
+		FINISH("Finishing"),
+		DONE("Done");
+
+		public final String description;
+
+		private Phase(String description)
+		{
+			this.description = description;
+		}
+	}
+
+	private final DDProperties properties;
+	private final Random random;
+	private final LinkedHashMap<Point4D, DungeonJob> jobs;
+	private final ArrayList<NewDimData> abandonedPockets;
+	private final long timeBudget;
+
+	//Timing metrics for each phase, in nanoseconds
+	private final long[] phaseTimes;
+	private int completedCount;
+	private int failedCount;
+	private int abandonedCount;
+
+	public PocketGenerationQueue(IRegularTickSender tickSender, DDProperties properties)
+	{
+		this.properties = properties;
+		this.random = new Random();
+		this.jobs = new LinkedHashMap<Point4D, DungeonJob>();
+		this.abandonedPockets = new ArrayList<NewDimData>();
+		this.timeBudget = Math.max(properties.PocketGenerationTimeBudget, 0) * 1000000L;
+		this.phaseTimes = new long[Phase.values().length];
+		this.completedCount = 0;
+		this.failedCount = 0;
+		this.abandonedCount = 0;
+		tickSender.registerReceiver(this, GENERATION_INTERVAL, false);
+	}
+
+	/**
+	 * Indicates whether pockets should be built by the queue. If not, they should be built immediately.
+	 */
+	public boolean isEnabled()
+	{
+		return (timeBudget > 0);
+	}
+
+	public boolean isPending(DimLink link)
+	{
+		return jobs.containsKey(link.source());
+	}
+
+	public int getPendingCount()
+	{
+		return jobs.size();
+	}
+
+	/**
+	 * Queues the construction of a dungeon pocket for the specified link, unless one is already queued.
+	 * @param link - the link that will lead to the new dungeon
+	 * @param entity - an entity that should be sent through the link once the dungeon is ready, or null
+	 * @param door - the door block the entity is using, or null
+	 */
+	public void enqueueDungeon(DimLink link, Entity entity, Block door)
+	{
+		DungeonJob job = jobs.get(link.source());
+		if (job != null && !job.isLinkCurrent())
+		{
+			//The job was started for a link that has since been replaced by this one
+			jobs.remove(link.source());
+			abandon(job);
+			job = null;
+		}
+		if (job == null)
+		{
+			job = new DungeonJob(link, door);
+			jobs.put(link.source(), job);
+		}
+		if (entity != null && !job.waitingEntities.contains(entity))
+		{
+			job.waitingEntities.add(entity);
+			if (entity instanceof EntityPlayer)
+			{
+				//Fade the player out while they wait for the dungeon
+				((EntityPlayer) entity).addPotionEffect(new PotionEffect(Potion.blindness.id, WAITING_EFFECT_DURATION, 0));
+			}
+		}
+	}
+
+	@Override
+	public void notifyTick()
+	{
+		if (!abandonedPockets.isEmpty())
+		{
+			deleteAbandonedPockets();
+		}
+		if (jobs.isEmpty())
+		{
+			return;
+		}
+
+		//Always make some progress, even if a single step takes longer than the budget
+		long deadline = System.nanoTime() + timeBudget;
+		do
+		{
+			processNextStep();
+		}
+		while (!jobs.isEmpty() && System.nanoTime() < deadline);
+	}
+
+	/**
+	 * Builds all pending pockets right away. This should be called before saving so that
+	 * we never save a pocket that's only partially built.
+	 */
+	public void finishAll()
+	{
+		while (!jobs.isEmpty())
+		{
+			processNextStep();
+		}
+	}
+
+	public void clear()
+	{
+		for (DungeonJob job : jobs.values())
+		{
+			job.releaseTicket();
+		}
+		jobs.clear();
+		abandonedPockets.clear();
+	}
+
+	private void processNextStep()
+	{
+		Iterator<DungeonJob> iterator = jobs.values().iterator();
+		DungeonJob job = iterator.next();
+		if (!job.isLinkCurrent())
+		{
+			iterator.remove();
+			abandon(job);
+			return;
+		}
+		Phase phase = job.phase;
+		long startTime = System.nanoTime();
+		boolean succeeded;
+		try
+		{
+			succeeded = job.step();
+		}
+		catch (Exception e)
+		{
+			System.err.println("An error occurred while building a dungeon pocket (" + phase.description + "):");
+			e.printStackTrace();
+			succeeded = false;
+		}
+		long elapsed = System.nanoTime() - startTime;
+		phaseTimes[phase.ordinal()] += elapsed;
+		job.buildTime += elapsed;
+
+		if (!succeeded)
+		{
+			iterator.remove();
+			job.releaseTicket();
+			if (job.recover())
+			{
+				completedCount++;
+				job.sendWaitingEntities();
+			}
+			else
+			{
+				failedCount++;
+				job.releaseWaitingEntities();
+			}
+		}
+		else if (job.phase == Phase.DONE)
+		{
+			iterator.remove();
+			job.releaseTicket();
+			completedCount++;
+			if (DDStatistics.isEnabled())
+			{
+				DDStatistics.POCKET_GENERATION.record(job.buildTime);
+			}
+			job.sendWaitingEntities();
+		}
+	}
+
+	/**
+	 * Stops building a pocket whose link was deleted or replaced. Nothing can lead to the pocket anymore,
+	 * so it's deleted. A pocket can only be deleted once its world is unloaded, which happens some time
+	 * after the job's chunk ticket is released, so the deletion is retried every tick until then.
+	 */
+	private void abandon(DungeonJob job)
+	{
+		abandonedCount++;
+		job.releaseTicket();
+		job.releaseWaitingEntities();
+		if (job.dimension != null && !job.dimension.isFilled() && !PocketManager.deletePocket(job.dimension, true))
+		{
+			abandonedPockets.add(job.dimension);
+		}
+	}
+
+	private void deleteAbandonedPockets()
+	{
+		Iterator<NewDimData> iterator = abandonedPockets.iterator();
+		while (iterator.hasNext())
+		{
+			NewDimData dimension = iterator.next();
+			if (PocketManager.getDimensionData(dimension.id()) != dimension || PocketManager.deletePocket(dimension, true))
+			{
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return a summary of how much time the queue has spent in each phase
+	 */
+	public String getStatistics()
+	{
+		StringBuilder builder = new StringBuilder();
+		builder.append("Pocket generation: ").append(completedCount).append(" built, ")
+			.append(failedCount).append(" failed, ").append(abandonedCount).append(" abandoned, ")
+			.append(jobs.size()).append(" pending");
+		for (Phase phase : Phase.values())
+		{
+			if (phase != Phase.DONE)
+			{
+				builder.append("\n  ").append(phase.description).append(": ")
+					.append(String.format("%.1f", phaseTimes[phase.ordinal()] / 1000000.0)).append(" ms");
+				if (completedCount > 0)
+				{
+					builder.append(String.format(" (%.2f ms per pocket)", phaseTimes[phase.ordinal()] / 1000000.0 / completedCount));
+				}
+			}
+		}
+		return builder.toString();
+	}
+
+	private class DungeonJob
+	{
+		private final Point4D source;
+		private final DimLink link;
+		private final Block door;
+		private final ArrayList<Entity> waitingEntities;
+		private Phase phase;
+		private long buildTime;
+
+		private DungeonData dungeon;
+		private DungeonSchematic schematic;
+		private NewDimData dimension;
+		private World world;
+		private Point3D destination;
+		private BulkBlockSetter blockSetter;
+		private DungeonSchematic.Placement placement;
+		private Ticket ticket;
+
+		public DungeonJob(DimLink link, Block door)
+		{
+			this.source = link.source();
+			this.link = link;
+			this.door = door;
+			this.waitingEntities = new ArrayList<Entity>();
+			this.phase = Phase.SELECT;
+			this.buildTime = 0;
+		}
+
+		/**
+		 * Checks whether the link this pocket is being built for still exists. A deleted link loses its source,
+		 * and a link placed at the same spot afterwards is a different instance. Once the pocket has been
+		 * registered, the link must also not have been given a destination by something else.
+		 */
+		public boolean isLinkCurrent()
+		{
+			if (PocketManager.getLink(source) != link)
+			{
+				return false;
+			}
+			return (dimension == null || !link.hasDestination());
+		}
+
+		/**
+		 * Performs the next step of building this pocket.
+		 * @return false if the pocket could not be built, true otherwise
+		 */
+		public boolean step()
+		{
+			switch (phase)
+			{
+				case SELECT:
+					if (link.hasDestination())
+					{
+						//Something else already set up this link
+						phase = Phase.DONE;
+						return true;
+					}
+					NewDimData parent = PocketManager.getDimensionData(link.source().getDimension());
+					Pair<DungeonData, DungeonSchematic> pair = PocketBuilder.selectNextDungeon(link, parent, random, properties);
+					if (pair == null)
+					{
+						System.err.println("Could not select a dungeon for generation!");
+						return false;
+					}
+					dungeon = pair.getFirst();
+					schematic = pair.getSecond();
+					phase = Phase.PREPARE;
+					return true;
+
+				case PREPARE:
+					if (link.hasDestination())
+					{
+						phase = Phase.DONE;
+						return true;
+					}
+					parent = PocketManager.getDimensionData(link.source().getDimension());
+					dimension = PocketManager.registerPocket(parent, DimensionType.DUNGEON);
+					world = PocketManager.loadDimension(dimension.id());
+					if (world == null || world.provider == null)
+					{
+						System.err.println("Could not initialize dimension for a dungeon!");
+						return false;
+					}
+					destination = PocketBuilder.calculateDungeonDestination(dungeon, dimension, link, schematic, world);
+					blockSetter = new BulkBlockSetter(false);
+					placement = schematic.beginPlacement(world, destination, link.orientation(), link, random, properties, blockSetter);
+					phase = Phase.PLACE_BLOCKS;
+					if (!forceChunks())
+					{
+						//Without a ticket, nothing stops the world from being unloaded between ticks. Finish now instead.
+						return finishNow();
+					}
+					return true;
+
+				case PLACE_BLOCKS:
+					//Place a single layer at a time so that we can stop as soon as we run out of time
+					if (placement.placeLayers(1))
+					{
+						phase = Phase.PLACE_TILE_ENTITIES;
+					}
+					return true;
+
+				case PLACE_TILE_ENTITIES:
+					placement.placeTileEntities();
+					phase = Phase.SET_UP_LINKS;
+					return true;
+
+				case SET_UP_LINKS:
+					placement.setUpLinks();
+					phase = Phase.SET_UP_MONOLITHS;
+					return true;
+
+				case SET_UP_MONOLITHS:
+					placement.setUpMonoliths();
+					phase = Phase.FINISH;
+					return true;
+
+				case FINISH:
+					blockSetter.finish(world);
+					dimension.initializeDungeon(destination.getX(), destination.getY(), destination.getZ(), link.orientation(), link, dungeon);
+					dimension.setFilled(true);
+					phase = Phase.DONE;
+					return true;
+
+				default:
+					return true;
+			}
+		}
+
+		/**
+		 * Keeps the chunks that the dungeon will occupy loaded until the job is done. Forcing any chunk
+		 * also keeps the pocket's world from being unloaded.
+		 * @return true if the chunks were forced, false if no ticket was available
+		 */
+		private boolean forceChunks()
+		{
+			ticket = ForgeChunkManager.requestTicket(mod_pocketDim.instance, world, Type.NORMAL);
+			if (ticket == null)
+			{
+				System.err.println("Could not get a chunk ticket for a dungeon pocket. Building it right away instead.");
+				return false;
+			}
+			//The schematic is rotated around its entrance, which is placed at the destination
+			int radius = Math.max(schematic.getWidth(), schematic.getLength());
+			int minChunkX = (destination.getX() - radius) >> 4;
+			int maxChunkX = (destination.getX() + radius) >> 4;
+			int minChunkZ = (destination.getZ() - radius) >> 4;
+			int maxChunkZ = (destination.getZ() + radius) >> 4;
+			for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++)
+			{
+				for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++)
+				{
+					ForgeChunkManager.forceChunk(ticket, new ChunkCoordIntPair(chunkX, chunkZ));
+				}
+			}
+			return true;
+		}
+
+		public void releaseTicket()
+		{
+			if (ticket != null)
+			{
+				ForgeChunkManager.releaseTicket(ticket);
+				ticket = null;
+			}
+		}
+
+		private boolean finishNow()
+		{
+			while (phase != Phase.DONE)
+			{
+				if (!step())
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Cleans up after a phase has failed. If no pocket has been registered yet, there's nothing to undo.
+		 * A pocket whose world couldn't be loaded is deleted. Otherwise, the pocket is rebuilt in one go,
+		 * the same way it would have been built without the queue.
+		 * @return true if the pocket was built after all, false otherwise
+		 */
+		public boolean recover()
+		{
+			if (dimension == null)
+			{
+				return false;
+			}
+			if (world == null || world.provider == null)
+			{
+				PocketManager.deletePocket(dimension, false);
+				return false;
+			}
+			if (dimension.isFilled())
+			{
+				//The pocket was finished before something else went wrong
+				return true;
+			}
+			System.err.println("Rebuilding the dungeon pocket in dimension " + dimension.id() + " all at once...");
+			try
+			{
+				if (destination == null)
+				{
+					destination = PocketBuilder.calculateDungeonDestination(dungeon, dimension, link, schematic, world);
+				}
+				schematic.copyToWorld(world, destination, link.orientation(), link, random, properties, false);
+				dimension.initializeDungeon(destination.getX(), destination.getY(), destination.getZ(), link.orientation(), link, dungeon);
+				dimension.setFilled(true);
+				return true;
+			}
+			catch (Exception e)
+			{
+				System.err.println("Could not rebuild the dungeon pocket:");
+				e.printStackTrace();
+				return false;
+			}
+		}
+
+		/**
+		 * Lets go of the entities that were waiting for a pocket that couldn't be built.
+		 */
+		public void releaseWaitingEntities()
+		{
+			for (Entity entity : waitingEntities)
+			{
+				if (entity instanceof EntityPlayer)
+				{
+					((EntityPlayer) entity).removePotionEffect(Potion.blindness.id);
+				}
+			}
+			waitingEntities.clear();
+		}
+
+		public void sendWaitingEntities()
+		{
+			for (Entity entity : waitingEntities)
+			{
+				//Only send entities that are still standing in the doorway
+				if (!entity.isDead && entity.worldObj.provider.dimensionId == source.getDimension() &&
+					entity.getDistanceSq(source.getX() + 0.5, source.getY(), source.getZ() + 0.5) <= MAX_WAITING_DISTANCE_SQUARED)
+				{
+					DDTeleporter.traverseDimDoor(entity.worldObj, link, entity, door);
+				}
+			}
+			waitingEntities.clear();
+		}
+	}
+}
@@ -6,6 +6,8 @@ import StevenDimDoors.mod_pocketDim.config.DDProperties;
 import StevenDimDoors.mod_pocketDim.core.LinkType;
 import StevenDimDoors.mod_pocketDim.core.PocketManager;
 import StevenDimDoors.mod_pocketDim.dungeon.DungeonSchematic;
+import StevenDimDoors.mod_pocketDim.dungeon.DungeonSchematicCache;
+import StevenDimDoors.mod_pocketDim.helpers.DungeonHelper;
 import StevenDimDoors.mod_pocketDim.schematic.InvalidSchematicException;
 
 public abstract class BaseSchematicGateway extends BaseGateway 
@@ -18,23 +20,17 @@ public abstract class BaseSchematicGateway extends BaseGateway
 	@Override
 	public boolean generate(World world, int x, int y, int z)
 	{
-		DungeonSchematic schematic;
-		
-		try
-		{
-			schematic = DungeonSchematic.readFromResource(this.getSchematicPath());
-		}
-		catch (InvalidSchematicException e)
+		DungeonSchematic schematic = loadSchematic(this.getSchematicPath());
+		if (schematic == null)
 		{
-			System.err.println("Could not load the schematic for a gateway. The following exception occurred:");
-			e.printStackTrace();
 			return false;
 		}
 		
-		// Apply filters - the order is important!
-		GatewayBlockFilter gatewayFilter = new GatewayBlockFilter();
+		// Find the entrance door. The import filters have already replaced the standard
+		// door IDs with the IDs assigned to our doors, so search for those instead.
+		GatewayBlockFilter gatewayFilter = new GatewayBlockFilter((short) properties.DimensionalDoorID,
+				(short) properties.TransientDoorID, (short) properties.WarpDoorID);
 		schematic.applyFilter(gatewayFilter);
-		schematic.applyImportFilters(properties);
 		
 		Point3D doorLocation = gatewayFilter.getEntranceDoorLocation();
 		int orientation = gatewayFilter.getEntranceOrientation();
@@ -49,6 +45,33 @@ public abstract class BaseSchematicGateway extends BaseGateway
 		return true;
 	}
 	
+	private DungeonSchematic loadSchematic(String schematicPath)
+	{
+		// Gateway schematics are stored in our JAR, so they never change while the game is running
+		DungeonSchematicCache cache = DungeonHelper.instance().getSchematicCache();
+		DungeonSchematic schematic = cache.get(schematicPath, 0);
+		if (schematic == null)
+		{
+			try
+			{
+				schematic = DungeonSchematic.readFromResource(schematicPath);
+			}
+			catch (InvalidSchematicException e)
+			{
+				System.err.println("Could not load the schematic for a gateway. The following exception occurred:");
+				e.printStackTrace();
+				return null;
+			}
+			schematic.applyImportFilters(properties);
+			if (cache.isEnabled())
+			{
+				cache.put(schematicPath, 0, schematic);
+				schematic = schematic.copy();
+			}
+		}
+		return schematic;
+	}
+	
 	/**
 	 * Generates randomized portions of the gateway structure (e.g. rubble, foliage)
 	 * @param world - the world in which to generate the gateway
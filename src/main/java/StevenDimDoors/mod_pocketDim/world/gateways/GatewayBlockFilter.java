@@ -15,13 +15,25 @@ public class GatewayBlockFilter extends SchematicFilter {
 	private int entranceOrientation;
 	private Schematic schematic;
 	private Point3D entranceDoorLocation;
+	private final short dimensionalDoorID;
+	private final short transientDoorID;
+	private final short warpDoorID;
 
 	public GatewayBlockFilter()
 	{
+		this(STANDARD_DIMENSIONAL_DOOR_ID, STANDARD_TRANSIENT_DOOR_ID, STANDARD_WARP_DOOR_ID);
+	}
+	
+	public GatewayBlockFilter(short dimensionalDoorID, short transientDoorID, short warpDoorID)
+	{
+		//Allows searching for doors after the standard block IDs have been replaced with their assigned IDs
 		super("GatewayEntranceFinder");
 		this.entranceDoorLocation = null;
 		this.entranceOrientation = 0;
 		this.schematic = null;
+		this.dimensionalDoorID = dimensionalDoorID;
+		this.transientDoorID = transientDoorID;
+		this.warpDoorID = warpDoorID;
 	}
 	
 	public int getEntranceOrientation() {
@@ -44,30 +56,30 @@ public class GatewayBlockFilter extends SchematicFilter {
 	{
 		int indexBelow;
 		int indexDoubleBelow;
-		if (blocks[index] == STANDARD_DIMENSIONAL_DOOR_ID)
+		if (blocks[index] == dimensionalDoorID)
 		{
 			indexBelow = schematic.calculateIndexBelow(index);
-			if (indexBelow >= 0 && blocks[indexBelow] == STANDARD_DIMENSIONAL_DOOR_ID)
+			if (indexBelow >= 0 && blocks[indexBelow] == dimensionalDoorID)
 			{
 				entranceDoorLocation = schematic.calculatePoint(index);
 				entranceOrientation = (metadata[indexBelow] & 3);
 				return true;
 			}
 		}
-		if (blocks[index] == STANDARD_TRANSIENT_DOOR_ID)
+		if (blocks[index] == transientDoorID)
 		{
 			indexBelow = schematic.calculateIndexBelow(index);
-			if (indexBelow >= 0 && blocks[indexBelow] == STANDARD_TRANSIENT_DOOR_ID)
+			if (indexBelow >= 0 && blocks[indexBelow] == transientDoorID)
 			{
 				entranceDoorLocation = schematic.calculatePoint(index);
 				entranceOrientation = (metadata[indexBelow] & 3);
 				return true;
 			}
 		}
-		if (blocks[index] == STANDARD_WARP_DOOR_ID)
+		if (blocks[index] == warpDoorID)
 		{
 			indexBelow = schematic.calculateIndexBelow(index);
-			if (indexBelow >= 0 && blocks[indexBelow] == STANDARD_WARP_DOOR_ID)
+			if (indexBelow >= 0 && blocks[indexBelow] == warpDoorID)
 			{
 				entranceDoorLocation = schematic.calculatePoint(index);
 				entranceOrientation = (metadata[indexBelow] & 3);
@@ -82,4 +94,10 @@ public class GatewayBlockFilter extends SchematicFilter {
 	{
 		return true;
 	}
+	
+	@Override
+	protected boolean modifiesBlocks()
+	{
+		return false;
+	}
 }
@@ -3,6 +3,7 @@ package StevenDimDoors.mod_pocketDimClient;
 import StevenDimDoors.mod_pocketDim.PacketConstants;
 import StevenDimDoors.mod_pocketDim.core.PocketManager;
 import StevenDimDoors.mod_pocketDim.util.Point4D;
+import StevenDimDoors.mod_pocketDim.util.VarInt;
 import StevenDimDoors.mod_pocketDim.watcher.ClientDimData;
 import StevenDimDoors.mod_pocketDim.watcher.ClientLinkData;
 import StevenDimDoors.mod_pocketDim.watcher.IUpdateSource;
@@ -13,7 +14,10 @@ import cpw.mods.fml.common.network.IPacketHandler;
 import cpw.mods.fml.common.network.Player;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 
 import net.minecraft.network.INetworkManager;
 import net.minecraft.network.packet.Packet250CustomPayload;
@@ -24,6 +28,12 @@ public class ClientPacketHandler implements IPacketHandler, IUpdateSource
 	private IUpdateWatcher<ClientLinkData> linkWatcher;
 	private IUpdateWatcher<ClientDimData> dimWatcher;
 	
+	// The server sends snapshots of our dimensions and of the links in our current dimension in several
+	// parts. Any other packets that arrive in the meantime are deferred until the snapshot is complete,
+	// then applied on top of it.
+	private ByteArrayOutputStream snapshotBuffer = null;
+	private ArrayList<byte[]> deferredPackets = new ArrayList<byte[]>();
+	
 	public ClientPacketHandler()
 	{
 		PocketManager.getWatchers(this);
@@ -51,26 +61,17 @@ public class ClientPacketHandler implements IPacketHandler, IUpdateSource
 		{
 			DataInputStream input = new DataInputStream(new ByteArrayInputStream(packet.data));
 			byte packetID = input.readByte();
-			switch (packetID)
+			if (packetID == PacketConstants.CLIENT_JOIN_PACKET_ID || packetID == PacketConstants.LINK_SNAPSHOT_PACKET_ID)
+			{
+				receiveSnapshotPart(packetID, input);
+			}
+			else if (snapshotBuffer != null)
+			{
+				deferredPackets.add(packet.data);
+			}
+			else
 			{
-				case PacketConstants.CLIENT_JOIN_PACKET_ID:
-					PocketManager.readPacket(input);
-					break;
-				case PacketConstants.CREATE_DIM_PACKET_ID:
-					dimWatcher.onCreated( ClientDimData.read(input) );
-					break;
-				case PacketConstants.CREATE_LINK_PACKET_ID:
-					linkWatcher.onCreated( ClientLinkData.read(input) );
-					break;
-				case PacketConstants.DELETE_DIM_PACKET_ID:
-					dimWatcher.onDeleted( ClientDimData.read(input) );
-					break;
-				case PacketConstants.DELETE_LINK_PACKET_ID:
-					linkWatcher.onDeleted( ClientLinkData.read(input) );
-					break;
-				case PacketConstants.UPDATE_LINK_PACKET_ID:
-					linkWatcher.update( ClientLinkData.read(input) );
-					break;
+				processPacket(packetID, input);
 			}
 		}
 		catch (Exception e)
@@ -79,4 +80,98 @@ public class ClientPacketHandler implements IPacketHandler, IUpdateSource
 			e.printStackTrace();
 		}
 	}
+	
+	private void receiveSnapshotPart(byte packetID, DataInputStream input) throws IOException
+	{
+		int part = VarInt.readUnsigned(input);
+		int partCount = VarInt.readUnsigned(input);
+		if (part == 0)
+		{
+			snapshotBuffer = new ByteArrayOutputStream();
+			deferredPackets.clear();
+		}
+		if (snapshotBuffer == null)
+		{
+			// We missed the start of the snapshot somehow. Nothing we can do about it now.
+			return;
+		}
+		byte[] chunk = new byte[input.available()];
+		input.readFully(chunk);
+		snapshotBuffer.write(chunk);
+		
+		if (part == partCount - 1)
+		{
+			byte[] data = snapshotBuffer.toByteArray();
+			snapshotBuffer = null;
+			try
+			{
+				DataInputStream snapshot = new DataInputStream(new ByteArrayInputStream(data));
+				if (packetID == PacketConstants.CLIENT_JOIN_PACKET_ID)
+				{
+					PocketManager.readPacket(snapshot);
+				}
+				else
+				{
+					PocketManager.readLinkPacket(snapshot);
+				}
+			}
+			finally
+			{
+				// Apply the changes that arrived while the snapshot was in transit
+				for (byte[] deferred : deferredPackets)
+				{
+					try
+					{
+						DataInputStream deferredInput = new DataInputStream(new ByteArrayInputStream(deferred));
+						processPacket(deferredInput.readByte(), deferredInput);
+					}
+					catch (Exception e)
+					{
+						System.err.println("An exception occurred while processing a data packet:");
+						e.printStackTrace();
+					}
+				}
+				deferredPackets.clear();
+			}
+		}
+	}
+	
+	private void processPacket(byte packetID, DataInputStream input) throws IOException
+	{
+		if (packetID == PacketConstants.BATCH_PACKET_ID)
+		{
+			// A batch contains many records, each of which is laid out like a packet of its own
+			int count = VarInt.readUnsigned(input);
+			for (int k = 0; k < count; k++)
+			{
+				processRecord(input.readByte(), input);
+			}
+		}
+		else
+		{
+			processRecord(packetID, input);
+		}
+	}
+	
+	private void processRecord(byte packetID, DataInputStream input) throws IOException
+	{
+		switch (packetID)
+		{
+			case PacketConstants.CREATE_DIM_PACKET_ID:
+				dimWatcher.onCreated( ClientDimData.read(input) );
+				break;
+			case PacketConstants.CREATE_LINK_PACKET_ID:
+				linkWatcher.onCreated( ClientLinkData.read(input) );
+				break;
+			case PacketConstants.DELETE_DIM_PACKET_ID:
+				dimWatcher.onDeleted( ClientDimData.read(input) );
+				break;
+			case PacketConstants.DELETE_LINK_PACKET_ID:
+				linkWatcher.onDeleted( ClientLinkData.read(input) );
+				break;
+			case PacketConstants.UPDATE_LINK_PACKET_ID:
+				linkWatcher.update( ClientLinkData.read(input) );
+				break;
+		}
+	}
 }
@@ -0,0 +1,78 @@
+package StevenDimDoors.mod_pocketDim.blocks;
+
+import java.util.Random;
+
+import net.minecraft.world.World;
+
+/**
+ * An endless grid of air, ordinary and rift-immune blocks for testing rift searches without a world.
+ * The block at each position is derived from a hash of its coordinates, so the grid can be reshuffled
+ * without allocating anything.
+ */
+class BlockGrid
+{
+	public static final int AIR = 0;
+	public static final int SOLID = 1;
+	public static final int IMMUNE = 2;
+
+	private long seed;
+	private int airThreshold;
+	private int immuneThreshold;
+
+	public void randomize(Random random)
+	{
+		randomize(random, random.nextDouble());
+	}
+
+	public void randomize(Random random, double airChance)
+	{
+		seed = random.nextLong();
+		airThreshold = (int) (airChance * 1024);
+		// A quarter of the remaining blocks are immune to rifts
+		immuneThreshold = airThreshold + (1024 - airThreshold) / 4;
+	}
+
+	/**
+	 * Makes every block in the grid the same.
+	 */
+	public void fill(int block)
+	{
+		airThreshold = (block == AIR) ? 1024 : 0;
+		immuneThreshold = (block == IMMUNE) ? 1024 : airThreshold;
+	}
+
+	public int getBlock(int x, int y, int z)
+	{
+		long hash = seed ^ (x * 0x9E3779B97F4A7C15L) ^ (y * 0xC2B2AE3D27D4EB4FL) ^ (z * 0x165667B19E3779F9L);
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		int roll = (int) (hash & 1023);
+		if (roll < airThreshold)
+		{
+			return AIR;
+		}
+		return (roll < immuneThreshold) ? IMMUNE : SOLID;
+	}
+
+	/**
+	 * Creates a ReachableBlockSearch that reads its blocks from this grid instead of a world.
+	 */
+	public ReachableBlockSearch createSearch(int maxRange)
+	{
+		return new ReachableBlockSearch(maxRange)
+		{
+			@Override
+			boolean isAirBlock(World world, int x, int y, int z)
+			{
+				return (getBlock(x, y, z) == AIR);
+			}
+
+			@Override
+			boolean isBlockImmune(World world, int x, int y, int z, BlockRift blockRift)
+			{
+				return (getBlock(x, y, z) == IMMUNE);
+			}
+		};
+	}
+}
@@ -0,0 +1,72 @@
+package StevenDimDoors.mod_pocketDim.blocks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import StevenDimDoors.mod_pocketDim.Point3D;
+
+/**
+ * The search that BlockRift used before ReachableBlockSearch was introduced, adapted to read from a BlockGrid.
+ * The only other difference is that it honors its range argument, where the original always stopped at
+ * BlockRift.BLOCK_DESTRUCTION_RANGE. Both ranges are 4, so that didn't change anything in practice.
+ */
+class LegacyBlockSearch
+{
+	private LegacyBlockSearch() { }
+
+	public static ArrayList<Point3D> findReachableBlocks(BlockGrid grid, int x, int y, int z, int range, boolean includeAir)
+	{
+		int searchVolume = (int) Math.pow(2 * range + 1, 3);
+		HashMap<Point3D, Integer> pointDistances = new HashMap<Point3D, Integer>(searchVolume);
+		Queue<Point3D> points = new LinkedList<Point3D>();
+		ArrayList<Point3D> targets = new ArrayList<Point3D>();
+
+		pointDistances.put(new Point3D(x, y, z), 0);
+		addAdjacentBlocks(x, y, z, 0, pointDistances, points);
+		while (!points.isEmpty())
+		{
+			Point3D current = points.remove();
+			int distance = pointDistances.get(current);
+
+			int block = grid.getBlock(current.getX(), current.getY(), current.getZ());
+			if (block == BlockGrid.AIR)
+			{
+				if (includeAir)
+				{
+					targets.add(current);
+				}
+				if (distance < range)
+				{
+					addAdjacentBlocks(current.getX(), current.getY(), current.getZ(), distance, pointDistances, points);
+				}
+			}
+			else if (block != BlockGrid.IMMUNE)
+			{
+				targets.add(current);
+			}
+		}
+		return targets;
+	}
+
+	private static void addAdjacentBlocks(int x, int y, int z, int distance, HashMap<Point3D, Integer> pointDistances, Queue<Point3D> points)
+	{
+		Point3D[] neighbors = new Point3D[] {
+				new Point3D(x - 1, y, z),
+				new Point3D(x + 1, y, z),
+				new Point3D(x, y - 1, z),
+				new Point3D(x, y + 1, z),
+				new Point3D(x, y, z - 1),
+				new Point3D(x, y, z + 1)
+		};
+		for (int index = 0; index < neighbors.length; index++)
+		{
+			if (!pointDistances.containsKey(neighbors[index]))
+			{
+				pointDistances.put(neighbors[index], distance + 1);
+				points.add(neighbors[index]);
+			}
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package StevenDimDoors.mod_pocketDim.blocks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares ReachableBlockSearch with the HashMap-based search that BlockRift used before it. The searches run
+ * through a mostly open grid, like a rift floating in the air, so they cover most of their range.
+ * Run it with "gradlew benchmark -Pbenchmarks=ReachableBlockSearch", or with
+ * "-Pbenchmarks=ReachableBlockSearch -prof gc" to compare how much memory each search allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReachableBlockSearchBenchmark
+{
+	private static final int MAX_RANGE = 4;
+
+	private BlockGrid grid;
+	private ReachableBlockSearch search;
+	private int position;
+
+	@Setup
+	public void setup()
+	{
+		grid = new BlockGrid();
+		grid.randomize(new Random(0), 0.9);
+		search = grid.createSearch(MAX_RANGE);
+		position = 0;
+	}
+
+	@Benchmark
+	public int legacySearch()
+	{
+		position++;
+		return LegacyBlockSearch.findReachableBlocks(grid, position, 64, position, MAX_RANGE, true).size();
+	}
+
+	@Benchmark
+	public int reachableBlockSearch()
+	{
+		position++;
+		search.search(null, position, 64, position, MAX_RANGE, true, null);
+		return search.getResultCount();
+	}
+}
@@ -0,0 +1,100 @@
+package StevenDimDoors.mod_pocketDim.blocks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import StevenDimDoors.mod_pocketDim.Point3D;
+
+public class ReachableBlockSearchTest
+{
+	private static final int MAX_RANGE = 4;
+	private static final int TRIALS = 20000;
+
+	@Test
+	public void solidNeighborsAreFoundInOrder()
+	{
+		BlockGrid grid = new BlockGrid();
+		grid.fill(BlockGrid.SOLID);
+		ReachableBlockSearch search = grid.createSearch(MAX_RANGE);
+		search.search(null, 10, 64, -10, MAX_RANGE, true, null);
+
+		assertEquals(6, search.getResultCount());
+		int[][] expected = new int[][] {
+				{ 9, 64, -10 }, { 11, 64, -10 }, { 10, 63, -10 }, { 10, 65, -10 }, { 10, 64, -11 }, { 10, 64, -9 }
+		};
+		for (int index = 0; index < expected.length; index++)
+		{
+			assertEquals(expected[index][0], search.getResultX(index));
+			assertEquals(expected[index][1], search.getResultY(index));
+			assertEquals(expected[index][2], search.getResultZ(index));
+		}
+	}
+
+	@Test
+	public void immuneBlocksAreSkipped()
+	{
+		BlockGrid grid = new BlockGrid();
+		grid.fill(BlockGrid.IMMUNE);
+		ReachableBlockSearch search = grid.createSearch(MAX_RANGE);
+		search.search(null, 0, 64, 0, MAX_RANGE, true, null);
+		assertEquals(0, search.getResultCount());
+	}
+
+	@Test
+	public void airIsOnlyIncludedWhenRequested()
+	{
+		BlockGrid grid = new BlockGrid();
+		grid.fill(BlockGrid.AIR);
+		ReachableBlockSearch search = grid.createSearch(MAX_RANGE);
+
+		// Every block within 2 steps of the origin, other than the origin itself
+		search.search(null, 0, 64, 0, 2, true, null);
+		assertEquals(6 + 18, search.getResultCount());
+		search.search(null, 0, 64, 0, 2, false, null);
+		assertEquals(0, search.getResultCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rangeIsLimited()
+	{
+		new BlockGrid().createSearch(MAX_RANGE).search(null, 0, 64, 0, MAX_RANGE + 1, true, null);
+	}
+
+	/**
+	 * The results must match the old search exactly, including their order, since spreadRift() picks
+	 * a result by its index.
+	 */
+	@Test
+	public void matchesLegacySearch()
+	{
+		Random random = new Random(0);
+		BlockGrid grid = new BlockGrid();
+		ReachableBlockSearch search = grid.createSearch(MAX_RANGE);
+
+		for (int trial = 0; trial < TRIALS; trial++)
+		{
+			grid.randomize(random);
+			int x = random.nextInt(60000000) - 30000000;
+			int y = random.nextInt(256);
+			int z = random.nextInt(60000000) - 30000000;
+			int range = random.nextInt(MAX_RANGE + 1);
+			boolean includeAir = random.nextBoolean();
+
+			ArrayList<Point3D> expected = LegacyBlockSearch.findReachableBlocks(grid, x, y, z, range, includeAir);
+			search.search(null, x, y, z, range, includeAir, null);
+			String context = "Search at (" + x + ", " + y + ", " + z + ") with range " + range + ", includeAir " + includeAir;
+			assertEquals(context, expected.size(), search.getResultCount());
+			for (int index = 0; index < expected.size(); index++)
+			{
+				Point3D point = expected.get(index);
+				assertEquals(context, point.getX(), search.getResultX(index));
+				assertEquals(context, point.getY(), search.getResultY(index));
+				assertEquals(context, point.getZ(), search.getResultZ(index));
+			}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package StevenDimDoors.mod_pocketDim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import net.minecraft.util.LongHashMap;
+import net.minecraft.world.ChunkCoordIntPair;
+
+import org.junit.Test;
+
+import StevenDimDoors.mod_pocketDim.util.Point4D;
+import StevenDimDoors.mod_pocketDim.util.PositionMap;
+
+/**
+ * Measures how much memory a dimension with 2 million links takes. It also measures the containers that
+ * NewDimData and DimLink used for the same links before links were chained through inline pointers:
+ * a TreeMap<Point4D, ...> for positions, a LinkedList of children for every link and an ArrayList for
+ * every chunk. Those must take more memory than the PositionMap and LongHashMap that replaced them.
+ *
+ * The test needs about 2 GB of heap. The measurements are printed, since they're only approximate.
+ */
+public class DimLinkMemoryTest
+{
+	private static final int LINK_COUNT = 2000000;
+	// Spread the links over 1000 x 1000 chunks, so that each chunk holds about two links
+	private static final int HORIZONTAL_EXTENT = 16000;
+	// Every fourth link is the child of the link created before it
+	private static final int CHILD_INTERVAL = 4;
+
+	@Test
+	public void newContainersTakeLessMemory()
+	{
+		int[] xs = new int[LINK_COUNT];
+		int[] ys = new int[LINK_COUNT];
+		int[] zs = new int[LINK_COUNT];
+		Random random = new Random(0);
+		for (int index = 0; index < LINK_COUNT; index++)
+		{
+			xs[index] = random.nextInt(HORIZONTAL_EXTENT) - HORIZONTAL_EXTENT / 2;
+			ys[index] = random.nextInt(256);
+			zs[index] = random.nextInt(HORIZONTAL_EXTENT) - HORIZONTAL_EXTENT / 2;
+		}
+
+		long before = usedMemory();
+		NewDimData dimension = buildDimension(xs, ys, zs);
+		long dimensionBytes = usedMemory() - before;
+		int linkCount = dimension.linkCount();
+		dimension = null;
+
+		// The old containers were keyed by the links' own points, so create the points before measuring
+		Point4D[] points = new Point4D[LINK_COUNT];
+		for (int index = 0; index < LINK_COUNT; index++)
+		{
+			points[index] = new Point4D(xs[index], ys[index], zs[index], 0);
+		}
+		before = usedMemory();
+		Object[] oldContainers = buildOldContainers(points);
+		long oldBytes = usedMemory() - before;
+		assertEquals(linkCount, ((TreeMap<?, ?>) oldContainers[0]).size());
+		oldContainers = null;
+		points = null;
+
+		before = usedMemory();
+		Object[] newContainers = buildNewContainers(xs, ys, zs);
+		long newBytes = usedMemory() - before;
+		assertEquals(linkCount, ((PositionMap<?>) newContainers[0]).size());
+		newContainers = null;
+
+		System.out.println("Dimension with " + linkCount + " links: " + (dimensionBytes / linkCount) + " bytes per link");
+		System.out.println("Old containers (TreeMap, child LinkedLists, chunk ArrayLists): " + (oldBytes / linkCount) + " bytes per link");
+		System.out.println("New containers (PositionMap, chunk LongHashMap): " + (newBytes / linkCount) + " bytes per link");
+		assertTrue("The new containers should take less memory than the old ones", newBytes < oldBytes);
+	}
+
+	private static NewDimData buildDimension(int[] xs, int[] ys, int[] zs)
+	{
+		NewDimData dimension = new TestDimData(0);
+		DimLink previous = null;
+		for (int index = 0; index < xs.length; index++)
+		{
+			if (previous != null && index % CHILD_INTERVAL == 0)
+			{
+				dimension.createChildLink(xs[index], ys[index], zs[index], previous);
+			}
+			else
+			{
+				previous = dimension.createLink(xs[index], ys[index], zs[index], LinkType.NORMAL, 0);
+			}
+		}
+		return dimension;
+	}
+
+	private static Object[] buildOldContainers(Point4D[] points)
+	{
+		TreeMap<Point4D, LinkedList<Object>> linkMapping = new TreeMap<Point4D, LinkedList<Object>>();
+		HashMap<ChunkCoordIntPair, List<Object>> chunkMapping = new HashMap<ChunkCoordIntPair, List<Object>>();
+		LinkedList<Object> previous = null;
+		for (int index = 0; index < points.length; index++)
+		{
+			Point4D point = points[index];
+			if (linkMapping.containsKey(point))
+			{
+				continue;
+			}
+			LinkedList<Object> children = new LinkedList<Object>();
+			linkMapping.put(point, children);
+			if (previous != null && index % CHILD_INTERVAL == 0)
+			{
+				previous.add(children);
+			}
+			else
+			{
+				previous = children;
+			}
+
+			ChunkCoordIntPair chunk = new ChunkCoordIntPair(point.getX() >> 4, point.getZ() >> 4);
+			List<Object> chunkLinks = chunkMapping.get(chunk);
+			if (chunkLinks == null)
+			{
+				chunkLinks = new ArrayList<Object>(2);
+				chunkMapping.put(chunk, chunkLinks);
+			}
+			chunkLinks.add(children);
+		}
+		return new Object[] { linkMapping, chunkMapping };
+	}
+
+	private static Object[] buildNewContainers(int[] xs, int[] ys, int[] zs)
+	{
+		// A single object stands in for every link, since the links themselves are measured separately above
+		Object link = new Object();
+		PositionMap<Object> linkMapping = new PositionMap<Object>();
+		LongHashMap chunkMapping = new LongHashMap();
+		for (int index = 0; index < xs.length; index++)
+		{
+			if (linkMapping.put(xs[index], ys[index], zs[index], link) == null)
+			{
+				long chunkKey = ChunkCoordIntPair.chunkXZ2Int(xs[index] >> 4, zs[index] >> 4);
+				if (!chunkMapping.containsItem(chunkKey))
+				{
+					chunkMapping.add(chunkKey, link);
+				}
+			}
+		}
+		return new Object[] { linkMapping, chunkMapping };
+	}
+
+	private static long usedMemory()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for (int count = 0; count < 5; count++)
+		{
+			System.gc();
+			try
+			{
+				Thread.sleep(100);
+			}
+			catch (InterruptedException e) { }
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,127 @@
+package StevenDimDoors.mod_pocketDim.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NewDimDataTest
+{
+	private static final int CHUNK_EXTENT = 3;
+
+	@Test
+	public void keepsChildrenInCreationOrder()
+	{
+		NewDimData dimension = new TestDimData(0);
+		DimLink parent = dimension.createLink(0, 64, 0, LinkType.NORMAL, 0);
+		ArrayList<DimLink> expected = new ArrayList<DimLink>();
+		for (int index = 1; index <= 5; index++)
+		{
+			expected.add(dimension.createChildLink(index, 64, 0, parent));
+		}
+		assertEquals(expected, toList(parent.children()));
+
+		// Removing a child and attaching a new one must keep the remaining order and add the new child last
+		dimension.deleteLink(expected.remove(4));
+		dimension.deleteLink(expected.remove(1));
+		expected.add(dimension.createChildLink(6, 64, 0, parent));
+		assertEquals(expected, toList(parent.children()));
+		assertEquals(expected.size(), parent.childCount());
+	}
+
+	@Test
+	public void keepsChunkLinksInCreationOrder()
+	{
+		NewDimData dimension = new TestDimData(0);
+		ArrayList<DimLink> expected = new ArrayList<DimLink>();
+		for (int index = 0; index < 5; index++)
+		{
+			expected.add(dimension.createLink(index, 64, index, LinkType.NORMAL, 0));
+		}
+		assertEquals(expected, toList(dimension.getChunkLinks(0, 0)));
+
+		// Remove the last link, the first link and a link in the middle, then add a link at the end
+		dimension.deleteLink(expected.remove(4));
+		dimension.deleteLink(expected.remove(0));
+		dimension.deleteLink(expected.remove(1));
+		expected.add(dimension.createLink(15, 64, 15, LinkType.NORMAL, 0));
+		assertEquals(expected, toList(dimension.getChunkLinks(0, 0)));
+
+		for (DimLink link : expected)
+		{
+			dimension.deleteLink(link);
+		}
+		assertEquals(0, toList(dimension.getChunkLinks(0, 0)).size());
+		DimLink link = dimension.createLink(1, 64, 1, LinkType.NORMAL, 0);
+		assertEquals(1, toList(dimension.getChunkLinks(0, 0)).size());
+		assertEquals(link, dimension.getChunkLinks(0, 0).iterator().next());
+	}
+
+	@Test
+	public void matchesChunkListsForRandomOperations()
+	{
+		// Keep a list of links for each chunk, like NewDimData did before its links were chained together
+		Random random = new Random(0);
+		for (int trial = 0; trial < 500; trial++)
+		{
+			NewDimData dimension = new TestDimData(0);
+			HashMap<Integer, List<DimLink>> expected = new HashMap<Integer, List<DimLink>>();
+			ArrayList<DimLink> links = new ArrayList<DimLink>();
+			for (int operation = 0; operation < 200; operation++)
+			{
+				if (links.isEmpty() || random.nextInt(3) > 0)
+				{
+					int x = random.nextInt(16 * CHUNK_EXTENT);
+					int y = random.nextInt(4);
+					int z = random.nextInt(16 * CHUNK_EXTENT);
+					if (dimension.getLink(x, y, z) == null)
+					{
+						DimLink link = dimension.createLink(x, y, z, LinkType.NORMAL, 0);
+						getChunkList(expected, x >> 4, z >> 4).add(link);
+						links.add(link);
+					}
+				}
+				else
+				{
+					DimLink link = links.remove(random.nextInt(links.size()));
+					getChunkList(expected, link.source().getX() >> 4, link.source().getZ() >> 4).remove(link);
+					dimension.deleteLink(link);
+				}
+				for (int chunkX = 0; chunkX < CHUNK_EXTENT; chunkX++)
+				{
+					for (int chunkZ = 0; chunkZ < CHUNK_EXTENT; chunkZ++)
+					{
+						assertEquals("Chunk (" + chunkX + ", " + chunkZ + ") after operation " + operation,
+								getChunkList(expected, chunkX, chunkZ), toList(dimension.getChunkLinks(chunkX, chunkZ)));
+					}
+				}
+			}
+		}
+	}
+
+	private static List<DimLink> getChunkList(HashMap<Integer, List<DimLink>> lists, int chunkX, int chunkZ)
+	{
+		Integer key = chunkX * CHUNK_EXTENT + chunkZ;
+		List<DimLink> list = lists.get(key);
+		if (list == null)
+		{
+			list = new ArrayList<DimLink>();
+			lists.put(key, list);
+		}
+		return list;
+	}
+
+	private static List<DimLink> toList(Iterable<? extends DimLink> links)
+	{
+		ArrayList<DimLink> list = new ArrayList<DimLink>();
+		for (DimLink link : links)
+		{
+			list.add(link);
+		}
+		return list;
+	}
+}
@@ -0,0 +1,206 @@
+package StevenDimDoors.mod_pocketDim.core;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraft.world.World;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import StevenDimDoors.mod_pocketDim.util.Point4D;
+
+/**
+ * Compares the rift searches in NewDimData, which only visit the links in the chunks around the search cube,
+ * with the block scans they replaced, which checked every block in the cube. The links are scattered over
+ * a 1024 x 128 x 1024 area and each search starts from one of them, the way TileEntityRift searches around
+ * itself with a range of 5. Rift blocks are read from a bit set, which is cheaper than reading blocks from
+ * a world, so the old scans come out faster here than they would in a game.
+ * Run it with "gradlew benchmark -Pbenchmarks=RiftSearch".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RiftSearchBenchmark
+{
+	private static final int RANGE = 5;
+	private static final int WIDTH = 1024;
+	private static final int HEIGHT = 128;
+
+	@Param({ "10", "1000", "100000" })
+	public int linkCount;
+
+	private NewDimData dimension;
+	private Point4D[] sources;
+	private int index;
+
+	/**
+	 * A dimension whose rift blocks are exactly the sources of its links.
+	 */
+	private static class RiftDimData extends TestDimData
+	{
+		private final BitSet rifts = new BitSet(WIDTH * HEIGHT * WIDTH);
+
+		public RiftDimData()
+		{
+			super(0);
+		}
+
+		@Override
+		public DimLink createLink(int x, int y, int z, LinkType linkType, int orientation)
+		{
+			rifts.set(getIndex(x, y, z));
+			return super.createLink(x, y, z, linkType, orientation);
+		}
+
+		@Override
+		boolean isRiftBlock(World world, int x, int y, int z)
+		{
+			if (x < 0 || x >= WIDTH || y < 0 || y >= HEIGHT || z < 0 || z >= WIDTH)
+			{
+				return false;
+			}
+			return rifts.get(getIndex(x, y, z));
+		}
+
+		private static int getIndex(int x, int y, int z)
+		{
+			return (x * WIDTH + z) * HEIGHT + y;
+		}
+	}
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(0);
+		dimension = new RiftDimData();
+		sources = new Point4D[linkCount];
+		int count = 0;
+		while (count < linkCount)
+		{
+			int x = random.nextInt(WIDTH);
+			int y = random.nextInt(HEIGHT);
+			int z = random.nextInt(WIDTH);
+			if (dimension.getLink(x, y, z) == null)
+			{
+				sources[count] = dimension.createLink(x, y, z, LinkType.NORMAL, 0).source();
+				count++;
+			}
+		}
+		index = 0;
+	}
+
+	private Point4D nextSource()
+	{
+		index++;
+		if (index == sources.length)
+		{
+			index = 0;
+		}
+		return sources[index];
+	}
+
+	@Benchmark
+	public DimLink legacyNearestRift()
+	{
+		Point4D source = nextSource();
+		return legacyFindNearestRift(dimension, RANGE, source.getX(), source.getY(), source.getZ());
+	}
+
+	@Benchmark
+	public DimLink nearestRift()
+	{
+		Point4D source = nextSource();
+		return dimension.searchNearestRift(null, RANGE, source.getX(), source.getY(), source.getZ());
+	}
+
+	@Benchmark
+	public int legacyRiftsInRange()
+	{
+		Point4D source = nextSource();
+		return legacyFindRiftsInRange(dimension, RANGE, source.getX(), source.getY(), source.getZ()).size();
+	}
+
+	@Benchmark
+	public int riftsInRange()
+	{
+		Point4D source = nextSource();
+		return dimension.searchRiftsInRange(null, RANGE, source.getX(), source.getY(), source.getZ()).size();
+	}
+
+	/**
+	 * The block scan that NewDimData.findNearestRift() used before it searched chunkMapping.
+	 */
+	private static DimLink legacyFindNearestRift(NewDimData dimension, int range, int x, int y, int z)
+	{
+		int i, j, k;
+		int distance;
+		int minDistance = Integer.MAX_VALUE;
+		DimLink link;
+		DimLink nearest = null;
+
+		for (i = -range; i <= range; i++)
+		{
+			for (j = -range; j <= range; j++)
+			{
+				for (k = -range; k <= range; k++)
+				{
+					distance = Math.abs(i) + Math.abs(j) + Math.abs(k);
+					if (distance > 0 && distance < minDistance && dimension.isRiftBlock(null, x + i, y + j, z + k))
+					{
+						link = dimension.getLink(x + i, y + j, z + k);
+						if (link != null)
+						{
+							nearest = link;
+							minDistance = distance;
+						}
+					}
+				}
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * The block scan that NewDimData.findRiftsInRange() used before it searched chunkMapping.
+	 */
+	private static ArrayList<DimLink> legacyFindRiftsInRange(NewDimData dimension, int range, int x, int y, int z)
+	{
+		int i, j, k;
+		DimLink link;
+		ArrayList<DimLink> links = new ArrayList<DimLink>();
+
+		for (i = -range; i <= range; i++)
+		{
+			for (j = -range; j <= range; j++)
+			{
+				for (k = -range; k <= range; k++)
+				{
+					if (Math.abs(i) + Math.abs(j) + Math.abs(k) > 0 && dimension.isRiftBlock(null, x + i, y + j, z + k))
+					{
+						link = dimension.getLink(x + i, y + j, z + k);
+						if (link != null)
+						{
+							links.add(link);
+						}
+					}
+				}
+			}
+		}
+		return links;
+	}
+}
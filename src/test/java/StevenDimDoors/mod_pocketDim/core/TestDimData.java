@@ -0,0 +1,27 @@
+package StevenDimDoors.mod_pocketDim.core;
+
+import StevenDimDoors.mod_pocketDim.watcher.ClientLinkData;
+import StevenDimDoors.mod_pocketDim.watcher.IUpdateWatcher;
+
+/**
+ * A root dimension that isn't registered with PocketManager and ignores link updates.
+ */
+class TestDimData extends NewDimData
+{
+	private static class NullWatcher implements IUpdateWatcher<ClientLinkData>
+	{
+		@Override
+		public void onCreated(ClientLinkData message) { }
+
+		@Override
+		public void update(ClientLinkData message) { }
+
+		@Override
+		public void onDeleted(ClientLinkData message) { }
+	}
+
+	public TestDimData(int id)
+	{
+		super(id, null, DimensionType.ROOT, new NullWatcher());
+	}
+}
@@ -0,0 +1,312 @@
+package StevenDimDoors.mod_pocketDim.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+import StevenDimDoors.mod_pocketDim.core.DDLock;
+import StevenDimDoors.mod_pocketDim.core.DimLink;
+import StevenDimDoors.mod_pocketDim.core.DimensionType;
+import StevenDimDoors.mod_pocketDim.core.IDimRegistrationCallback;
+import StevenDimDoors.mod_pocketDim.core.LinkType;
+import StevenDimDoors.mod_pocketDim.core.NewDimData;
+import StevenDimDoors.mod_pocketDim.util.Point4D;
+import StevenDimDoors.mod_pocketDim.watcher.ClientLinkData;
+import StevenDimDoors.mod_pocketDim.watcher.IUpdateWatcher;
+
+/**
+ * Checks that dimensions and links survive a round trip through Compactor, then compares the size of a full
+ * snapshot with the size it had in the uncompressed fixed-width format that Compactor used before version 1.
+ *
+ * The round trips cover every dimension type and link type (including CLIENT links), locked and unlocked
+ * locks with negative keys, negative dimension IDs, negative and extreme coordinates, and snapshots that
+ * leave out some of the root dimensions.
+ */
+public class CompactorTest
+{
+	private static final int ROUND_TRIPS = 200;
+	private static final int[] EXTREME_COORDINATES = new int[] { Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1, 0, Integer.MAX_VALUE - 1, Integer.MAX_VALUE };
+
+	private static class TestDimData extends NewDimData
+	{
+		public TestDimData(int id, NewDimData parent, DimensionType type)
+		{
+			super(id, parent, type, new NullWatcher());
+		}
+
+		public TestDimData(int id, NewDimData root, DimensionType type, boolean isClient)
+		{
+			super(id, root, type);
+		}
+	}
+
+	private static class NullWatcher implements IUpdateWatcher<ClientLinkData>
+	{
+		@Override
+		public void onCreated(ClientLinkData message) { }
+
+		@Override
+		public void update(ClientLinkData message) { }
+
+		@Override
+		public void onDeleted(ClientLinkData message) { }
+	}
+
+	/**
+	 * Registers dimensions the way the client does, recording them so that they can be compared later.
+	 */
+	private static class ClientRegistry implements IDimRegistrationCallback
+	{
+		public final HashMap<Integer, NewDimData> dimensions = new HashMap<Integer, NewDimData>();
+
+		@Override
+		public NewDimData registerDimension(int dimensionID, int rootID, DimensionType type)
+		{
+			NewDimData dimension = dimensions.get(dimensionID);
+			if (dimension == null)
+			{
+				if (dimensionID == rootID)
+				{
+					dimension = new TestDimData(dimensionID, null, DimensionType.ROOT);
+				}
+				else
+				{
+					NewDimData root = registerDimension(rootID, rootID, DimensionType.ROOT);
+					dimension = new TestDimData(dimensionID, root, type, true);
+				}
+				dimensions.put(dimensionID, dimension);
+			}
+			return dimension;
+		}
+	}
+
+	@Test
+	public void dimensionsAndLinksSurviveRoundTrips() throws IOException
+	{
+		Random random = new Random(0);
+		for (int trip = 0; trip < ROUND_TRIPS; trip++)
+		{
+			checkRoundTrip(createDimensions(random, 1 + random.nextInt(4), random.nextInt(20), random.nextInt(40), false), random);
+		}
+	}
+
+	@Test
+	public void snapshotsAreSmallerThanTheOldFormat() throws IOException
+	{
+		ArrayList<NewDimData> dimensions = createDimensions(new Random(1), 3, 500, 4000, true);
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		writeOldFormat(dimensions, new DataOutputStream(buffer));
+		int oldSize = buffer.size();
+
+		buffer.reset();
+		Compactor.write(dimensions, new DataOutputStream(buffer));
+		int dimensionSize = buffer.size();
+
+		int linkSize = 0;
+		for (NewDimData dimension : dimensions)
+		{
+			buffer.reset();
+			Compactor.writeLinks(dimension, new DataOutputStream(buffer));
+			linkSize += buffer.size();
+		}
+
+		// Even sending the links of every dimension must take less space than the old snapshot
+		assertTrue("Dimensions took " + dimensionSize + " bytes, the old format " + oldSize, dimensionSize < oldSize / 4);
+		assertTrue("Dimensions and links took " + (dimensionSize + linkSize) + " bytes, the old format " + oldSize,
+				dimensionSize + linkSize < oldSize);
+	}
+
+	private static ArrayList<NewDimData> createDimensions(Random random, int rootCount, int pocketCount, int linkCount, boolean realistic)
+	{
+		ArrayList<NewDimData> dimensions = new ArrayList<NewDimData>();
+		for (int k = 0; k < rootCount; k++)
+		{
+			// Use the usual root IDs when measuring sizes and arbitrary IDs otherwise
+			int id = realistic ? k - 1 : random.nextInt(2001) - 1000;
+			if (!containsID(dimensions, id))
+			{
+				dimensions.add(new TestDimData(id, null, DimensionType.ROOT));
+			}
+		}
+		DimensionType[] pocketTypes = new DimensionType[] { DimensionType.POCKET, DimensionType.DUNGEON, DimensionType.PERSONAL };
+		for (int k = 0; k < pocketCount; k++)
+		{
+			int id = realistic ? 2 + k : random.nextInt(2001) - 1000;
+			if (!containsID(dimensions, id))
+			{
+				// Pick a parent among the dimensions so far, so that some pockets are nested in other pockets
+				NewDimData parent = dimensions.get(random.nextInt(dimensions.size()));
+				dimensions.add(new TestDimData(id, parent, pocketTypes[random.nextInt(pocketTypes.length)]));
+			}
+		}
+
+		LinkType[] linkTypes = LinkType.values();
+		for (NewDimData dimension : dimensions)
+		{
+			int count = (dimension.isPocketDimension() ? linkCount / 40 : linkCount);
+			count = (count > 0) ? random.nextInt(count + 1) : 0;
+			for (int k = 0; k < count; k++)
+			{
+				int x, y, z;
+				if (realistic)
+				{
+					// Links tend to be clustered around a few places, and pockets are small
+					int spread = (dimension.isPocketDimension() ? 32 : 2000);
+					x = random.nextInt(spread) - spread / 2;
+					y = random.nextInt(256);
+					z = random.nextInt(spread) - spread / 2;
+				}
+				else
+				{
+					x = randomCoordinate(random);
+					y = randomCoordinate(random);
+					z = randomCoordinate(random);
+				}
+				DDLock lock = null;
+				if (random.nextInt(4) == 0)
+				{
+					lock = new DDLock(random.nextBoolean(), realistic ? random.nextInt(1000) : random.nextInt());
+				}
+				LinkType linkType = linkTypes[random.nextInt(linkTypes.length)];
+				dimension.createLink(new Point4D(x, y, z, dimension.id()), linkType, random.nextInt(4), lock);
+			}
+		}
+		return dimensions;
+	}
+
+	private static int randomCoordinate(Random random)
+	{
+		switch (random.nextInt(4))
+		{
+			case 0:
+				return random.nextInt(64) - 32;
+			case 1:
+				return random.nextInt(60000000) - 30000000;
+			case 2:
+				// Extreme values make the differences between sorted coordinates overflow
+				return EXTREME_COORDINATES[random.nextInt(EXTREME_COORDINATES.length)];
+			default:
+				return random.nextInt();
+		}
+	}
+
+	private static boolean containsID(ArrayList<NewDimData> dimensions, int id)
+	{
+		for (NewDimData dimension : dimensions)
+		{
+			if (dimension.id() == id)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void checkRoundTrip(ArrayList<NewDimData> dimensions, Random random) throws IOException
+	{
+		// Leave out some of the dimensions, including roots, since the reader has to register missing roots itself
+		ArrayList<NewDimData> sent = new ArrayList<NewDimData>();
+		for (NewDimData dimension : dimensions)
+		{
+			if (random.nextInt(5) != 0)
+			{
+				sent.add(dimension);
+			}
+		}
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		Compactor.write(sent, new DataOutputStream(buffer));
+		ClientRegistry registry = new ClientRegistry();
+		Compactor.readDimensions(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())), registry);
+
+		for (NewDimData expected : sent)
+		{
+			NewDimData actual = registry.dimensions.get(expected.id());
+			assertNotNull("Dimension " + expected.id() + " was not registered", actual);
+			assertEquals("Root of dimension " + expected.id(), expected.root().id(), actual.root().id());
+			assertEquals("Type of dimension " + expected.id(), expected.type(), actual.type());
+			assertNotNull("Root of dimension " + expected.id() + " was not registered", registry.dimensions.get(expected.root().id()));
+		}
+		for (NewDimData actual : registry.dimensions.values())
+		{
+			// The only extra dimensions allowed are the roots of the dimensions that were sent
+			assertTrue("Dimension " + actual.id() + " was registered but never sent", containsID(sent, actual.id()) ||
+					(actual.id() == actual.root().id() && isRootOfAny(sent, actual.id())));
+		}
+
+		// Send the links of each dimension to a client that has never heard of any of them
+		for (NewDimData expected : dimensions)
+		{
+			buffer.reset();
+			Compactor.writeLinks(expected, new DataOutputStream(buffer));
+			ClientRegistry client = new ClientRegistry();
+			NewDimData actual = Compactor.readLinks(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())), client);
+			assertEquals("Links of dimension " + expected.id() + " were read into the wrong dimension", expected.id(), actual.id());
+			assertEquals("Root of dimension " + expected.id(), expected.root().id(), actual.root().id());
+			assertEquals("Type of dimension " + expected.id(), expected.type(), actual.type());
+			compareLinks(expected, actual);
+		}
+	}
+
+	private static boolean isRootOfAny(ArrayList<NewDimData> dimensions, int id)
+	{
+		for (NewDimData dimension : dimensions)
+		{
+			if (dimension.root().id() == id)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void compareLinks(NewDimData expected, NewDimData actual)
+	{
+		assertEquals("Link count of dimension " + expected.id(), expected.linkCount(), actual.linkCount());
+		for (DimLink link : expected.links())
+		{
+			Point4D source = link.source();
+			DimLink copy = actual.getLink(source);
+			assertNotNull("Link at " + source + " is missing", copy);
+			assertEquals("Type of link at " + source, LinkType.CLIENT, copy.linkType());
+			assertEquals("Orientation of link at " + source, link.orientation(), copy.orientation());
+			assertEquals("Lock of link at " + source, link.hasLock(), copy.hasLock());
+			if (link.hasLock())
+			{
+				assertEquals("Lock state of link at " + source, link.getLockState(), copy.getLockState());
+				assertEquals("Lock key of link at " + source, link.getLock().getLockKey(), copy.getLock().getLockKey());
+			}
+		}
+	}
+
+	/**
+	 * The format that Compactor.write() produced before version 1. It always included every link.
+	 */
+	private static void writeOldFormat(ArrayList<NewDimData> values, DataOutputStream output) throws IOException
+	{
+		output.writeInt(values.size());
+		for (NewDimData dimension : values)
+		{
+			output.writeInt(dimension.id());
+			output.writeInt(dimension.root().id());
+			output.writeInt(dimension.linkCount());
+			for (DimLink link : dimension.links())
+			{
+				Point4D.write(link.source(), output);
+				output.writeInt(link.orientation());
+			}
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package StevenDimDoors.mod_pocketDim.schematic;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the rotation tables in BlockRotator.transformMetadata() with rotating one quarter turn at a time,
+ * the way transformMetadata() worked before the tables were added. Only blocks with orientations are rotated,
+ * since the two versions do the same thing for the rest. Each invocation rotates every metadata value of those
+ * blocks by the same number of turns, which changes between invocations.
+ * Run it with "gradlew benchmark -Pbenchmarks=BlockRotator".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BlockRotatorBenchmark
+{
+	private static final int BLOCK_ID_COUNT = 4096;
+	private static final int METADATA_COUNT = 16;
+
+	private int[] blockIDs;
+	private int turns;
+
+	@Setup
+	public void setup()
+	{
+		TestDoors.register();
+		turns = 0;
+
+		// Find the blocks that have orientations by checking which ones change when they're rotated
+		ArrayList<Integer> oriented = new ArrayList<Integer>();
+		for (int blockID = 0; blockID < BLOCK_ID_COUNT; blockID++)
+		{
+			for (int metadata = 0; metadata < METADATA_COUNT; metadata++)
+			{
+				if (BlockRotator.rotateMetadata(metadata, 1, blockID) != metadata)
+				{
+					oriented.add(blockID);
+					break;
+				}
+			}
+		}
+		blockIDs = new int[oriented.size()];
+		for (int index = 0; index < blockIDs.length; index++)
+		{
+			blockIDs[index] = oriented.get(index);
+		}
+	}
+
+	@Benchmark
+	public int rotateByQuarterTurns()
+	{
+		turns++;
+		int checksum = 0;
+		for (int blockID : blockIDs)
+		{
+			for (int metadata = 0; metadata < METADATA_COUNT; metadata++)
+			{
+				checksum += BlockRotator.rotateMetadata(metadata, turns, blockID);
+			}
+		}
+		return checksum;
+	}
+
+	@Benchmark
+	public int rotateWithTables()
+	{
+		turns++;
+		int checksum = 0;
+		for (int blockID : blockIDs)
+		{
+			for (int metadata = 0; metadata < METADATA_COUNT; metadata++)
+			{
+				checksum += BlockRotator.transformMetadata(metadata, turns, blockID);
+			}
+		}
+		return checksum;
+	}
+}
@@ -0,0 +1,116 @@
+package StevenDimDoors.mod_pocketDim.schematic;
+
+import static org.junit.Assert.assertEquals;
+
+import net.minecraft.block.Block;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import StevenDimDoors.mod_pocketDim.mod_pocketDim;
+
+public class BlockRotatorTest
+{
+	private static final int BLOCK_ID_COUNT = 4096;
+	private static final int MIN_METADATA = -2;
+	private static final int MAX_METADATA = 17;
+	private static final int MAX_TURNS = 9;
+
+	@BeforeClass
+	public static void registerDoors()
+	{
+		TestDoors.register();
+	}
+
+	/**
+	 * The lower half of a door stores its direction in bits 0-1 and whether it's open in bit 2.
+	 * Each clockwise turn advances the direction by one.
+	 */
+	@Test
+	public void rotatesDoors()
+	{
+		int[] doors = new int[] { Block.doorWood.blockID, Block.doorIron.blockID, mod_pocketDim.dimensionalDoor.blockID };
+		for (int blockID : doors)
+		{
+			assertEquals(1, BlockRotator.transformMetadata(0, 1, blockID));
+			assertEquals(0, BlockRotator.transformMetadata(3, 1, blockID));
+			assertEquals(0, BlockRotator.transformMetadata(2, 2, blockID));
+			assertEquals(0, BlockRotator.transformMetadata(1, -1, blockID));
+			assertEquals(3, BlockRotator.transformMetadata(3, 4, blockID));
+			// Open doors stay open
+			assertEquals(6, BlockRotator.transformMetadata(5, 1, blockID));
+			assertEquals(5, BlockRotator.transformMetadata(6, 3, blockID));
+		}
+	}
+
+	/**
+	 * Stairs ascend towards the east (0), west (1), south (2) or north (3). Upside-down stairs add 4.
+	 */
+	@Test
+	public void rotatesStairs()
+	{
+		int blockID = Block.stairsCobblestone.blockID;
+		assertEquals(2, BlockRotator.transformMetadata(0, 1, blockID));
+		assertEquals(1, BlockRotator.transformMetadata(0, 2, blockID));
+		assertEquals(3, BlockRotator.transformMetadata(0, 3, blockID));
+		assertEquals(3, BlockRotator.transformMetadata(0, -1, blockID));
+		assertEquals(0, BlockRotator.transformMetadata(3, 1, blockID));
+		assertEquals(6, BlockRotator.transformMetadata(4, 1, blockID));
+		assertEquals(4, BlockRotator.transformMetadata(7, 1, blockID));
+		assertEquals(5, BlockRotator.transformMetadata(4, 2, blockID));
+	}
+
+	/**
+	 * Rails run north-south (0) or east-west (1), or ascend towards the east (2), west (3), north (4) or
+	 * south (5). Powered, detector and activator rails add 8 when they're on. Ordinary rails can also
+	 * curve: southeast (6), southwest (7), northwest (8) and northeast (9).
+	 */
+	@Test
+	public void rotatesRails()
+	{
+		int blockID = Block.railPowered.blockID;
+		assertEquals(1, BlockRotator.transformMetadata(0, 1, blockID));
+		assertEquals(0, BlockRotator.transformMetadata(0, 2, blockID));
+		assertEquals(5, BlockRotator.transformMetadata(2, 1, blockID));
+		assertEquals(3, BlockRotator.transformMetadata(2, 2, blockID));
+		assertEquals(4, BlockRotator.transformMetadata(2, 3, blockID));
+		assertEquals(5, BlockRotator.transformMetadata(3, -1, blockID));
+		assertEquals(13, BlockRotator.transformMetadata(10, 1, blockID));
+		assertEquals(8, BlockRotator.transformMetadata(9, 1, Block.railDetector.blockID));
+
+		blockID = Block.rail.blockID;
+		assertEquals(1, BlockRotator.transformMetadata(0, 1, blockID));
+		assertEquals(7, BlockRotator.transformMetadata(6, 1, blockID));
+		assertEquals(8, BlockRotator.transformMetadata(6, 2, blockID));
+		assertEquals(6, BlockRotator.transformMetadata(9, 1, blockID));
+		assertEquals(9, BlockRotator.transformMetadata(6, -1, blockID));
+	}
+
+	@Test
+	public void leavesOtherBlocksAlone()
+	{
+		assertEquals(5, BlockRotator.transformMetadata(5, 1, Block.stone.blockID));
+		assertEquals(3, BlockRotator.transformMetadata(3, 2, 0));
+	}
+
+	/**
+	 * The rotation tables must give the same results as rotating one quarter turn at a time,
+	 * including for metadata values outside the tables.
+	 */
+	@Test
+	public void tablesMatchRotationByQuarterTurns()
+	{
+		for (int blockID = 0; blockID < BLOCK_ID_COUNT; blockID++)
+		{
+			for (int metadata = MIN_METADATA; metadata <= MAX_METADATA; metadata++)
+			{
+				for (int turns = -MAX_TURNS; turns <= MAX_TURNS; turns++)
+				{
+					assertEquals("Block " + blockID + ", metadata " + metadata + ", turns " + turns,
+							BlockRotator.rotateMetadata(metadata, turns, blockID),
+							BlockRotator.transformMetadata(metadata, turns, blockID));
+				}
+			}
+		}
+	}
+}
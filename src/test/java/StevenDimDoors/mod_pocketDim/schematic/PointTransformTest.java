@@ -0,0 +1,63 @@
+package StevenDimDoors.mod_pocketDim.schematic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import StevenDimDoors.mod_pocketDim.Point3D;
+
+public class PointTransformTest
+{
+	private static final int MAX_TURNS = 9;
+	private static final int TRIALS = 100000;
+
+	@Test
+	public void rotatesClockwise()
+	{
+		Point3D srcOrigin = new Point3D(0, 0, 0);
+		Point3D destOrigin = new Point3D(10, 5, 20);
+		Point3D point = new Point3D(1, 2, 3);
+
+		// A quarter turn clockwise takes (x, z) to (-z, x)
+		PointTransform transform = new PointTransform(srcOrigin, 1, destOrigin);
+		transform.apply(point);
+		assertEquals(new Point3D(7, 7, 21), point);
+
+		point = new Point3D(1, 2, 3);
+		new PointTransform(srcOrigin, -2, destOrigin).apply(point);
+		assertEquals(new Point3D(9, 7, 17), point);
+	}
+
+	@Test
+	public void matchesTransformPoint()
+	{
+		Random random = new Random(0);
+		for (int trial = 0; trial < TRIALS; trial++)
+		{
+			Point3D srcOrigin = randomPoint(random);
+			Point3D destOrigin = randomPoint(random);
+			int angle = random.nextInt(2 * MAX_TURNS + 1) - MAX_TURNS;
+			Point3D position = randomPoint(random);
+
+			PointTransform transform = new PointTransform(srcOrigin, angle, destOrigin);
+			Point3D expected = position.clone();
+			BlockRotator.transformPoint(expected, srcOrigin, angle, destOrigin);
+			Point3D actual = position.clone();
+			transform.apply(actual);
+
+			String context = "Point " + position + " from " + srcOrigin + " to " + destOrigin + " at angle " + angle;
+			assertEquals(context, expected, actual);
+			assertEquals(context, expected.getX(), transform.transformX(position.getX(), position.getZ()));
+			assertEquals(context, expected.getY(), transform.transformY(position.getY()));
+			assertEquals(context, expected.getZ(), transform.transformZ(position.getX(), position.getZ()));
+		}
+	}
+
+	private static Point3D randomPoint(Random random)
+	{
+		// Stay well within the world's limits so that the coordinates can't overflow
+		return new Point3D(random.nextInt(2000000) - 1000000, random.nextInt(512) - 256, random.nextInt(2000000) - 1000000);
+	}
+}
@@ -0,0 +1,28 @@
+package StevenDimDoors.mod_pocketDim.schematic;
+
+import net.minecraft.block.material.Material;
+import StevenDimDoors.mod_pocketDim.mod_pocketDim;
+import StevenDimDoors.mod_pocketDim.blocks.DimensionalDoor;
+
+/**
+ * BlockRotator's static initializer refers to the mod's doors, so they must be created before BlockRotator
+ * is loaded. This creates them with their default block IDs.
+ */
+class TestDoors
+{
+	private static boolean registered = false;
+
+	private TestDoors() { }
+
+	public static synchronized void register()
+	{
+		if (!registered)
+		{
+			mod_pocketDim.dimensionalDoor = new DimensionalDoor(1970, Material.iron, null);
+			mod_pocketDim.warpDoor = new DimensionalDoor(1975, Material.wood, null);
+			mod_pocketDim.goldenDimensionalDoor = new DimensionalDoor(1981, Material.iron, null);
+			mod_pocketDim.personalDimDoor = new DimensionalDoor(1983, Material.iron, null);
+			registered = true;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package StevenDimDoors.mod_pocketDim.ticking;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A stress test for the player searches that Monoliths run every tick. It compares PlayerProximityIndex with
+ * World.getClosestPlayerToEntity(), which MobMonolith used before. Each invocation advances the world by a tick
+ * and searches around 1000 Monoliths, so the index is rebuilt once per invocation as it would be in a game.
+ * Players are scattered over a 4096 x 4096 area, like Limbo, and the Monoliths are placed within 128 blocks
+ * of a player, since Monoliths far from every player aren't ticked. The results are the time per Monolith.
+ *
+ * The world is a TestWorld, which rules out line-of-sight checks because they need loaded chunks. MobMonolith
+ * repeats those for the same player once every LINE_OF_SIGHT_INTERVAL ticks, so their cost drops by that factor
+ * regardless of the number of players.
+ * Run it with "gradlew benchmark -Pbenchmarks=PlayerProximity".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlayerProximityBenchmark
+{
+	private static final int MONOLITH_COUNT = 1000;
+	private static final int AREA_SIZE = 4096;
+	private static final int MONOLITH_SPREAD = 128;
+	private static final double MAX_AGGRO_RANGE = 35;
+
+	@Param({ "10", "100", "400" })
+	public int playerCount;
+
+	private TestWorld world;
+	private PlayerProximityIndex index;
+	private Entity[] monoliths;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		Random random = new Random(0);
+		world = new TestWorld();
+		EntityPlayer[] players = new EntityPlayer[playerCount];
+		for (int count = 0; count < playerCount; count++)
+		{
+			players[count] = world.addPlayer(random.nextInt(AREA_SIZE) - AREA_SIZE / 2 + random.nextDouble(),
+					64 + random.nextInt(64) + random.nextDouble(), random.nextInt(AREA_SIZE) - AREA_SIZE / 2 + random.nextDouble());
+		}
+
+		monoliths = new Entity[MONOLITH_COUNT];
+		for (int count = 0; count < MONOLITH_COUNT; count++)
+		{
+			EntityPlayer player = players[random.nextInt(playerCount)];
+			monoliths[count] = world.createMonolith(player.posX + random.nextInt(2 * MONOLITH_SPREAD) - MONOLITH_SPREAD,
+					64 + random.nextInt(64), player.posZ + random.nextInt(2 * MONOLITH_SPREAD) - MONOLITH_SPREAD);
+		}
+		index = PlayerProximityIndex.forWorld(world.world());
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		PlayerProximityIndex.removeWorld(world.world());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MONOLITH_COUNT)
+	public int getClosestPlayerToEntity()
+	{
+		world.nextTick();
+		int found = 0;
+		for (Entity monolith : monoliths)
+		{
+			if (world.world().getClosestPlayerToEntity(monolith, MAX_AGGRO_RANGE) != null)
+			{
+				found++;
+			}
+		}
+		return found;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MONOLITH_COUNT)
+	public int proximityIndex()
+	{
+		world.nextTick();
+		int found = 0;
+		for (Entity monolith : monoliths)
+		{
+			if (index.getClosestPlayer(monolith, MAX_AGGRO_RANGE) != null)
+			{
+				found++;
+			}
+		}
+		return found;
+	}
+}
@@ -0,0 +1,93 @@
+package StevenDimDoors.mod_pocketDim.ticking;
+
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+
+import org.junit.Test;
+
+public class PlayerProximityIndexTest
+{
+	private static final double RANGE = 35;
+
+	@Test
+	public void findsTheSamePlayersAsWorld() throws Exception
+	{
+		Random random = new Random(0);
+		for (int trial = 0; trial < 200; trial++)
+		{
+			// Cover worlds on both sides of the sorting threshold. Whole coordinates on a small
+			// area produce plenty of ties and players at exactly the edge of the range.
+			TestWorld world = new TestWorld();
+			int playerCount = random.nextInt(60);
+			for (int count = 0; count < playerCount; count++)
+			{
+				world.addPlayer(random.nextInt(160) - 80, 64, random.nextInt(160) - 80);
+			}
+			PlayerProximityIndex index = PlayerProximityIndex.forWorld(world.world());
+			try
+			{
+				for (int tick = 0; tick < 3; tick++)
+				{
+					world.nextTick();
+					for (int query = 0; query < 50; query++)
+					{
+						Entity monolith = world.createMonolith(random.nextInt(200) - 100, 64 + random.nextInt(3), random.nextInt(200) - 100);
+						assertSame(world.world().getClosestPlayerToEntity(monolith, RANGE), index.getClosestPlayer(monolith, RANGE));
+					}
+					movePlayers(world, random, 1);
+				}
+			}
+			finally
+			{
+				PlayerProximityIndex.removeWorld(world.world());
+			}
+		}
+	}
+
+	@Test
+	public void findsPlayersThatMovedDuringTheTick() throws Exception
+	{
+		Random random = new Random(1);
+		TestWorld world = new TestWorld();
+		for (int count = 0; count < 100; count++)
+		{
+			world.addPlayer(random.nextInt(400) - 200 + random.nextDouble(), 64, random.nextInt(400) - 200 + random.nextDouble());
+		}
+		PlayerProximityIndex index = PlayerProximityIndex.forWorld(world.world());
+		try
+		{
+			for (int tick = 0; tick < 20; tick++)
+			{
+				world.nextTick();
+				for (int query = 0; query < 100; query++)
+				{
+					// Players can move between searches, but not by much in a single tick
+					Entity monolith = world.createMonolith(random.nextInt(400) - 200, 64, random.nextInt(400) - 200);
+					assertSame(world.world().getClosestPlayerToEntity(monolith, RANGE), index.getClosestPlayer(monolith, RANGE));
+					if (query % 10 == 0)
+					{
+						movePlayers(world, random, 0.5);
+					}
+				}
+			}
+		}
+		finally
+		{
+			PlayerProximityIndex.removeWorld(world.world());
+		}
+	}
+
+	private static void movePlayers(TestWorld world, Random random, double distance)
+	{
+		for (Object playerObject : world.world().playerEntities)
+		{
+			EntityPlayer player = (EntityPlayer) playerObject;
+			player.posX += (2 * random.nextDouble() - 1) * distance;
+			player.posZ += (2 * random.nextDouble() - 1) * distance;
+		}
+	}
+}
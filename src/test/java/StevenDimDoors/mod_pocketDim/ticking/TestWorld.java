@@ -0,0 +1,78 @@
+package StevenDimDoors.mod_pocketDim.ticking;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.storage.WorldInfo;
+
+import sun.misc.Unsafe;
+
+/**
+ * A world with players and Monoliths for testing player searches without a running game. Worlds and entities
+ * can't be constructed without one, so they're allocated without calling their constructors and only their
+ * positions, player lists and world time are filled in. Nothing else about them can be used.
+ */
+class TestWorld
+{
+	private final World world;
+	private final WorldInfo worldInfo;
+	private long time;
+
+	public TestWorld() throws Exception
+	{
+		world = allocate(WorldServer.class);
+		worldInfo = allocate(WorldInfo.class);
+		Field field = World.class.getDeclaredField("worldInfo");
+		field.setAccessible(true);
+		field.set(world, worldInfo);
+		world.playerEntities = new ArrayList<EntityPlayer>();
+		time = 0;
+	}
+
+	private static <T> T allocate(Class<T> type) throws Exception
+	{
+		Field field = Unsafe.class.getDeclaredField("theUnsafe");
+		field.setAccessible(true);
+		return type.cast(((Unsafe) field.get(null)).allocateInstance(type));
+	}
+
+	public World world()
+	{
+		return world;
+	}
+
+	@SuppressWarnings("unchecked")
+	public EntityPlayer addPlayer(double x, double y, double z) throws Exception
+	{
+		EntityPlayer player = allocate(EntityPlayerMP.class);
+		place(player, x, y, z);
+		world.playerEntities.add(player);
+		return player;
+	}
+
+	public Entity createMonolith(double x, double y, double z) throws Exception
+	{
+		Entity monolith = allocate(MobMonolith.class);
+		place(monolith, x, y, z);
+		return monolith;
+	}
+
+	private void place(Entity entity, double x, double y, double z)
+	{
+		entity.worldObj = world;
+		entity.posX = x;
+		entity.posY = y;
+		entity.posZ = z;
+	}
+
+	public void nextTick()
+	{
+		time++;
+		worldInfo.incrementTotalWorldTime(time);
+	}
+}
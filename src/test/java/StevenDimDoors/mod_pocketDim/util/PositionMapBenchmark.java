@@ -0,0 +1,191 @@
+package StevenDimDoors.mod_pocketDim.util;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares PositionMap with the TreeMap<Point4D, ...> that NewDimData used for its links before, and with
+ * a HashMap<Point4D, ...>, at a million links. Each benchmark reports the time per operation:
+ * - put fills an empty map
+ * - get looks up every link and as many positions without links, like rift and door checks do
+ * - putAndRemove fills an empty map and then empties it again, in a different order
+ * Run it with "gradlew benchmark -Pbenchmarks=PositionMap".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2G")
+public class PositionMapBenchmark
+{
+	private static final int SIZE = 1000000;
+
+	@Param({ "PositionMap", "HashMap", "TreeMap" })
+	public String container;
+
+	private int[] xs;
+	private int[] ys;
+	private int[] zs;
+	private int[] removalOrder;
+	private PositionContainer filled;
+
+	/**
+	 * Gives the three maps the same interface. The old maps are keyed by the links' points, so they create
+	 * a point for every operation, just as NewDimData did.
+	 */
+	private interface PositionContainer
+	{
+		public Object put(int x, int y, int z, Integer value);
+		public Object get(int x, int y, int z);
+		public Object remove(int x, int y, int z);
+	}
+
+	private static class PositionMapContainer implements PositionContainer
+	{
+		private final PositionMap<Integer> map = new PositionMap<Integer>();
+
+		@Override
+		public Object put(int x, int y, int z, Integer value) { return map.put(x, y, z, value); }
+
+		@Override
+		public Object get(int x, int y, int z) { return map.get(x, y, z); }
+
+		@Override
+		public Object remove(int x, int y, int z) { return map.remove(x, y, z); }
+	}
+
+	private static class HashMapContainer implements PositionContainer
+	{
+		private final HashMap<Point4D, Integer> map = new HashMap<Point4D, Integer>();
+
+		@Override
+		public Object put(int x, int y, int z, Integer value) { return map.put(new Point4D(x, y, z, 0), value); }
+
+		@Override
+		public Object get(int x, int y, int z) { return map.get(new Point4D(x, y, z, 0)); }
+
+		@Override
+		public Object remove(int x, int y, int z) { return map.remove(new Point4D(x, y, z, 0)); }
+	}
+
+	private static class TreeMapContainer implements PositionContainer
+	{
+		private final TreeMap<Point4D, Integer> map = new TreeMap<Point4D, Integer>();
+
+		@Override
+		public Object put(int x, int y, int z, Integer value) { return map.put(new Point4D(x, y, z, 0), value); }
+
+		@Override
+		public Object get(int x, int y, int z) { return map.get(new Point4D(x, y, z, 0)); }
+
+		@Override
+		public Object remove(int x, int y, int z) { return map.remove(new Point4D(x, y, z, 0)); }
+	}
+
+	@Setup
+	public void setup()
+	{
+		// Place the links the way they tend to be placed in practice: clustered around a few areas
+		Random random = new Random(0);
+		xs = new int[SIZE];
+		ys = new int[SIZE];
+		zs = new int[SIZE];
+		for (int index = 0; index < SIZE; index++)
+		{
+			int cluster = random.nextInt(100);
+			xs[index] = (cluster - 50) * 10000 + random.nextInt(2000);
+			ys[index] = random.nextInt(256);
+			zs[index] = (cluster % 10) * 10000 + random.nextInt(2000);
+		}
+		removalOrder = new int[SIZE];
+		for (int index = 0; index < SIZE; index++)
+		{
+			int other = random.nextInt(index + 1);
+			removalOrder[index] = removalOrder[other];
+			removalOrder[other] = index;
+		}
+		filled = fill();
+	}
+
+	private PositionContainer createContainer()
+	{
+		if (container.equals("PositionMap"))
+		{
+			return new PositionMapContainer();
+		}
+		if (container.equals("HashMap"))
+		{
+			return new HashMapContainer();
+		}
+		return new TreeMapContainer();
+	}
+
+	private PositionContainer fill()
+	{
+		PositionContainer map = createContainer();
+		for (int index = 0; index < SIZE; index++)
+		{
+			map.put(xs[index], ys[index], zs[index], index);
+		}
+		return map;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public Object put()
+	{
+		return fill();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2 * SIZE)
+	public int get()
+	{
+		int hits = 0;
+		for (int index = 0; index < SIZE; index++)
+		{
+			if (filled.get(xs[index], ys[index], zs[index]) != null)
+			{
+				hits++;
+			}
+			// There are no links above y = 255
+			if (filled.get(xs[index], ys[index] + 256, zs[index]) != null)
+			{
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2 * SIZE)
+	public int putAndRemove()
+	{
+		PositionContainer map = fill();
+		int removed = 0;
+		for (int index : removalOrder)
+		{
+			if (map.remove(xs[index], ys[index], zs[index]) != null)
+			{
+				removed++;
+			}
+		}
+		return removed;
+	}
+}
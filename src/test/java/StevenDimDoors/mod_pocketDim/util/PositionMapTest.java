@@ -0,0 +1,182 @@
+package StevenDimDoors.mod_pocketDim.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import StevenDimDoors.mod_pocketDim.Point3D;
+
+/**
+ * Checks PositionMap against a HashMap with the same operations. The checks cover clustered positions, which
+ * produce long probe sequences and make removals shift entries back across the end of the table, as well as
+ * positions that can't be packed and go to the overflow map.
+ */
+public class PositionMapTest
+{
+	private static final int RANDOM_OPERATIONS = 1000000;
+	private static final int DRAIN_ROUNDS = 200;
+
+	@Test
+	public void matchesHashMapForRandomOperations()
+	{
+		Random random = new Random(0);
+		PositionMap<Integer> map = new PositionMap<Integer>();
+		HashMap<Point3D, Integer> expected = new HashMap<Point3D, Integer>();
+
+		for (int operation = 0; operation < RANDOM_OPERATIONS; operation++)
+		{
+			// Keep most positions within a small region so that there are plenty of collisions
+			Point3D point;
+			int roll = random.nextInt(100);
+			if (roll < 2)
+			{
+				point = randomUnpackablePoint(random);
+			}
+			else if (roll < 10)
+			{
+				point = new Point3D(random.nextInt(60000000) - 30000000, random.nextInt(256), random.nextInt(60000000) - 30000000);
+			}
+			else
+			{
+				point = new Point3D(random.nextInt(64) - 32, random.nextInt(8), random.nextInt(64) - 32);
+			}
+
+			int x = point.getX();
+			int y = point.getY();
+			int z = point.getZ();
+			switch (random.nextInt(3))
+			{
+				case 0:
+					assertEquals("put " + point, expected.put(point, operation), map.put(x, y, z, operation));
+					break;
+				case 1:
+					assertEquals("remove " + point, expected.remove(point), map.remove(x, y, z));
+					break;
+				default:
+					assertEquals("get " + point, expected.get(point), map.get(x, y, z));
+					break;
+			}
+			assertEquals(expected.size(), map.size());
+			assertEquals(expected.isEmpty(), map.isEmpty());
+			if (operation % 100000 == 0)
+			{
+				assertSameContents(expected, map);
+			}
+			if (operation % 500000 == 499999)
+			{
+				map.clear();
+				expected.clear();
+				assertSameContents(expected, map);
+			}
+		}
+		assertSameContents(expected, map);
+	}
+
+	@Test
+	public void fillAndDrain()
+	{
+		// Fill the table to different sizes and remove everything in a random order. Every removal
+		// shifts entries back to close the gap, so check all of the remaining entries regularly.
+		Random random = new Random(0);
+		for (int round = 0; round < DRAIN_ROUNDS; round++)
+		{
+			PositionMap<Integer> map = new PositionMap<Integer>();
+			HashMap<Point3D, Integer> expected = new HashMap<Point3D, Integer>();
+			int count = 1 + random.nextInt(2000);
+			int extent = 1 + random.nextInt(16);
+			for (int index = 0; index < count; index++)
+			{
+				Point3D point = new Point3D(random.nextInt(extent), random.nextInt(extent), random.nextInt(extent));
+				expected.put(point, index);
+				map.put(point.getX(), point.getY(), point.getZ(), index);
+			}
+			ArrayList<Point3D> points = new ArrayList<Point3D>(expected.keySet());
+			Collections.shuffle(points, random);
+			for (int index = 0; index < points.size(); index++)
+			{
+				Point3D point = points.get(index);
+				assertEquals("remove " + point, expected.remove(point), map.remove(point.getX(), point.getY(), point.getZ()));
+				assertNull("get " + point, map.get(point.getX(), point.getY(), point.getZ()));
+				if (index % 16 == 0)
+				{
+					assertSameContents(expected, map);
+				}
+			}
+			assertTrue(map.isEmpty());
+		}
+	}
+
+	@Test
+	public void keepsBoundaryPositionsApart()
+	{
+		// Positions just inside and just outside the packable range, which must not collide with each other
+		int[] horizontal = new int[] { -(1 << 25) - 1, -(1 << 25), -1, 0, 1, (1 << 25) - 1, 1 << 25, Integer.MIN_VALUE, Integer.MAX_VALUE };
+		int[] vertical = new int[] { -2049, -2048, -1, 0, 255, 2047, 2048, Integer.MIN_VALUE, Integer.MAX_VALUE };
+		PositionMap<Integer> map = new PositionMap<Integer>();
+		HashMap<Point3D, Integer> expected = new HashMap<Point3D, Integer>();
+		int value = 0;
+		for (int x : horizontal)
+		{
+			for (int y : vertical)
+			{
+				for (int z : horizontal)
+				{
+					Point3D point = new Point3D(x, y, z);
+					assertEquals("put " + point, expected.put(point, value), map.put(x, y, z, value));
+					value++;
+				}
+			}
+		}
+		assertSameContents(expected, map);
+		for (int x : horizontal)
+		{
+			for (int y : vertical)
+			{
+				for (int z : horizontal)
+				{
+					Point3D point = new Point3D(x, y, z);
+					assertEquals("remove " + point, expected.remove(point), map.remove(x, y, z));
+				}
+			}
+		}
+		assertTrue(map.isEmpty());
+	}
+
+	private static Point3D randomUnpackablePoint(Random random)
+	{
+		int x = random.nextInt(16);
+		int y = random.nextInt(16);
+		int z = random.nextInt(16);
+		switch (random.nextInt(3))
+		{
+			case 0:
+				x += (random.nextBoolean() ? 1 : -1) * (1 << 25) + (random.nextBoolean() ? 0 : -16);
+				break;
+			case 1:
+				y += (random.nextBoolean() ? 2048 : -2064);
+				break;
+			default:
+				z = Integer.MAX_VALUE - z;
+				break;
+		}
+		return new Point3D(x, y, z);
+	}
+
+	private static void assertSameContents(Map<Point3D, Integer> expected, PositionMap<Integer> map)
+	{
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Point3D, Integer> entry : expected.entrySet())
+		{
+			Point3D point = entry.getKey();
+			assertEquals("get " + point, entry.getValue(), map.get(point.getX(), point.getY(), point.getZ()));
+		}
+	}
+}
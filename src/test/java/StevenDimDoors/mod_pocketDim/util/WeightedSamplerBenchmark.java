@@ -0,0 +1,120 @@
+package StevenDimDoors.mod_pocketDim.util;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraft.util.WeightedRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares WeightedSampler with the way dungeons, packs and loot were picked before it: wrapping every candidate
+ * in a WeightedContainer on each call and passing them to WeightedRandom, which scans them linearly.
+ * - weightedRandom and sampler each pick one item, like DungeonPack.getRandomDungeon()
+ * - weightedRandomWithExclusions and samplerWithExclusions pick items until they find one that can be used,
+ *   like DungeonPack.getRandomDungeonType(). Half of the items can't be used, like dungeon types that have
+ *   no dungeons. The old code copied the candidates and removed each unusable item it drew, while the sampler
+ *   masks it out.
+ * Run it with "gradlew benchmark -Pbenchmarks=WeightedSampler".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WeightedSamplerBenchmark
+{
+	@Param({ "8", "64", "512" })
+	public int itemCount;
+
+	private Random random;
+	private ArrayList<Integer> items;
+	private int[] weights;
+	private ArrayList<WeightedContainer<Integer>> containers;
+	private WeightedSampler<Integer> sampler;
+
+	@Setup
+	public void setup()
+	{
+		random = new Random(0);
+		items = new ArrayList<Integer>(itemCount);
+		weights = new int[itemCount];
+		containers = new ArrayList<WeightedContainer<Integer>>(itemCount);
+		for (int index = 0; index < itemCount; index++)
+		{
+			items.add(index);
+			weights[index] = 1 + random.nextInt(200);
+			containers.add(new WeightedContainer<Integer>(index, weights[index]));
+		}
+		sampler = new WeightedSampler<Integer>(items, weights);
+	}
+
+	private static boolean isUsable(int item)
+	{
+		return (item % 2 == 0);
+	}
+
+	@Benchmark
+	public int weightedRandom()
+	{
+		ArrayList<WeightedContainer<Integer>> candidates = new ArrayList<WeightedContainer<Integer>>(items.size());
+		for (int index = 0; index < items.size(); index++)
+		{
+			candidates.add(new WeightedContainer<Integer>(items.get(index), weights[index]));
+		}
+		@SuppressWarnings("unchecked")
+		WeightedContainer<Integer> result = (WeightedContainer<Integer>) WeightedRandom.getRandomItem(random, candidates);
+		return result.getData();
+	}
+
+	@Benchmark
+	public int sampler()
+	{
+		return sampler.sample(random);
+	}
+
+	@Benchmark
+	public int weightedRandomWithExclusions()
+	{
+		ArrayList<WeightedContainer<Integer>> candidates = new ArrayList<WeightedContainer<Integer>>(containers);
+		while (!candidates.isEmpty())
+		{
+			@SuppressWarnings("unchecked")
+			WeightedContainer<Integer> result = (WeightedContainer<Integer>) WeightedRandom.getRandomItem(random, candidates);
+			if (isUsable(result.getData()))
+			{
+				return result.getData();
+			}
+			candidates.remove(result);
+		}
+		return -1;
+	}
+
+	@Benchmark
+	public int samplerWithExclusions()
+	{
+		WeightedSampler<Integer>.Mask removed = sampler.createMask();
+		int index;
+		while ((index = sampler.sampleIndex(random, removed)) >= 0)
+		{
+			if (isUsable(sampler.get(index)))
+			{
+				return sampler.get(index);
+			}
+			removed.exclude(index);
+		}
+		return -1;
+	}
+}